@@ -0,0 +1,250 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.audit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.transaction.Status;
+import javax.transaction.UserTransaction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes audit log buffers of committed engine transactions in a background thread so audit writes are
+ * decoupled from the engine transactions. Buffers waiting to be written are kept in a bounded queue - when the
+ * queue is full (or the writer is already closed) threads submitting new buffers write them directly instead
+ * (back pressure) so the audit log can never fall behind the engine without limits and committing threads
+ * are never blocked waiting for the writer.
+ * <br/>
+ * Buffers that are already queued when the writer picks up the work are written together in one transaction.
+ * When that transaction fails each of the buffers is retried in its own transaction so a single failing buffer
+ * does not cause the audit logs of the other transactions to be lost.
+ * <br/>
+ * There is one writer (and thread) per <code>EntityManagerFactory</code>, shared by all loggers that use it - see
+ * {@link #get(EntityManagerFactory)} and {@link #getOrCreate(EntityManagerFactory, UserTransaction, int)}. The
+ * writer must be closed with {@link #close(EntityManagerFactory, long)} before the factory is closed, e.g. when
+ * the runtime manager is closed. In JTA environments the <code>UserTransaction</code> is looked up by the
+ * caller (in a managed thread) and given to the writer, as it cannot be reliably looked up in the writer thread.
+ */
+public class AsyncAuditLogWriter implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncAuditLogWriter.class);
+
+    private static final int MAX_BUFFERS_PER_TRANSACTION = 100;
+
+    private static final Map<EntityManagerFactory, AsyncAuditLogWriter> writers = new HashMap<EntityManagerFactory, AsyncAuditLogWriter>();
+
+    private final EntityManagerFactory emf;
+    private final UserTransaction ut;
+
+    private final BlockingQueue<AuditLogBuffer> queue;
+    private final Thread worker;
+
+    private final Object submitLock = new Object();
+    private volatile boolean running = true;
+
+    /**
+     * @param ut user transaction to write the audit logs in or null when resource local transactions should be used
+     */
+    protected AsyncAuditLogWriter(EntityManagerFactory emf, UserTransaction ut, int queueSize) {
+        this.emf = emf;
+        this.ut = ut;
+        this.queue = new ArrayBlockingQueue<AuditLogBuffer>(queueSize);
+
+        this.worker = new Thread(this, "jBPM-AsyncAuditLogWriter");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * @return writer of given entity manager factory or null if there is none
+     */
+    public static AsyncAuditLogWriter get(EntityManagerFactory emf) {
+        synchronized (writers) {
+            return writers.get(emf);
+        }
+    }
+
+    /**
+     * Returns writer of given entity manager factory, the writer is created and started if there is none yet.
+     * @param ut user transaction to write the audit logs in or null when resource local transactions should be used
+     */
+    public static AsyncAuditLogWriter getOrCreate(EntityManagerFactory emf, UserTransaction ut, int queueSize) {
+        synchronized (writers) {
+            AsyncAuditLogWriter writer = writers.get(emf);
+            if (writer == null) {
+                writer = new AsyncAuditLogWriter(emf, ut, queueSize);
+                writers.put(emf, writer);
+            }
+            return writer;
+        }
+    }
+
+    /**
+     * Closes writer of given entity manager factory (if any), waiting up to given time for the already queued
+     * buffers to be written. Loggers that commit afterwards get a new writer.
+     */
+    public static void close(EntityManagerFactory emf, long timeout) {
+        AsyncAuditLogWriter writer;
+        synchronized (writers) {
+            writer = writers.remove(emf);
+        }
+        if (writer != null) {
+            writer.close(timeout);
+        }
+    }
+
+    /**
+     * Queues given buffer to be written. In case the writer is closed or the queue is full the buffer is
+     * written directly by the calling thread.
+     */
+    public void submit(AuditLogBuffer buffer) {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        // checked and queued under the lock so no buffer can be queued once close has stopped the writer
+        synchronized (submitLock) {
+            if (running && queue.offer(buffer)) {
+                return;
+            }
+        }
+        logger.debug("Audit log writer closed or its queue is full, writing audit logs directly");
+        writeEach(Collections.singletonList(buffer));
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting new buffers and waits (up to given time) for the already queued ones to be written.
+     */
+    public void close(long timeout) {
+        synchronized (submitLock) {
+            running = false;
+        }
+        try {
+            worker.join(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            logger.warn("Audit log writer closed with {} transactions not written yet", queue.size());
+        }
+    }
+
+    @Override
+    public void run() {
+        List<AuditLogBuffer> buffers = new ArrayList<AuditLogBuffer>();
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditLogBuffer buffer = queue.poll(1, TimeUnit.SECONDS);
+                if (buffer == null) {
+                    continue;
+                }
+                buffers.add(buffer);
+                queue.drainTo(buffers, MAX_BUFFERS_PER_TRANSACTION - 1);
+
+                if (!write(buffers) && buffers.size() > 1) {
+                    writeEach(buffers);
+                }
+            } catch (InterruptedException e) {
+                logger.debug("Audit log writer interrupted");
+                break;
+            } finally {
+                buffers.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes each of given buffers in its own transaction.
+     */
+    protected void writeEach(List<AuditLogBuffer> buffers) {
+        for (AuditLogBuffer buffer : buffers) {
+            if (!write(Collections.singletonList(buffer))) {
+                logger.error("Audit logs of a transaction ({} entries) could not be written and are lost", buffer.size());
+            }
+        }
+    }
+
+    /**
+     * Writes given buffers in one transaction.
+     * @return true if the buffers were written, false if the transaction failed and was rolled back
+     */
+    protected boolean write(List<AuditLogBuffer> buffers) {
+        EntityManager em = emf.createEntityManager();
+        EntityTransaction tx = null;
+        try {
+            if (ut != null) {
+                ut.begin();
+                em.joinTransaction();
+            } else {
+                tx = em.getTransaction();
+                tx.begin();
+            }
+
+            for (AuditLogBuffer buffer : buffers) {
+                buffer.write(em);
+            }
+            em.flush();
+
+            if (ut != null) {
+                ut.commit();
+            } else {
+                tx.commit();
+            }
+            return true;
+        } catch (Exception e) {
+            logger.warn("Unable to write audit logs of {} transactions", buffers.size(), e);
+            rollback(tx);
+            for (AuditLogBuffer buffer : buffers) {
+                buffer.rollback();
+            }
+            return false;
+        } finally {
+            try {
+                em.close();
+            } catch (Exception e) {
+                logger.error("Unable to close created EntityManager: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void rollback(EntityTransaction tx) {
+        try {
+            if (ut != null && ut.getStatus() != Status.STATUS_NO_TRANSACTION) {
+                ut.rollback();
+            } else if (tx != null && tx.isActive()) {
+                tx.rollback();
+            }
+        } catch (Exception e) {
+            logger.error("Unable to rollback audit log transaction", e);
+        }
+    }
+}
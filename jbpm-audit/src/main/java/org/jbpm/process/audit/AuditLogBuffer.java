@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.audit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+
+import org.kie.api.runtime.Environment;
+
+/**
+ * Audit log entities collected by <code>JPAWorkingMemoryDbLogger</code> within single transaction when write behind
+ * is enabled. Instead of being written one by one as the events occur, all of them are written at once (in the order
+ * they were collected) when the transaction is about to complete - or after it was committed in asynchronous mode -
+ * which allows JPA provider to send them to the data base as JDBC batches.
+ */
+public class AuditLogBuffer {
+
+    private enum Operation {
+        PERSIST,
+        MERGE,
+        COMPLETE
+    }
+
+    private final Environment environment;
+
+    private final List<Entry> entries = new ArrayList<Entry>();
+    private final Set<Object> persisted = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+    private boolean closed = false;
+
+    public AuditLogBuffer(Environment environment) {
+        this.environment = environment;
+    }
+
+    public Environment getEnvironment() {
+        return environment;
+    }
+
+    public void persist(Object entity) {
+        entries.add(new Entry(Operation.PERSIST, entity));
+        persisted.add(entity);
+    }
+
+    public void merge(Object entity) {
+        entries.add(new Entry(Operation.MERGE, entity));
+    }
+
+    /**
+     * Records completion of process instance which log was not available at the time the process instance completed.
+     * The log is looked up when the buffer is written and is updated with the values of given completed log.
+     */
+    public void complete(ProcessInstanceLog completed) {
+        entries.add(new Entry(Operation.COMPLETE, completed));
+    }
+
+    /**
+     * @return true if given entity is going to be persisted when this buffer is written - such entity
+     * can be modified without being merged
+     */
+    public boolean contains(Object entity) {
+        return persisted.contains(entity);
+    }
+
+    /**
+     * Marks this buffer as being written, no more entities can be added to it.
+     */
+    public void close() {
+        this.closed = true;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Writes all collected entities with given entity manager, it's up to the caller to manage the transaction
+     * and to flush the entity manager.
+     */
+    public void write(EntityManager em) {
+        for (Entry entry : entries) {
+            switch (entry.operation) {
+            case PERSIST:
+                em.persist(entry.entity);
+                break;
+            case MERGE:
+                em.merge(entry.entity);
+                break;
+            case COMPLETE:
+                completeProcessInstanceLog(em, (ProcessInstanceLog) entry.entity);
+                break;
+            default:
+                break;
+            }
+        }
+    }
+
+    /**
+     * Resets the generated ids the entities to be persisted got in a write that was rolled back, so they are
+     * persisted as new entities when the buffer is written again.
+     */
+    public void rollback() {
+        for (Entry entry : entries) {
+            if (entry.operation != Operation.PERSIST) {
+                continue;
+            }
+            if (entry.entity instanceof ProcessInstanceLog) {
+                ((ProcessInstanceLog) entry.entity).setId(0);
+            } else if (entry.entity instanceof NodeInstanceLog) {
+                ((NodeInstanceLog) entry.entity).setId(0);
+            } else if (entry.entity instanceof VariableInstanceLog) {
+                ((VariableInstanceLog) entry.entity).setId(0);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    protected void completeProcessInstanceLog(EntityManager em, ProcessInstanceLog completed) {
+        List<ProcessInstanceLog> result = em.createQuery(
+                "from ProcessInstanceLog as log where log.processInstanceId = :piId and log.end is null")
+                .setParameter("piId", completed.getProcessInstanceId()).getResultList();
+        if (result != null && result.size() != 0) {
+            ProcessInstanceLog log = result.get(result.size() - 1);
+            log.setOutcome(completed.getOutcome());
+            log.setStatus(completed.getStatus());
+            log.setEnd(completed.getEnd());
+            log.setDuration(completed.getEnd().getTime() - log.getStart().getTime());
+            log.setProcessInstanceDescription(completed.getProcessInstanceDescription());
+            em.merge(log);
+        }
+    }
+
+    private static class Entry {
+        private final Operation operation;
+        private final Object entity;
+
+        Entry(Operation operation, Object entity) {
+            this.operation = operation;
+            this.entity = entity;
+        }
+    }
+}
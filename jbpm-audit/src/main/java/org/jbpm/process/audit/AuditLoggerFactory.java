@@ -49,11 +49,15 @@ public class AuditLoggerFactory {
      * registers it directly in given ksession to receive its events.
      * Depending on the types several properties are supported:
      * <bold>JPA</bold>
-     * No properties are supported
+     * <ul>
+     * <li>jbpm.audit.jpa.write.behind - determines if audit logs are written at once when transaction completes - default false - type Boolean</li>
+     * <li>jbpm.audit.jpa.async - determines if audit logs are written asynchronously after transaction is committed - default false - type Boolean</li>
+     * </ul>
      * 
      * <bold>JMS</bold>
      * <ul>
      * <li>jbpm.audit.jms.transacted - determines if JMS session is transacted or not - default true - type Boolean</li>
+     * <li>jbpm.audit.jms.batched - determines if all events of a transaction are sent as single message in binary format - default false - type Boolean</li>
      * <li>jbpm.audit.jms.connection.factory - connection factory instance - type javax.jms.ConnectionFactory</li>
      * <li>jbpm.audit.jms.queue - JMS queue instance - type javax.jms.Queue</li>
      * <li>jbpm.audit.jms.connection.factory.jndi - JNDI name of the connection factory to look up - type String</li>
@@ -69,6 +73,12 @@ public class AuditLoggerFactory {
         switch (type) {
             case JPA:
                 logger = new JPAWorkingMemoryDbLogger(ksession);
+                if (properties != null && properties.containsKey("jbpm.audit.jpa.write.behind")) {
+                    ((JPAWorkingMemoryDbLogger) logger).setWriteBehind(Boolean.parseBoolean(properties.get("jbpm.audit.jpa.write.behind").toString()));
+                }
+                if (properties != null && properties.containsKey("jbpm.audit.jpa.async")) {
+                    ((JPAWorkingMemoryDbLogger) logger).setAsync(Boolean.parseBoolean(properties.get("jbpm.audit.jpa.async").toString()));
+                }
                 break;
             case JMS:
                 boolean transacted = true;
@@ -77,6 +87,9 @@ public class AuditLoggerFactory {
                 }
                 
                 logger = new AsyncAuditLogProducer(ksession, transacted);
+                if (properties.containsKey("jbpm.audit.jms.batched")) {
+                    ((AsyncAuditLogProducer) logger).setBatched(Boolean.parseBoolean(properties.get("jbpm.audit.jms.batched").toString()));
+                }
                 // set connection factory and queue if given as property
                 if (properties.containsKey("jbpm.audit.jms.connection.factory")) {
                     ConnectionFactory connFactory = (ConnectionFactory) properties.get("jbpm.audit.jms.connection.factory"); 
@@ -135,6 +148,7 @@ public class AuditLoggerFactory {
      * Supported parameters are as follows:
      * <ul>
      * <li>jbpm.audit.jms.transacted - determines if JMS session is transacted or not - default true - type Boolean</li>
+     * <li>jbpm.audit.jms.batched - determines if all events of a transaction are sent as single message in binary format - default false - type Boolean</li>
      * <li>jbpm.audit.jms.connection.factory - connection factory instance - type javax.jms.ConnectionFactory</li>
      * <li>jbpm.audit.jms.queue - JMS queue instance - type javax.jms.Queue</li>
      * <li>jbpm.audit.jms.connection.factory.jndi - JNDI name of the connection factory to look up - type String</li>
@@ -158,6 +172,9 @@ public class AuditLoggerFactory {
         }
         
         logger.setTransacted(transacted);
+        if (properties.containsKey("jbpm.audit.jms.batched")) {
+            logger.setBatched(Boolean.parseBoolean(properties.get("jbpm.audit.jms.batched").toString()));
+        }
         
         // set connection factory and queue if given as property
         if (properties.containsKey("jbpm.audit.jms.connection.factory")) {
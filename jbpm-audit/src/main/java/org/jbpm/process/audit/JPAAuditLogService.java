@@ -74,6 +74,7 @@ import org.jbpm.process.audit.query.ProcessInstanceLogDeleteBuilderImpl;
 import org.jbpm.process.audit.query.VarInstLogQueryBuilderImpl;
 import org.jbpm.process.audit.query.VarInstanceLogDeleteBuilderImpl;
 import org.jbpm.process.audit.strategy.PersistenceStrategyType;
+import org.jbpm.process.audit.strategy.StandaloneJtaStrategy;
 import org.jbpm.query.jpa.data.QueryCriteria;
 import org.jbpm.query.jpa.data.QueryWhere;
 import org.jbpm.query.jpa.data.QueryWhere.QueryCriteriaType;
@@ -367,6 +368,10 @@ public class JPAAuditLogService extends JPAService implements AuditLogService {
    
     // Delete queries -------------------------------------------------------------------------------------------------------------
    
+    private static final String LAST_ID = "lastId";
+    private static final String AFTER_LAST_ID_CRITERIA = " l.id > :" + LAST_ID + " ";
+    private static final String DELETE_IDS = "ids";
+    
     public static Map<String, String> criteriaFields = new ConcurrentHashMap<String, String>();
     public static Map<String, Class<?>> criteriaFieldClasses = new ConcurrentHashMap<String, Class<?>>();
     
@@ -407,11 +412,89 @@ public class JPAAuditLogService extends JPAService implements AuditLogService {
         criteriaFieldClasses.put(listId, type );
     }
     
+    /**
+     * Finds primary keys of (at most <code>maxResults</code>) records that match the delete criteria 
+     * and have primary key greater than <code>lastId</code>, ordered by primary key - used to delete
+     * large amount of records in bounded chunks. 
+     * <br/>
+     * The query is executed in its own transaction, transaction active on current thread (if any) is 
+     * suspended meanwhile.
+     */
+    public List<Long> findDeleteIds(QueryWhere queryData, Class<?> resultType, String subQuery, long lastId, int maxResults) {
+        Map<String, Object> queryParams = new HashMap<String, Object>();
+        String selectBase = "SELECT l.id\nFROM " + resultType.getSimpleName() + " l\n";
+        String queryString = createDeleteQuery(selectBase, queryData, queryParams, true, subQuery, true) + "\nORDER BY l.id";
+        queryParams.put(LAST_ID, lastId);
+        logger.debug("DELETE ids statement:\n {}", queryString);
+        
+        Object suspended = suspendTransaction();
+        try {
+            EntityManager em = getEntityManager();
+            Object newTx = joinTransaction(em);
+            Query query = em.createQuery(queryString);
+            applyMetaQueryParameters(queryParams, query);
+            query.setMaxResults(maxResults);
+            List<?> result = query.getResultList();
+            closeEntityManager(em, newTx);
+            
+            List<Long> ids = new ArrayList<Long>(result.size());
+            for (Object id : result) {
+                ids.add(((Number) id).longValue());
+            }
+            return ids;
+        } finally {
+            resumeTransaction(suspended);
+        }
+    }
+    
+    /**
+     * Deletes records with given primary keys in its own transaction, transaction active on current 
+     * thread (if any) is suspended meanwhile. 
+     * @see #findDeleteIds(QueryWhere, Class, String, long, int)
+     */
+    public int deleteByIds(Class<?> resultType, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String queryString = "DELETE\nFROM " + resultType.getSimpleName() + " l\nWHERE l.id IN (:" + DELETE_IDS + ")";
+        logger.debug("DELETE statement:\n {}", queryString);
+        
+        Object suspended = suspendTransaction();
+        try {
+            EntityManager em = getEntityManager();
+            Object newTx = joinTransaction(em);
+            Query query = em.createQuery(queryString);
+            query.setParameter(DELETE_IDS, ids);
+            int result = query.executeUpdate();
+            logger.debug("Deleted rows " + result);
+            closeEntityManager(em, newTx);
+            
+            return result;
+        } finally {
+            resumeTransaction(suspended);
+        }
+    }
+    
+    private Object suspendTransaction() {
+        // resource local strategy uses own transaction per entity manager anyway, and strategies that
+        // share the entity manager of the caller have to stay in the caller's transaction
+        if (persistenceStrategy instanceof StandaloneJtaStrategy) {
+            return ((StandaloneJtaStrategy) persistenceStrategy).suspendTransaction();
+        }
+        return null;
+    }
+    
+    private void resumeTransaction(Object suspended) {
+        if (suspended != null) {
+            ((StandaloneJtaStrategy) persistenceStrategy).resumeTransaction(suspended);
+        }
+    }
+    
     public int doDelete(String queryBase, QueryWhere queryData, Class<?> resultType, String subQuery) { 
         // create query
         
         Map<String, Object> queryParams = new HashMap<String, Object>();
-        String queryString = createDeleteQuery(queryBase, queryData, queryParams, true, subQuery);
+        String queryString = createDeleteQuery(queryBase, queryData, queryParams, true, subQuery, false);
         
         // logging
         logger.debug("DELETE statement:\n {}", queryString);
@@ -437,7 +520,7 @@ public class JPAAuditLogService extends JPAService implements AuditLogService {
         return result;
     }
     
-    private static String createDeleteQuery(String queryBase, QueryWhere queryWhere, Map<String, Object> queryParams, boolean skipMetaParams, String subQuery) { 
+    private static String createDeleteQuery(String queryBase, QueryWhere queryWhere, Map<String, Object> queryParams, boolean skipMetaParams, String subQuery, boolean afterLastId) { 
         // setup
         StringBuilder queryBuilder = new StringBuilder(queryBase);
         QueryAndParameterAppender queryAppender = new QueryAndParameterAppender(queryBuilder, queryParams);
@@ -502,6 +585,9 @@ public class JPAAuditLogService extends JPAService implements AuditLogService {
         if (subQuery != null && !subQuery.isEmpty()) {
             queryAppender.addToQueryBuilder(subQuery, false);
         }
+        if (afterLastId) {
+            queryAppender.addToQueryBuilder(AFTER_LAST_ID_CRITERIA, false);
+        }
         
 
         // meta criteria (order, asc/desc) does not apply to delete queries 
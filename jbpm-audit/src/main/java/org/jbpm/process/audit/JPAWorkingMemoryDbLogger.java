@@ -17,6 +17,7 @@
 package org.jbpm.process.audit;
 
 import java.util.List;
+import java.util.UUID;
 
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
@@ -32,7 +33,9 @@ import javax.transaction.UserTransaction;
 import org.drools.core.WorkingMemory;
 import org.drools.core.common.InternalWorkingMemory;
 import org.drools.core.runtime.process.InternalProcessRuntime;
+import org.drools.persistence.OrderedTransactionSynchronization;
 import org.drools.persistence.TransactionManager;
+import org.drools.persistence.TransactionManagerHelper;
 import org.jbpm.process.audit.variable.ProcessIndexerManager;
 import org.jbpm.process.instance.impl.ProcessInstanceImpl;
 import org.jbpm.workflow.instance.impl.NodeInstanceImpl;
@@ -52,7 +55,20 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Enables history log via JPA.
- * 
+ * <br/>
+ * By default every audit log entity is written as soon as the event occurs. When write behind is enabled
+ * (system property <code>org.jbpm.audit.write.behind</code> or {@link #setWriteBehind(boolean)}) the entities
+ * are collected in an {@link AuditLogBuffer} per transaction and written all at once when the transaction is
+ * about to complete, so they can be sent to the data base as JDBC batches (requires batching to be enabled
+ * in the JPA provider e.g. <code>hibernate.jdbc.batch_size</code>).
+ * <br/>
+ * When asynchronous mode is enabled as well (system property <code>org.jbpm.audit.async</code> or
+ * {@link #setAsync(boolean)}) the entities of committed transactions are written in a background thread
+ * by {@link AsyncAuditLogWriter} in their own transactions. Its bounded queue (system property
+ * <code>org.jbpm.audit.async.queue.size</code>, defaults to 1000 transactions) makes committing threads
+ * write their entities directly when the writer falls behind. The writer is shared by all loggers of the same <code>EntityManagerFactory</code>
+ * and has to be closed with {@link AsyncAuditLogWriter#close(EntityManagerFactory, long)} before the factory
+ * is closed (runtime managers do that when they are closed).
  */
 public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
 
@@ -67,6 +83,12 @@ public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
     
     private ProcessIndexerManager indexManager = ProcessIndexerManager.get();
 
+    private boolean writeBehind = Boolean.parseBoolean(System.getProperty("org.jbpm.audit.write.behind", "false"));
+    private boolean async = Boolean.parseBoolean(System.getProperty("org.jbpm.audit.async", "false"));
+    private int asyncQueueSize = Integer.parseInt(System.getProperty("org.jbpm.audit.async.queue.size", "1000"));
+
+    private final String bufferKey = "AuditLogBuffer-" + UUID.randomUUID().toString();
+
     /*
      * for backward compatibility
      */
@@ -142,6 +164,20 @@ public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
 
     @Override
     public void afterProcessCompleted(ProcessCompletedEvent event) {
+        AuditLogBuffer buffer = getBuffer(event);
+        if (buffer != null) {
+            ProcessInstanceLog log = (ProcessInstanceLog) ((ProcessInstanceImpl) event.getProcessInstance()).getMetaData().get("ProcessInstanceLog");
+            if (log == null) {
+                // look up of the log is deferred until the buffer is written
+                buffer.complete((ProcessInstanceLog) builder.buildEvent(event, null));
+            } else {
+                builder.buildEvent(event, log);
+                if (!buffer.contains(log)) {
+                    buffer.merge(log);
+                }
+            }
+            return;
+        }
         long processInstanceId = event.getProcessInstance().getId();
         EntityManager em = getEntityManager(event);
         Object tx = joinTransaction(em);
@@ -191,6 +227,29 @@ public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
     public void dispose() {
     }
 
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * Enables asynchronous writes of the audit logs, implies write behind.
+     */
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    public void setAsyncQueueSize(int asyncQueueSize) {
+        this.asyncQueueSize = asyncQueueSize;
+    }
+
     /**
      * This method persists the entity given to it. 
      * </p>
@@ -198,6 +257,11 @@ public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
      * @param entity An entity to be persisted.
      */
     private void persist(Object entity, KieRuntimeEvent event) { 
+        AuditLogBuffer buffer = getBuffer(event);
+        if (buffer != null) {
+            buffer.persist(entity);
+            return;
+        }
         EntityManager em = getEntityManager(event);
         Object tx = joinTransaction(em);
         em.persist(entity);
@@ -208,8 +272,10 @@ public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
      * This method creates a entity manager. 
      */
     private EntityManager getEntityManager(KieRuntimeEvent event) {
-        
-        Environment env = event.getKieRuntime().getEnvironment();
+        return getEntityManager(event.getKieRuntime().getEnvironment());
+    }
+
+    private EntityManager getEntityManager(Environment env) {
         
         /**
          * It's important to set the sharedEM flag with _every_ operation
@@ -246,6 +312,79 @@ public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
         throw new RuntimeException("Could not find or create a new EntityManager!");
     }
 
+    /**
+     * Returns buffer of the active transaction that audit log entities should be added to or null when
+     * they should be written directly - write behind is disabled or there is no active transaction.
+     * The buffer is created and registered to be written on transaction completion when first needed.
+     */
+    protected AuditLogBuffer getBuffer(KieRuntimeEvent event) {
+        if (!writeBehind && !async) {
+            return null;
+        }
+        Environment env = event.getKieRuntime().getEnvironment();
+        if (env == null || !(env.get(EnvironmentName.TRANSACTION_MANAGER) instanceof TransactionManager)) {
+            return null;
+        }
+        TransactionManager txm = (TransactionManager) env.get(EnvironmentName.TRANSACTION_MANAGER);
+        if (txm.getStatus() != TransactionManager.STATUS_ACTIVE) {
+            return null;
+        }
+        AuditLogBuffer buffer = (AuditLogBuffer) txm.getResource(bufferKey);
+        if (buffer == null) {
+            buffer = new AuditLogBuffer(env);
+            txm.putResource(bufferKey, buffer);
+            TransactionManagerHelper.registerTransactionSyncInContainer(txm, new AuditLogBufferSynchronization(buffer));
+        } else if (buffer.isClosed()) {
+            // buffer was already written, events that occur while the transaction completes are written directly
+            return null;
+        }
+        return buffer;
+    }
+
+    /**
+     * Writes given buffer within the transaction that is about to complete.
+     */
+    protected void writeBuffer(AuditLogBuffer buffer) {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        EntityManager em = getEntityManager(buffer.getEnvironment());
+        Object tx = joinTransaction(em);
+        buffer.write(em);
+        // flush explicitly so all entities are written (in batches) while the transaction is still active
+        em.flush();
+        leaveTransaction(em, tx);
+    }
+
+    /**
+     * Returns the asynchronous writer shared by all loggers of the entity manager factory or null when the audit
+     * logs cannot be written asynchronously and should be written synchronously instead.
+     */
+    protected AsyncAuditLogWriter getAsyncWriter(Environment env) {
+        EntityManagerFactory writerEmf = this.emf;
+        if (writerEmf == null && env != null) {
+            writerEmf = (EntityManagerFactory) env.get(EnvironmentName.ENTITY_MANAGER_FACTORY);
+        }
+        if (writerEmf == null) {
+            logger.warn("No EntityManagerFactory available for asynchronous audit log writes, writing synchronously");
+            return null;
+        }
+        AsyncAuditLogWriter writer = AsyncAuditLogWriter.get(writerEmf);
+        if (writer == null) {
+            UserTransaction ut = null;
+            if (isJTA) {
+                // look up the user transaction here as it is not guaranteed to be available in the writer thread
+                ut = findUserTransaction();
+                if (ut == null) {
+                    logger.warn("No UserTransaction available for asynchronous audit log writes, writing synchronously");
+                    return null;
+                }
+            }
+            writer = AsyncAuditLogWriter.getOrCreate(writerEmf, ut, asyncQueueSize);
+        }
+        return writer;
+    }
+
     protected EntityManager getEntityManagerFromTransaction(Environment env) {
         if (env.get(EnvironmentName.TRANSACTION_MANAGER) instanceof TransactionManager) {
             TransactionManager txm = (TransactionManager) env.get(EnvironmentName.TRANSACTION_MANAGER);
@@ -341,6 +480,35 @@ public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
         }
     }
 
+    private class AuditLogBufferSynchronization extends OrderedTransactionSynchronization {
+
+        private final AuditLogBuffer buffer;
+        private AsyncAuditLogWriter writer;
+
+        AuditLogBufferSynchronization(AuditLogBuffer buffer) {
+            super(5, bufferKey);
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void beforeCompletion() {
+            buffer.close();
+            if (async) {
+                writer = getAsyncWriter(buffer.getEnvironment());
+            }
+            if (writer == null) {
+                writeBuffer(buffer);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (writer != null && status == TransactionManager.STATUS_COMMITTED) {
+                writer.submit(buffer);
+            }
+        }
+    }
+
     protected static UserTransaction findUserTransaction() {
     	InitialContext context = null;
     	try {
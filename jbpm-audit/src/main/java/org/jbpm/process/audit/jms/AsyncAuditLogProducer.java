@@ -16,25 +16,34 @@
 package org.jbpm.process.audit.jms;
 
 import java.util.List;
+import java.util.UUID;
 
+import javax.jms.BytesMessage;
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.JMSException;
+import javax.jms.Message;
 import javax.jms.MessageProducer;
 import javax.jms.Queue;
 import javax.jms.Session;
 import javax.jms.TextMessage;
 
+import org.drools.persistence.OrderedTransactionSynchronization;
+import org.drools.persistence.TransactionManager;
+import org.drools.persistence.TransactionManagerHelper;
 import org.jbpm.process.audit.AbstractAuditLogger;
 import org.jbpm.process.audit.NodeInstanceLog;
 import org.jbpm.process.audit.ProcessInstanceLog;
 import org.jbpm.process.audit.variable.ProcessIndexerManager;
 import org.jbpm.workflow.instance.impl.NodeInstanceImpl;
+import org.kie.api.event.KieRuntimeEvent;
 import org.kie.api.event.process.ProcessCompletedEvent;
 import org.kie.api.event.process.ProcessNodeLeftEvent;
 import org.kie.api.event.process.ProcessNodeTriggeredEvent;
 import org.kie.api.event.process.ProcessStartedEvent;
 import org.kie.api.event.process.ProcessVariableChangedEvent;
+import org.kie.api.runtime.Environment;
+import org.kie.api.runtime.EnvironmentName;
 import org.kie.api.runtime.KieSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,15 +67,27 @@ import com.thoughtworks.xstream.XStream;
  *  <li>use content based routing in more advanced scenarios</li>
  * </ul>
  * 
+ * When batched mode is enabled, all audit log events of a transaction are sent as single BytesMessage
+ * in compact binary format (see <code>AuditLogBatchCodec</code>) instead. The message is sent when
+ * transaction is about to complete when transacted, or when transaction completed otherwise.
+ * Events that occur outside of a transaction are sent directly as single event batches.
+ * 
  * Default receiver is <code>AsyncAuditLogReceiver</code> class
  */
 public class AsyncAuditLogProducer extends AbstractAuditLogger {
     
     private static final Logger logger = LoggerFactory.getLogger(AsyncAuditLogProducer.class);
 
+    // XStream and the codec are thread safe once configured so there is no need to create them for every message
+    private static final XStream xstream = new XStream();
+    private static final AuditLogBatchCodec codec = new AuditLogBatchCodec();
+
     private ConnectionFactory connectionFactory;    
     private Queue queue;
     private boolean transacted = true;
+    private boolean batched = false;
+
+    private final String batchKey = "AuditLogBatch-" + UUID.randomUUID().toString();
     
     private ProcessIndexerManager indexManager = ProcessIndexerManager.get();
 
@@ -99,35 +120,35 @@ public class AsyncAuditLogProducer extends AbstractAuditLogger {
     @Override
     public void beforeNodeTriggered(ProcessNodeTriggeredEvent event) {
         NodeInstanceLog log = (NodeInstanceLog) builder.buildEvent(event);
-        sendMessage(log, BEFORE_NODE_ENTER_EVENT_TYPE);
+        sendMessage(event, log, BEFORE_NODE_ENTER_EVENT_TYPE);
         ((NodeInstanceImpl) event.getNodeInstance()).getMetaData().put("NodeInstanceLog", log);
     }
 
     @Override
     public void afterNodeLeft(ProcessNodeLeftEvent event) {
         NodeInstanceLog log = (NodeInstanceLog) builder.buildEvent(event, null);
-        sendMessage(log, AFTER_NODE_LEFT_EVENT_TYPE);   
+        sendMessage(event, log, AFTER_NODE_LEFT_EVENT_TYPE);   
     }
 
     @Override
     public void afterVariableChanged(ProcessVariableChangedEvent event) {
         List<org.kie.api.runtime.manager.audit.VariableInstanceLog> variables = indexManager.index(getBuilder(), event);
         for (org.kie.api.runtime.manager.audit.VariableInstanceLog log : variables) {  
-            sendMessage(log, AFTER_VAR_CHANGE_EVENT_TYPE);   
+            sendMessage(event, log, AFTER_VAR_CHANGE_EVENT_TYPE);   
         }
     }
 
     @Override
     public void beforeProcessStarted(ProcessStartedEvent event) {
         ProcessInstanceLog log = (ProcessInstanceLog) builder.buildEvent(event);
-        sendMessage(log, BEFORE_START_EVENT_TYPE);
+        sendMessage(event, log, BEFORE_START_EVENT_TYPE);
         
     }
 
     @Override
     public void afterProcessCompleted(ProcessCompletedEvent event) {
         ProcessInstanceLog log = (ProcessInstanceLog) builder.buildEvent(event, null);
-        sendMessage(log, AFTER_COMPLETE_EVENT_TYPE);
+        sendMessage(event, log, AFTER_COMPLETE_EVENT_TYPE);
     }
     
     @Override
@@ -136,7 +157,7 @@ public class AsyncAuditLogProducer extends AbstractAuditLogger {
     	NodeInstanceLog log = (NodeInstanceLog) ((NodeInstanceImpl) event.getNodeInstance()).getMetaData().get("NodeInstanceLog");
     	NodeInstanceLog logUpdated = (NodeInstanceLog) builder.buildEvent(event, log);
     	if (logUpdated != null) {
-    		sendMessage(log, AFTER_NODE_ENTER_EVENT_TYPE);
+    		sendMessage(event, log, AFTER_NODE_ENTER_EVENT_TYPE);
     	}
     }
 
@@ -158,6 +179,56 @@ public class AsyncAuditLogProducer extends AbstractAuditLogger {
     public void beforeProcessCompleted(ProcessCompletedEvent event) {
     }
     
+    /**
+     * Sends given audit log directly or adds it to the batch of active transaction when batched mode is enabled.
+     */
+    protected void sendMessage(KieRuntimeEvent event, Object messageContent, Integer eventType) {
+        if (!batched) {
+            sendMessage(messageContent, eventType);
+            return;
+        }
+        AuditLogBatch batch = getBatch(event);
+        if (batch == null) {
+            batch = new AuditLogBatch();
+            batch.add(messageContent, eventType);
+            sendMessage(batch, null);
+            return;
+        }
+        if (eventType == AFTER_NODE_ENTER_EVENT_TYPE && batch.contains(messageContent)) {
+            // log is sent with the batch anyway, including the updates done after node was entered
+            return;
+        }
+        batch.add(messageContent, eventType);
+    }
+
+    /**
+     * Returns batch of the active transaction or null if there is no active transaction. The batch is created
+     * and registered to be sent on transaction completion when first needed.
+     */
+    protected AuditLogBatch getBatch(KieRuntimeEvent event) {
+        Environment env = event.getKieRuntime().getEnvironment();
+        if (env == null || !(env.get(EnvironmentName.TRANSACTION_MANAGER) instanceof TransactionManager)) {
+            return null;
+        }
+        TransactionManager txm = (TransactionManager) env.get(EnvironmentName.TRANSACTION_MANAGER);
+        if (txm.getStatus() != TransactionManager.STATUS_ACTIVE) {
+            return null;
+        }
+        AuditLogBatch batch = (AuditLogBatch) txm.getResource(batchKey);
+        if (batch == null) {
+            batch = new AuditLogBatch();
+            txm.putResource(batchKey, batch);
+            TransactionManagerHelper.registerTransactionSyncInContainer(txm, new AuditLogBatchSynchronization(batch));
+        } else if (batch.isClosed()) {
+            return null;
+        }
+        return batch;
+    }
+
+    /**
+     * Sends given content as JMS message - <code>AuditLogBatch</code> is sent as BytesMessage in binary format,
+     * any other content as TextMessage with XStream serialized content.
+     */
     protected void sendMessage(Object messageContent, Integer eventType) {
         if (connectionFactory == null && queue == null) {
             throw new IllegalStateException("ConnectionFactory and Queue cannot be null");
@@ -169,10 +240,19 @@ public class AsyncAuditLogProducer extends AbstractAuditLogger {
             queueConnection = connectionFactory.createConnection();
             queueSession = queueConnection.createSession(transacted, Session.AUTO_ACKNOWLEDGE);
            
-            XStream xstream = new XStream();
-            String eventXml = xstream.toXML(messageContent);
-            TextMessage message = queueSession.createTextMessage(eventXml);
-            message.setIntProperty("EventType", eventType);
+            Message message;
+            if (messageContent instanceof AuditLogBatch) {
+                AuditLogBatch batch = (AuditLogBatch) messageContent;
+                BytesMessage bytesMessage = queueSession.createBytesMessage();
+                bytesMessage.writeBytes(codec.encode(batch));
+                bytesMessage.setIntProperty("EventCount", batch.size());
+                message = bytesMessage;
+            } else {
+                String eventXml = xstream.toXML(messageContent);
+                TextMessage textMessage = queueSession.createTextMessage(eventXml);
+                textMessage.setIntProperty("EventType", eventType);
+                message = textMessage;
+            }
             producer = queueSession.createProducer(queue);            
             producer.send(message);
         } catch (Exception e) {
@@ -212,5 +292,49 @@ public class AsyncAuditLogProducer extends AbstractAuditLogger {
         this.transacted = transacted;
     }
 
+    public boolean isBatched() {
+        return batched;
+    }
+
+    public void setBatched(boolean batched) {
+        this.batched = batched;
+    }
+
+    private class AuditLogBatchSynchronization extends OrderedTransactionSynchronization {
+
+        private final AuditLogBatch batch;
+
+        AuditLogBatchSynchronization(AuditLogBatch batch) {
+            super(5, batchKey);
+            this.batch = batch;
+        }
+
+        @Override
+        public void beforeCompletion() {
+            if (transacted) {
+                // send as part of the transaction so the message is only delivered when it commits
+                batch.close();
+                if (!batch.isEmpty()) {
+                    sendMessage(batch, null);
+                }
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (!transacted) {
+                // same as for non batched mode messages are sent regardless of the transaction outcome
+                batch.close();
+                if (!batch.isEmpty()) {
+                    try {
+                        sendMessage(batch, null);
+                    } catch (Exception e) {
+                        logger.error("Unable to send audit log batch of {} events", batch.size(), e);
+                    }
+                }
+            }
+        }
+    }
+
 
 }
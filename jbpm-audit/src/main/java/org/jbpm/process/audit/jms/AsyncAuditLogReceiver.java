@@ -15,8 +15,10 @@
 
 package org.jbpm.process.audit.jms;
 
+import java.io.IOException;
 import java.util.List;
 
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageListener;
@@ -38,6 +40,8 @@ import com.thoughtworks.xstream.XStream;
  * Thus it shares the same message format that is TextMessage with 
  * Xstream serialized *Log classes (ProcessInstanceLog,
  * NodeInstanceLog, VaraiableInstanceLog) as content.
+ * In addition it accepts BytesMessages with batches of audit logs in binary
+ * format (see <code>AuditLogBatchCodec</code>) which are all stored at once.
  * 
  * by default it uses entity manager factory and creates entity manager for each message
  * although it provides getEntityManager method that can be overloaded by extensions to supply 
@@ -51,6 +55,10 @@ import com.thoughtworks.xstream.XStream;
  * </ul>
  */
 public class AsyncAuditLogReceiver implements MessageListener {
+
+    // XStream and the codec are thread safe once configured so there is no need to create them for every message
+    private static final XStream xstream = new XStream();
+    private static final AuditLogBatchCodec codec = new AuditLogBatchCodec();
     
     private EntityManagerFactory entityManagerFactory;
     
@@ -58,7 +66,6 @@ public class AsyncAuditLogReceiver implements MessageListener {
         this.entityManagerFactory = entityManagerFactory;
     }
     
-    @SuppressWarnings("unchecked")
     @Override
     public void onMessage(Message message) {
         if (message instanceof TextMessage) {
@@ -67,57 +74,78 @@ public class AsyncAuditLogReceiver implements MessageListener {
             try {
                 String messageContent = textMessage.getText();
                 Integer eventType = textMessage.getIntProperty("EventType");
-                XStream xstram = new XStream();
-                Object event = xstram.fromXML(messageContent);
+                Object event = xstream.fromXML(messageContent);
                 
-                switch (eventType) {
-                case AbstractAuditLogger.AFTER_NODE_ENTER_EVENT_TYPE:
-                    NodeInstanceLog nodeAfterEnterEvent = (NodeInstanceLog) event;
-                    if (nodeAfterEnterEvent.getWorkItemId() != null) {
-                    List<NodeInstanceLog> result = em.createQuery(
-                            "from NodeInstanceLog as log where log.nodeInstanceId = :nodeId and log.type = 0")
-                            .setParameter("nodeId", nodeAfterEnterEvent.getNodeInstanceId()).getResultList();
-                            
-                            if (result != null && result.size() != 0) {
-                            	NodeInstanceLog log = result.get(result.size() - 1);
-                               log.setWorkItemId(nodeAfterEnterEvent.getWorkItemId());
-                               
-                               
-                               em.merge(log);   
-                           }
-                    }
-                    break;
-                
-                case AbstractAuditLogger.AFTER_COMPLETE_EVENT_TYPE:
-                    ProcessInstanceLog processCompletedEvent = (ProcessInstanceLog) event;
-                    List<ProcessInstanceLog> result = em.createQuery(
-                            "from ProcessInstanceLog as log where log.processInstanceId = :piId and log.end is null")
-                            .setParameter("piId", processCompletedEvent.getProcessInstanceId()).getResultList();
-                            
-                            if (result != null && result.size() != 0) {
-                               ProcessInstanceLog log = result.get(result.size() - 1);
-                               log.setOutcome(processCompletedEvent.getOutcome());
-                               log.setStatus(processCompletedEvent.getStatus());
-                               log.setEnd(processCompletedEvent.getEnd());
-                               log.setDuration(processCompletedEvent.getDuration());
-                               
-                               em.merge(log);   
-                           }
-                    break;
-                default:
-                    em.persist(event);
-                    break;
-                }
+                processEvent(em, event, eventType);
                 em.flush();
                 em.close();
             } catch (JMSException e) {
                 e.printStackTrace();
                 throw new RuntimeException("Exception when receiving audit event event", e);
             }
+        } else if (message instanceof BytesMessage) {
+            EntityManager em = getEntityManager();
+            BytesMessage bytesMessage = (BytesMessage) message;
+            try {
+                byte[] messageContent = new byte[(int) bytesMessage.getBodyLength()];
+                bytesMessage.readBytes(messageContent);
+                AuditLogBatch batch = codec.decode(messageContent);
+                
+                for (int i = 0; i < batch.size(); i++) {
+                    processEvent(em, batch.getEvent(i), batch.getEventType(i));
+                }
+                // single flush for the whole batch so the logs can be written as JDBC batches
+                em.flush();
+                em.close();
+            } catch (JMSException | IOException e) {
+                throw new RuntimeException("Exception when receiving audit event batch", e);
+            }
         }
 
     }
 
+    @SuppressWarnings("unchecked")
+    protected void processEvent(EntityManager em, Object event, int eventType) {
+        switch (eventType) {
+        case AbstractAuditLogger.AFTER_NODE_ENTER_EVENT_TYPE:
+            NodeInstanceLog nodeAfterEnterEvent = (NodeInstanceLog) event;
+            if (nodeAfterEnterEvent.getWorkItemId() != null) {
+            List<NodeInstanceLog> result = em.createQuery(
+                    "from NodeInstanceLog as log where log.nodeInstanceId = :nodeId and log.type = 0")
+                    .setParameter("nodeId", nodeAfterEnterEvent.getNodeInstanceId()).getResultList();
+                    
+                    if (result != null && result.size() != 0) {
+                    	NodeInstanceLog log = result.get(result.size() - 1);
+                       log.setWorkItemId(nodeAfterEnterEvent.getWorkItemId());
+                       
+                       
+                       em.merge(log);   
+                   }
+            }
+            break;
+        
+        case AbstractAuditLogger.AFTER_COMPLETE_EVENT_TYPE:
+            ProcessInstanceLog processCompletedEvent = (ProcessInstanceLog) event;
+            List<ProcessInstanceLog> result = em.createQuery(
+                    "from ProcessInstanceLog as log where log.processInstanceId = :piId and log.end is null")
+                    .setParameter("piId", processCompletedEvent.getProcessInstanceId()).getResultList();
+                    
+                    if (result != null && result.size() != 0) {
+                       ProcessInstanceLog log = result.get(result.size() - 1);
+                       log.setOutcome(processCompletedEvent.getOutcome());
+                       log.setStatus(processCompletedEvent.getStatus());
+                       log.setEnd(processCompletedEvent.getEnd());
+                       log.setDuration(processCompletedEvent.getDuration());
+                       
+                       em.merge(log);   
+                   }
+            break;
+        default:
+            em.persist(event);
+            break;
+        }
+    }
+
     public EntityManagerFactory getEntityManagerFactory() {
         return entityManagerFactory;
     }
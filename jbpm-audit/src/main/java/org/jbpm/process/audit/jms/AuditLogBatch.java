@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.audit.jms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Ordered list of audit log events (*Log instances together with their event types) that are sent
+ * as single JMS message when <code>AsyncAuditLogProducer</code> runs in batched mode.
+ */
+public class AuditLogBatch {
+
+    private final List<Object> events = new ArrayList<Object>();
+    private final List<Integer> eventTypes = new ArrayList<Integer>();
+    private final Set<Object> contained = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+    private boolean closed = false;
+
+    public void add(Object event, int eventType) {
+        events.add(event);
+        eventTypes.add(eventType);
+        contained.add(event);
+    }
+
+    /**
+     * @return true if exactly given event instance is already part of this batch
+     */
+    public boolean contains(Object event) {
+        return contained.contains(event);
+    }
+
+    public Object getEvent(int index) {
+        return events.get(index);
+    }
+
+    public int getEventType(int index) {
+        return eventTypes.get(index);
+    }
+
+    public int size() {
+        return events.size();
+    }
+
+    public boolean isEmpty() {
+        return events.isEmpty();
+    }
+
+    /**
+     * Marks this batch as being sent, no more events can be added to it.
+     */
+    public void close() {
+        this.closed = true;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
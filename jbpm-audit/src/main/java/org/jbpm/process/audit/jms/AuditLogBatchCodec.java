@@ -0,0 +1,372 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.audit.jms;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.jbpm.process.audit.NodeInstanceLog;
+import org.jbpm.process.audit.ProcessInstanceLog;
+import org.jbpm.process.audit.VariableInstanceLog;
+
+/**
+ * Compact binary format of {@link AuditLogBatch} used as content of the JMS messages sent by
+ * <code>AsyncAuditLogProducer</code> in batched mode and read by <code>AsyncAuditLogReceiver</code>.
+ * <br/>
+ * ProcessInstanceLog, NodeInstanceLog and VariableInstanceLog are written field by field, any other
+ * (custom) log type is written with java serialization. Ids of the logs are not transferred as they
+ * are generated by the receiving side.
+ * <br/>
+ * As the messages come from outside, serialized logs are only read when all classes in the stream are
+ * known to be safe: subclasses of the audit log types, primitives, strings, numbers, dates and enums.
+ * Other classes used by custom log types must be allowed explicitly with system property
+ * <code>org.jbpm.audit.jms.allowed.classes</code> - comma separated list of class names or package
+ * prefixes ending with dot.
+ * <br/>
+ * Codec does not hold any state and thus can be shared between threads.
+ */
+public class AuditLogBatchCodec {
+
+    private static final byte VERSION = 1;
+
+    private static final byte SERIALIZED = 0;
+    private static final byte PROCESS_INSTANCE_LOG = 1;
+    private static final byte NODE_INSTANCE_LOG = 2;
+    private static final byte VARIABLE_INSTANCE_LOG = 3;
+
+    private static final List<String> ALLOWED_CLASSES = parseAllowedClasses(System.getProperty("org.jbpm.audit.jms.allowed.classes", ""));
+
+    public byte[] encode(AuditLogBatch batch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.size() * 128);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeByte(VERSION);
+        out.writeInt(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            out.writeInt(batch.getEventType(i));
+            writeEvent(out, batch.getEvent(i));
+        }
+        out.flush();
+
+        return bytes.toByteArray();
+    }
+
+    public AuditLogBatch decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported audit log batch version " + version);
+        }
+        AuditLogBatch batch = new AuditLogBatch();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            int eventType = in.readInt();
+            batch.add(readEvent(in), eventType);
+        }
+
+        return batch;
+    }
+
+    protected void writeEvent(DataOutputStream out, Object event) throws IOException {
+        Class<?> type = event.getClass();
+        if (type == ProcessInstanceLog.class) {
+            out.writeByte(PROCESS_INSTANCE_LOG);
+            writeProcessInstanceLog(out, (ProcessInstanceLog) event);
+        } else if (type == NodeInstanceLog.class) {
+            out.writeByte(NODE_INSTANCE_LOG);
+            writeNodeInstanceLog(out, (NodeInstanceLog) event);
+        } else if (type == VariableInstanceLog.class) {
+            out.writeByte(VARIABLE_INSTANCE_LOG);
+            writeVariableInstanceLog(out, (VariableInstanceLog) event);
+        } else {
+            out.writeByte(SERIALIZED);
+            ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+            ObjectOutputStream objectOut = new ObjectOutputStream(serialized);
+            objectOut.writeObject(event);
+            objectOut.close();
+            writeBytes(out, serialized.toByteArray());
+        }
+    }
+
+    protected Object readEvent(DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        switch (kind) {
+        case PROCESS_INSTANCE_LOG:
+            return readProcessInstanceLog(in);
+        case NODE_INSTANCE_LOG:
+            return readNodeInstanceLog(in);
+        case VARIABLE_INSTANCE_LOG:
+            return readVariableInstanceLog(in);
+        case SERIALIZED:
+            ObjectInputStream objectIn = new AuditLogObjectInputStream(new ByteArrayInputStream(readBytes(in)));
+            try {
+                return objectIn.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Unable to read audit log of unknown type", e);
+            } finally {
+                objectIn.close();
+            }
+        default:
+            throw new IOException("Unknown audit log kind " + kind);
+        }
+    }
+
+    protected void writeProcessInstanceLog(DataOutputStream out, ProcessInstanceLog log) throws IOException {
+        writeLong(out, log.getProcessInstanceId());
+        writeString(out, log.getProcessId());
+        writeDate(out, log.getStart());
+        writeDate(out, log.getEnd());
+        writeInteger(out, log.getStatus());
+        writeLong(out, log.getParentProcessInstanceId());
+        writeString(out, log.getOutcome());
+        writeLong(out, log.getDuration());
+        writeString(out, log.getIdentity());
+        writeString(out, log.getProcessVersion());
+        writeString(out, log.getProcessName());
+        writeString(out, log.getCorrelationKey());
+        writeInteger(out, log.getProcessType());
+        writeString(out, log.getExternalId());
+        writeString(out, log.getProcessInstanceDescription());
+    }
+
+    protected ProcessInstanceLog readProcessInstanceLog(DataInputStream in) throws IOException {
+        ProcessInstanceLog log = new ProcessInstanceLog();
+        Long processInstanceId = readLong(in);
+        if (processInstanceId != null) {
+            log.setProcessInstanceId(processInstanceId);
+        }
+        log.setProcessId(readString(in));
+        log.setStart(readDate(in));
+        log.setEnd(readDate(in));
+        Integer status = readInteger(in);
+        if (status != null) {
+            log.setStatus(status);
+        }
+        Long parentProcessInstanceId = readLong(in);
+        if (parentProcessInstanceId != null) {
+            log.setParentProcessInstanceId(parentProcessInstanceId);
+        }
+        log.setOutcome(readString(in));
+        log.setDuration(readLong(in));
+        log.setIdentity(readString(in));
+        log.setProcessVersion(readString(in));
+        log.setProcessName(readString(in));
+        log.setCorrelationKey(readString(in));
+        log.setProcessType(readInteger(in));
+        log.setExternalId(readString(in));
+        log.setProcessInstanceDescription(readString(in));
+        return log;
+    }
+
+    protected void writeNodeInstanceLog(DataOutputStream out, NodeInstanceLog log) throws IOException {
+        writeInteger(out, log.getType());
+        writeLong(out, log.getProcessInstanceId());
+        writeString(out, log.getProcessId());
+        writeDate(out, log.getDate());
+        writeString(out, log.getNodeInstanceId());
+        writeString(out, log.getNodeId());
+        writeString(out, log.getNodeName());
+        writeString(out, log.getNodeType());
+        writeLong(out, log.getWorkItemId());
+        writeString(out, log.getConnection());
+        writeString(out, log.getExternalId());
+        writeLong(out, log.getReferenceId());
+        writeString(out, log.getNodeContainerId());
+    }
+
+    protected NodeInstanceLog readNodeInstanceLog(DataInputStream in) throws IOException {
+        NodeInstanceLog log = new NodeInstanceLog();
+        Integer type = readInteger(in);
+        if (type != null) {
+            log.setType(type);
+        }
+        Long processInstanceId = readLong(in);
+        if (processInstanceId != null) {
+            log.setProcessInstanceId(processInstanceId);
+        }
+        log.setProcessId(readString(in));
+        log.setDate(readDate(in));
+        log.setNodeInstanceId(readString(in));
+        log.setNodeId(readString(in));
+        log.setNodeName(readString(in));
+        log.setNodeType(readString(in));
+        log.setWorkItemId(readLong(in));
+        log.setConnection(readString(in));
+        log.setExternalId(readString(in));
+        log.setReferenceId(readLong(in));
+        log.setNodeContainerId(readString(in));
+        return log;
+    }
+
+    protected void writeVariableInstanceLog(DataOutputStream out, VariableInstanceLog log) throws IOException {
+        writeLong(out, log.getProcessInstanceId());
+        writeString(out, log.getProcessId());
+        writeDate(out, log.getDate());
+        writeString(out, log.getVariableInstanceId());
+        writeString(out, log.getVariableId());
+        writeString(out, log.getValue());
+        writeString(out, log.getOldValue());
+        writeString(out, log.getExternalId());
+    }
+
+    protected VariableInstanceLog readVariableInstanceLog(DataInputStream in) throws IOException {
+        VariableInstanceLog log = new VariableInstanceLog();
+        Long processInstanceId = readLong(in);
+        if (processInstanceId != null) {
+            log.setProcessInstanceId(processInstanceId);
+        }
+        log.setProcessId(readString(in));
+        log.setDate(readDate(in));
+        log.setVariableInstanceId(readString(in));
+        log.setVariableId(readString(in));
+        log.setValue(readString(in));
+        log.setOldValue(readString(in));
+        log.setExternalId(readString(in));
+        return log;
+    }
+
+    protected static boolean isAllowed(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive() || type.isEnum() || type == Enum.class || type == String.class
+                || type == Boolean.class || type == Character.class) {
+            return true;
+        }
+        if (ProcessInstanceLog.class.isAssignableFrom(type) || NodeInstanceLog.class.isAssignableFrom(type)
+                || VariableInstanceLog.class.isAssignableFrom(type)) {
+            return true;
+        }
+        String name = type.getName();
+        if ((Number.class.isAssignableFrom(type) || Date.class.isAssignableFrom(type)) && name.startsWith("java.")) {
+            return true;
+        }
+        for (String allowed : ALLOWED_CLASSES) {
+            if (allowed.endsWith(".") ? name.startsWith(allowed) : name.equals(allowed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> parseAllowedClasses(String value) {
+        List<String> allowed = new ArrayList<String>();
+        for (String entry : value.split(",")) {
+            if (!entry.trim().isEmpty()) {
+                allowed.add(entry.trim());
+            }
+        }
+        return allowed;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(value.length);
+            out.write(value);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInteger(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static void writeDate(DataOutputStream out, Date value) throws IOException {
+        writeLong(out, value == null ? null : value.getTime());
+    }
+
+    private static Date readDate(DataInputStream in) throws IOException {
+        Long time = readLong(in);
+        return time == null ? null : new Date(time);
+    }
+
+    /**
+     * Object input stream that refuses to read instances of classes that are not allowed.
+     */
+    private static class AuditLogObjectInputStream extends ObjectInputStream {
+
+        AuditLogObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            // class is loaded but not initialized so it can be checked before any of its code runs
+            Class<?> type = super.resolveClass(desc);
+            if (!isAllowed(type)) {
+                throw new InvalidClassException(desc.getName(), "Class is not allowed in audit log messages");
+            }
+            return type;
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+            throw new InvalidClassException("Proxy classes are not allowed in audit log messages");
+        }
+    }
+}
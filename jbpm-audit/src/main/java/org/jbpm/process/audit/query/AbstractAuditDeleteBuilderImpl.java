@@ -26,6 +26,7 @@ import org.kie.internal.runtime.manager.audit.query.AuditDeleteBuilder;
 
 import java.sql.Timestamp;
 import java.util.Date;
+import java.util.List;
 
 import static org.kie.internal.query.QueryParameterIdentifiers.*;
 
@@ -165,4 +166,50 @@ public abstract class AbstractAuditDeleteBuilderImpl<T> extends AbstractDeleteBu
             }
         };
     }
+
+    /**
+     * Builds delete that removes matching records in chunks - each chunk deletes at most <code>chunkSize</code>
+     * records (in primary key order) and is executed in its own transaction, transaction of the caller (if any)
+     * is suspended meanwhile. As only deleted chunks are committed, interrupted delete can be simply executed 
+     * again to continue where it stopped.
+     * @param chunkSize max number of records deleted by single delete statement
+     * @param pauseBetweenChunks time in milliseconds to wait between chunks to throttle the load on data base
+     */
+    public ParametrizedUpdate buildChunked(final int chunkSize, final long pauseBetweenChunks) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be greater than 0 but was " + chunkSize);
+        }
+        return new ParametrizedUpdate() {
+            private QueryWhere queryWhere = new QueryWhere(getQueryWhere());
+            @Override
+            public int execute() {
+                JPAAuditLogService jpaAuditLogService = getJpaAuditLogService();
+                int result = 0;
+                long lastId = Long.MIN_VALUE;
+                while (true) {
+                    List<Long> ids = jpaAuditLogService.findDeleteIds(new QueryWhere(queryWhere), getQueryType(), getSubQuery(), lastId, chunkSize);
+                    if (ids.isEmpty()) {
+                        break;
+                    }
+                    result += jpaAuditLogService.deleteByIds(getQueryType(), ids);
+                    if (ids.size() < chunkSize) {
+                        // last chunk
+                        break;
+                    }
+                    lastId = ids.get(ids.size() - 1);
+                    
+                    if (pauseBetweenChunks > 0) {
+                        try {
+                            Thread.sleep(pauseBetweenChunks);
+                        } catch (InterruptedException e) {
+                            // stop here, remaining chunks are deleted by next execution
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                    }
+                }
+                return result;
+            }
+        };
+    }
 }
@@ -57,4 +57,10 @@ public class SpringStandaloneJtaSharedEntityManagerStrategy extends StandaloneJt
 		return manageTx;
 	}
 
+	@Override
+	public Object suspendTransaction() {
+		// shared entity manager is bound to the transaction of the caller
+		return null;
+	}
+
 }
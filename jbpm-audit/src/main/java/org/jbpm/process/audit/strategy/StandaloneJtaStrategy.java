@@ -20,6 +20,8 @@ import javax.naming.NamingException;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.transaction.Status;
+import javax.transaction.Transaction;
+import javax.transaction.TransactionManager;
 import javax.transaction.UserTransaction;
 
 import org.jbpm.process.audit.JPAWorkingMemoryDbLogger;
@@ -38,6 +40,7 @@ public class StandaloneJtaStrategy implements PersistenceStrategy {
     private static final Logger logger = LoggerFactory.getLogger(JPAWorkingMemoryDbLogger.class);
 
     private static final String[] KNOWN_UT_JNDI_KEYS = new String[] {"UserTransaction", "java:jboss/UserTransaction", System.getProperty("jbpm.ut.jndi.lookup")};
+    private static final String[] KNOWN_TM_JNDI_KEYS = new String[] {"java:comp/TransactionManager", "java:/TransactionManager", "java:jboss/TransactionManager", "java:appserver/TransactionManager", System.getProperty("jbpm.tm.jndi.lookup")};
 
     protected EntityManagerFactory emf;
    
@@ -107,6 +110,68 @@ public class StandaloneJtaStrategy implements PersistenceStrategy {
         }
     }
 
+    /**
+     * Suspends transaction associated with current thread so that following operations run in their own transaction.
+     * @return suspended transaction that must be given to {@link #resumeTransaction(Object)} or null when there was
+     * no transaction to suspend
+     */
+    public Object suspendTransaction() {
+        TransactionManager tm = findTransactionManager();
+        try {
+            if (tm == null) {
+                UserTransaction ut = findUserTransaction();
+                if (ut != null && ut.getStatus() != Status.STATUS_NO_TRANSACTION) {
+                    logger.warn("No transaction manager found, operation will join transaction of the caller");
+                }
+                return null;
+            }
+            if (tm.getStatus() == Status.STATUS_NO_TRANSACTION) {
+                return null;
+            }
+            return tm.suspend();
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to suspend transaction: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Resumes transaction suspended by {@link #suspendTransaction()}.
+     */
+    public void resumeTransaction(Object transaction) {
+        if (transaction == null) {
+            return;
+        }
+        try {
+            findTransactionManager().resume((Transaction) transaction);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to resume transaction: " + e.getMessage(), e);
+        }
+    }
+
+    protected static TransactionManager findTransactionManager() {
+        UserTransaction ut = findUserTransaction();
+        if (ut instanceof TransactionManager) {
+            // e.g. bitronix provides both under the same instance
+            return (TransactionManager) ut;
+        }
+        InitialContext context = null;
+        try {
+            context = new InitialContext();
+        } catch( Exception e ) {
+           throw new IllegalStateException("Unable to initialized " + InitialContext.class.getName() + " instance.", e);
+        }
+        for (String tmLookup : KNOWN_TM_JNDI_KEYS) {
+            if (tmLookup != null) {
+                try {
+                    return (TransactionManager) context.lookup(tmLookup);
+                } catch (NamingException e) {
+                    logger.debug("Transaction Manager not found in JNDI under {}", tmLookup);
+                }
+            }
+        }
+        return null;
+    }
+
     @Override
     public void leaveTransaction(EntityManager em, Object transaction) {
         commitTransaction(transaction);
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.audit;
+
+import static org.jbpm.persistence.util.PersistenceUtil.createEnvironment;
+import static org.jbpm.process.audit.AbstractAuditLogServiceTest.createKieSession;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import javax.naming.InitialContext;
+import javax.persistence.EntityManagerFactory;
+import javax.transaction.UserTransaction;
+
+import org.jbpm.process.instance.impl.demo.SystemOutWorkItemHandler;
+import org.junit.Test;
+import org.kie.api.KieBase;
+import org.kie.api.runtime.Environment;
+import org.kie.api.runtime.EnvironmentName;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.process.ProcessInstance;
+
+/**
+ * This class tests the following classes:
+ * <ul>
+ * <li>WorkingMemoryDbLogger with asynchronous writes enabled</li>
+ * <li>AsyncAuditLogWriter</li>
+ * </ul>
+ */
+public class WorkingMemoryDbLoggerWithAsyncWriteTest extends AbstractWorkingMemoryDbLoggerTest {
+
+    private KieSession ksession = null;
+
+    @Override
+    public ProcessInstance startProcess(String processName) {
+        if( ksession == null ) {
+            KieBase kbase = createKnowledgeBase();
+
+            Environment env = createEnvironment(context);
+            ksession = createKieSession(kbase, env);
+
+            JPAWorkingMemoryDbLogger dbLogger = new JPAWorkingMemoryDbLogger(ksession);
+            dbLogger.setAsync(true);
+            ksession.getWorkItemManager().registerWorkItemHandler("Human Task", new SystemOutWorkItemHandler());
+        }
+        ProcessInstance processInstance = ksession.startProcess(processName);
+        // wait for the queued audit logs to be written
+        AsyncAuditLogWriter.close(getEntityManagerFactory(), 10000);
+        return processInstance;
+    }
+
+    @Test
+    public void testWriterSharedByLoggersOfEntityManagerFactory() {
+        startProcess("com.sample.ruleflow");
+
+        KieSession other = createKieSession(createKnowledgeBase(), createEnvironment(context));
+        try {
+            JPAWorkingMemoryDbLogger dbLogger = new JPAWorkingMemoryDbLogger(other);
+            dbLogger.setAsync(true);
+
+            EntityManagerFactory emf = getEntityManagerFactory();
+            assertNull(AsyncAuditLogWriter.get(emf));
+            other.startProcess("com.sample.ruleflow");
+            AsyncAuditLogWriter writer = AsyncAuditLogWriter.get(emf);
+            assertNotNull(writer);
+
+            ksession.startProcess("com.sample.ruleflow");
+            assertSame(writer, AsyncAuditLogWriter.get(emf));
+
+            AsyncAuditLogWriter.close(emf, 10000);
+            assertNull(AsyncAuditLogWriter.get(emf));
+            assertEquals(0, writer.getQueueSize());
+            assertEquals(3, logService.findProcessInstances("com.sample.ruleflow").size());
+        } finally {
+            other.dispose();
+        }
+    }
+
+    @Test
+    public void testFailedBufferDoesNotLoseOtherBuffers() throws Exception {
+        EntityManagerFactory emf = getEntityManagerFactory();
+        UserTransaction ut = InitialContext.doLookup("java:comp/UserTransaction");
+        AsyncAuditLogWriter writer = new AsyncAuditLogWriter(emf, ut, 10);
+        try {
+            AuditLogBuffer failing = new AuditLogBuffer(null);
+            // not an entity, cannot be persisted
+            failing.persist(new Object());
+            AuditLogBuffer written = new AuditLogBuffer(null);
+            written.persist(new NodeInstanceLog(NodeInstanceLog.TYPE_ENTER, 42, "com.sample.ruleflow", "1", "1", "Start"));
+
+            assertFalse(writer.write(Arrays.asList(written, failing)));
+            assertEquals(0, logService.findNodeInstances(42).size());
+
+            // written one by one, the log that got an id in the failed write is persisted again
+            writer.writeEach(Arrays.asList(written, failing));
+            assertEquals(1, logService.findNodeInstances(42).size());
+        } finally {
+            writer.close(10000);
+        }
+    }
+
+    @Test
+    public void testBufferSubmittedAfterCloseIsWritten() throws Exception {
+        EntityManagerFactory emf = getEntityManagerFactory();
+        UserTransaction ut = InitialContext.doLookup("java:comp/UserTransaction");
+        AsyncAuditLogWriter writer = new AsyncAuditLogWriter(emf, ut, 10);
+        writer.close(10000);
+
+        AuditLogBuffer buffer = new AuditLogBuffer(null);
+        buffer.persist(new NodeInstanceLog(NodeInstanceLog.TYPE_ENTER, 43, "com.sample.ruleflow", "1", "1", "Start"));
+        writer.submit(buffer);
+
+        assertEquals(0, writer.getQueueSize());
+        assertEquals(1, logService.findNodeInstances(43).size());
+    }
+
+    private EntityManagerFactory getEntityManagerFactory() {
+        return (EntityManagerFactory) context.get(EnvironmentName.ENTITY_MANAGER_FACTORY);
+    }
+}
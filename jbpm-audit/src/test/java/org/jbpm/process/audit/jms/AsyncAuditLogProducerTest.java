@@ -31,6 +31,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import javax.jms.BytesMessage;
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.Message;
@@ -287,6 +288,74 @@ public class AsyncAuditLogProducerTest extends AbstractBaseTest {
         assertTrue(processInstances.isEmpty());
     }
     
+    @Test
+    public void testAsyncAuditProducerBatched() throws Exception {
+        Environment env = createEnvironment(context);
+        // load the process
+        KnowledgeBase kbase = createKnowledgeBase();
+        // create a new session
+        StatefulKnowledgeSession session = createSession(kbase, env);
+
+        Map<String, Object> jmsProps = new HashMap<String, Object>();
+        jmsProps.put("jbpm.audit.jms.transacted", false);
+        jmsProps.put("jbpm.audit.jms.batched", true);
+        jmsProps.put("jbpm.audit.jms.connection.factory", factory);
+        jmsProps.put("jbpm.audit.jms.queue", queue);
+        AbstractAuditLogger logger = AuditLoggerFactory.newInstance(Type.JMS, session, jmsProps);
+        assertNotNull(logger);
+        assertTrue(((AsyncAuditLogProducer) logger).isBatched());
+
+        // start process instance
+        session.startProcess("com.sample.ruleflow");
+
+        // all events of the transaction are sent as single message
+        MessageReceiver receiver = new MessageReceiver();
+        List<Message> messages = receiver.receive(queue);
+        assertNotNull(messages);
+        assertEquals(1, messages.size());
+        assertTrue(messages.get(0) instanceof BytesMessage);
+    }
+
+    @Test
+    public void testAsyncAuditLoggerCompleteBatched() throws Exception {
+        Environment env = createEnvironment(context);
+        // load the process
+        KnowledgeBase kbase = createKnowledgeBase();
+        // create a new session
+        StatefulKnowledgeSession session = createSession(kbase, env);
+        
+        Map<String, Object> jmsProps = new HashMap<String, Object>();
+        jmsProps.put("jbpm.audit.jms.transacted", false);
+        jmsProps.put("jbpm.audit.jms.batched", true);
+        jmsProps.put("jbpm.audit.jms.connection.factory", factory);
+        jmsProps.put("jbpm.audit.jms.queue", queue);
+        AbstractAuditLogger logger = AuditLoggerFactory.newInstance(Type.JMS, session, jmsProps);
+        assertNotNull(logger);
+
+        // start process instance
+        ProcessInstance processInstance = session.startProcess("com.sample.ruleflow");
+        
+        MessageReceiver receiver = new MessageReceiver();
+        receiver.receiveAndProcess(queue, ((EntityManagerFactory)env.get(EnvironmentName.ENTITY_MANAGER_FACTORY)));
+     
+        // validate if everything is stored in db
+        AuditLogService logService = new JPAAuditLogService(env);
+        List<ProcessInstanceLog> processInstances = logService.findProcessInstances("com.sample.ruleflow");
+        assertEquals(1, processInstances.size());
+        List<NodeInstanceLog> nodeInstances = logService.findNodeInstances(processInstance.getId());
+        assertEquals(6, nodeInstances.size());
+        for (NodeInstanceLog nodeInstance: nodeInstances) {
+
+            assertEquals(processInstance.getId(), nodeInstance.getProcessInstanceId().longValue());
+            assertEquals("com.sample.ruleflow", nodeInstance.getProcessId());
+            assertNotNull(nodeInstance.getDate());
+        }
+        logService.clear();
+        processInstances = logService.findProcessInstances("com.sample.ruleflow");
+        logService.dispose();
+        assertTrue(processInstances.isEmpty());
+    }
+    
     @Test
     public void testAsyncAuditLoggerCompleteWithVariables() throws Exception {
         Environment env = createEnvironment(context);
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.audit.jms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InvalidClassException;
+import java.util.ArrayList;
+import java.util.Date;
+
+import org.jbpm.process.audit.AbstractAuditLogger;
+import org.jbpm.process.audit.NodeInstanceLog;
+import org.jbpm.process.audit.ProcessInstanceLog;
+import org.jbpm.process.audit.VariableInstanceLog;
+import org.junit.Test;
+
+public class AuditLogBatchCodecTest {
+
+    private AuditLogBatchCodec codec = new AuditLogBatchCodec();
+
+    @Test
+    public void testEncodeDecodeBatch() throws Exception {
+        ProcessInstanceLog processInstanceLog = new ProcessInstanceLog(1, "com.sample.ruleflow");
+        processInstanceLog.setProcessName("ruleflow");
+        processInstanceLog.setProcessVersion("1.0");
+        processInstanceLog.setStatus(1);
+        processInstanceLog.setExternalId("session");
+
+        NodeInstanceLog nodeInstanceLog = new NodeInstanceLog(NodeInstanceLog.TYPE_ENTER, 1, "com.sample.ruleflow", "2", "3", "Task");
+        nodeInstanceLog.setWorkItemId(10L);
+
+        VariableInstanceLog variableInstanceLog = new VariableInstanceLog(1, "com.sample.ruleflow", "var", "var", "\u017c\u00f3\u0142w", null);
+
+        AuditLogBatch batch = new AuditLogBatch();
+        batch.add(processInstanceLog, AbstractAuditLogger.BEFORE_START_EVENT_TYPE);
+        batch.add(nodeInstanceLog, AbstractAuditLogger.BEFORE_NODE_ENTER_EVENT_TYPE);
+        batch.add(variableInstanceLog, AbstractAuditLogger.AFTER_VAR_CHANGE_EVENT_TYPE);
+
+        AuditLogBatch decoded = codec.decode(codec.encode(batch));
+        assertEquals(3, decoded.size());
+
+        assertEquals(AbstractAuditLogger.BEFORE_START_EVENT_TYPE, decoded.getEventType(0));
+        ProcessInstanceLog decodedProcessInstanceLog = (ProcessInstanceLog) decoded.getEvent(0);
+        assertEquals(processInstanceLog.getProcessInstanceId(), decodedProcessInstanceLog.getProcessInstanceId());
+        assertEquals("com.sample.ruleflow", decodedProcessInstanceLog.getProcessId());
+        assertEquals("ruleflow", decodedProcessInstanceLog.getProcessName());
+        assertEquals("1.0", decodedProcessInstanceLog.getProcessVersion());
+        assertEquals(Integer.valueOf(1), decodedProcessInstanceLog.getStatus());
+        assertEquals(processInstanceLog.getStart(), decodedProcessInstanceLog.getStart());
+        assertNull(decodedProcessInstanceLog.getEnd());
+        assertNull(decodedProcessInstanceLog.getParentProcessInstanceId());
+
+        assertEquals(AbstractAuditLogger.BEFORE_NODE_ENTER_EVENT_TYPE, decoded.getEventType(1));
+        NodeInstanceLog decodedNodeInstanceLog = (NodeInstanceLog) decoded.getEvent(1);
+        assertEquals(Integer.valueOf(NodeInstanceLog.TYPE_ENTER), decodedNodeInstanceLog.getType());
+        assertEquals("2", decodedNodeInstanceLog.getNodeInstanceId());
+        assertEquals("3", decodedNodeInstanceLog.getNodeId());
+        assertEquals("Task", decodedNodeInstanceLog.getNodeName());
+        assertEquals(Long.valueOf(10L), decodedNodeInstanceLog.getWorkItemId());
+        assertEquals(nodeInstanceLog.getDate(), decodedNodeInstanceLog.getDate());
+
+        assertEquals(AbstractAuditLogger.AFTER_VAR_CHANGE_EVENT_TYPE, decoded.getEventType(2));
+        VariableInstanceLog decodedVariableInstanceLog = (VariableInstanceLog) decoded.getEvent(2);
+        assertEquals("var", decodedVariableInstanceLog.getVariableId());
+        assertEquals("\u017c\u00f3\u0142w", decodedVariableInstanceLog.getValue());
+        assertNull(decodedVariableInstanceLog.getOldValue());
+    }
+
+    @Test
+    public void testCustomLogTypeIsSerialized() throws Exception {
+        CustomVariableInstanceLog log = new CustomVariableInstanceLog();
+        log.setVariableId("custom");
+        log.setDate(new Date());
+
+        AuditLogBatch batch = new AuditLogBatch();
+        batch.add(log, AbstractAuditLogger.AFTER_VAR_CHANGE_EVENT_TYPE);
+
+        AuditLogBatch decoded = codec.decode(codec.encode(batch));
+        assertTrue(decoded.getEvent(0) instanceof CustomVariableInstanceLog);
+        assertEquals("custom", ((CustomVariableInstanceLog) decoded.getEvent(0)).getVariableId());
+    }
+
+    @Test(expected = InvalidClassException.class)
+    public void testSerializedLogWithNotAllowedClassIsRejected() throws Exception {
+        LogWithPayload log = new LogWithPayload();
+        log.setVariableId("payload");
+        log.payload = new ArrayList<String>();
+
+        AuditLogBatch batch = new AuditLogBatch();
+        batch.add(log, AbstractAuditLogger.AFTER_VAR_CHANGE_EVENT_TYPE);
+
+        codec.decode(codec.encode(batch));
+    }
+
+    public static class CustomVariableInstanceLog extends VariableInstanceLog {
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    public static class LogWithPayload extends VariableInstanceLog {
+
+        private static final long serialVersionUID = 1L;
+
+        private Object payload;
+    }
+}
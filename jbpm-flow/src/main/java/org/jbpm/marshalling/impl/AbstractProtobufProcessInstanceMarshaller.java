@@ -66,6 +66,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Default implementation of a process instance marshaller.
@@ -75,6 +76,20 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
         implements
         ProcessInstanceMarshaller {
 
+    private static final Comparator<NodeInstance> NODE_INSTANCE_ID_ORDER = new Comparator<NodeInstance>() {
+        public int compare(NodeInstance o1,
+                           NodeInstance o2) {
+            return Long.compare( o1.getId(), o2.getId() );
+        }
+    };
+
+    private static final Comparator<Map.Entry<? extends Comparable<?>, ?>> ENTRY_KEY_ORDER = new Comparator<Map.Entry<? extends Comparable<?>, ?>>() {
+        public int compare(Map.Entry<? extends Comparable<?>, ?> o1,
+                           Map.Entry<? extends Comparable<?>, ?> o2) {
+            return compareKeys( o1.getKey(), o2.getKey() );
+        }
+    };
+
     // Output methods
     public JBPMMessages.ProcessInstance writeProcessInstance(MarshallerWriteContext context,
                                                              ProcessInstance processInstance) throws IOException {
@@ -113,16 +128,7 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
             }
         }
 
-        List<NodeInstance> nodeInstances = new ArrayList<NodeInstance>( workFlow.getNodeInstances() );
-        Collections.sort( nodeInstances,
-                          new Comparator<NodeInstance>() {
-
-                              public int compare(NodeInstance o1,
-                                                 NodeInstance o2) {
-                                  return (int) (o1.getId() - o2.getId());
-                              }
-                          } );
-        for ( NodeInstance nodeInstance : nodeInstances ) {
+        for ( NodeInstance nodeInstance : orderedById( workFlow.getNodeInstances( false ) ) ) {
             _instance.addNodeInstance( writeNodeInstance( context,
                                                           nodeInstance ) );
         }
@@ -142,31 +148,14 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
         }
 
         VariableScopeInstance variableScopeInstance = (VariableScopeInstance) workFlow.getContextInstance( VariableScope.VARIABLE_SCOPE );
-        List<Map.Entry<String, Object>> variables = new ArrayList<Map.Entry<String, Object>>( variableScopeInstance.getVariables().entrySet() );
-        Collections.sort( variables,
-                          new Comparator<Map.Entry<String, Object>>() {
-                              public int compare(Map.Entry<String, Object> o1,
-                                                 Map.Entry<String, Object> o2) {
-                                  return o1.getKey().compareTo( o2.getKey() );
-                              }
-                          } );
-
-        for ( Map.Entry<String, Object> variable : variables ) {
+        // variables that were not loaded yet are written as they are, without loading them
+        for ( Map.Entry<String, Object> variable : orderedByKey( variableScopeInstance.internalGetVariables() ) ) {
             if ( variable.getValue() != null ) {
                 _instance.addVariable( ProtobufProcessMarshaller.marshallVariable( context, variable.getKey(), variable.getValue() ) );
             }
         }
         
-        List<Map.Entry<String, Integer>> iterationlevels = new ArrayList<Map.Entry<String, Integer>>( workFlow.getIterationLevels().entrySet() );
-        Collections.sort( iterationlevels,
-                          new Comparator<Map.Entry<String, Integer>>() {
-                              public int compare(Map.Entry<String, Integer> o1,
-                                                 Map.Entry<String, Integer> o2) {
-                                  return o1.getKey().compareTo( o2.getKey() );
-                              }
-                          } );
-
-        for ( Map.Entry<String, Integer> level : iterationlevels ) {
+        for ( Map.Entry<String, Integer> level : orderedByKey( workFlow.getIterationLevels() ) ) {
             if ( level.getValue() != null ) {
                 _instance.addIterationLevels( 
                         JBPMMessages.IterationLevel.newBuilder()
@@ -293,18 +282,10 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
         } else if ( nodeInstance instanceof JoinInstance ) {
             JBPMMessages.ProcessInstance.NodeInstanceContent.JoinNode.Builder _join = JBPMMessages.ProcessInstance.NodeInstanceContent.JoinNode.newBuilder();
             Map<Long, Integer> triggers = ((JoinInstance) nodeInstance).getTriggers();
-            List<Long> keys = new ArrayList<Long>( triggers.keySet() );
-            Collections.sort( keys,
-                              new Comparator<Long>() {
-                                  public int compare(Long o1,
-                                                     Long o2) {
-                                      return o1.compareTo( o2 );
-                                  }
-                              } );
-            for ( Long key : keys ) {
+            for ( Map.Entry<Long, Integer> trigger : orderedByKey( triggers ) ) {
                 _join.addTrigger( JBPMMessages.ProcessInstance.NodeInstanceContent.JoinNode.JoinTrigger.newBuilder()
-                                  .setNodeId( key )
-                                  .setCounter( triggers.get( key ) )
+                                  .setNodeId( trigger.getKey() )
+                                  .setCounter( trigger.getValue() )
                                   .build() );
             }
             _content = JBPMMessages.ProcessInstance.NodeInstanceContent.newBuilder()
@@ -325,15 +306,7 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
         } else if ( nodeInstance instanceof ForEachNodeInstance ) {
             JBPMMessages.ProcessInstance.NodeInstanceContent.ForEachNode.Builder _foreach = JBPMMessages.ProcessInstance.NodeInstanceContent.ForEachNode.newBuilder();
             ForEachNodeInstance forEachNodeInstance = (ForEachNodeInstance) nodeInstance;
-            List<NodeInstance> nodeInstances = new ArrayList<NodeInstance>( forEachNodeInstance.getNodeInstances() );
-            Collections.sort( nodeInstances,
-                              new Comparator<NodeInstance>() {
-                                  public int compare(NodeInstance o1,
-                                                     NodeInstance o2) {
-                                      return (int) (o1.getId() - o2.getId());
-                                  }
-                              } );
-            for ( NodeInstance subNodeInstance : nodeInstances ) {
+            for ( NodeInstance subNodeInstance : orderedById( forEachNodeInstance.getNodeInstances( false ) ) ) {
                 if ( subNodeInstance instanceof CompositeContextNodeInstance ) {
                     _foreach.addNodeInstance( writeNodeInstance( context,
                                                                  subNodeInstance ) );
@@ -342,30 +315,14 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
             
             VariableScopeInstance variableScopeInstance = (VariableScopeInstance) forEachNodeInstance.getContextInstance( VariableScope.VARIABLE_SCOPE);
             if ( variableScopeInstance != null ) {
-                List<Map.Entry<String, Object>> variables = new ArrayList<Map.Entry<String, Object>>( variableScopeInstance.getVariables().entrySet() );
-                Collections.sort( variables,
-                                  new Comparator<Map.Entry<String, Object>>() {
-                                      public int compare(Map.Entry<String, Object> o1,
-                                                         Map.Entry<String, Object> o2) {
-                                          return o1.getKey().compareTo( o2.getKey() );
-                                      }
-                                  } );
-                for ( Map.Entry<String, Object> variable : variables ) {
+                for ( Map.Entry<String, Object> variable : orderedByKey( variableScopeInstance.internalGetVariables() ) ) {
                     
-                    _foreach.addVariable( ProtobufProcessMarshaller.marshallVariable( context, variable.getKey(), variable.getValue() ) );
+                    _foreach.addVariable( ProtobufProcessMarshaller.marshallVariable( context, variable.getKey(), variable.getValue(),
+                                                                                      forEachNodeInstance.getUniqueId() + ":" + variable.getKey() ) );
                 }
             }
             
-            List<Map.Entry<String, Integer>> iterationlevels = new ArrayList<Map.Entry<String, Integer>>( forEachNodeInstance.getIterationLevels().entrySet() );
-            Collections.sort( iterationlevels,
-                              new Comparator<Map.Entry<String, Integer>>() {
-                                  public int compare(Map.Entry<String, Integer> o1,
-                                                     Map.Entry<String, Integer> o2) {
-                                      return o1.getKey().compareTo( o2.getKey() );
-                                  }
-                              } );
-
-            for ( Map.Entry<String, Integer> level : iterationlevels ) {
+            for ( Map.Entry<String, Integer> level : orderedByKey( forEachNodeInstance.getIterationLevels() ) ) {
                 if ( level.getKey() != null && level.getValue() != null ) {
                     _foreach.addIterationLevels( 
                             JBPMMessages.IterationLevel.newBuilder()
@@ -398,30 +355,14 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
             }
             VariableScopeInstance variableScopeInstance = (VariableScopeInstance) compositeNodeInstance.getContextInstance( VariableScope.VARIABLE_SCOPE );
             if ( variableScopeInstance != null ) {
-                List<Map.Entry<String, Object>> variables = new ArrayList<Map.Entry<String, Object>>( variableScopeInstance.getVariables().entrySet() );
-                Collections.sort( variables,
-                                  new Comparator<Map.Entry<String, Object>>() {
-                                      public int compare(Map.Entry<String, Object> o1,
-                                                         Map.Entry<String, Object> o2) {
-                                          return o1.getKey().compareTo( o2.getKey() );
-                                      }
-                                  } );
-                for ( Map.Entry<String, Object> variable : variables ) {
+                for ( Map.Entry<String, Object> variable : orderedByKey( variableScopeInstance.internalGetVariables() ) ) {
                     
-                    _composite.addVariable( ProtobufProcessMarshaller.marshallVariable( context, variable.getKey(), variable.getValue() ) );
+                    _composite.addVariable( ProtobufProcessMarshaller.marshallVariable( context, variable.getKey(), variable.getValue(),
+                                                                                        compositeNodeInstance.getUniqueId() + ":" + variable.getKey() ) );
                 }
             }
             
-            List<Map.Entry<String, Integer>> iterationlevels = new ArrayList<Map.Entry<String, Integer>>( compositeNodeInstance.getIterationLevels().entrySet() );
-            Collections.sort( iterationlevels,
-                              new Comparator<Map.Entry<String, Integer>>() {
-                                  public int compare(Map.Entry<String, Integer> o1,
-                                                     Map.Entry<String, Integer> o2) {
-                                      return o1.getKey().compareTo( o2.getKey() );
-                                  }
-                              } );
-
-            for ( Map.Entry<String, Integer> level : iterationlevels ) {
+            for ( Map.Entry<String, Integer> level : orderedByKey( compositeNodeInstance.getIterationLevels() ) ) {
                 if (level.getKey() != null && level.getValue() != null ) {
                     _composite.addIterationLevels( 
                             JBPMMessages.IterationLevel.newBuilder()
@@ -430,15 +371,7 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
                 }
             }
             
-            List<NodeInstance> nodeInstances = new ArrayList<NodeInstance>( compositeNodeInstance.getNodeInstances() );
-            Collections.sort( nodeInstances,
-                              new Comparator<NodeInstance>() {
-                                  public int compare(NodeInstance o1,
-                                                     NodeInstance o2) {
-                                      return (int) (o1.getId() - o2.getId());
-                                  }
-                              } );
-            for ( NodeInstance subNodeInstance : nodeInstances ) {
+            for ( NodeInstance subNodeInstance : orderedById( compositeNodeInstance.getNodeInstances( false ) ) ) {
                 _composite.addNodeInstance( writeNodeInstance( context,
                                                                subNodeInstance ) );
             }
@@ -758,7 +691,7 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
             case JOIN_NODE :
                 nodeInstance = new JoinInstance();
                 if ( _content.getJoin().getTriggerCount() > 0 ) {
-                    Map<Long, Integer> triggers = new HashMap<Long, Integer>();
+                    Map<Long, Integer> triggers = new TreeMap<Long, Integer>();
                     for ( JBPMMessages.ProcessInstance.NodeInstanceContent.JoinNode.JoinTrigger _join : _content.getJoin().getTriggerList() ) {
                         triggers.put( _join.getNodeId(),
                                       _join.getCounter() );
@@ -817,4 +750,51 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
         return nodeInstance;
 
     }
+
+    /**
+     * Returns node instances ordered by their id. Containers keep node instances in the order they were
+     * created in, so in the usual case given collection is returned as is and a sorted copy is only made
+     * when it is not ordered already.
+     */
+    protected static <T extends NodeInstance> Collection<? extends NodeInstance> orderedById(Collection<T> nodeInstances) {
+        long previous = Long.MIN_VALUE;
+        for ( NodeInstance nodeInstance : nodeInstances ) {
+            if ( nodeInstance.getId() < previous ) {
+                List<NodeInstance> sorted = new ArrayList<NodeInstance>( nodeInstances );
+                Collections.sort( sorted, NODE_INSTANCE_ID_ORDER );
+                return sorted;
+            }
+            previous = nodeInstance.getId();
+        }
+        return nodeInstances;
+    }
+
+    /**
+     * Returns entries of given map ordered by their keys. Process and node instances keep variables, iteration
+     * levels and join triggers in sorted maps, so in the usual case entries are returned as they are and a sorted
+     * copy is only made when the map is not ordered already.
+     */
+    protected static <K extends Comparable<K>, V> Collection<Map.Entry<K, V>> orderedByKey(Map<K, V> map) {
+        K previous = null;
+        boolean first = true;
+        for ( Map.Entry<K, V> entry : map.entrySet() ) {
+            if ( !first && compareKeys( previous, entry.getKey() ) > 0 ) {
+                List<Map.Entry<K, V>> sorted = new ArrayList<Map.Entry<K, V>>( map.entrySet() );
+                Collections.sort( sorted, ENTRY_KEY_ORDER );
+                return sorted;
+            }
+            previous = entry.getKey();
+            first = false;
+        }
+        return map.entrySet();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareKeys(Comparable o1,
+                                   Comparable o2) {
+        if ( o1 == null ) {
+            return o2 == null ? 0 : -1;
+        }
+        return o2 == null ? 1 : o1.compareTo( o2 );
+    }
 }
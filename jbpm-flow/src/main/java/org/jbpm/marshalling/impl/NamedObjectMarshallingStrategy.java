@@ -0,0 +1,36 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.marshalling.impl;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+import org.kie.api.marshalling.ObjectMarshallingStrategy;
+
+/**
+ * Marshalling strategy that needs to know under which name the variable is kept within the process instance,
+ * for instance to store it outside of the process instance data. The name is unique within the process instance
+ * as variables of sub scopes (composite and for each nodes) are prefixed with unique id of their node instance.
+ */
+public interface NamedObjectMarshallingStrategy extends ObjectMarshallingStrategy {
+
+    byte[] marshal(Context context,
+                   ObjectOutputStream os,
+                   String name,
+                   Object object) throws IOException;
+
+}
@@ -258,14 +258,34 @@ public class ProtobufProcessMarshaller
     public static Variable marshallVariable(MarshallerWriteContext context,
                                             String name,
                                             Object value) throws IOException {
+        return marshallVariable( context, name, value, name );
+    }
+
+    /**
+     * Marshalls variable where <code>storageName</code> is the name of the variable that is unique within
+     * process instance and is given to <code>NamedObjectMarshallingStrategy</code> strategies.
+     */
+    public static Variable marshallVariable(MarshallerWriteContext context,
+                                            String name,
+                                            Object value,
+                                            String storageName) throws IOException {
         JBPMMessages.Variable.Builder builder = JBPMMessages.Variable.newBuilder().setName( name );
         if(value != null){
             ObjectMarshallingStrategy strategy = context.objectMarshallingStrategyStore.getStrategyObject( value );
             Integer index = context.getStrategyIndex( strategy );
+            byte[] data;
+            if ( strategy instanceof NamedObjectMarshallingStrategy ) {
+                data = ((NamedObjectMarshallingStrategy) strategy).marshal( context.strategyContext.get( strategy ),
+                                                                            context,
+                                                                            storageName,
+                                                                            value );
+            } else {
+                data = strategy.marshal( context.strategyContext.get( strategy ),
+                                         context,
+                                         value );
+            }
             builder.setStrategyIndex( index )
-                   .setValue( ByteString.copyFrom( strategy.marshal( context.strategyContext.get( strategy ),
-                                                                     context,
-                                                                     value ) ) );
+                   .setValue( ByteString.copyFrom( data ) );
         }
         return builder.build();
     }
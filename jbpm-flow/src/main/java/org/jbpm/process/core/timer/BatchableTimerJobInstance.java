@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.core.timer;
+
+import java.util.List;
+
+import org.drools.core.time.impl.TimerJobInstance;
+
+/**
+ * Timer job instance that can be fired together with other timer jobs that are executed by the same
+ * runtime engine (ksession) - with single acquisition of the runtime engine and within one transaction.
+ * Used by scheduler services that fire many timers at once (see <code>TimingWheelSchedulerService</code>).
+ * Timers of different runtime engines are never fired together, so only timers sharing a ksession (e.g. with
+ * the singleton runtime strategy) form batches of more than one timer.
+ */
+public interface BatchableTimerJobInstance extends TimerJobInstance {
+
+    /**
+     * Returns key of the runtime engine the timer job is executed with, timer jobs with the same key can be
+     * fired within one batch.
+     * @return batch key or null if the timer job must be fired on its own
+     */
+    String getBatchKey();
+
+    /**
+     * Fires all given timer jobs (this one being one of them) that share the same batch key, with the runtime
+     * engine of this timer job and within one transaction. Either all timer jobs are fired or exception is thrown
+     * and the transaction is rolled back.
+     */
+    void callBatch(List<? extends TimerJobInstance> batch) throws Exception;
+}
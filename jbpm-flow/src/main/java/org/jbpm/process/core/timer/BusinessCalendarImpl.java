@@ -22,7 +22,9 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.TimeZone;
 import java.util.regex.Matcher;
@@ -50,6 +52,8 @@ import org.slf4j.LoggerFactory;
  *  <li>business.holiday.date.format - specifies holiday date format used (default yyyy-DD-mm)</li>
  *  <li>business.weekend.days - specifies days of the weekend (default Saturday and Sunday)</li>
  *  <li>business.cal.timezone - specifies time zone to be used (if not given uses default of the system it runs on)</li>
+ *  <li>business.cal.index.days - specifies number of days covered by working day index (default 731), 0 disables the index</li>
+ *  <li>business.cal.expression.cache.size - specifies max number of parsed time expressions that are cached (default 1000), 0 disables the cache</li>
  * </ul>
  * 
  * <b>Format</b><br/>
@@ -66,6 +70,14 @@ import org.slf4j.LoggerFactory;
  * Weekend days should be given as integer that corresponds to <code>java.util.Calendar</code> constants.
  * <br/>
  * 
+ * <b>Performance</b><br/>
+ * 
+ * Working days (neither weekend nor holiday) are precomputed as cumulative count per day for a rolling horizon
+ * so that moving given number of working days ahead is a binary search instead of checking weekend and all holidays
+ * for every single day. The index is used only if all holidays start and end at midnight (of the calendar's time zone),
+ * otherwise (or when the horizon is exceeded) days are checked one by one.
+ * Parsed time expressions are cached unless they are absolute (ISO date time) as these depend on the current time.
+ * 
  */
 public class BusinessCalendarImpl implements BusinessCalendar {
 	
@@ -74,6 +86,8 @@ public class BusinessCalendarImpl implements BusinessCalendar {
     private Properties businessCalendarConfiguration;
     
     private static final long HOUR_IN_MILLIS = 60 * 60 * 1000;
+    private static final long DAY_IN_MILLIS = 24 * HOUR_IN_MILLIS;
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
     
     private int daysPerWeek;
     private int hoursInDay;
@@ -84,6 +98,11 @@ public class BusinessCalendarImpl implements BusinessCalendar {
     private List<TimePeriod> holidays;
     private List<Integer> weekendDays= new ArrayList<Integer>();
     private SessionClock clock;
+
+    private int indexDays;
+    private boolean indexable;
+    private volatile WorkingDayIndex workingDayIndex;
+    private Map<String, int[]> expressionCache;
     
     private static final Pattern SIMPLE  = Pattern.compile( "([+-])?\\s*((\\d+)[Ww])?\\s*((\\d+)[Dd])?\\s*((\\d+)[Hh])?\\s*((\\d+)[Mm])?\\s*((\\d+)[Ss])?" );
     private static final int     SIM_WEEK = 3;
@@ -103,6 +122,8 @@ public class BusinessCalendarImpl implements BusinessCalendar {
     
     public static final String WEEKEND_DAYS = "business.weekend.days";
     public static final String TIMEZONE = "business.cal.timezone";
+    public static final String INDEX_DAYS = "business.cal.index.days";
+    public static final String EXPRESSION_CACHE_SIZE = "business.cal.expression.cache.size";
 
     private static final String DEFAULT_PROPERTIES_NAME = "/jbpm.business.calendar.properties";
     
@@ -154,6 +175,23 @@ public class BusinessCalendarImpl implements BusinessCalendar {
         holidays = parseHolidays();
         parseWeekendDays();
         this.timezone = businessCalendarConfiguration.getProperty(TIMEZONE);
+        
+        indexDays = getPropertyAsInt(INDEX_DAYS, "731");
+        indexable = isMidnightAligned(holidays);
+        workingDayIndex = null;
+        final int expressionCacheSize = getPropertyAsInt(EXPRESSION_CACHE_SIZE, "1000");
+        if (expressionCacheSize > 0) {
+            expressionCache = new LinkedHashMap<String, int[]>(16, 0.75f, true) {
+                private static final long serialVersionUID = 2968442931569178137L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+                    return size() > expressionCacheSize;
+                }
+            };
+        } else {
+            expressionCache = null;
+        }
     }
     
     protected String adoptISOFormat(String timeExpression) {
@@ -198,8 +236,8 @@ public class BusinessCalendarImpl implements BusinessCalendar {
     }
     
     public long calculateBusinessTimeAsDuration(String timeExpression) {
-    	timeExpression = adoptISOFormat(timeExpression);
         if (businessCalendarConfiguration == null) {
+            timeExpression = adoptISOFormat(timeExpression);
             return TimeUtils.parseTimeString(timeExpression);
         }
         
@@ -209,29 +247,17 @@ public class BusinessCalendarImpl implements BusinessCalendar {
     }
     
     public Date calculateBusinessTimeAsDate(String timeExpression) {
-    	timeExpression = adoptISOFormat(timeExpression);
     	if (businessCalendarConfiguration == null) {
+    	    timeExpression = adoptISOFormat(timeExpression);
             return new Date(TimeUtils.parseTimeString(getCurrentTime() + timeExpression));
         }
         
-        
-        String trimmed = timeExpression.trim();
-        int weeks = 0;
-        int days = 0;
-        int hours = 0;
-        int min = 0;
-        int sec = 0;
-        
-        if( trimmed.length() > 0 ) {
-            Matcher mat = SIMPLE.matcher( trimmed );
-            if ( mat.matches() ) {
-                weeks = (mat.group( SIM_WEEK ) != null) ? Integer.parseInt( mat.group( SIM_WEEK ) ) : 0;
-                days = (mat.group( SIM_DAY ) != null) ? Integer.parseInt( mat.group( SIM_DAY ) ) : 0;
-                hours = (mat.group( SIM_HOU ) != null) ? Integer.parseInt( mat.group( SIM_HOU ) ) : 0;
-                min = (mat.group( SIM_MIN ) != null) ? Integer.parseInt( mat.group( SIM_MIN ) ) : 0;
-                sec = (mat.group( SIM_SEC ) != null) ? Integer.parseInt( mat.group( SIM_SEC ) ) : 0;
-            }
-        }
+        int[] parsed = parseTimeExpression(timeExpression);
+        int weeks = parsed[0];
+        int days = parsed[1];
+        int hours = parsed[2];
+        int min = parsed[3];
+        int sec = parsed[4];
         int time = 0;
         
         Calendar c = new GregorianCalendar();
@@ -254,11 +280,7 @@ public class BusinessCalendarImpl implements BusinessCalendar {
         // calculate number of days
         int numberOfDays = hours/hoursInDay;
         if (numberOfDays > 0) {
-            for (int i = 0; i < numberOfDays; i++) {
-                c.add(Calendar.DAY_OF_YEAR, 1);
-                handleWeekend(c);
-                handleHoliday(c);
-            }
+            addWorkingDays(c, numberOfDays);
         }
 
         int currentCalHour = c.get(Calendar.HOUR_OF_DAY);
@@ -318,29 +340,176 @@ public class BusinessCalendarImpl implements BusinessCalendar {
         return c.getTime();
     }
     
+    /**
+     * Parses given time expression (either in simple 1w2d3h4m5s format or ISO format) into number of weeks, days,
+     * hours, minutes and seconds (in that order).
+     */
+    protected int[] parseTimeExpression(String timeExpression) {
+        if (expressionCache != null) {
+            synchronized (expressionCache) {
+                int[] parsed = expressionCache.get(timeExpression);
+                if (parsed != null) {
+                    return parsed;
+                }
+            }
+        }
+        String adopted = adoptISOFormat(timeExpression);
+        
+        String trimmed = adopted.trim();
+        int[] parsed = new int[5];
+        if( trimmed.length() > 0 ) {
+            Matcher mat = SIMPLE.matcher( trimmed );
+            if ( mat.matches() ) {
+                parsed[0] = (mat.group( SIM_WEEK ) != null) ? Integer.parseInt( mat.group( SIM_WEEK ) ) : 0;
+                parsed[1] = (mat.group( SIM_DAY ) != null) ? Integer.parseInt( mat.group( SIM_DAY ) ) : 0;
+                parsed[2] = (mat.group( SIM_HOU ) != null) ? Integer.parseInt( mat.group( SIM_HOU ) ) : 0;
+                parsed[3] = (mat.group( SIM_MIN ) != null) ? Integer.parseInt( mat.group( SIM_MIN ) ) : 0;
+                parsed[4] = (mat.group( SIM_SEC ) != null) ? Integer.parseInt( mat.group( SIM_SEC ) ) : 0;
+            }
+        }
+        // ISO date times are converted relatively to current time so they must not be cached
+        boolean absolute = !DateTimeUtils.isPeriod(timeExpression) && !adopted.equals(timeExpression);
+        if (expressionCache != null && !absolute) {
+            synchronized (expressionCache) {
+                expressionCache.put(timeExpression, parsed);
+            }
+        }
+        return parsed;
+    }
+    
+    /**
+     * Moves given calendar by given number of working days, landing on working day.
+     */
+    protected void addWorkingDays(Calendar c, int numberOfDays) {
+        // at midnight the holiday that starts that day is not considered yet, leave it to day by day check
+        if (c.get(Calendar.HOUR_OF_DAY) != 0 || c.get(Calendar.MINUTE) != 0
+                || c.get(Calendar.SECOND) != 0 || c.get(Calendar.MILLISECOND) != 0) {
+            int day = getEpochDay(c);
+            WorkingDayIndex index = getWorkingDayIndex(day);
+            if (index != null) {
+                int targetDay = index.addWorkingDays(day, numberOfDays);
+                if (targetDay >= 0) {
+                    c.add(Calendar.DAY_OF_YEAR, targetDay - day);
+                    return;
+                }
+            }
+        }
+        
+        for (int i = 0; i < numberOfDays; i++) {
+            c.add(Calendar.DAY_OF_YEAR, 1);
+            handleWeekend(c);
+            handleHoliday(c);
+        }
+    }
+    
+    protected WorkingDayIndex getWorkingDayIndex(int day) {
+        if (!indexable || indexDays <= 0) {
+            return null;
+        }
+        WorkingDayIndex index = workingDayIndex;
+        if (index == null || !index.covers(day)) {
+            synchronized (this) {
+                index = workingDayIndex;
+                if (index == null || !index.covers(day)) {
+                    index = buildWorkingDayIndex(day, indexDays);
+                    workingDayIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+    
+    protected WorkingDayIndex buildWorkingDayIndex(int firstDay, int length) {
+        Calendar utc = new GregorianCalendar(UTC);
+        utc.setTimeInMillis(firstDay * DAY_IN_MILLIS);
+        
+        Calendar c = newCalendar();
+        c.clear();
+        c.set(utc.get(Calendar.YEAR), utc.get(Calendar.MONTH), utc.get(Calendar.DAY_OF_MONTH));
+        
+        int[] workingDays = new int[length];
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (isWorkingDay(c.get(Calendar.DAY_OF_WEEK)) && !isHoliday(c.getTimeInMillis())) {
+                count++;
+            }
+            workingDays[i] = count;
+            c.add(Calendar.DAY_OF_YEAR, 1);
+        }
+        return new WorkingDayIndex(firstDay, workingDays);
+    }
+    
+    protected boolean isHoliday(long dayStart) {
+        for (TimePeriod holiday : holidays) {
+            if (dayStart >= holiday.getFrom().getTime() && dayStart < holiday.getTo().getTime()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private boolean isMidnightAligned(List<TimePeriod> holidays) {
+        Calendar c = newCalendar();
+        for (TimePeriod holiday : holidays) {
+            for (Date date : new Date[] {holiday.getFrom(), holiday.getTo()}) {
+                c.setTime(date);
+                if (c.get(Calendar.HOUR_OF_DAY) != 0 || c.get(Calendar.MINUTE) != 0
+                        || c.get(Calendar.SECOND) != 0 || c.get(Calendar.MILLISECOND) != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    protected Calendar newCalendar() {
+        Calendar c = new GregorianCalendar();
+        if (timezone != null) {
+            c.setTimeZone(TimeZone.getTimeZone(timezone));
+        }
+        return c;
+    }
+    
+    /**
+     * @return number of days since 1970-01-01 of the date (in its own time zone) given calendar is set to
+     */
+    protected static int getEpochDay(Calendar c) {
+        Calendar utc = new GregorianCalendar(UTC);
+        utc.clear();
+        utc.set(c.get(Calendar.YEAR), c.get(Calendar.MONTH), c.get(Calendar.DAY_OF_MONTH));
+        
+        return (int) Math.floor(utc.getTimeInMillis() / (double) DAY_IN_MILLIS);
+    }
+    
     protected void handleHoliday(Calendar c) {
         if (!holidays.isEmpty()) {
-            Date current = c.getTime();
-            for (TimePeriod holiday : holidays) {
-                // check each holiday if it overlaps current date and break after first match
-                if (current.after(holiday.getFrom()) && current.before(holiday.getTo())) {
-                    
-                    Calendar tmp = new GregorianCalendar();
-                    tmp.setTime(holiday.getTo());   
-                    
-                    Calendar tmp2 = new GregorianCalendar();
-                    tmp2.setTime(current);
-                    tmp2.set(Calendar.HOUR_OF_DAY, 0);
-                    tmp2.set(Calendar.MINUTE, 0);
-                    tmp2.set(Calendar.SECOND, 0);
-                    tmp2.set(Calendar.MILLISECOND, 0);
+            // moving past a holiday (and weekend) may land in another holiday, repeat until working day is reached
+            boolean moved = true;
+            while (moved) {
+                moved = false;
+                Date current = c.getTime();
+                for (TimePeriod holiday : holidays) {
+                    // check each holiday if it overlaps current date and break after first match
+                    if (current.after(holiday.getFrom()) && current.before(holiday.getTo())) {
+                        
+                        Calendar tmp = new GregorianCalendar();
+                        tmp.setTime(holiday.getTo());   
+                        
+                        Calendar tmp2 = new GregorianCalendar();
+                        tmp2.setTime(current);
+                        tmp2.set(Calendar.HOUR_OF_DAY, 0);
+                        tmp2.set(Calendar.MINUTE, 0);
+                        tmp2.set(Calendar.SECOND, 0);
+                        tmp2.set(Calendar.MILLISECOND, 0);
 
-                    long difference = tmp.getTimeInMillis() - tmp2.getTimeInMillis();
-                    
-                    c.add(Calendar.HOUR_OF_DAY, (int) (difference/HOUR_IN_MILLIS));
-                    
-                    handleWeekend(c);
-                    break;
+                        long difference = tmp.getTimeInMillis() - tmp2.getTimeInMillis();
+                        
+                        c.add(Calendar.HOUR_OF_DAY, (int) (difference/HOUR_IN_MILLIS));
+                        
+                        handleWeekend(c);
+                        moved = true;
+                        break;
+                    }
                 }
             }
         }
@@ -463,6 +632,46 @@ public class BusinessCalendarImpl implements BusinessCalendar {
         }
     }
 
+    /**
+     * Cumulative number of working days for each day of the covered period.
+     */
+    protected static class WorkingDayIndex {
+        private final int firstDay;
+        private final int[] workingDays;
+        
+        protected WorkingDayIndex(int firstDay, int[] workingDays) {
+            this.firstDay = firstDay;
+            this.workingDays = workingDays;
+        }
+        
+        protected boolean covers(int day) {
+            return day >= firstDay && day < firstDay + workingDays.length;
+        }
+        
+        /**
+         * @return day that is given number of working days after given day or -1 if it's beyond covered period
+         */
+        protected int addWorkingDays(int day, int numberOfDays) {
+            int from = day - firstDay;
+            int target = workingDays[from] + numberOfDays;
+            if (workingDays[workingDays.length - 1] < target) {
+                return -1;
+            }
+            // first day that reaches the target count is the working day looked for
+            int low = from + 1;
+            int high = workingDays.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (workingDays[middle] < target) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return firstDay + low;
+        }
+    }
+
     private class TimePeriod {
         private Date from;
         private Date to;
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.core.timer;
+
+import java.util.Collection;
+
+import org.drools.core.time.impl.TimerJobInstance;
+
+/**
+ * Store for timer jobs that are due too far in the future to be kept in memory by the scheduler service
+ * (see <code>TimingWheelSchedulerService</code>). Timer jobs are moved back to the scheduler service
+ * when they get close to their fire time. Implementations can keep the timer jobs in any (persistent) storage.
+ */
+public interface TimerOverflowStore {
+
+    /**
+     * Stores given timer job that is due at given time.
+     */
+    void store(long expirationTime, TimerJobInstance timerJobInstance);
+
+    /**
+     * Removes given timer job from the store.
+     * @return true if the timer job was found in the store
+     */
+    boolean remove(TimerJobInstance timerJobInstance);
+
+    /**
+     * Removes and returns all timer jobs that are due at or before given time.
+     */
+    Collection<TimerJobInstance> pollDue(long time);
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.core.timer.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical timing wheel that keeps tasks in buckets (doubly linked lists) of fixed time span (tick).
+ * Adding and cancelling a task is O(1). Tasks that are too far in the future for the first wheel are kept in
+ * overflow wheels with coarser ticks that are created on demand, and they are moved to finer wheels as the time
+ * advances.
+ * <br/>
+ * Only buckets that hold tasks are tracked by a <code>DelayQueue</code>, so the clock is advanced straight to the
+ * next bucket that expires instead of ticking through empty ones. All tasks that expire together are returned as
+ * one batch by {@link #poll(long)}. Tasks never expire before their expiration time but might expire up to
+ * one tick later.
+ * <br/>
+ * This class is thread safe.
+ * @param <T> type of the tasks
+ */
+public class TimingWheel<T> {
+
+    private final DelayQueue<Bucket<T>> queue = new DelayQueue<Bucket<T>>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final Level root;
+
+    public TimingWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs < 1 || wheelSize < 2) {
+            throw new IllegalArgumentException("Tick must be at least 1 ms and wheel must have at least 2 buckets");
+        }
+        this.root = new Level(tickMs, wheelSize, startMs);
+    }
+
+    /**
+     * Adds task that should expire at given time.
+     * @return entry of the task that can be used to cancel it or null if the task is already expired (expires within
+     * current tick) and was not added - it's up to the caller to run it
+     */
+    public Entry<T> add(long expirationMs, T task) {
+        // tasks are placed by the end of the tick they fall in so they never expire too early
+        Entry<T> entry = new Entry<T>(expirationMs, expirationMs + root.tickMs - 1, task);
+        size.incrementAndGet();
+        lock.readLock().lock();
+        try {
+            if (root.add(entry)) {
+                return entry;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        size.decrementAndGet();
+        return null;
+    }
+
+    /**
+     * @return true if the task was cancelled, false if it had already expired or was cancelled before
+     */
+    public boolean cancel(Entry<T> entry) {
+        if (entry == null || !entry.complete()) {
+            return false;
+        }
+        entry.remove();
+        size.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Waits up to given time for the next bucket to expire and advances the clock.
+     * @return tasks that expired, empty list if none expired within the timeout
+     */
+    public List<T> poll(long timeoutMs) throws InterruptedException {
+        Bucket<T> bucket = queue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (bucket == null) {
+            return Collections.emptyList();
+        }
+        List<T> expired = new ArrayList<T>();
+        List<Entry<T>> entries = new ArrayList<Entry<T>>();
+        lock.writeLock().lock();
+        try {
+            while (bucket != null) {
+                root.advanceClock(bucket.getExpiration());
+                bucket.flush(entries);
+                for (Entry<T> entry : entries) {
+                    // entries of overflow wheels move to the finer wheels, others are expired
+                    if (!root.add(entry) && entry.complete()) {
+                        size.decrementAndGet();
+                        expired.add(entry.task);
+                    }
+                }
+                entries.clear();
+                bucket = queue.poll();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return expired;
+    }
+
+    /**
+     * @return number of tasks that have neither expired nor were cancelled
+     */
+    public int size() {
+        return size.get();
+    }
+
+    public long getTickMs() {
+        return root.tickMs;
+    }
+
+    private class Level {
+
+        private final long tickMs;
+        private final int wheelSize;
+        private final long interval;
+        private final Bucket<T>[] buckets;
+
+        private long currentTime;
+        private volatile Level overflow;
+
+        @SuppressWarnings("unchecked")
+        Level(long tickMs, int wheelSize, long startMs) {
+            this.tickMs = tickMs;
+            this.wheelSize = wheelSize;
+            this.interval = tickMs * wheelSize;
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket<T>();
+            }
+            this.currentTime = startMs - (startMs % tickMs);
+        }
+
+        boolean add(Entry<T> entry) {
+            long expiration = entry.deadline;
+            if (entry.isCompleted() || expiration < currentTime + tickMs) {
+                return false;
+            }
+            if (expiration < currentTime + interval) {
+                long virtualId = expiration / tickMs;
+                Bucket<T> bucket = buckets[(int) (virtualId % wheelSize)];
+                bucket.add(entry);
+                // bucket is (re)queued only when it is used for new expiration time
+                if (bucket.setExpiration(virtualId * tickMs)) {
+                    queue.offer(bucket);
+                }
+                return true;
+            }
+            return getOverflow().add(entry);
+        }
+
+        void advanceClock(long timeMs) {
+            if (timeMs >= currentTime + tickMs) {
+                currentTime = timeMs - (timeMs % tickMs);
+                if (overflow != null) {
+                    overflow.advanceClock(currentTime);
+                }
+            }
+        }
+
+        private Level getOverflow() {
+            if (overflow == null) {
+                synchronized (this) {
+                    if (overflow == null) {
+                        overflow = new Level(interval, wheelSize, currentTime);
+                    }
+                }
+            }
+            return overflow;
+        }
+    }
+
+    private static class Bucket<T> implements Delayed {
+
+        private final AtomicLong expiration = new AtomicLong(-1);
+        private final Entry<T> head = new Entry<T>(-1, -1, null);
+
+        Bucket() {
+            head.next = head;
+            head.prev = head;
+        }
+
+        synchronized void add(Entry<T> entry) {
+            entry.bucket = this;
+            entry.prev = head.prev;
+            entry.next = head;
+            head.prev.next = entry;
+            head.prev = entry;
+        }
+
+        synchronized void remove(Entry<T> entry) {
+            if (entry.bucket == this) {
+                entry.prev.next = entry.next;
+                entry.next.prev = entry.prev;
+                entry.next = null;
+                entry.prev = null;
+                entry.bucket = null;
+            }
+        }
+
+        synchronized void flush(List<Entry<T>> entries) {
+            Entry<T> entry = head.next;
+            while (entry != head) {
+                Entry<T> next = entry.next;
+                remove(entry);
+                entries.add(entry);
+                entry = next;
+            }
+            expiration.set(-1);
+        }
+
+        boolean setExpiration(long expirationMs) {
+            return expiration.getAndSet(expirationMs) != expirationMs;
+        }
+
+        long getExpiration() {
+            return expiration.get();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Math.max(getExpiration() - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getExpiration(), ((Bucket<?>) other).getExpiration());
+        }
+    }
+
+    /**
+     * Task held by the timing wheel.
+     */
+    public static class Entry<T> {
+
+        private final long expirationMs;
+        private final long deadline;
+        private final T task;
+        private final AtomicInteger state = new AtomicInteger();
+
+        private volatile Bucket<T> bucket;
+        private Entry<T> next;
+        private Entry<T> prev;
+
+        Entry(long expirationMs, long deadline, T task) {
+            this.expirationMs = expirationMs;
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        public long getExpirationMs() {
+            return expirationMs;
+        }
+
+        public T getTask() {
+            return task;
+        }
+
+        public boolean isCompleted() {
+            return state.get() != 0;
+        }
+
+        boolean complete() {
+            return state.compareAndSet(0, 1);
+        }
+
+        void remove() {
+            Bucket<T> current = bucket;
+            // entry might be moved to another bucket in the meantime (overflow wheels)
+            while (current != null) {
+                current.remove(this);
+                current = bucket;
+            }
+        }
+    }
+}
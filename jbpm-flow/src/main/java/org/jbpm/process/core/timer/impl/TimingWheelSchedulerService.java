@@ -0,0 +1,500 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.core.timer.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.drools.core.time.InternalSchedulerService;
+import org.drools.core.time.Job;
+import org.drools.core.time.JobContext;
+import org.drools.core.time.JobHandle;
+import org.drools.core.time.SelfRemovalJobContext;
+import org.drools.core.time.TimerService;
+import org.drools.core.time.Trigger;
+import org.drools.core.time.impl.TimerJobInstance;
+import org.jbpm.process.core.timer.BatchableTimerJobInstance;
+import org.jbpm.process.core.timer.GlobalSchedulerService;
+import org.jbpm.process.core.timer.NamedJobContext;
+import org.jbpm.process.core.timer.SchedulerServiceInterceptor;
+import org.jbpm.process.core.timer.TimerOverflowStore;
+import org.jbpm.process.core.timer.impl.GlobalTimerService.GlobalJobHandle;
+import org.jbpm.process.instance.timer.TimerManager.ProcessJobContext;
+import org.jbpm.process.instance.timer.TimerManager.StartProcessJobContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scheduler service backed by hierarchical {@link TimingWheel} meant for large number of timers. Compared to
+ * <code>ThreadPoolSchedulerService</code> scheduling and cancelling a timer is O(1) instead of O(log n) and
+ * timers that expire within the same tick are fired together - split among the threads of the pool.
+ * <br/>
+ * Timers are fired with precision of the tick which can be configured (together with number of buckets of
+ * each wheel) with system properties:
+ * <ul>
+ *  <li>org.jbpm.timer.wheel.tick - tick in milliseconds, defaults to 100</li>
+ *  <li>org.jbpm.timer.wheel.size - number of buckets of each wheel, defaults to 512</li>
+ *  <li>org.jbpm.timer.batch.size - max number of timers of the same ksession fired within one batch, defaults to 1
+ *  (no batching)</li>
+ * </ul>
+ * When batching is enabled, expired timers are grouped by the ksession that executes them and each batch is fired
+ * with single acquisition of the runtime engine and within one transaction (see {@link BatchableTimerJobInstance}).
+ * In case a batch fails its timers are fired again one by one. Batching pays off with the singleton runtime
+ * strategy where all timers of a deployment share the ksession - with per request and per process instance
+ * strategies timers of different requests or process instances belong to different ksessions, so their
+ * batches hold single timers which are fired as usual.
+ * Optionally timers due later than given horizon can be kept in a {@link TimerOverflowStore} instead of memory,
+ * they are moved to the timing wheel once they get within the horizon.
+ */
+public class TimingWheelSchedulerService implements GlobalSchedulerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimingWheelSchedulerService.class);
+
+    private static final Integer FAILED_JOB_RETRIES = Integer.parseInt(System.getProperty("org.jbpm.timer.thread.retries", "5"));
+    private static final Integer FAILED_JOB_DELAY = Integer.parseInt(System.getProperty("org.jbpm.timer.thread.delay", "1000"));
+
+    private static final long DEFAULT_TICK = Long.parseLong(System.getProperty("org.jbpm.timer.wheel.tick", "100"));
+    private static final int DEFAULT_WHEEL_SIZE = Integer.parseInt(System.getProperty("org.jbpm.timer.wheel.size", "512"));
+    private static final int DEFAULT_BATCH_SIZE = Integer.parseInt(System.getProperty("org.jbpm.timer.batch.size", "1"));
+
+    private static final long MAX_POLL_INTERVAL = 1000;
+
+    private AtomicLong idCounter = new AtomicLong();
+    private TimerService globalTimerService;
+    private SchedulerServiceInterceptor interceptor = new DelegateSchedulerServiceInterceptor(this);
+
+    private final int poolSize;
+    private final long tickMs;
+    private final int wheelSize;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private TimingWheel<TimerJobInstance> wheel;
+    private ExecutorService executor;
+    private Thread ticker;
+    private volatile boolean running = false;
+
+    private TimerOverflowStore overflowStore;
+    private long overflowHorizon;
+    private long nextOverflowCheck;
+
+    private ConcurrentHashMap<String, JobHandle> activeTimer = new ConcurrentHashMap<String, JobHandle>();
+
+    public TimingWheelSchedulerService(int poolSize) {
+        this(poolSize, DEFAULT_TICK, DEFAULT_WHEEL_SIZE);
+    }
+
+    public TimingWheelSchedulerService(int poolSize, long tickMs, int wheelSize) {
+        this.poolSize = poolSize;
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+    }
+
+    /**
+     * Configures store for timers that are due later than given horizon (in milliseconds) from now,
+     * must be set before the scheduler is initialized.
+     */
+    public void setOverflowStore(TimerOverflowStore overflowStore, long overflowHorizon) {
+        this.overflowStore = overflowStore;
+        this.overflowHorizon = overflowHorizon;
+    }
+
+    /**
+     * Sets max number of timers of the same ksession fired within one batch, 1 disables batching.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void initScheduler(TimerService globalTimerService) {
+        this.globalTimerService = globalTimerService;
+
+        this.wheel = new TimingWheel<TimerJobInstance>(tickMs, wheelSize, System.currentTimeMillis());
+        this.executor = Executors.newFixedThreadPool(poolSize);
+        this.running = true;
+        this.ticker = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                advance();
+            }
+        }, "jBPM-TimingWheelScheduler");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    @Override
+    public void shutdown() {
+        running = false;
+        if (ticker != null) {
+            ticker.interrupt();
+        }
+        try {
+            this.executor.shutdown();
+            if ( !this.executor.awaitTermination( 10, TimeUnit.SECONDS ) ) {
+                this.executor.shutdownNow();
+            }
+        } catch ( InterruptedException e ) {
+            this.executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public JobHandle scheduleJob(Job job, JobContext ctx, Trigger trigger) {
+
+        Date date = trigger.hasNextFireTime();
+        if ( date != null ) {
+            String jobname = getJobName(ctx);
+            if (jobname != null && activeTimer.containsKey(jobname)) {
+                return activeTimer.get(jobname);
+            }
+            GlobalTimingWheelJobHandle jobHandle = new GlobalTimingWheelJobHandle( idCounter.getAndIncrement() );
+
+            TimerJobInstance jobInstance = globalTimerService.
+                                 getTimerJobFactoryManager().createTimerJobInstance( job,
+                                                                                     ctx,
+                                                                                     trigger,
+                                                                                     jobHandle,
+                                                                                     (InternalSchedulerService) globalTimerService );
+            jobHandle.setTimerJobInstance( (TimerJobInstance) jobInstance );
+            interceptor.internalSchedule( (TimerJobInstance) jobInstance );
+            if (jobname != null) {
+                activeTimer.put(jobname, jobHandle);
+            }
+            return jobHandle;
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean removeJob(JobHandle jobHandle) {
+        if (jobHandle == null) {
+            return false;
+        }
+        jobHandle.setCancel( true );
+        GlobalTimingWheelJobHandle wheelJobHandle = (GlobalTimingWheelJobHandle) jobHandle;
+        TimerJobInstance timerJobInstance = wheelJobHandle.getTimerJobInstance();
+        JobContext jobContext = timerJobInstance.getJobContext();
+        if (jobContext instanceof SelfRemovalJobContext) {
+            jobContext = ((SelfRemovalJobContext) jobContext).getJobContext();
+        }
+        if (jobContext instanceof ProcessJobContext) {
+            activeTimer.remove(getJobName(jobContext));
+            globalTimerService.getTimerJobFactoryManager().removeTimerJobInstance( timerJobInstance );
+        }
+
+        boolean removed = wheel.cancel(wheelJobHandle.getEntry());
+        if (wheelJobHandle.isOverflowed() && overflowStore != null) {
+            removed = overflowStore.remove(timerJobInstance) || removed;
+        }
+        return removed;
+    }
+
+    @Override
+    public void internalSchedule(TimerJobInstance timerJobInstance) {
+        if (!running) {
+            return;
+        }
+        Date date = timerJobInstance.getTrigger().hasNextFireTime();
+        schedule(timerJobInstance, date.getTime());
+
+        globalTimerService.getTimerJobFactoryManager().addTimerJobInstance( timerJobInstance );
+    }
+
+    public int getScheduledCount() {
+        return wheel.size();
+    }
+
+    protected void schedule(TimerJobInstance timerJobInstance, long fireTime) {
+        GlobalTimingWheelJobHandle jobHandle = (GlobalTimingWheelJobHandle) timerJobInstance.getJobHandle();
+        if (overflowStore != null && fireTime > System.currentTimeMillis() + overflowHorizon) {
+            jobHandle.setEntry( null );
+            jobHandle.setOverflowed( true );
+            overflowStore.store(fireTime, timerJobInstance);
+            return;
+        }
+        jobHandle.setOverflowed( false );
+        TimingWheel.Entry<TimerJobInstance> entry = wheel.add(fireTime, timerJobInstance);
+        jobHandle.setEntry( entry );
+        if (entry == null) {
+            // already due
+            fire(Collections.singletonList(timerJobInstance));
+        }
+    }
+
+    /**
+     * Advances the timing wheel and fires expired timers until the scheduler is shut down.
+     */
+    protected void advance() {
+        while (running) {
+            try {
+                List<TimerJobInstance> expired = wheel.poll(MAX_POLL_INTERVAL);
+                if (!expired.isEmpty()) {
+                    fire(expired);
+                }
+                loadOverflow();
+            } catch (InterruptedException e) {
+                logger.debug("Timing wheel scheduler interrupted");
+                break;
+            } catch (Throwable e) {
+                logger.error("Error while advancing timing wheel", e);
+            }
+        }
+    }
+
+    protected void loadOverflow() {
+        long now = System.currentTimeMillis();
+        if (overflowStore == null || now < nextOverflowCheck) {
+            return;
+        }
+        Collection<TimerJobInstance> due = overflowStore.pollDue(now + overflowHorizon);
+        for (TimerJobInstance timerJobInstance : due) {
+            Date date = timerJobInstance.getTrigger().hasNextFireTime();
+            if (date != null && !timerJobInstance.getJobHandle().isCancel()) {
+                schedule(timerJobInstance, date.getTime());
+            }
+        }
+        nextOverflowCheck = now + Math.max(overflowHorizon / 2, tickMs);
+    }
+
+    /**
+     * Splits the expired timers among the threads of the pool, each thread fires its part of the batch.
+     */
+    protected void fire(List<TimerJobInstance> expired) {
+        if (batchSize > 1) {
+            fireBatches(expired);
+            return;
+        }
+        int chunks = Math.min(poolSize, expired.size());
+        int chunkSize = (expired.size() + chunks - 1) / chunks;
+        for (int i = 0; i < expired.size(); i += chunkSize) {
+            final List<TimerJobInstance> chunk = expired.subList(i, Math.min(i + chunkSize, expired.size()));
+            try {
+                executor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        for (TimerJobInstance timerJobInstance : chunk) {
+                            execute(timerJobInstance);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                logger.debug("Scheduler is shut down, {} timers not fired", chunk.size());
+            }
+        }
+    }
+
+    /**
+     * Groups the expired timers into batches by their batch key, each batch is fired by one of the threads of the pool.
+     */
+    protected void fireBatches(List<TimerJobInstance> expired) {
+        List<List<TimerJobInstance>> batches = new ArrayList<List<TimerJobInstance>>();
+        Map<String, List<TimerJobInstance>> open = new LinkedHashMap<String, List<TimerJobInstance>>();
+        for (TimerJobInstance timerJobInstance : expired) {
+            String batchKey = null;
+            if (timerJobInstance instanceof BatchableTimerJobInstance) {
+                batchKey = ((BatchableTimerJobInstance) timerJobInstance).getBatchKey();
+            }
+            if (batchKey == null) {
+                batches.add(Collections.singletonList(timerJobInstance));
+                continue;
+            }
+            List<TimerJobInstance> batch = open.get(batchKey);
+            if (batch == null) {
+                batch = new ArrayList<TimerJobInstance>();
+                open.put(batchKey, batch);
+            }
+            batch.add(timerJobInstance);
+            if (batch.size() >= batchSize) {
+                batches.add(batch);
+                open.remove(batchKey);
+            }
+        }
+        batches.addAll(open.values());
+
+        for (final List<TimerJobInstance> batch : batches) {
+            try {
+                executor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        executeBatch(batch);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                logger.debug("Scheduler is shut down, {} timers not fired", batch.size());
+            }
+        }
+    }
+
+    /**
+     * Fires the batch with single runtime engine and within one transaction, in case it fails the timers are fired
+     * one by one so only the failing ones are retried.
+     */
+    protected void executeBatch(List<TimerJobInstance> batch) {
+        List<TimerJobInstance> active = new ArrayList<TimerJobInstance>(batch.size());
+        for (TimerJobInstance timerJobInstance : batch) {
+            if (!timerJobInstance.getJobHandle().isCancel()) {
+                active.add(timerJobInstance);
+            }
+        }
+        if (active.isEmpty()) {
+            return;
+        }
+        if (active.size() == 1) {
+            execute(active.get(0));
+            return;
+        }
+        try {
+            ((BatchableTimerJobInstance) active.get(0)).callBatch(active);
+            for (TimerJobInstance timerJobInstance : active) {
+                ((GlobalTimingWheelJobHandle) timerJobInstance.getJobHandle()).resetRetries();
+            }
+        } catch (Exception e) {
+            logger.warn("Batch of {} timers failed ({}), firing them one by one", active.size(), e.getMessage());
+            for (TimerJobInstance timerJobInstance : active) {
+                revert(timerJobInstance);
+                execute(timerJobInstance);
+            }
+        }
+    }
+
+    /**
+     * Reverts in memory changes made by timer that was fired within failed (rolled back) batch so it can be fired again -
+     * timer completed within the batch was cancelled and repeatable timer was already scheduled for its next fire time.
+     */
+    protected void revert(TimerJobInstance timerJobInstance) {
+        GlobalTimingWheelJobHandle jobHandle = (GlobalTimingWheelJobHandle) timerJobInstance.getJobHandle();
+        if (jobHandle.getEntry() != null) {
+            wheel.cancel(jobHandle.getEntry());
+            jobHandle.setEntry( null );
+        }
+        if (jobHandle.isOverflowed() && overflowStore != null) {
+            overflowStore.remove(timerJobInstance);
+            jobHandle.setOverflowed( false );
+        }
+        jobHandle.setCancel( false );
+    }
+
+    @SuppressWarnings("unchecked")
+    protected void execute(TimerJobInstance timerJobInstance) {
+        GlobalTimingWheelJobHandle jobHandle = (GlobalTimingWheelJobHandle) timerJobInstance.getJobHandle();
+        if (jobHandle.isCancel()) {
+            return;
+        }
+        try {
+            ((Callable<Void>) timerJobInstance).call();
+            jobHandle.resetRetries();
+        } catch (Exception e) {
+            if (jobHandle.retry() <= FAILED_JOB_RETRIES) {
+                schedule(timerJobInstance, System.currentTimeMillis() + FAILED_JOB_DELAY);
+            } else {
+                logger.error("Timer execution failed {} times in a roll, unscheduling ({})", FAILED_JOB_RETRIES, jobHandle);
+            }
+        }
+    }
+
+    protected String getJobName(JobContext ctx) {
+        if (ctx instanceof ProcessJobContext) {
+            ProcessJobContext processCtx = (ProcessJobContext) ctx;
+            if (processCtx instanceof StartProcessJobContext) {
+                return "StartProcess-"+((StartProcessJobContext) processCtx).getProcessId()+ "-" + processCtx.getTimer().getId();
+            }
+            return processCtx.getSessionId() + "-" + processCtx.getProcessInstanceId() + "-" + processCtx.getTimer().getId();
+        }
+        return null;
+    }
+
+    public static class GlobalTimingWheelJobHandle extends GlobalJobHandle implements Serializable {
+
+        private static final long     serialVersionUID = 510l;
+
+        private transient TimingWheel.Entry<TimerJobInstance> entry;
+        private transient boolean overflowed;
+        private transient int retries;
+
+        public GlobalTimingWheelJobHandle(long id) {
+            super(id);
+        }
+
+        public TimingWheel.Entry<TimerJobInstance> getEntry() {
+            return entry;
+        }
+
+        public void setEntry(TimingWheel.Entry<TimerJobInstance> entry) {
+            this.entry = entry;
+        }
+
+        public boolean isOverflowed() {
+            return overflowed;
+        }
+
+        public void setOverflowed(boolean overflowed) {
+            this.overflowed = overflowed;
+        }
+
+        int retry() {
+            return ++retries;
+        }
+
+        void resetRetries() {
+            this.retries = 0;
+        }
+    }
+
+    @Override
+    public JobHandle buildJobHandleForContext(NamedJobContext ctx) {
+        // this is in memory scheduler and the building of context is required for permanent ScueduleService only
+        return null;
+    }
+
+    @Override
+    public boolean isTransactional() {
+        return false;
+    }
+
+    @Override
+    public void setInterceptor(SchedulerServiceInterceptor interceptor) {
+        this.interceptor = interceptor;
+    }
+
+    @Override
+    public boolean retryEnabled() {
+        return false;
+    }
+
+    @Override
+    public boolean isValid(GlobalJobHandle jobHandle) {
+        return true;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.instance.context.variable;
+
+/**
+ * Placeholder of a variable value that is stored outside of the process instance and is loaded only
+ * when it is accessed for the first time via <code>VariableScopeInstance</code>.
+ * <br/>
+ * Until loaded the placeholder is kept in the variable scope and marshalled back as is, so the
+ * value does not need to be loaded nor stored again when it is not used.
+ */
+public interface LazyLoadedVariable {
+
+    /**
+     * @return actual value of the variable
+     */
+    Object load();
+
+}
@@ -16,10 +16,13 @@
 
 package org.jbpm.process.instance.context.variable;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.drools.core.ClassObjectFilter;
 import org.drools.core.event.ProcessEventSupport;
@@ -28,7 +31,9 @@ import org.jbpm.process.core.context.variable.VariableScope;
 import org.jbpm.process.instance.ContextInstanceContainer;
 import org.jbpm.process.instance.InternalProcessRuntime;
 import org.jbpm.process.instance.context.AbstractContextInstance;
+import org.jbpm.process.instance.impl.ProcessInstanceImpl;
 import org.jbpm.workflow.core.Node;
+import org.jbpm.workflow.instance.NodeInstance;
 import org.jbpm.workflow.instance.node.CompositeContextNodeInstance;
 import org.kie.api.runtime.process.CaseData;
 import org.kie.api.runtime.rule.FactHandle;
@@ -40,7 +45,8 @@ public class VariableScopeInstance extends AbstractContextInstance {
 
     private static final long serialVersionUID = 510l;    
     
-    private Map<String, Object> variables = new HashMap<String, Object>();
+    // kept ordered by name so marshallers can write variables deterministically without sorting
+    private Map<String, Object> variables = new TreeMap<String, Object>(Comparator.nullsFirst(Comparator.<String>naturalOrder()));
     private transient String variableIdPrefix = null;
     private transient String variableInstanceIdPrefix = null;
 
@@ -52,6 +58,15 @@ public class VariableScopeInstance extends AbstractContextInstance {
                 
         Object value = variables.get(name);
         if (value != null) {
+            if (value instanceof LazyLoadedVariable) {
+                value = ((LazyLoadedVariable) value).load();
+                // loading does not change the variable so there is no need to mark instance as changed
+                variables.put(name, value);
+            }
+            if (!isImmutable(value)) {
+                // caller might modify the value directly so it cannot be tracked
+                markProcessInstanceDirty();
+            }
             return value;
         }
 
@@ -87,6 +102,24 @@ public class VariableScopeInstance extends AbstractContextInstance {
     }
 
     public Map<String, Object> getVariables() {
+        boolean mutable = false;
+        for (Map.Entry<String, Object> entry : variables.entrySet()) {
+            if (entry.getValue() instanceof LazyLoadedVariable) {
+                entry.setValue(((LazyLoadedVariable) entry.getValue()).load());
+            }
+            mutable = mutable || !isImmutable(entry.getValue());
+        }
+        if (mutable) {
+            markProcessInstanceDirty();
+        }
+        return Collections.unmodifiableMap(variables);
+    }
+
+    /**
+     * Returns variables as they are kept in this scope - variables that were not accessed yet might be
+     * represented by <code>LazyLoadedVariable</code> placeholders. Meant to be used by marshallers only.
+     */
+    public Map<String, Object> internalGetVariables() {
         return Collections.unmodifiableMap(variables);
     }
 
@@ -95,7 +128,12 @@ public class VariableScopeInstance extends AbstractContextInstance {
             throw new IllegalArgumentException(
                 "The name of a variable may not be null!");
         }
+        checkNotReadOnly(name);
         Object oldValue = variables.get(name);
+        if (oldValue instanceof LazyLoadedVariable) {
+            // listeners expect the actual previous value
+            oldValue = ((LazyLoadedVariable) oldValue).load();
+        }
         if (oldValue == null) {
         	if (value == null) {
         		return;
@@ -117,6 +155,7 @@ public class VariableScopeInstance extends AbstractContextInstance {
     }
     
     public void internalSetVariable(String name, Object value) {
+        checkNotReadOnly(name);
         if (name.startsWith(VariableScope.CASE_FILE_PREFIX)) {
             String nameInCaseFile = name.replaceFirst(VariableScope.CASE_FILE_PREFIX, "");            
             // store it under case file rather regular variables
@@ -134,8 +173,42 @@ public class VariableScopeInstance extends AbstractContextInstance {
         }
         // not a case, store it in normal variables
     	variables.put(name, value);
+    	markProcessInstanceDirty();
     }
     
+    protected void markProcessInstanceDirty() {
+        ProcessInstanceImpl processInstance = getOwningProcessInstance();
+        if (processInstance != null) {
+            processInstance.markDirty();
+        }
+    }
+
+    private void checkNotReadOnly(String name) {
+        ProcessInstanceImpl processInstance = getOwningProcessInstance();
+        if (processInstance != null && processInstance.isReadOnly()) {
+            throw new IllegalStateException("Process instance " + processInstance.getId() + " is read only, variable " + name + " cannot be set");
+        }
+    }
+
+    private ProcessInstanceImpl getOwningProcessInstance() {
+        Object processInstance = getProcessInstance();
+        if (processInstance == null && getContextInstanceContainer() instanceof NodeInstance) {
+            // nested scope (e.g. of composite context node) might not have process instance assigned directly
+            processInstance = ((NodeInstance) getContextInstanceContainer()).getProcessInstance();
+        }
+        if (processInstance instanceof ProcessInstanceImpl) {
+            return (ProcessInstanceImpl) processInstance;
+        }
+        return null;
+    }
+
+    protected static boolean isImmutable(Object value) {
+        return value == null || value instanceof String || value instanceof Boolean || value instanceof Character
+                || value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof Double || value instanceof Float || value instanceof BigDecimal
+                || value instanceof BigInteger || value instanceof Enum;
+    }
+
     public VariableScope getVariableScope() {
     	return (VariableScope) getContext();
     }
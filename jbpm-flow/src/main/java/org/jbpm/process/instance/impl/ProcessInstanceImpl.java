@@ -18,6 +18,7 @@ package org.jbpm.process.instance.impl;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -62,6 +63,10 @@ public abstract class ProcessInstanceImpl implements ProcessInstance, Serializab
     private String outcome;
     private long parentProcessInstanceId;
     private String description;
+    // new instances are always considered changed, tracking starts once instance is loaded or stored
+    private transient boolean dirty = true;
+    // set on disconnected snapshots shared by read only look ups, these must never be changed
+    private transient boolean readOnly = false;
 
     public void setId(final long id) {
         this.id = id;
@@ -77,7 +82,9 @@ public abstract class ProcessInstanceImpl implements ProcessInstance, Serializab
     }
     
     public void updateProcess(final Process process) {
+    	checkNotReadOnly();
     	setProcess(process);
+    	markDirty();
     	XmlProcessDumper dumper = XmlProcessDumperFactory.newXmlProcessDumperFactory();
     	this.processXml = dumper.dumpProcess(process);
     }
@@ -108,7 +115,9 @@ public abstract class ProcessInstanceImpl implements ProcessInstance, Serializab
     }
     
     public void setProcessId(String processId) {
+    	checkNotReadOnly();
     	this.processId = processId;
+    	markDirty();
     }
     
     public String getProcessId() {
@@ -124,12 +133,15 @@ public abstract class ProcessInstanceImpl implements ProcessInstance, Serializab
     }
     
     public void setState(final int state, String outcome) {
+        checkNotReadOnly();
         this.outcome = outcome;
         internalSetState(state);
     }
     
     public void internalSetState(final int state) {
+    	checkNotReadOnly();
     	this.state = state;
+    	markDirty();
     }
 
     public int getState() {
@@ -264,15 +276,22 @@ public abstract class ProcessInstanceImpl implements ProcessInstance, Serializab
     }
 
 	public Map<String, Object> getMetaData() {
+		if (readOnly) {
+			return Collections.unmodifiableMap(this.metaData);
+		}
 		return this.metaData;
 	}
 
     public void setMetaData(String name, Object data) {
+        checkNotReadOnly();
         this.metaData.put(name, data);
+        markDirty();
     }
 
     public void setOutcome(String outcome) {
+        checkNotReadOnly();
         this.outcome = outcome;
+        markDirty();
     }
 
     public String getOutcome() {
@@ -284,7 +303,9 @@ public abstract class ProcessInstanceImpl implements ProcessInstance, Serializab
     }
 
     public void setParentProcessInstanceId(long parentProcessInstanceId) {
+        checkNotReadOnly();
         this.parentProcessInstanceId = parentProcessInstanceId;
+        markDirty();
     }
     
     public String getDescription() {
@@ -322,6 +343,45 @@ public abstract class ProcessInstanceImpl implements ProcessInstance, Serializab
     }
     
     public void setDescription(String description) {
+    	checkNotReadOnly();
     	this.description = description;
+    	markDirty();
+    }
+
+    /**
+     * Marks this process instance as changed so it will be stored again by persistence layer.
+     */
+    public void markDirty() {
+        this.dirty = true;
+    }
+
+    /**
+     * @return true if this process instance might have changed since it was loaded or last stored
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void clearDirty() {
+        this.dirty = false;
+    }
+
+    /**
+     * Marks this (disconnected) process instance as read only - any further attempt to change its state,
+     * variables or node instances fails with <code>IllegalStateException</code>. Used for snapshots that are
+     * shared by read only look ups. Cannot be reverted.
+     */
+    public void setReadOnly() {
+        this.readOnly = true;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    protected void checkNotReadOnly() {
+        if (readOnly) {
+            throw new IllegalStateException("Process instance " + id + "[" + processId + "] is read only");
+        }
     }
 }
@@ -40,6 +40,7 @@ import org.jbpm.process.instance.context.exclusive.ExclusiveGroupInstance;
 import org.jbpm.process.instance.context.variable.VariableScopeInstance;
 import org.jbpm.process.instance.impl.Action;
 import org.jbpm.process.instance.impl.ConstraintEvaluator;
+import org.jbpm.process.instance.impl.ProcessInstanceImpl;
 import org.jbpm.workflow.core.impl.NodeImpl;
 import org.jbpm.workflow.instance.WorkflowProcessInstance;
 import org.jbpm.workflow.instance.WorkflowRuntimeException;
@@ -67,11 +68,17 @@ public abstract class NodeInstanceImpl implements org.jbpm.workflow.instance.Nod
     private org.jbpm.workflow.instance.NodeInstanceContainer nodeInstanceContainer;
     private Map<String, Object> metaData = new HashMap<String, Object>();
     private int level;
+    // index of the container this node instance belongs to, notified about changes of id and node id
+    private NodeInstanceIndex nodeInstanceIndex;
     
     protected transient Map<String, Object> dynamicParameters;
 
     public void setId(final long id) {
+        long oldId = this.id;
         this.id = id;
+        if (nodeInstanceIndex != null && oldId != id) {
+            nodeInstanceIndex.idChanged(this, oldId);
+        }
     }
 
     public long getId() {
@@ -79,7 +86,11 @@ public abstract class NodeInstanceImpl implements org.jbpm.workflow.instance.Nod
     }
 
     public void setNodeId(final long nodeId) {
+        long oldNodeId = this.nodeId;
         this.nodeId = nodeId;
+        if (nodeInstanceIndex != null && oldNodeId != nodeId) {
+            nodeInstanceIndex.nodeIdChanged(this, oldNodeId);
+        }
     }
 
     public long getNodeId() {
@@ -99,6 +110,14 @@ public abstract class NodeInstanceImpl implements org.jbpm.workflow.instance.Nod
         this.level = level;
     }
 
+    NodeInstanceIndex getNodeInstanceIndex() {
+        return nodeInstanceIndex;
+    }
+
+    void setNodeInstanceIndex(NodeInstanceIndex nodeInstanceIndex) {
+        this.nodeInstanceIndex = nodeInstanceIndex;
+    }
+
     public void setProcessInstance(final WorkflowProcessInstance processInstance) {
         this.processInstance = processInstance;
     }
@@ -135,6 +154,7 @@ public abstract class NodeInstanceImpl implements org.jbpm.workflow.instance.Nod
     }
     
     public void cancel() {
+        markProcessInstanceDirty();
         nodeInstanceContainer.removeNodeInstance(this);
         boolean hidden = false;
         Node node = getNode();
@@ -149,6 +169,7 @@ public abstract class NodeInstanceImpl implements org.jbpm.workflow.instance.Nod
     }
     
     public final void trigger(NodeInstance from, String type) {
+    	markProcessInstanceDirty();
     	boolean hidden = false;
     	if (getNode().getMetaData().get("hidden") != null) {
     		hidden = true;
@@ -497,6 +518,13 @@ public abstract class NodeInstanceImpl implements org.jbpm.workflow.instance.Nod
 
     public void setMetaData(String name, Object data) {
         this.metaData.put(name, data);
+        markProcessInstanceDirty();
+    }
+
+    protected void markProcessInstanceDirty() {
+        if (processInstance instanceof ProcessInstanceImpl) {
+            ((ProcessInstanceImpl) processInstance).markDirty();
+        }
     }
     
     protected class NodeInstanceTrigger {
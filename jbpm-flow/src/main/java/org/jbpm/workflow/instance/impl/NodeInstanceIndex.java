@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workflow.instance.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.jbpm.workflow.instance.NodeInstance;
+import org.jbpm.workflow.instance.NodeInstanceContainer;
+
+/**
+ * Node instances of a node instance container (process instance or composite node instance) kept in the order
+ * they were added, together with indexes by node instance id and by node id so node instances can be looked up
+ * without scanning all of them. Node instances that are containers themselves are tracked as well so recursive
+ * look ups do not need to visit the other node instances.
+ * <br/>
+ * Node instances notify the index when their id or node id changes after they were added (e.g. when unmarshalled
+ * or migrated) so the indexes are kept up to date.
+ */
+public class NodeInstanceIndex implements Serializable {
+
+    private static final long serialVersionUID = 510l;
+
+    private final List<NodeInstance> nodeInstances = new ArrayList<NodeInstance>();
+    private final List<NodeInstance> view = Collections.unmodifiableList(nodeInstances);
+    private final Map<Long, NodeInstance> nodeInstancesById = new HashMap<Long, NodeInstance>();
+    private final Map<Long, List<NodeInstance>> nodeInstancesByNodeId = new HashMap<Long, List<NodeInstance>>();
+    private final List<NodeInstance> containers = new ArrayList<NodeInstance>();
+    private final List<NodeInstance> containersView = Collections.unmodifiableList(containers);
+
+    public void add(NodeInstance nodeInstance) {
+        nodeInstances.add(nodeInstance);
+        nodeInstancesById.put(nodeInstance.getId(), nodeInstance);
+        addByNodeId(nodeInstance);
+        if (nodeInstance instanceof NodeInstanceContainer) {
+            containers.add(nodeInstance);
+        }
+        if (nodeInstance instanceof NodeInstanceImpl) {
+            ((NodeInstanceImpl) nodeInstance).setNodeInstanceIndex(this);
+        }
+    }
+
+    public boolean remove(NodeInstance toRemove) {
+        // same as List.remove - first equal node instance is removed
+        int index = nodeInstances.indexOf(toRemove);
+        if (index < 0) {
+            return false;
+        }
+        NodeInstance nodeInstance = nodeInstances.remove(index);
+        if (nodeInstancesById.get(nodeInstance.getId()) == nodeInstance) {
+            nodeInstancesById.remove(nodeInstance.getId());
+        }
+        removeByNodeId(nodeInstance, nodeInstance.getNodeId());
+        if (nodeInstance instanceof NodeInstanceContainer) {
+            removeSame(containers, nodeInstance);
+        }
+        if (nodeInstance instanceof NodeInstanceImpl && ((NodeInstanceImpl) nodeInstance).getNodeInstanceIndex() == this) {
+            ((NodeInstanceImpl) nodeInstance).setNodeInstanceIndex(null);
+        }
+        return true;
+    }
+
+    /**
+     * @return unmodifiable (live) list of all node instances in the order they were added
+     */
+    public List<NodeInstance> getNodeInstances() {
+        return view;
+    }
+
+    public boolean isEmpty() {
+        return nodeInstances.isEmpty();
+    }
+
+    public int size() {
+        return nodeInstances.size();
+    }
+
+    public NodeInstance getNodeInstance(long nodeInstanceId) {
+        return nodeInstancesById.get(nodeInstanceId);
+    }
+
+    /**
+     * @return new list with node instances of given node, empty if there are none
+     */
+    public List<NodeInstance> getNodeInstances(long nodeId) {
+        List<NodeInstance> byNodeId = nodeInstancesByNodeId.get(nodeId);
+        if (byNodeId == null) {
+            return new ArrayList<NodeInstance>();
+        }
+        return new ArrayList<NodeInstance>(byNodeId);
+    }
+
+    /**
+     * @return first node instance of given node at given level or null if there is none
+     */
+    public NodeInstance getFirstNodeInstance(long nodeId, int level) {
+        List<NodeInstance> byNodeId = nodeInstancesByNodeId.get(nodeId);
+        if (byNodeId != null) {
+            for (NodeInstance nodeInstance : byNodeId) {
+                if (nodeInstance.getLevel() == level) {
+                    return nodeInstance;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return unmodifiable (live) list of node instances that are node instance containers themselves
+     */
+    public List<NodeInstance> getContainers() {
+        return containersView;
+    }
+
+    void idChanged(NodeInstance nodeInstance, long oldId) {
+        if (nodeInstancesById.get(oldId) == nodeInstance) {
+            nodeInstancesById.remove(oldId);
+            nodeInstancesById.put(nodeInstance.getId(), nodeInstance);
+        }
+    }
+
+    void nodeIdChanged(NodeInstance nodeInstance, long oldNodeId) {
+        if (removeByNodeId(nodeInstance, oldNodeId)) {
+            // rebuild the node instances of the new node to keep them in the order they were added
+            nodeInstancesByNodeId.remove(nodeInstance.getNodeId());
+            for (NodeInstance other : nodeInstances) {
+                if (other.getNodeId() == nodeInstance.getNodeId()) {
+                    addByNodeId(other);
+                }
+            }
+        }
+    }
+
+    private void addByNodeId(NodeInstance nodeInstance) {
+        List<NodeInstance> byNodeId = nodeInstancesByNodeId.get(nodeInstance.getNodeId());
+        if (byNodeId == null) {
+            byNodeId = new ArrayList<NodeInstance>(1);
+            nodeInstancesByNodeId.put(nodeInstance.getNodeId(), byNodeId);
+        }
+        byNodeId.add(nodeInstance);
+    }
+
+    private boolean removeByNodeId(NodeInstance nodeInstance, long nodeId) {
+        List<NodeInstance> byNodeId = nodeInstancesByNodeId.get(nodeId);
+        if (byNodeId == null || !removeSame(byNodeId, nodeInstance)) {
+            return false;
+        }
+        if (byNodeId.isEmpty()) {
+            nodeInstancesByNodeId.remove(nodeId);
+        }
+        return true;
+    }
+
+    private static boolean removeSame(List<NodeInstance> list, NodeInstance nodeInstance) {
+        for (Iterator<NodeInstance> iterator = list.iterator(); iterator.hasNext();) {
+            if (iterator.next() == nodeInstance) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -21,10 +21,12 @@ import static org.jbpm.workflow.instance.impl.DummyEventListener.EMPTY_EVENT_LIS
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
@@ -82,7 +84,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 	private static final long serialVersionUID = 510l;
 	private static final Logger logger = LoggerFactory.getLogger(WorkflowProcessInstanceImpl.class);
 
-	private final List<NodeInstance> nodeInstances = new ArrayList<NodeInstance>();;
+	private final NodeInstanceIndex nodeInstances = new NodeInstanceIndex();
 
 	private AtomicLong singleNodeInstanceCounter = new AtomicLong(0);
 
@@ -91,7 +93,8 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 
 	private List<String> completedNodeIds = new ArrayList<String>();
 	private List<String> activatingNodeIds;
-	private Map<String, Integer> iterationLevels = new HashMap<String, Integer>();
+	// kept ordered so marshallers can write it deterministically without sorting
+	private Map<String, Integer> iterationLevels = new TreeMap<String, Integer>(Comparator.nullsFirst(Comparator.<String>naturalOrder()));
 	private int currentLevel;
 	private boolean persisted = false;
 	private Object faultData;
@@ -106,6 +109,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 	}
 
 	public void addNodeInstance(final NodeInstance nodeInstance) {
+	    checkNotReadOnly();
 	    if (nodeInstance.getId() == -1) {
             // assign new id only if it does not exist as it might already be set by marshalling
             // it's important to keep same ids of node instances as they might be references e.g. exclusive group
@@ -113,6 +117,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
     		((NodeInstanceImpl) nodeInstance).setId(id);
 	    }
 		this.nodeInstances.add(nodeInstance);
+		markDirty();
 	}
 
     @Override
@@ -131,15 +136,18 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
         }
 
         iterationLevels.put(uniqueID, value);
+        markDirty();
         return value;
     }
 
 	public void removeNodeInstance(final NodeInstance nodeInstance) {
+		checkNotReadOnly();
 		if (((NodeInstanceImpl) nodeInstance).isInversionOfControl()) {
 			getKnowledgeRuntime().delete(
 					getKnowledgeRuntime().getFactHandle(nodeInstance));
 		}
 		this.nodeInstances.remove(nodeInstance);
+		markDirty();
 	}
 
 	public Collection<org.kie.api.runtime.process.NodeInstance> getNodeInstances() {
@@ -147,38 +155,33 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 	}
 
 	public Collection<NodeInstance> getNodeInstances(boolean recursive) {
-		Collection<NodeInstance> result = nodeInstances;
+		Collection<NodeInstance> result = nodeInstances.getNodeInstances();
 		if (recursive) {
 			result = new ArrayList<NodeInstance>(result);
-			for (Iterator<NodeInstance> iterator = nodeInstances.iterator(); iterator
-					.hasNext();) {
-				NodeInstance nodeInstance = iterator.next();
-				if (nodeInstance instanceof NodeInstanceContainer) {
-					result
-							.addAll(((org.jbpm.workflow.instance.NodeInstanceContainer) nodeInstance)
-									.getNodeInstances(true));
-				}
+			for (NodeInstance nodeInstance : nodeInstances.getContainers()) {
+				result.addAll(((org.jbpm.workflow.instance.NodeInstanceContainer) nodeInstance)
+						.getNodeInstances(true));
 			}
 		}
 		return Collections.unmodifiableCollection(result);
 	}
 
 	public NodeInstance getNodeInstance(long nodeInstanceId) {
-		for (NodeInstance nodeInstance: nodeInstances) {
-			if (nodeInstance.getId() == nodeInstanceId) {
-				return nodeInstance;
-			}
-		}
-		return null;
+		return nodeInstances.getNodeInstance(nodeInstanceId);
 	}
 
 	public NodeInstance getNodeInstance(long nodeInstanceId, boolean recursive) {
-		for (NodeInstance nodeInstance: getNodeInstances(recursive)) {
-			if (nodeInstance.getId() == nodeInstanceId) {
-				return nodeInstance;
+		NodeInstance result = nodeInstances.getNodeInstance(nodeInstanceId);
+		if (result == null && recursive) {
+			for (NodeInstance nodeInstance : nodeInstances.getContainers()) {
+				result = ((org.jbpm.workflow.instance.NodeInstanceContainer) nodeInstance)
+						.getNodeInstance(nodeInstanceId, true);
+				if (result != null) {
+					break;
+				}
 			}
 		}
-		return null;
+		return result;
 	}
 
 	public List<String> getActiveNodeIds() {
@@ -188,7 +191,12 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 	}
 
 	private void addActiveNodeIds(NodeInstanceContainer container, List<String> result) {
-		for (org.kie.api.runtime.process.NodeInstance nodeInstance: container.getNodeInstances()) {
+		// iterate over internal node instances where possible to avoid copying them
+		Collection<? extends org.kie.api.runtime.process.NodeInstance> containerNodeInstances =
+				container instanceof org.jbpm.workflow.instance.NodeInstanceContainer ?
+						((org.jbpm.workflow.instance.NodeInstanceContainer) container).getNodeInstances(false) :
+						container.getNodeInstances();
+		for (org.kie.api.runtime.process.NodeInstance nodeInstance: containerNodeInstances) {
 			result.add(((NodeImpl) ((NodeInstanceImpl) nodeInstance).getNode()).getUniqueId());
 			if (nodeInstance instanceof NodeInstanceContainer) {
 				addActiveNodeIds((NodeInstanceContainer) nodeInstance, result);
@@ -197,26 +205,11 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 	}
 
 	public NodeInstance getFirstNodeInstance(final long nodeId) {
-		for (final Iterator<NodeInstance> iterator = this.nodeInstances
-				.iterator(); iterator.hasNext();) {
-			final NodeInstance nodeInstance = iterator.next();
-			if (nodeInstance.getNodeId() == nodeId && nodeInstance.getLevel() == getCurrentLevel()) {
-				return nodeInstance;
-			}
-		}
-		return null;
+		return nodeInstances.getFirstNodeInstance(nodeId, getCurrentLevel());
 	}
 
 	public List<NodeInstance> getNodeInstances(final long nodeId) {
-		List<NodeInstance> result = new ArrayList<NodeInstance>();
-		for (final Iterator<NodeInstance> iterator = this.nodeInstances
-				.iterator(); iterator.hasNext();) {
-			final NodeInstance nodeInstance = iterator.next();
-			if (nodeInstance.getNodeId() == nodeId) {
-				result.add(nodeInstance);
-			}
-		}
-		return result;
+		return nodeInstances.getNodeInstances(nodeId);
 	}
 
 	public List<NodeInstance> getNodeInstances(final long nodeId, final List<NodeInstance> currentView) {
@@ -352,7 +345,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
             processRuntime.getProcessEventSupport().fireBeforeProcessCompleted(this, kruntime);
             // deactivate all node instances of this process instance
             while (!nodeInstances.isEmpty()) {
-                NodeInstance nodeInstance = nodeInstances.get(0);
+                NodeInstance nodeInstance = nodeInstances.getNodeInstances().get(0);
                 ((org.jbpm.workflow.instance.NodeInstance) nodeInstance)
                         .cancel();
             }
@@ -392,7 +385,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
         removeEventListeners();
         unregisterExternalEventNodeListeners();
 
-        for (NodeInstance nodeInstance : nodeInstances) {
+        for (NodeInstance nodeInstance : nodeInstances.getNodeInstances()) {
             if (nodeInstance instanceof EventBasedNodeInstanceInterface) {
                 ((EventBasedNodeInstanceInterface) nodeInstance).removeEventListeners();
             }
@@ -402,7 +395,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 
 	public void reconnect() {
 		super.reconnect();
-		for (NodeInstance nodeInstance : nodeInstances) {
+		for (NodeInstance nodeInstance : nodeInstances.getNodeInstances()) {
 			if (nodeInstance instanceof EventBasedNodeInstanceInterface) {
 				((EventBasedNodeInstanceInterface) nodeInstance)
 						.addEventListeners();
@@ -474,10 +467,13 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 
 	@SuppressWarnings("unchecked")
     public void signalEvent(String type, Object event) {
+	    checkNotReadOnly();
 	    synchronized (this) {
 			if (getState() != ProcessInstance.STATE_ACTIVE) {
 				return;
 			}
+			// signals might change state of any node instance so consider it changed
+			markDirty();
 			InternalRuntimeManager manager = (InternalRuntimeManager) getKnowledgeRuntime().getEnvironment().get("RuntimeManager");
 	        if (manager != null) {
 	            // check if process instance is owned by the same manager as the one owning ksession
@@ -487,7 +483,9 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 	                return;
 	            }
 	        }
-			List<NodeInstance> currentView = new ArrayList<NodeInstance>(this.nodeInstances);
+			// only node instances of event nodes that exist before the signal is processed are signalled,
+			// take them from the index instead of copying all node instances
+			Map<Long, List<NodeInstance>> currentView = getEventNodeInstances(getWorkflowProcess().getNodes());
 
 			try {
 				this.activatingNodeIds = new ArrayList<String>();
@@ -514,7 +512,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
     			                    EventSubProcessNodeInstance eventNodeInstance = (EventSubProcessNodeInstance) getNodeInstance(node);
     			                    eventNodeInstance.signalEvent(type, event);
 			                    } else {
-    								List<NodeInstance> nodeInstances = getNodeInstances(node.getId(), currentView);
+    								List<NodeInstance> nodeInstances = currentView.get(node.getId());
     			                    if (nodeInstances != null && !nodeInstances.isEmpty()) {
     			                        for (NodeInstance nodeInstance : nodeInstances) {
     										((EventNodeInstanceInterface) nodeInstance).signalEvent(type, event);
@@ -552,6 +550,19 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 		}
 	}
 
+	protected Map<Long, List<NodeInstance>> getEventNodeInstances(Node[] nodes) {
+		Map<Long, List<NodeInstance>> result = new HashMap<Long, List<NodeInstance>>();
+		for (Node node : nodes) {
+			if (node instanceof EventNodeInterface) {
+				List<NodeInstance> eventNodeInstances = nodeInstances.getNodeInstances(node.getId());
+				if (!eventNodeInstances.isEmpty()) {
+					result.put(node.getId(), eventNodeInstances);
+				}
+			}
+		}
+		return result;
+	}
+
 	protected List<String> resolveVariables(List<String> events) {
 	    return events.stream().map( event -> resolveVariable(event)).collect(Collectors.toList());
 	}
@@ -655,7 +666,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 	        return true;
 	    } else {
 	        int eventSubprocessCounter = 0;
-	        for (NodeInstance nodeInstance : nodeInstances) {
+	        for (NodeInstance nodeInstance : nodeInstances.getNodeInstances()) {
 	            Node node = nodeInstance.getNode();
 	            if (node instanceof EventSubProcessNode) {
 	                if (((EventSubProcessNodeInstance) nodeInstance).getNodeInstances().isEmpty()) {
@@ -671,6 +682,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 
 	public void addCompletedNodeId(String uniqueId) {
 	    this.completedNodeIds.add(uniqueId.intern());
+	    markDirty();
 	}
 
 	public List<String> getCompletedNodeIds() {
@@ -683,6 +695,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 
     public void setCurrentLevel(int currentLevel) {
         this.currentLevel = currentLevel;
+        markDirty();
     }
 
     public Map<String, Integer> getIterationLevels() {
@@ -702,6 +715,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 			return;
 		}
 	    this.activatingNodeIds.add(uniqueId.intern());
+	    markDirty();
 	}
 
 	public List<String> getActivatingNodeIds() {
@@ -721,6 +735,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 
     public void setSignalCompletion(boolean signalCompletion) {
         this.signalCompletion = signalCompletion;
+        markDirty();
     }
 
     public String getDeploymentId() {
@@ -729,6 +744,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 
     public void setDeploymentId(String deploymentId) {
         this.deploymentId = deploymentId;
+        markDirty();
     }
     
     public String getCorrelationKey() {
@@ -740,6 +756,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 
     public void setCorrelationKey(String correlationKey) {
         this.correlationKey = correlationKey;
+        markDirty();
     }
 
     protected boolean hasDeploymentId() {
@@ -21,10 +21,12 @@ import static org.jbpm.workflow.instance.impl.DummyEventListener.EMPTY_EVENT_LIS
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.jbpm.process.instance.ProcessInstance;
@@ -40,6 +42,7 @@ import org.jbpm.workflow.instance.WorkflowProcessInstance;
 import org.jbpm.workflow.instance.impl.NodeInstanceFactory;
 import org.jbpm.workflow.instance.impl.NodeInstanceFactoryRegistry;
 import org.jbpm.workflow.instance.impl.NodeInstanceImpl;
+import org.jbpm.workflow.instance.impl.NodeInstanceIndex;
 import org.jbpm.workflow.instance.impl.WorkflowProcessInstanceImpl;
 import org.kie.api.definition.process.Connection;
 import org.kie.api.definition.process.Node;
@@ -53,11 +56,12 @@ public class CompositeNodeInstance extends StateBasedNodeInstance implements Nod
 
     private static final long serialVersionUID = 510l;
 
-    private final List<NodeInstance> nodeInstances = new ArrayList<NodeInstance>();
+    private final NodeInstanceIndex nodeInstances = new NodeInstanceIndex();
 
     private AtomicLong singleNodeInstanceCounter = null; // set during NodeInstance creation (*NodeFactory)
     private int state = ProcessInstance.STATE_ACTIVE;
-    private Map<String, Integer> iterationLevels = new HashMap<String, Integer>();
+    // kept ordered so marshallers can write it deterministically without sorting
+    private Map<String, Integer> iterationLevels = new TreeMap<String, Integer>(Comparator.nullsFirst(Comparator.<String>naturalOrder()));
     private int currentLevel;
 
     @Override
@@ -75,6 +79,7 @@ public class CompositeNodeInstance extends StateBasedNodeInstance implements Nod
         }
 
         iterationLevels.put(uniqueID, value);
+        markProcessInstanceDirty();
         return value;
     }
 
@@ -165,7 +170,7 @@ public class CompositeNodeInstance extends StateBasedNodeInstance implements Nod
         triggerCompleted(outType, cancelRemainingInstances);
         if (cancelRemainingInstances) {
 	        while (!nodeInstances.isEmpty()) {
-	            NodeInstance nodeInstance = (NodeInstance) nodeInstances.get(0);
+	            NodeInstance nodeInstance = (NodeInstance) nodeInstances.getNodeInstances().get(0);
 	            ((org.jbpm.workflow.instance.NodeInstance) nodeInstance).cancel();
 	        }
         }
@@ -173,7 +178,7 @@ public class CompositeNodeInstance extends StateBasedNodeInstance implements Nod
 
     public void cancel() {
         while (!nodeInstances.isEmpty()) {
-            NodeInstance nodeInstance = (NodeInstance) nodeInstances.get(0);
+            NodeInstance nodeInstance = (NodeInstance) nodeInstances.getNodeInstances().get(0);
             ((org.jbpm.workflow.instance.NodeInstance) nodeInstance).cancel();
         }
         super.cancel();
@@ -187,10 +192,12 @@ public class CompositeNodeInstance extends StateBasedNodeInstance implements Nod
             ((NodeInstanceImpl) nodeInstance).setId(id);
         }
         this.nodeInstances.add(nodeInstance);
+        markProcessInstanceDirty();
     }
 
     public void removeNodeInstance(final NodeInstance nodeInstance) {
         this.nodeInstances.remove(nodeInstance);
+        markProcessInstanceDirty();
     }
 
     public Collection<org.kie.api.runtime.process.NodeInstance> getNodeInstances() {
@@ -198,46 +205,36 @@ public class CompositeNodeInstance extends StateBasedNodeInstance implements Nod
     }
 
     public Collection<NodeInstance> getNodeInstances(boolean recursive) {
-        Collection<NodeInstance> result = nodeInstances;
+        Collection<NodeInstance> result = nodeInstances.getNodeInstances();
         if (recursive) {
             result = new ArrayList<NodeInstance>(result);
-            for (Iterator<NodeInstance> iterator = nodeInstances.iterator(); iterator.hasNext(); ) {
-                NodeInstance nodeInstance = iterator.next();
-                if (nodeInstance instanceof NodeInstanceContainer) {
-                    result.addAll(((NodeInstanceContainer)
-                		nodeInstance).getNodeInstances(true));
-                }
+            for (NodeInstance nodeInstance : nodeInstances.getContainers()) {
+                result.addAll(((NodeInstanceContainer)
+            		nodeInstance).getNodeInstances(true));
             }
         }
         return Collections.unmodifiableCollection(result);
     }
 
 	public NodeInstance getNodeInstance(long nodeInstanceId) {
-		for (NodeInstance nodeInstance: nodeInstances) {
-			if (nodeInstance.getId() == nodeInstanceId) {
-				return nodeInstance;
-			}
-		}
-		return null;
+		return nodeInstances.getNodeInstance(nodeInstanceId);
 	}
 
 	public NodeInstance getNodeInstance(long nodeInstanceId, boolean recursive) {
-		for (NodeInstance nodeInstance: getNodeInstances(recursive)) {
-			if (nodeInstance.getId() == nodeInstanceId) {
-				return nodeInstance;
+		NodeInstance result = nodeInstances.getNodeInstance(nodeInstanceId);
+		if (result == null && recursive) {
+			for (NodeInstance nodeInstance : nodeInstances.getContainers()) {
+				result = ((NodeInstanceContainer) nodeInstance).getNodeInstance(nodeInstanceId, true);
+				if (result != null) {
+					break;
+				}
 			}
 		}
-		return null;
+		return result;
 	}
 
     public NodeInstance getFirstNodeInstance(final long nodeId) {
-        for ( final Iterator<NodeInstance> iterator = this.nodeInstances.iterator(); iterator.hasNext(); ) {
-            final NodeInstance nodeInstance = iterator.next();
-            if ( nodeInstance.getNodeId() == nodeId && nodeInstance.getLevel() == getCurrentLevel()) {
-                return nodeInstance;
-            }
-        }
-        return null;
+        return nodeInstances.getFirstNodeInstance(nodeId, getCurrentLevel());
     }
 
     public NodeInstance getNodeInstance(final Node node) {
@@ -276,7 +273,7 @@ public class CompositeNodeInstance extends StateBasedNodeInstance implements Nod
 
     @Override
 	public void signalEvent(String type, Object event) {
-		List<NodeInstance> currentView = new ArrayList<NodeInstance>(this.nodeInstances);
+		Map<Long, List<NodeInstance>> currentView = getEventNodeInstances();
 		super.signalEvent(type, event);
 		for (Node node: getCompositeNode().internalGetNodes()) {
 			if (node instanceof EventNodeInterface) {
@@ -288,7 +285,7 @@ public class CompositeNodeInstance extends StateBasedNodeInstance implements Nod
 					    EventNodeInstanceInterface eventNodeInstance = (EventNodeInstanceInterface) getNodeInstance(node);
 					    eventNodeInstance.signalEvent(type, event);
 					} else {
-						List<NodeInstance> nodeInstances = getNodeInstances(node.getId(), currentView);
+						List<NodeInstance> nodeInstances = currentView.get(node.getId());
 						if (nodeInstances != null && !nodeInstances.isEmpty()) {
 							for (NodeInstance nodeInstance : nodeInstances) {
 								((EventNodeInstanceInterface) nodeInstance)
@@ -301,18 +298,23 @@ public class CompositeNodeInstance extends StateBasedNodeInstance implements Nod
 		}
 	}
 
-	public List<NodeInstance> getNodeInstances(final long nodeId) {
-		List<NodeInstance> result = new ArrayList<NodeInstance>();
-		for (final Iterator<NodeInstance> iterator = this.nodeInstances
-				.iterator(); iterator.hasNext();) {
-			final NodeInstance nodeInstance = iterator.next();
-			if (nodeInstance.getNodeId() == nodeId) {
-				result.add(nodeInstance);
+	protected Map<Long, List<NodeInstance>> getEventNodeInstances() {
+		Map<Long, List<NodeInstance>> result = new HashMap<Long, List<NodeInstance>>();
+		for (Node node: getCompositeNode().internalGetNodes()) {
+			if (node instanceof EventNodeInterface) {
+				List<NodeInstance> eventNodeInstances = nodeInstances.getNodeInstances(node.getId());
+				if (!eventNodeInstances.isEmpty()) {
+					result.put(node.getId(), eventNodeInstances);
+				}
 			}
 		}
 		return result;
 	}
 
+	public List<NodeInstance> getNodeInstances(final long nodeId) {
+		return nodeInstances.getNodeInstances(nodeId);
+	}
+
 	public List<NodeInstance> getNodeInstances(final long nodeId, List<NodeInstance> currentView) {
 		List<NodeInstance> result = new ArrayList<NodeInstance>();
 		for (final Iterator<NodeInstance> iterator = currentView
@@ -364,7 +366,7 @@ public class CompositeNodeInstance extends StateBasedNodeInstance implements Nod
 
 	public void addEventListeners() {
 		super.addEventListeners();
-		for (NodeInstance nodeInstance: nodeInstances) {
+		for (NodeInstance nodeInstance: nodeInstances.getNodeInstances()) {
             if (nodeInstance instanceof EventBasedNodeInstanceInterface) {
                 ((EventBasedNodeInstanceInterface) nodeInstance).addEventListeners();
             }
@@ -373,7 +375,7 @@ public class CompositeNodeInstance extends StateBasedNodeInstance implements Nod
 
 	public void removeEventListeners() {
 		super.removeEventListeners();
-		for (NodeInstance nodeInstance: nodeInstances) {
+		for (NodeInstance nodeInstance: nodeInstances.getNodeInstances()) {
             if (nodeInstance instanceof EventBasedNodeInstanceInterface) {
                 ((EventBasedNodeInstanceInterface) nodeInstance).removeEventListeners();
             }
@@ -404,6 +406,7 @@ public class CompositeNodeInstance extends StateBasedNodeInstance implements Nod
 
     public void setState(final int state) {
         this.state = state;
+        markProcessInstanceDirty();
         if (state == ProcessInstance.STATE_ABORTED) {
             cancel();
         }
@@ -419,6 +422,7 @@ public class CompositeNodeInstance extends StateBasedNodeInstance implements Nod
 
     public void setCurrentLevel(int currentLevel) {
         this.currentLevel = currentLevel;
+        markProcessInstanceDirty();
     }
 
     public Map<String, Integer> getIterationLevels() {
@@ -20,11 +20,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.jbpm.process.core.context.variable.VariableScope;
 import org.jbpm.process.instance.context.variable.VariableScopeInstance;
@@ -44,7 +44,8 @@ public class JoinInstance extends NodeInstanceImpl {
 
     private static final long serialVersionUID = 510l;
     
-    private Map<Long, Integer> triggers = new HashMap<Long, Integer>();
+    // kept ordered so marshallers can write it deterministically without sorting
+    private Map<Long, Integer> triggers = new TreeMap<Long, Integer>();
     
     protected Join getJoin() {
         return (Join) getNode();
@@ -311,6 +311,42 @@ public class BusinessCalendarImplTest extends AbstractBaseTest {
 		assertEquals(expectedDate, formatDate("yyyy-MM-dd HH:mm", result));
     }
     
+    @Test
+    public void testCalculateDaysPassingOverConsecutiveHolidays() {
+        Properties config = new Properties();
+        // Friday and following Monday
+        config.setProperty(BusinessCalendarImpl.HOLIDAYS, "2012-05-11,2012-05-14");
+        Properties dayByDayConfig = new Properties();
+        dayByDayConfig.putAll(config);
+        dayByDayConfig.setProperty(BusinessCalendarImpl.INDEX_DAYS, "0");
+        String expectedDate = "2012-05-16 10:22";
+        
+        SessionPseudoClock clock = new StaticPseudoClock(parseToDateWithTime("2012-05-09 10:22").getTime());
+        
+        // working day index and day by day calculation must agree
+        Date result = new BusinessCalendarImpl(config, clock).calculateBusinessTimeAsDate("3d");
+        assertEquals(expectedDate, formatDate("yyyy-MM-dd HH:mm", result));
+        
+        result = new BusinessCalendarImpl(dayByDayConfig, clock).calculateBusinessTimeAsDate("3d");
+        assertEquals(expectedDate, formatDate("yyyy-MM-dd HH:mm", result));
+    }
+    
+    @Test
+    public void testCalculateDaysWithoutWorkingDayIndex() {
+        Properties config = new Properties();
+        config.setProperty(BusinessCalendarImpl.HOLIDAYS, "2012-05-09");
+        config.setProperty(BusinessCalendarImpl.INDEX_DAYS, "0");
+        config.setProperty(BusinessCalendarImpl.EXPRESSION_CACHE_SIZE, "0");
+        String expectedDate = "2012-05-15 11:10";
+        
+        SessionPseudoClock clock = new StaticPseudoClock(parseToDateWithTime("2012-05-08 11:10").getTime());
+        BusinessCalendarImpl businessCal = new BusinessCalendarImpl(config, clock);
+        
+        Date result = businessCal.calculateBusinessTimeAsDate("4d");
+        
+        assertEquals(expectedDate, formatDate("yyyy-MM-dd HH:mm", result));
+    }
+    
     private Date parseToDate(String dateString) {
         SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.core.timer.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TimingWheelTest {
+
+    @Test
+    public void testTasksExpiringInSameTickAreBatched() throws Exception {
+        long now = System.currentTimeMillis();
+        TimingWheel<String> wheel = new TimingWheel<String>(10, 8, now);
+
+        assertNotNull(wheel.add(now + 50, "first"));
+        assertNotNull(wheel.add(now + 50, "second"));
+        assertEquals(2, wheel.size());
+
+        List<String> expired = pollUntil(wheel, 1, now + 2000);
+        assertEquals(2, expired.size());
+        assertTrue(expired.contains("first"));
+        assertTrue(expired.contains("second"));
+        assertTrue(System.currentTimeMillis() >= now + 50);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testTasksInOverflowWheels() throws Exception {
+        long now = System.currentTimeMillis();
+        // first wheel covers 80ms, so following tasks go to the overflow wheels
+        TimingWheel<String> wheel = new TimingWheel<String>(10, 8, now);
+
+        wheel.add(now + 300, "later");
+        wheel.add(now + 150, "sooner");
+
+        List<String> expired = pollUntil(wheel, 1, now + 2000);
+        assertEquals(1, expired.size());
+        assertEquals("sooner", expired.get(0));
+        assertTrue(System.currentTimeMillis() >= now + 150);
+
+        expired = pollUntil(wheel, 1, now + 2000);
+        assertEquals(1, expired.size());
+        assertEquals("later", expired.get(0));
+        assertTrue(System.currentTimeMillis() >= now + 300);
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        long now = System.currentTimeMillis();
+        TimingWheel<String> wheel = new TimingWheel<String>(10, 8, now);
+
+        TimingWheel.Entry<String> entry = wheel.add(now + 30, "cancelled");
+        TimingWheel.Entry<String> overflowEntry = wheel.add(now + 500, "cancelled too");
+        assertEquals(2, wheel.size());
+
+        assertTrue(wheel.cancel(entry));
+        assertTrue(wheel.cancel(overflowEntry));
+        assertFalse(wheel.cancel(entry));
+        assertEquals(0, wheel.size());
+
+        assertTrue(pollUntil(wheel, 1, now + 700).isEmpty());
+    }
+
+    @Test
+    public void testExpiredTaskIsNotAdded() {
+        long now = System.currentTimeMillis();
+        TimingWheel<String> wheel = new TimingWheel<String>(10, 8, now);
+
+        assertNull(wheel.add(now - 100, "expired"));
+        assertEquals(0, wheel.size());
+    }
+
+    private List<String> pollUntil(TimingWheel<String> wheel, int count, long deadline) throws InterruptedException {
+        List<String> expired = new ArrayList<String>();
+        while (expired.size() < count && System.currentTimeMillis() < deadline) {
+            expired.addAll(wheel.poll(50));
+        }
+        return expired;
+    }
+}
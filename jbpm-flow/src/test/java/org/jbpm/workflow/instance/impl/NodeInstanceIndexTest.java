@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workflow.instance.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.jbpm.process.instance.ProcessInstance;
+import org.jbpm.ruleflow.instance.RuleFlowProcessInstance;
+import org.jbpm.test.util.AbstractBaseTest;
+import org.jbpm.workflow.core.impl.WorkflowProcessImpl;
+import org.jbpm.workflow.core.node.CompositeNode;
+import org.jbpm.workflow.instance.NodeInstance;
+import org.jbpm.workflow.instance.NodeInstanceContainer;
+import org.jbpm.workflow.instance.node.CompositeNodeInstance;
+import org.jbpm.workflow.instance.node.MockNode;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+public class NodeInstanceIndexTest extends AbstractBaseTest {
+
+    private static final long COMPOSITE_NODE_ID = 1000;
+
+    public void addLogger() {
+        logger = LoggerFactory.getLogger(this.getClass());
+    }
+
+    @Test
+    public void testLookupByIdAndNodeId() {
+        RuleFlowProcessInstance processInstance = createProcessInstance(3, 0);
+
+        NodeInstance first = addNodeInstance(processInstance, processInstance, 1);
+        NodeInstance second = addNodeInstance(processInstance, processInstance, 2);
+        NodeInstance third = addNodeInstance(processInstance, processInstance, 1);
+
+        assertSame(first, processInstance.getNodeInstance(first.getId()));
+        assertSame(second, processInstance.getNodeInstance(second.getId()));
+        assertSame(third, processInstance.getNodeInstance(third.getId()));
+        assertNull(processInstance.getNodeInstance(100));
+
+        List<NodeInstance> nodeInstances = processInstance.getNodeInstances(1);
+        assertEquals(2, nodeInstances.size());
+        assertSame(first, nodeInstances.get(0));
+        assertSame(third, nodeInstances.get(1));
+        assertTrue(processInstance.getNodeInstances(3).isEmpty());
+
+        processInstance.removeNodeInstance(first);
+        assertNull(processInstance.getNodeInstance(first.getId()));
+        assertEquals(1, processInstance.getNodeInstances(1).size());
+        assertSame(third, processInstance.getNodeInstances(1).get(0));
+        assertEquals(2, processInstance.getNodeInstances(false).size());
+    }
+
+    @Test
+    public void testFirstNodeInstanceAtCurrentLevel() {
+        RuleFlowProcessInstance processInstance = createProcessInstance(1, 0);
+
+        NodeInstance levelOne = addNodeInstance(processInstance, processInstance, 1);
+        ((NodeInstanceImpl) levelOne).setLevel(1);
+        NodeInstance levelTwo = addNodeInstance(processInstance, processInstance, 1);
+        ((NodeInstanceImpl) levelTwo).setLevel(2);
+
+        processInstance.setCurrentLevel(2);
+        assertSame(levelTwo, processInstance.getFirstNodeInstance(1));
+        processInstance.setCurrentLevel(1);
+        assertSame(levelOne, processInstance.getFirstNodeInstance(1));
+        processInstance.setCurrentLevel(3);
+        assertNull(processInstance.getFirstNodeInstance(1));
+    }
+
+    @Test
+    public void testIdAndNodeIdChangedAfterAdded() {
+        RuleFlowProcessInstance processInstance = createProcessInstance(2, 0);
+
+        NodeInstance first = addNodeInstance(processInstance, processInstance, 1);
+        NodeInstance second = addNodeInstance(processInstance, processInstance, 2);
+        long oldId = first.getId();
+
+        // as done by marshaller
+        ((NodeInstanceImpl) first).setId(100);
+        assertNull(processInstance.getNodeInstance(oldId));
+        assertSame(first, processInstance.getNodeInstance(100));
+
+        // as done by migration
+        ((NodeInstanceImpl) first).setNodeId(2);
+        assertTrue(processInstance.getNodeInstances(1).isEmpty());
+        List<NodeInstance> nodeInstances = processInstance.getNodeInstances(2);
+        assertEquals(2, nodeInstances.size());
+        assertSame(first, nodeInstances.get(0));
+        assertSame(second, nodeInstances.get(1));
+    }
+
+    @Test
+    public void testNestedLookup() {
+        RuleFlowProcessInstance processInstance = createProcessInstance(1, 2);
+
+        CompositeNodeInstance compositeNodeInstance = addCompositeNodeInstance(processInstance);
+        NodeInstance inner = addNodeInstance(processInstance, compositeNodeInstance, 2);
+        NodeInstance outer = addNodeInstance(processInstance, processInstance, 1);
+
+        assertNull(processInstance.getNodeInstance(inner.getId()));
+        assertNull(processInstance.getNodeInstance(inner.getId(), false));
+        assertSame(inner, processInstance.getNodeInstance(inner.getId(), true));
+        assertSame(outer, processInstance.getNodeInstance(outer.getId(), true));
+        assertSame(inner, compositeNodeInstance.getNodeInstance(inner.getId()));
+        assertEquals(3, processInstance.getNodeInstances(true).size());
+
+        List<String> activeNodeIds = processInstance.getActiveNodeIds();
+        assertEquals(3, activeNodeIds.size());
+        assertTrue(activeNodeIds.contains(COMPOSITE_NODE_ID + ":2"));
+
+        compositeNodeInstance.removeNodeInstance(inner);
+        assertNull(processInstance.getNodeInstance(inner.getId(), true));
+    }
+
+    private RuleFlowProcessInstance createProcessInstance(int nodes, int compositeNodes) {
+        WorkflowProcessImpl process = new WorkflowProcessImpl();
+        process.setId("org.jbpm.index");
+        for (int i = 1; i <= nodes; i++) {
+            MockNode node = new MockNode();
+            node.setId(i);
+            process.addNode(node);
+        }
+        CompositeNode compositeNode = new CompositeNode();
+        compositeNode.setId(COMPOSITE_NODE_ID);
+        for (int i = 1; i <= compositeNodes; i++) {
+            MockNode node = new MockNode();
+            node.setId(i);
+            compositeNode.addNode(node);
+        }
+        process.addNode(compositeNode);
+
+        RuleFlowProcessInstance processInstance = new RuleFlowProcessInstance();
+        processInstance.setState(ProcessInstance.STATE_ACTIVE);
+        processInstance.setProcess(process);
+        return processInstance;
+    }
+
+    private NodeInstance addNodeInstance(RuleFlowProcessInstance processInstance, NodeInstanceContainer container, long nodeId) {
+        TestNodeInstance nodeInstance = new TestNodeInstance();
+        nodeInstance.setNodeId(nodeId);
+        nodeInstance.setNodeInstanceContainer(container);
+        nodeInstance.setProcessInstance(processInstance);
+        nodeInstance.setLevel(1);
+        return nodeInstance;
+    }
+
+    private CompositeNodeInstance addCompositeNodeInstance(RuleFlowProcessInstance processInstance) {
+        CompositeNodeInstance nodeInstance = new CompositeNodeInstance();
+        nodeInstance.setNodeId(COMPOSITE_NODE_ID);
+        nodeInstance.setNodeInstanceContainer(processInstance);
+        nodeInstance.setProcessInstance(processInstance);
+        nodeInstance.setLevel(1);
+        return nodeInstance;
+    }
+
+    private static class TestNodeInstance extends NodeInstanceImpl {
+
+        private static final long serialVersionUID = 510l;
+
+        @Override
+        public void internalTrigger(org.kie.api.runtime.process.NodeInstance from, String type) {
+        }
+    }
+}
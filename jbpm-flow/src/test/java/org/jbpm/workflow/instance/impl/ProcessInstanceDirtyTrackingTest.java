@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workflow.instance.impl;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.jbpm.process.core.context.variable.VariableScope;
+import org.jbpm.process.instance.ProcessInstance;
+import org.jbpm.process.instance.context.variable.VariableScopeInstance;
+import org.jbpm.ruleflow.instance.RuleFlowProcessInstance;
+import org.jbpm.test.util.AbstractBaseTest;
+import org.jbpm.workflow.core.impl.WorkflowProcessImpl;
+import org.jbpm.workflow.core.node.CompositeContextNode;
+import org.jbpm.workflow.instance.node.CompositeContextNodeInstance;
+import org.jbpm.workflow.instance.node.MockNode;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+public class ProcessInstanceDirtyTrackingTest extends AbstractBaseTest {
+
+    private static final long COMPOSITE_NODE_ID = 1000;
+
+    public void addLogger() {
+        logger = LoggerFactory.getLogger(this.getClass());
+    }
+
+    @Test
+    public void testNodeInstanceAddedToAndRemovedFromCompositeNodeInstance() {
+        RuleFlowProcessInstance processInstance = createProcessInstance();
+        CompositeContextNodeInstance compositeNodeInstance = addCompositeNodeInstance(processInstance);
+
+        processInstance.clearDirty();
+        TestNodeInstance nodeInstance = new TestNodeInstance();
+        nodeInstance.setNodeId(1);
+        nodeInstance.setProcessInstance(processInstance);
+        nodeInstance.setNodeInstanceContainer(compositeNodeInstance);
+        assertTrue(processInstance.isDirty());
+
+        processInstance.clearDirty();
+        compositeNodeInstance.removeNodeInstance(nodeInstance);
+        assertTrue(processInstance.isDirty());
+    }
+
+    @Test
+    public void testCompositeNodeInstanceLevels() {
+        RuleFlowProcessInstance processInstance = createProcessInstance();
+        CompositeContextNodeInstance compositeNodeInstance = addCompositeNodeInstance(processInstance);
+
+        processInstance.clearDirty();
+        compositeNodeInstance.getLevelForNode("1");
+        assertTrue(processInstance.isDirty());
+
+        processInstance.clearDirty();
+        compositeNodeInstance.setCurrentLevel(2);
+        assertTrue(processInstance.isDirty());
+    }
+
+    @Test
+    public void testVariableChangedInNestedScope() {
+        RuleFlowProcessInstance processInstance = createProcessInstance();
+        CompositeContextNodeInstance compositeNodeInstance = addCompositeNodeInstance(processInstance);
+
+        // nested scope without process instance assigned, as when restored by marshaller
+        VariableScopeInstance variableScopeInstance = new VariableScopeInstance();
+        variableScopeInstance.setContextId(0);
+        variableScopeInstance.setContextInstanceContainer(compositeNodeInstance);
+
+        processInstance.clearDirty();
+        variableScopeInstance.internalSetVariable("name", "value");
+        assertTrue(processInstance.isDirty());
+
+        // immutable value read does not change the process instance
+        processInstance.clearDirty();
+        variableScopeInstance.getVariable("name");
+        assertFalse(processInstance.isDirty());
+
+        // mutable value might be changed in place by the caller
+        variableScopeInstance.internalSetVariable("list", new ArrayList<String>());
+        processInstance.clearDirty();
+        variableScopeInstance.getVariable("list");
+        assertTrue(processInstance.isDirty());
+    }
+
+    private RuleFlowProcessInstance createProcessInstance() {
+        WorkflowProcessImpl process = new WorkflowProcessImpl();
+        process.setId("org.jbpm.dirty");
+        CompositeContextNode compositeNode = new CompositeContextNode();
+        compositeNode.setId(COMPOSITE_NODE_ID);
+        VariableScope variableScope = new VariableScope();
+        compositeNode.addContext(variableScope);
+        compositeNode.setDefaultContext(variableScope);
+        MockNode node = new MockNode();
+        node.setId(1);
+        compositeNode.addNode(node);
+        process.addNode(compositeNode);
+
+        RuleFlowProcessInstance processInstance = new RuleFlowProcessInstance();
+        processInstance.setState(ProcessInstance.STATE_ACTIVE);
+        processInstance.setProcess(process);
+        return processInstance;
+    }
+
+    private CompositeContextNodeInstance addCompositeNodeInstance(RuleFlowProcessInstance processInstance) {
+        CompositeContextNodeInstance nodeInstance = new CompositeContextNodeInstance();
+        nodeInstance.setNodeId(COMPOSITE_NODE_ID);
+        nodeInstance.setNodeInstanceContainer(processInstance);
+        nodeInstance.setProcessInstance(processInstance);
+        return nodeInstance;
+    }
+
+    private static class TestNodeInstance extends NodeInstanceImpl {
+
+        private static final long serialVersionUID = 510l;
+
+        @Override
+        public void internalTrigger(org.kie.api.runtime.process.NodeInstance from, String type) {
+        }
+    }
+}
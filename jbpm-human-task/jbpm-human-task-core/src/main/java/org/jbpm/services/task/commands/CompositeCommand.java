@@ -54,6 +54,7 @@ public class CompositeCommand<T> extends TaskCommand<T> {
 	            @XmlElement(name="delete-output", type=DeleteOutputCommand.class),
 	            @XmlElement(name="deploy-task-def", type=DeployTaskDefCommand.class),
 	            @XmlElement(name="execute-deadlines", type=ExecuteDeadlinesCommand.class),
+	            @XmlElement(name="execute-due-deadline", type=ExecuteDueDeadlineCommand.class),
 	            @XmlElement(name="execute-task-rules", type=ExecuteTaskRulesCommand.class),
 	            @XmlElement(name="exit-task", type=ExitTaskCommand.class),
 	            @XmlElement(name="fail-task", type=FailTaskCommand.class),
@@ -71,6 +72,7 @@ public class CompositeCommand<T> extends TaskCommand<T> {
 	            @XmlElement(name="get-content", type=GetContentByIdCommand.class),
 	            @XmlElement(name="get-content-by-id-for-user", type=GetContentByIdForUserCommand.class),
 	            @XmlElement(name="get-content-map-for-user", type=GetContentMapForUserCommand.class),
+	            @XmlElement(name="get-due-deadlines", type=GetDueDeadlinesCommand.class),
 	            @XmlElement(name="get-group", type=GetGroupCommand.class),
 	            @XmlElement(name="get-groups", type=GetGroupsCommand.class),
 	            @XmlElement(name="get-org-entity", type=GetOrgEntityCommand.class),
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.services.task.commands;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlSchemaType;
+
+import org.kie.api.runtime.Context;
+import org.kie.internal.task.api.TaskDeadlinesService.DeadlineType;
+import org.kie.internal.task.api.TaskPersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes deadline found by the persistent deadline scheduler. Before the deadline is executed it is claimed
+ * by marking it as escalated with conditional update within the same transaction - only one of the concurrent
+ * executions (on the same or other cluster members) can succeed while the others find the deadline already
+ * escalated and skip it. In case the transaction is rolled back the deadline becomes available again.
+ */
+@XmlRootElement(name="execute-due-deadline-command")
+@XmlAccessorType(XmlAccessType.NONE)
+public class ExecuteDueDeadlineCommand extends TaskCommand<Boolean> {
+
+	private static final long serialVersionUID = -3447523958702358231L;
+	private static final Logger logger = LoggerFactory.getLogger(ExecuteDueDeadlineCommand.class);
+
+	@XmlElement
+	@XmlSchemaType(name="long")
+	private Long deadlineId;
+	@XmlElement
+	private DeadlineType type;
+
+	public ExecuteDueDeadlineCommand() {
+
+	}
+
+	public ExecuteDueDeadlineCommand(long taskId, long deadlineId, DeadlineType type) {
+		this.taskId = taskId;
+		this.deadlineId = deadlineId;
+		this.type = type;
+	}
+
+	@Override
+	public Boolean execute(Context context) {
+		TaskContext ctx = (TaskContext) context;
+		TaskPersistenceContext persistenceContext = ctx.getPersistenceContext();
+
+		int claimed = persistenceContext.executeUpdateString("update DeadlineImpl d set d.escalated = 1 where d.id = "
+				+ deadlineId + " and d.escalated = 0");
+		if (claimed == 0) {
+			logger.debug("Deadline {} of task {} was already executed", deadlineId, taskId);
+			return false;
+		}
+
+		new ExecuteDeadlinesCommand(taskId, deadlineId, type).execute(context);
+		return true;
+	}
+
+}
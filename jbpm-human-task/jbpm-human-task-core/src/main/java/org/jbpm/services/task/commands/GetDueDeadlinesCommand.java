@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.services.task.commands;
+
+import static org.kie.internal.query.QueryParameterIdentifiers.MAX_RESULTS;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlSchemaType;
+
+import org.jbpm.services.task.impl.TaskDeadlinesServiceImpl.ScheduledTaskDeadline;
+import org.jbpm.services.task.utils.ClassUtil;
+import org.kie.api.runtime.Context;
+import org.kie.internal.task.api.TaskDeadlinesService.DeadlineType;
+import org.kie.internal.task.api.TaskPersistenceContext;
+
+/**
+ * Looks up (at most given number of) not yet escalated start and end deadlines that are due, ordered by their date.
+ * Returned deadlines claim the deadline before it's executed, see {@link ExecuteDueDeadlineCommand}.
+ */
+@XmlRootElement(name="get-due-deadlines-command")
+@XmlAccessorType(XmlAccessType.NONE)
+public class GetDueDeadlinesCommand extends TaskCommand<List<ScheduledTaskDeadline>> {
+
+	private static final long serialVersionUID = 5319870145123689312L;
+
+	@XmlElement
+	@XmlSchemaType(name="int")
+	private Integer maxResults;
+
+	public GetDueDeadlinesCommand() {
+
+	}
+
+	public GetDueDeadlinesCommand(int maxResults) {
+		this.maxResults = maxResults;
+	}
+
+	@Override
+	public List<ScheduledTaskDeadline> execute(Context context) {
+		TaskContext ctx = (TaskContext) context;
+		TaskPersistenceContext persistenceContext = ctx.getPersistenceContext();
+
+		List<ScheduledTaskDeadline> due = new ArrayList<ScheduledTaskDeadline>();
+		Date now = new Date();
+		collect(persistenceContext, "DueStartDeadlines", now, DeadlineType.START, due);
+		collect(persistenceContext, "DueEndDeadlines", now, DeadlineType.END, due);
+
+		return due;
+	}
+
+	protected void collect(TaskPersistenceContext persistenceContext, String queryName, Date now, DeadlineType type,
+			List<ScheduledTaskDeadline> due) {
+		Map<String, Object> params = persistenceContext.addParametersToMap("now", now);
+		if (maxResults != null) {
+			params.put(MAX_RESULTS, maxResults);
+		}
+		List<Object[]> resultList = persistenceContext.queryWithParametersInTransaction(queryName, params,
+				ClassUtil.<List<Object[]>>castClass(List.class));
+		for (Object[] row : resultList) {
+			due.add(new ScheduledTaskDeadline((Long) row[0], (Long) row[1], type, (String) row[2], (Long) row[3], true));
+		}
+	}
+
+}
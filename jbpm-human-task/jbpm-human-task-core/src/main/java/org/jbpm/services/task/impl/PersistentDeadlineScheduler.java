@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.services.task.impl;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jbpm.services.task.commands.GetDueDeadlinesCommand;
+import org.jbpm.services.task.impl.TaskDeadlinesServiceImpl.ScheduledTaskDeadline;
+import org.kie.api.runtime.CommandExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deadline scheduler that does not keep the deadlines in memory but periodically looks up the deadlines that are due
+ * directly in the data base (<code>Deadline</code> table indexed by the deadline date) and fires them in batches
+ * using a pool of threads. Deadlines thus survive restarts without being rescheduled and can be fired by any
+ * member of the cluster that shares the data base.
+ * <br/>
+ * Every deadline is claimed within the transaction that executes it, so even when several cluster members find
+ * the same deadline only one of them executes it - the claim is held (as a row lock) until that transaction
+ * completes and is released when the transaction is rolled back e.g. due to crash of the member.
+ * <br/>
+ * Following system properties can be used to configure the scheduler:
+ * <ul>
+ *  <li>org.jbpm.ht.deadlines.poll.interval - interval in milliseconds between look ups of due deadlines, defaults to 1000</li>
+ *  <li>org.jbpm.ht.deadlines.batch.size - max number of due deadlines of each type looked up at once, defaults to 100</li>
+ *  <li>org.jbpm.ht.deadlines.pool.size - number of threads executing the deadlines, defaults to 3</li>
+ * </ul>
+ */
+public class PersistentDeadlineScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersistentDeadlineScheduler.class);
+
+    private final CommandExecutor commandExecutor;
+    private final long pollInterval;
+    private final int batchSize;
+
+    private final ScheduledExecutorService poller;
+    private final ExecutorService executor;
+    private final AtomicBoolean polling = new AtomicBoolean(false);
+
+    private volatile boolean active = false;
+
+    private final Runnable pollTask = new Runnable() {
+        @Override
+        public void run() {
+            poll();
+        }
+    };
+
+    public PersistentDeadlineScheduler(CommandExecutor commandExecutor) {
+        this(commandExecutor,
+                Long.parseLong(System.getProperty("org.jbpm.ht.deadlines.poll.interval", "1000")),
+                Integer.parseInt(System.getProperty("org.jbpm.ht.deadlines.batch.size", "100")),
+                Integer.parseInt(System.getProperty("org.jbpm.ht.deadlines.pool.size", "3")));
+    }
+
+    public PersistentDeadlineScheduler(CommandExecutor commandExecutor, long pollInterval, int batchSize, int poolSize) {
+        this.commandExecutor = commandExecutor;
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+        this.poller = Executors.newSingleThreadScheduledExecutor();
+        this.executor = Executors.newFixedThreadPool(poolSize);
+    }
+
+    public void start() {
+        active = true;
+        poller.scheduleWithFixedDelay(pollTask, 0, pollInterval, TimeUnit.MILLISECONDS);
+        logger.debug("Persistent deadline scheduler started with poll interval {} ms and batch size {}", pollInterval, batchSize);
+    }
+
+    public void stop() {
+        active = false;
+        poller.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Makes sure deadline that is due within given delay is not fired later than necessary - if it is due before
+     * the next regular look up, additional look up is scheduled.
+     */
+    public void wakeUp(long delay) {
+        if (!active || delay >= pollInterval) {
+            return;
+        }
+        try {
+            poller.schedule(pollTask, Math.max(delay, 0), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Persistent deadline scheduler is already stopped");
+        }
+    }
+
+    /**
+     * Looks up and executes due deadlines, batch by batch, as long as there are any.
+     * @return number of deadlines that were processed
+     */
+    protected int poll() {
+        if (!polling.compareAndSet(false, true)) {
+            return 0;
+        }
+        int processed = 0;
+        try {
+            boolean more = true;
+            while (active && more) {
+                List<ScheduledTaskDeadline> due = commandExecutor.execute(new GetDueDeadlinesCommand(batchSize));
+                if (due == null || due.isEmpty()) {
+                    break;
+                }
+                // members of the cluster look up the same deadlines, execute them in random order to reduce
+                // contention on the claims
+                Collections.shuffle(due);
+                List<Future<ScheduledTaskDeadline>> results = executor.invokeAll(due);
+
+                boolean failed = false;
+                for (Future<ScheduledTaskDeadline> result : results) {
+                    try {
+                        result.get();
+                    } catch (ExecutionException e) {
+                        failed = true;
+                        logger.error("Error when executing deadline", e.getCause());
+                    }
+                }
+                processed += due.size();
+                // continue right away only when there might be more deadlines due and these were not failing,
+                // failed ones are retried with the next regular look up
+                more = !failed && due.size() >= batchSize;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RejectedExecutionException e) {
+            logger.debug("Persistent deadline scheduler is already stopped");
+        } catch (Exception e) {
+            logger.error("Error when looking up due deadlines", e);
+        } finally {
+            polling.set(false);
+        }
+        return processed;
+    }
+}
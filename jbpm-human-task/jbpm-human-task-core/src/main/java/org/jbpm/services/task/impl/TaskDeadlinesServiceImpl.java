@@ -37,6 +37,7 @@ import org.jbpm.process.core.timer.NamedJobContext;
 import org.jbpm.process.core.timer.TimerServiceRegistry;
 import org.jbpm.process.core.timer.impl.GlobalTimerService;
 import org.jbpm.services.task.commands.ExecuteDeadlinesCommand;
+import org.jbpm.services.task.commands.ExecuteDueDeadlineCommand;
 import org.jbpm.services.task.commands.InitDeadlinesCommand;
 import org.jbpm.services.task.deadlines.NotificationListener;
 import org.jbpm.services.task.utils.ClassUtil;
@@ -64,10 +65,12 @@ public class TaskDeadlinesServiceImpl implements TaskDeadlinesService {
     protected static NotificationListener notificationListener;
 
 	// use single ThreadPoolExecutor for all instances of task services within same JVM
-    private volatile static ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(3);
+    private volatile static ScheduledThreadPoolExecutor scheduler = newScheduler();
     private volatile static Map<Long, List<ScheduledFuture<ScheduledTaskDeadline>>> startScheduledTaskDeadlines = new ConcurrentHashMap<Long, List<ScheduledFuture<ScheduledTaskDeadline>>>();
     private volatile static Map<Long, List<ScheduledFuture<ScheduledTaskDeadline>>> endScheduledTaskDeadlines = new ConcurrentHashMap<Long, List<ScheduledFuture<ScheduledTaskDeadline>>>();
     private volatile static Map<String, JobHandle> jobHandles = new ConcurrentHashMap<String, JobHandle>();
+    // when set deadlines are not scheduled in memory but looked up in data base once they are due
+    private volatile static PersistentDeadlineScheduler persistentScheduler;
 
     private TaskPersistenceContext persistenceContext;
 
@@ -85,6 +88,12 @@ public class TaskDeadlinesServiceImpl implements TaskDeadlinesService {
 
 
     public void schedule(long taskId, long deadlineId, long delay, DeadlineType type) {
+        if (persistentScheduler != null) {
+            // deadline is already stored with the task, just make sure it's not looked up too late
+            logger.debug("deadline {} of task {} is left to persistent deadline scheduler", deadlineId, taskId);
+            persistentScheduler.wakeUp(delay);
+            return;
+        }
         Task task = persistenceContext.findTask(taskId);
         String deploymentId = task.getTaskData().getDeploymentId();
 
@@ -133,6 +142,18 @@ public class TaskDeadlinesServiceImpl implements TaskDeadlinesService {
         
         Deadlines deadlines = ((InternalTask)task).getDeadlines();
 
+        if (persistentScheduler != null) {
+            List<Deadline> typeDeadlines = type == DeadlineType.START ? deadlines.getStartDeadlines() : deadlines.getEndDeadlines();
+            // deadlines are only kept in data base, remove them so they won't be looked up by persistent deadline scheduler
+            // (escalated flag is left for the deadlines that were actually fired)
+            Iterator<Deadline> it = typeDeadlines.iterator();
+            while (it.hasNext()) {
+                persistenceContext.removeDeadline(it.next());
+                it.remove();
+            }
+            return;
+        }
+
         TimerService timerService = TimerServiceRegistry.getInstance().get(deploymentId + TimerServiceRegistry.TIMER_SERVICE_SUFFIX);
         if (timerService != null && timerService instanceof GlobalTimerService) {
  
@@ -210,6 +231,17 @@ public class TaskDeadlinesServiceImpl implements TaskDeadlinesService {
         
         Deadlines deadlines = ((InternalTask)task).getDeadlines();
 
+        if (persistentScheduler != null) {
+            // deadline is only kept in data base, remove it so it won't be looked up by persistent deadline scheduler
+            if (type == DeadlineType.START) {
+                deadlines.getStartDeadlines().remove(deadline);
+            } else {
+                deadlines.getEndDeadlines().remove(deadline);
+            }
+            persistenceContext.removeDeadline(deadline);
+            return;
+        }
+
         TimerService timerService = TimerServiceRegistry.getInstance().get(deploymentId + TimerServiceRegistry.TIMER_SERVICE_SUFFIX);
         if (timerService != null && timerService instanceof GlobalTimerService) {
              
@@ -236,14 +268,25 @@ public class TaskDeadlinesServiceImpl implements TaskDeadlinesService {
         private DeadlineType type;
         private String deploymentId;
         private Long processInstanceId;
+        private boolean claim;
         
         public ScheduledTaskDeadline(long taskId,
                 long deadlineId, DeadlineType type, String deploymentId, Long processInstanceId) {
+            this(taskId, deadlineId, type, deploymentId, processInstanceId, false);
+        }
+
+        /**
+         * @param claim if true the deadline is claimed before it's executed so it's executed only once even if
+         * there are other executions of it (see {@link ExecuteDueDeadlineCommand})
+         */
+        public ScheduledTaskDeadline(long taskId,
+                long deadlineId, DeadlineType type, String deploymentId, Long processInstanceId, boolean claim) {
             this.taskId = taskId;
             this.deadlineId = deadlineId;
             this.type = type;
             this.deploymentId = deploymentId;
             this.processInstanceId = processInstanceId;
+            this.claim = claim;
         }
 
         public long getTaskId() {
@@ -265,6 +308,10 @@ public class TaskDeadlinesServiceImpl implements TaskDeadlinesService {
         public long getProcessInstanceId() {
             return processInstanceId;
         }
+
+        public boolean isClaim() {
+            return claim;
+        }
         
         public ScheduledTaskDeadline call() throws Exception {
             RuntimeManager runtimeManager = null;
@@ -281,7 +328,11 @@ public class TaskDeadlinesServiceImpl implements TaskDeadlinesService {
                 executor = TaskDeadlinesServiceImpl.getInstance();
             }
             try {
-                executor.execute(new ExecuteDeadlinesCommand(taskId, deadlineId, type));
+                if (claim) {
+                    executor.execute(new ExecuteDueDeadlineCommand(taskId, deadlineId, type));
+                } else {
+                    executor.execute(new ExecuteDeadlinesCommand(taskId, deadlineId, type));
+                }
             } catch (NullPointerException e) {
                 logger.error("TaskDeadlineService instance is not available, most likely was not properly initialized - Job did not run!");
             } finally {
@@ -447,13 +498,23 @@ public class TaskDeadlinesServiceImpl implements TaskDeadlinesService {
     public static synchronized void initialize(CommandExecutor instance) {
     	if (instance != null) {
     	    TaskDeadlinesServiceImpl.instance = instance;
-	        getInstance().execute(new InitDeadlinesCommand());
+    	    if (Boolean.parseBoolean(System.getProperty("org.jbpm.ht.deadlines.persistent", "false"))) {
+    	        // due deadlines are looked up in data base so there is nothing to reschedule
+    	        persistentScheduler = new PersistentDeadlineScheduler(instance);
+    	        persistentScheduler.start();
+    	    } else {
+    	        getInstance().execute(new InitDeadlinesCommand());
+    	    }
     	}        
     }
     
     public static synchronized void reset() {
     	dispose();
-        scheduler = new ScheduledThreadPoolExecutor(3);        
+        scheduler = newScheduler();
+    }
+
+    private static ScheduledThreadPoolExecutor newScheduler() {
+        return new ScheduledThreadPoolExecutor(Integer.parseInt(System.getProperty("org.jbpm.ht.deadlines.pool.size", "3")));
     }
 
     public static synchronized void dispose() {
@@ -461,6 +522,10 @@ public class TaskDeadlinesServiceImpl implements TaskDeadlinesService {
             if (scheduler != null) {
                 scheduler.shutdownNow();
             }        
+            if (persistentScheduler != null) {
+                persistentScheduler.stop();
+                persistentScheduler = null;
+            }
             startScheduledTaskDeadlines.clear();
             endScheduledTaskDeadlines.clear();
             jobHandles.clear();
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.services.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.jbpm.services.task.commands.TaskCommand;
+import org.jbpm.services.task.commands.TaskContext;
+import org.jbpm.services.task.deadlines.notifications.impl.MockNotificationListener;
+import org.jbpm.services.task.impl.PersistentDeadlineScheduler;
+import org.jbpm.services.task.impl.TaskDeadlinesServiceImpl;
+import org.jbpm.services.task.impl.factories.TaskFactory;
+import org.jbpm.services.task.util.CountDownTaskEventListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.api.runtime.Context;
+import org.kie.api.task.model.Task;
+import org.kie.internal.task.api.InternalTaskService;
+import org.kie.internal.task.api.TaskDeadlinesService.DeadlineType;
+import org.kie.internal.task.api.model.InternalTask;
+
+import bitronix.tm.resource.jdbc.PoolingDataSource;
+
+/**
+ * Runs all deadline tests with deadlines looked up in data base by <code>PersistentDeadlineScheduler</code>
+ * instead of being scheduled in memory.
+ */
+public class PersistentDeadlinesLocalTest extends DeadlinesBaseTest {
+
+	private PoolingDataSource pds;
+	private EntityManagerFactory emf;
+
+	@Before
+	public void setup() {
+		System.setProperty("org.jbpm.ht.deadlines.persistent", "true");
+		System.setProperty("org.jbpm.ht.deadlines.poll.interval", "100");
+		this.notificationListener = new MockNotificationListener();
+		pds = setupPoolingDataSource();
+		emf = Persistence.createEntityManagerFactory( "org.jbpm.services.task" );
+		this.taskService = (InternalTaskService) HumanTaskServiceFactory.newTaskServiceConfigurator()
+												.entityManagerFactory(emf)
+												.getTaskService();
+	}
+
+	@After
+	public void clean() {
+		System.clearProperty("org.jbpm.ht.deadlines.persistent");
+		System.clearProperty("org.jbpm.ht.deadlines.poll.interval");
+		TaskDeadlinesServiceImpl.reset();
+		super.tearDown();
+		if (emf != null) {
+			emf.close();
+		}
+		if (pds != null) {
+			pds.close();
+		}
+	}
+
+	@Test(timeout=10000)
+	public void testDeadlineExecutedOnceByMultipleSchedulers() throws Exception {
+		// another scheduler looking up the same deadlines as if it was other member of the cluster
+		PersistentDeadlineScheduler otherScheduler = new PersistentDeadlineScheduler(TaskDeadlinesServiceImpl.getInstance(), 10, 10, 3);
+		otherScheduler.start();
+		try {
+			CountDownTaskEventListener countDownListener = new CountDownTaskEventListener(1, false, true);
+			addCountDownListner(countDownListener);
+			Map<String, Object> vars = new HashMap<String, Object>();
+			vars.put("now", new Date());
+
+			Reader reader = new InputStreamReader(getClass().getResourceAsStream(MvelFilePath.DeadlineWithNotification));
+			Task task = (Task) TaskFactory.evalTask(reader, vars);
+			taskService.addTask(task, new HashMap<String, Object>());
+
+			countDownListener.waitTillCompleted();
+			// give both schedulers chance to look up the deadline again
+			Thread.sleep(500);
+
+			assertEquals(1, ((MockNotificationListener)notificationListener).getEventsRecieved().size());
+		} finally {
+			otherScheduler.stop();
+		}
+	}
+
+	@Test(timeout=10000)
+	public void testUnscheduledDeadlineIsRemoved() throws Exception {
+		Map<String, Object> vars = new HashMap<String, Object>();
+		vars.put("now", new Date());
+
+		Reader reader = new InputStreamReader(getClass().getResourceAsStream(MvelFilePath.DeadlineWithNotification));
+		Task task = (Task) TaskFactory.evalTask(reader, vars);
+		taskService.addTask(task, new HashMap<String, Object>());
+		final long taskId = task.getId();
+
+		taskService.execute(new TaskCommand<Void>() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Void execute(Context context) {
+				((TaskContext) context).getTaskDeadlinesService().unschedule(taskId, DeadlineType.START);
+				return null;
+			}
+		});
+
+		InternalTask unscheduled = (InternalTask) taskService.getTaskById(taskId);
+		assertTrue(unscheduled.getDeadlines().getStartDeadlines().isEmpty());
+		// deadline was due in 4 seconds, make sure it did not fire
+		Thread.sleep(5000);
+		assertEquals(0, ((MockNotificationListener)notificationListener).getEventsRecieved().size());
+	}
+
+}
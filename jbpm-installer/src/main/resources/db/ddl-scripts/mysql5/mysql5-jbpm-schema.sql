@@ -159,6 +159,18 @@
         element varchar(255)
     );
 
+    create table ExternalizedVariableInfo (
+        id bigint not null auto_increment,
+        OPTLOCK integer,
+        checksum bigint not null,
+        content longblob,
+        contentLength integer not null,
+        lastModificationDate datetime,
+        name varchar(255),
+        processInstanceId bigint,
+        primary key (id)
+    );
+
     create table I18NText (
         id bigint not null auto_increment,
         language varchar(255),
@@ -749,6 +761,7 @@
     create index IDX_CorrPropInfo_Id ON CorrelationPropertyInfo(correlationKey_keyId);
     create index IDX_Deadline_StartId ON Deadline(Deadlines_StartDeadLine_Id);
     create index IDX_Deadline_EndId ON Deadline(Deadlines_EndDeadLine_Id);
+    create index IDX_Deadline_Due ON Deadline(deadline_date, escalated);
     create index IDX_Delegation_EntityId ON Delegation_delegates(entity_id);
     create index IDX_Delegation_TaskId ON Delegation_delegates(task_id);
     create index IDX_ErrorInfo_Id ON ErrorInfo(REQUEST_ID);
@@ -800,6 +813,7 @@
     create index IDX_CMI_Context ON ContextMappingInfo(CONTEXT_ID);    
     create index IDX_CMI_KSession ON ContextMappingInfo(KSESSION_ID);    
     create index IDX_CMI_Owner ON ContextMappingInfo(OWNER_ID);
+    create index IDX_EVI_PInstId_Name ON ExternalizedVariableInfo(processInstanceId, name);
     
     create index IDX_RequestInfo_status ON RequestInfo(status);
     create index IDX_RequestInfo_timestamp ON RequestInfo(timestamp);
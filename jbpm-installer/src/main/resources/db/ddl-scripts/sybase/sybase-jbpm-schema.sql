@@ -165,6 +165,19 @@
     ) lock datarows
     go
 
+    create table ExternalizedVariableInfo (
+        id numeric(19,0) identity not null,
+        OPTLOCK int null,
+        checksum numeric(19,0) not null,
+        content image null,
+        contentLength int not null,
+        lastModificationDate datetime null,
+        name varchar(255) null,
+        processInstanceId numeric(19,0) null,
+        primary key (id)
+    ) lock datarows
+    go
+
     create table I18NText (
         id numeric(19,0) identity not null,
         language varchar(255) null,
@@ -768,6 +781,7 @@
     create index IDX_CorrPropInfo_Id ON CorrelationPropertyInfo(correlationKey_keyId)
     create index IDX_Deadline_StartId ON Deadline(Deadlines_StartDeadLine_Id)
     create index IDX_Deadline_EndId ON Deadline(Deadlines_EndDeadLine_Id)
+    create index IDX_Deadline_Due ON Deadline(deadline_date, escalated)
     create index IDX_Delegation_EntityId ON Delegation_delegates(entity_id)
     create index IDX_Delegation_TaskId ON Delegation_delegates(task_id)
     create index IDX_ErrorInfo_Id ON ErrorInfo(REQUEST_ID)
@@ -819,6 +833,7 @@
     create index IDX_CMI_Context ON ContextMappingInfo(CONTEXT_ID)
     create index IDX_CMI_KSession ON ContextMappingInfo(KSESSION_ID)
     create index IDX_CMI_Owner ON ContextMappingInfo(OWNER_ID)
+    create index IDX_EVI_PInstId_Name ON ExternalizedVariableInfo(processInstanceId, name)
 
     create index IDX_RequestInfo_status ON RequestInfo(status)
     create index IDX_RequestInfo_timestamp ON RequestInfo(timestamp)
@@ -24,4 +24,20 @@ create table CaseRoleAssignmentLog (
 create unique index UK_CaseIdInfo_1 on CaseIdInfo (caseIdPrefix);
 
 ALTER TABLE NodeInstanceLog ADD COLUMN referenceId bigint;
-ALTER TABLE NodeInstanceLog ADD COLUMN nodeContainerId varchar(255);
\ No newline at end of file
+ALTER TABLE NodeInstanceLog ADD COLUMN nodeContainerId varchar(255);
+
+create index IDX_Deadline_Due ON Deadline(deadline_date, escalated);
+
+create table ExternalizedVariableInfo (
+    id bigint generated by default as identity,
+    OPTLOCK integer,
+    checksum bigint not null,
+    content blob,
+    contentLength integer not null,
+    lastModificationDate timestamp,
+    name varchar(255),
+    processInstanceId bigint,
+    primary key (id)
+);
+
+create index IDX_EVI_PInstId_Name ON ExternalizedVariableInfo(processInstanceId, name);
@@ -25,4 +25,20 @@ alter table CaseIdInfo
         add constraint UK_CaseIdInfo_1 unique (caseIdPrefix);
         
 ALTER TABLE NodeInstanceLog ADD COLUMN referenceId bigint;
-ALTER TABLE NodeInstanceLog ADD COLUMN nodeContainerId varchar(255);        
\ No newline at end of file
+ALTER TABLE NodeInstanceLog ADD COLUMN nodeContainerId varchar(255);        
+
+create index IDX_Deadline_Due ON Deadline(deadline_date, escalated);
+
+create table ExternalizedVariableInfo (
+    id bigint generated by default as identity (start with 1),
+    OPTLOCK integer,
+    checksum bigint not null,
+    content longvarbinary,
+    contentLength integer not null,
+    lastModificationDate timestamp,
+    name varchar(255),
+    processInstanceId bigint,
+    primary key (id)
+);
+
+create index IDX_EVI_PInstId_Name ON ExternalizedVariableInfo(processInstanceId, name);
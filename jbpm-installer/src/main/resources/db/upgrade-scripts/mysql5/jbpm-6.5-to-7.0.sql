@@ -25,4 +25,20 @@ alter table CaseIdInfo
         add constraint UK_CaseIdInfo_1 unique (caseIdPrefix);
         
 ALTER TABLE NodeInstanceLog ADD COLUMN referenceId bigint;
-ALTER TABLE NodeInstanceLog ADD COLUMN nodeContainerId varchar(255);        
\ No newline at end of file
+ALTER TABLE NodeInstanceLog ADD COLUMN nodeContainerId varchar(255);        
+
+create index IDX_Deadline_Due ON Deadline(deadline_date, escalated);
+
+create table ExternalizedVariableInfo (
+    id bigint not null auto_increment,
+    OPTLOCK integer,
+    checksum bigint not null,
+    content longblob,
+    contentLength integer not null,
+    lastModificationDate datetime,
+    name varchar(255),
+    processInstanceId bigint,
+    primary key (id)
+);
+
+create index IDX_EVI_PInstId_Name ON ExternalizedVariableInfo(processInstanceId, name);
@@ -29,4 +29,22 @@ create sequence CASE_ID_INFO_ID_SEQ;
 create sequence CASE_ROLE_ASSIGN_LOG_ID_SEQ;
 
 ALTER TABLE NodeInstanceLog ADD COLUMN referenceId number(19,0);
-ALTER TABLE NodeInstanceLog ADD COLUMN nodeContainerId varchar2(255 char);
\ No newline at end of file
+ALTER TABLE NodeInstanceLog ADD COLUMN nodeContainerId varchar2(255 char);
+
+create index IDX_Deadline_Due ON Deadline(deadline_date, escalated);
+
+create table ExternalizedVariableInfo (
+    id number(19,0) not null,
+    OPTLOCK number(10,0),
+    checksum number(19,0) not null,
+    content blob,
+    contentLength number(10,0) not null,
+    lastModificationDate timestamp,
+    name varchar2(255 char),
+    processInstanceId number(19,0),
+    primary key (id)
+);
+
+create sequence EXTERNALIZED_VARIABLE_ID_SEQ;
+
+create index IDX_EVI_PInstId_Name ON ExternalizedVariableInfo(processInstanceId, name);
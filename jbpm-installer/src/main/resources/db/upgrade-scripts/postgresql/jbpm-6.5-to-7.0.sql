@@ -29,4 +29,22 @@ create sequence CASE_ID_INFO_ID_SEQ;
 create sequence CASE_ROLE_ASSIGN_LOG_ID_SEQ;
 
 ALTER TABLE NodeInstanceLog ADD COLUMN referenceId int8;
-ALTER TABLE NodeInstanceLog ADD COLUMN nodeContainerId varchar(255);
\ No newline at end of file
+ALTER TABLE NodeInstanceLog ADD COLUMN nodeContainerId varchar(255);
+
+create index IDX_Deadline_Due ON Deadline(deadline_date, escalated);
+
+create table ExternalizedVariableInfo (
+    id int8 not null,
+    OPTLOCK int4,
+    checksum int8 not null,
+    content oid,
+    contentLength int4 not null,
+    lastModificationDate timestamp,
+    name varchar(255),
+    processInstanceId int8,
+    primary key (id)
+);
+
+create sequence EXTERNALIZED_VARIABLE_ID_SEQ;
+
+create index IDX_EVI_PInstId_Name ON ExternalizedVariableInfo(processInstanceId, name);
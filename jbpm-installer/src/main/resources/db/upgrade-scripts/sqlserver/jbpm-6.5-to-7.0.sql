@@ -25,4 +25,20 @@ alter table CaseIdInfo
     add constraint UK_CaseIdInfo_1 unique (caseIdPrefix);
     
 ALTER TABLE NodeInstanceLog ADD COLUMN referenceId numeric(19,0);
-ALTER TABLE NodeInstanceLog ADD COLUMN nodeContainerId varchar(255);    
\ No newline at end of file
+ALTER TABLE NodeInstanceLog ADD COLUMN nodeContainerId varchar(255);    
+
+create index IDX_Deadline_Due ON Deadline(deadline_date, escalated);
+
+create table ExternalizedVariableInfo (
+    id numeric(19,0) identity not null,
+    OPTLOCK int,
+    checksum numeric(19,0) not null,
+    content image,
+    contentLength int not null,
+    lastModificationDate datetime,
+    name varchar(255),
+    processInstanceId numeric(19,0),
+    primary key (id)
+);
+
+create index IDX_EVI_PInstId_Name ON ExternalizedVariableInfo(processInstanceId, name);
@@ -25,4 +25,20 @@ alter table CaseIdInfo
     add constraint UK_CaseIdInfo_1 unique (caseIdPrefix);
     
 ALTER TABLE NodeInstanceLog ADD COLUMN referenceId bigint null;
-ALTER TABLE NodeInstanceLog ADD COLUMN nodeContainerId varchar(255) null;    
\ No newline at end of file
+ALTER TABLE NodeInstanceLog ADD COLUMN nodeContainerId varchar(255) null;    
+
+create index IDX_Deadline_Due ON Deadline(deadline_date, escalated);
+
+create table ExternalizedVariableInfo (
+    id numeric(19,0) identity not null,
+    OPTLOCK int null,
+    checksum numeric(19,0) not null,
+    content image null,
+    contentLength int not null,
+    lastModificationDate datetime null,
+    name varchar(255) null,
+    processInstanceId numeric(19,0) null,
+    primary key (id)
+) lock datarows;
+
+create index IDX_EVI_PInstId_Name ON ExternalizedVariableInfo(processInstanceId, name);
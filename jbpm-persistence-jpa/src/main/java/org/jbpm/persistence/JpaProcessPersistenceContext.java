@@ -27,6 +27,7 @@ import javax.persistence.Query;
 import org.drools.persistence.TransactionManager;
 import org.drools.persistence.TransactionManagerHelper;
 import org.drools.persistence.jpa.JpaPersistenceContext;
+import org.jbpm.persistence.correlation.CorrelationKeyCache;
 import org.jbpm.persistence.correlation.CorrelationKeyInfo;
 import org.jbpm.persistence.processinstance.JPASignalManager;
 import org.jbpm.persistence.processinstance.ProcessInstanceInfo;
@@ -38,6 +39,12 @@ import org.kie.internal.process.CorrelationProperty;
 public class JpaProcessPersistenceContext extends JpaPersistenceContext
     implements
     ProcessPersistenceContext {
+
+    // shared by all persistence contexts as these live only as long as their entity manager
+    private static final CorrelationKeyCache correlationKeyCache = new CorrelationKeyCache(
+            Integer.parseInt(System.getProperty("org.jbpm.correlation.cache.size", "0")),
+            Long.parseLong(System.getProperty("org.jbpm.correlation.cache.ttl", "60000")),
+            Long.parseLong(System.getProperty("org.jbpm.correlation.cache.negative.ttl", "1000")));
     
     public JpaProcessPersistenceContext(EntityManager em, TransactionManager txm) {
         super( em, txm );
@@ -66,6 +73,31 @@ public class JpaProcessPersistenceContext extends JpaPersistenceContext
         return em.find( ProcessInstanceInfo.class, processId );
     }
 
+    /**
+     * Fetches all given process instance infos with a single query so they become managed by the entity manager
+     * and subsequent {@link #findProcessInstanceInfo(Long)} calls for them do not hit the data base again.
+     * With pessimistic locking enabled every process instance info is looked up (and locked) one by one.
+     */
+    public List<ProcessInstanceInfo> findProcessInstanceInfos(List<Long> processIds) {
+        List<ProcessInstanceInfo> processInstanceInfos = new ArrayList<ProcessInstanceInfo>();
+        if ( processIds.isEmpty() ) {
+            return processInstanceInfos;
+        }
+        if( this.pessimisticLocking ) {
+            for ( Long processId : processIds ) {
+                ProcessInstanceInfo processInstanceInfo = findProcessInstanceInfo( processId );
+                if ( processInstanceInfo != null ) {
+                    processInstanceInfos.add( processInstanceInfo );
+                }
+            }
+            return processInstanceInfos;
+        }
+        Query query = getEntityManager().createNamedQuery( "GetProcessInstanceInfosByIds" );
+        query.setParameter( "ids", processIds );
+        processInstanceInfos.addAll( (List<ProcessInstanceInfo>) query.getResultList() );
+        return processInstanceInfos;
+    }
+
     public void remove(ProcessInstanceInfo processInstanceInfo) {
         getEntityManager().remove( processInstanceInfo );
         TransactionManagerHelper.removeFromUpdatableSet(txm, processInstanceInfo);
@@ -74,6 +106,7 @@ public class JpaProcessPersistenceContext extends JpaPersistenceContext
         if (correlations != null) {
             for (CorrelationKeyInfo key : correlations) {
                 getEntityManager().remove(key);
+                correlationKeyCache.removeOnCompletion(txm, key);
             }
         }
     }
@@ -110,13 +143,30 @@ public class JpaProcessPersistenceContext extends JpaPersistenceContext
     	}
     }
 
+    /**
+     * Returns number of process instances waiting for given event type, meant for monitoring and
+     * capacity planning. Same as for {@link #getProcessInstancesWaitingForEvent(String)} no locking is used.
+     */
+    public long countProcessInstancesWaitingForEvent(String type) {
+        EntityManager entityManager = getEntityManager();
+        if (entityManager == null) {
+            return 0;
+        }
+        Query processInstancesForEvent = entityManager.createNamedQuery( "CountProcessInstancesWaitingForEvent" );
+        processInstancesForEvent.setParameter( "type",
+                                               type );
+        return ((Number) processInstancesForEvent.getSingleResult()).longValue();
+    }
+
     public CorrelationKeyInfo persist(CorrelationKeyInfo correlationKeyInfo) {
-        Long processInstanceId = getProcessInstanceByCorrelationKey(correlationKeyInfo);
+        // always check the data base as cached resolution might be outdated
+        Long processInstanceId = findProcessInstanceByCorrelationKey(correlationKeyInfo);
         if (processInstanceId != null) {
             throw new RuntimeException(correlationKeyInfo + " already exists");
         }
         EntityManager em = getEntityManager();
         em.persist( correlationKeyInfo );
+        correlationKeyCache.removeOnCompletion( txm, correlationKeyInfo );
         if( this.pessimisticLocking) {
         	em.flush();
             return em.find(CorrelationKeyInfo.class, correlationKeyInfo.getId(), LockModeType.PESSIMISTIC_FORCE_INCREMENT);
@@ -132,8 +182,26 @@ public class JpaProcessPersistenceContext extends JpaPersistenceContext
      * However, this is not an issue: see the {@link #getProcessInstancesWaitingForEvent(String)} documentation
      * for more information. The same logic applies to this method. 
      * </p>
+     * Resolved keys, as well as keys that do not exist, are cached when correlation key cache is enabled.
      */
     public Long getProcessInstanceByCorrelationKey(CorrelationKey correlationKey) {
+        Long processInstanceId = correlationKeyCache.get( correlationKey );
+        if (processInstanceId != null) {
+            return CorrelationKeyCache.NOT_FOUND.equals( processInstanceId ) ? null : processInstanceId;
+        }
+        processInstanceId = findProcessInstanceByCorrelationKey( correlationKey );
+        correlationKeyCache.put( correlationKey, processInstanceId );
+        return processInstanceId;
+    }
+
+    /**
+     * @return cache of correlation key resolutions shared by all persistence contexts
+     */
+    public static CorrelationKeyCache getCorrelationKeyCache() {
+        return correlationKeyCache;
+    }
+
+    protected Long findProcessInstanceByCorrelationKey(CorrelationKey correlationKey) {
         Query processInstancesForEvent = getEntityManager().createNamedQuery( "GetProcessInstanceIdByCorrelation" );
         processInstancesForEvent.setParameter( "elem_count", new Long(correlationKey.getProperties().size()) );
         List<Object> properties = new ArrayList<Object>();
@@ -58,6 +58,17 @@ public class MapBasedProcessPersistenceContext extends MapBasedPersistenceContex
         return processInstanceInfo;
     }
 
+    public List<ProcessInstanceInfo> findProcessInstanceInfos(List<Long> processIds) {
+        List<ProcessInstanceInfo> processInstanceInfos = new ArrayList<ProcessInstanceInfo>();
+        for ( Long processId : processIds ) {
+            ProcessInstanceInfo processInstanceInfo = findProcessInstanceInfo( processId );
+            if ( processInstanceInfo != null ) {
+                processInstanceInfos.add( processInstanceInfo );
+            }
+        }
+        return processInstanceInfos;
+    }
+
     public List<ProcessInstanceInfo> getStoredProcessInstances() {
         return Collections.unmodifiableList( new ArrayList<ProcessInstanceInfo>(processes.values()));
     }
@@ -77,6 +88,10 @@ public class MapBasedProcessPersistenceContext extends MapBasedPersistenceContex
         return storage.getProcessInstancesWaitingForEvent( type );
     }
 
+    public long countProcessInstancesWaitingForEvent(String type) {
+        return storage.getProcessInstancesWaitingForEvent( type ).size();
+    }
+
     public void clearStoredProcessInstances() {
         processes.clear();
     }
@@ -31,10 +31,14 @@ public interface ProcessPersistenceContext
     CorrelationKeyInfo persist(CorrelationKeyInfo correlationKeyInfo);
     
     ProcessInstanceInfo findProcessInstanceInfo(Long processId);
+
+    List<ProcessInstanceInfo> findProcessInstanceInfos(List<Long> processIds);
     
     void remove(ProcessInstanceInfo processInstanceInfo);
 
     List<Long> getProcessInstancesWaitingForEvent(String type);
+
+    long countProcessInstancesWaitingForEvent(String type);
     
     Long getProcessInstanceByCorrelationKey(CorrelationKey correlationKey);
 }
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.persistence.correlation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.drools.persistence.OrderedTransactionSynchronization;
+import org.drools.persistence.TransactionManager;
+import org.drools.persistence.TransactionManagerHelper;
+import org.kie.internal.process.CorrelationKey;
+import org.kie.internal.process.CorrelationProperty;
+
+/**
+ * Bounded (least recently used entries are evicted first) cache of correlation key to process instance id
+ * resolutions used by <code>JpaProcessPersistenceContext</code> to avoid running the correlation query for
+ * every look up of a process instance by its correlation key.
+ * <br/>
+ * Keys that could not be resolved are cached as well (negative caching) but only for a short time, so that
+ * repeated look ups of unknown keys do not hit the data base while keys created by other cluster members
+ * still become visible quickly. Resolved keys expire as well (after longer time) so that keys removed by other
+ * cluster members are not served for ever. Entries are invalidated when correlation keys are added or removed
+ * and again once the transaction that did so completes, as concurrent look ups might have cached the state
+ * that was visible before the transaction committed.
+ * <br/>
+ * Configured with following system properties:
+ * <ul>
+ *  <li>org.jbpm.correlation.cache.size - max number of cached correlation keys, 0 (default) disables the cache</li>
+ *  <li>org.jbpm.correlation.cache.ttl - time in milliseconds resolved keys are cached for, defaults to 60000</li>
+ *  <li>org.jbpm.correlation.cache.negative.ttl - time in milliseconds unknown keys are cached for, defaults to 1000</li>
+ * </ul>
+ */
+public class CorrelationKeyCache {
+
+    /**
+     * Returned by {@link #get(CorrelationKey)} for keys that are known not to exist.
+     */
+    public static final Long NOT_FOUND = Long.valueOf(-1);
+
+    private final int maxSize;
+    private final long ttl;
+    private final long negativeTtl;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private final Map<String, Resolution> resolutions;
+
+    public CorrelationKeyCache(final int maxSize, long ttl, long negativeTtl) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.resolutions = new LinkedHashMap<String, Resolution>(16, 0.75f, true) {
+            private static final long serialVersionUID = -2204432795372436577L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Resolution> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * @return id of the process instance, {@link #NOT_FOUND} if the key is known not to exist or null if the key is not cached
+     */
+    public Long get(CorrelationKey correlationKey) {
+        if (!isEnabled() || correlationKey == null) {
+            return null;
+        }
+        String key = key(correlationKey);
+        Resolution resolution;
+        synchronized (resolutions) {
+            resolution = resolutions.get(key);
+            if (resolution != null && resolution.isExpired(System.currentTimeMillis())) {
+                resolutions.remove(key);
+                resolution = null;
+            }
+        }
+        if (resolution == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return resolution.processInstanceId == null ? NOT_FOUND : resolution.processInstanceId;
+    }
+
+    /**
+     * Caches resolution of given correlation key, null process instance id means that the key does not exist.
+     */
+    public void put(CorrelationKey correlationKey, Long processInstanceId) {
+        if (!isEnabled() || correlationKey == null) {
+            return;
+        }
+        long timeToLive = processInstanceId == null ? negativeTtl : ttl;
+        if (timeToLive <= 0) {
+            return;
+        }
+        long expiresAt = System.currentTimeMillis() + timeToLive;
+        synchronized (resolutions) {
+            resolutions.put(key(correlationKey), new Resolution(processInstanceId, expiresAt));
+        }
+    }
+
+    public void remove(CorrelationKey correlationKey) {
+        if (!isEnabled() || correlationKey == null) {
+            return;
+        }
+        synchronized (resolutions) {
+            resolutions.remove(key(correlationKey));
+        }
+    }
+
+    /**
+     * Removes given correlation key now and, when there is active transaction, once more after it completes.
+     */
+    public void removeOnCompletion(TransactionManager txm, final CorrelationKey correlationKey) {
+        if (!isEnabled() || correlationKey == null) {
+            return;
+        }
+        remove(correlationKey);
+        if (txm != null && txm.getStatus() == TransactionManager.STATUS_ACTIVE) {
+            TransactionManagerHelper.registerTransactionSyncInContainer(txm,
+                    new OrderedTransactionSynchronization(5, "CorrelationKeyCache-remove-" + key(correlationKey)) {
+
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    remove(correlationKey);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        synchronized (resolutions) {
+            resolutions.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (resolutions) {
+            return resolutions.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Builds key out of property values only as that is what correlation keys are matched by. Values are sorted
+     * (same as the query does not depend on their order) and prefixed with their length so that no two different
+     * sets of values produce the same key.
+     */
+    protected String key(CorrelationKey correlationKey) {
+        List<String> values = new ArrayList<String>();
+        for (CorrelationProperty<?> property : correlationKey.getProperties()) {
+            String value = String.valueOf(property.getValue());
+            values.add(value.length() + ":" + value);
+        }
+        Collections.sort(values);
+        StringBuilder key = new StringBuilder();
+        for (String value : values) {
+            key.append(value);
+        }
+        return key.toString();
+    }
+
+    private static class Resolution {
+        private final Long processInstanceId;
+        private final long expiresAt;
+
+        Resolution(Long processInstanceId, long expiresAt) {
+            this.processInstanceId = processInstanceId;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
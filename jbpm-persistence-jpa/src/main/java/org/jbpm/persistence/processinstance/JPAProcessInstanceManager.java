@@ -24,16 +24,23 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.drools.core.common.InternalKnowledgeRuntime;
+import org.drools.core.impl.InternalKnowledgeBase;
 import org.drools.persistence.TransactionManager;
 import org.drools.persistence.TransactionManagerHelper;
 import org.jbpm.persistence.ProcessPersistenceContext;
 import org.jbpm.persistence.ProcessPersistenceContextManager;
 import org.jbpm.persistence.correlation.CorrelationKeyInfo;
 import org.jbpm.persistence.correlation.CorrelationPropertyInfo;
+import org.jbpm.process.core.context.variable.VariableScope;
+import org.jbpm.process.instance.ContextInstance;
+import org.jbpm.process.instance.ContextInstanceContainer;
 import org.jbpm.process.instance.InternalProcessRuntime;
 import org.jbpm.process.instance.ProcessInstanceManager;
 import org.jbpm.process.instance.impl.ProcessInstanceImpl;
+import org.jbpm.process.instance.context.variable.LazyLoadedVariable;
+import org.jbpm.process.instance.context.variable.VariableScopeInstance;
 import org.jbpm.process.instance.timer.TimerManager;
+import org.jbpm.workflow.instance.NodeInstance;
 import org.jbpm.workflow.instance.impl.WorkflowProcessInstanceImpl;
 import org.jbpm.workflow.instance.node.StateBasedNodeInstance;
 import org.jbpm.workflow.instance.node.TimerNodeInstance;
@@ -64,6 +71,10 @@ public class JPAProcessInstanceManager
     // Added volatile so that if something happens, we can figure out what
     private volatile transient Map<Long, ProcessInstance> processInstances = new ConcurrentHashMap<Long, ProcessInstance>();
 
+    // shared by all sessions so read only look ups can be served across requests
+    private static final ProcessInstanceSnapshotCache snapshotCache = new ProcessInstanceSnapshotCache(
+            Integer.parseInt(System.getProperty("org.jbpm.pi.snapshot.cache.size", "0")));
+
     
     public void setKnowledgeRuntime(InternalKnowledgeRuntime kruntime) {
         this.kruntime = kruntime;
@@ -140,6 +151,10 @@ public class JPAProcessInstanceManager
         if ( processInstanceInfo == null ) {
             return null;
         }
+        // only use snapshots when the process instance was not touched by this persistence context yet
+        if ( readOnly && snapshotCache.isEnabled() && processInstanceInfo.processInstance == null ) {
+            return getProcessInstanceSnapshot( processInstanceInfo );
+        }
         processInstance = (org.jbpm.process.instance.ProcessInstance)
         	processInstanceInfo.getProcessInstance(kruntime, this.kruntime.getEnvironment());
         if (!readOnly) {
@@ -164,6 +179,72 @@ public class JPAProcessInstanceManager
         return processInstance;
     }
 
+    /**
+     * Returns disconnected snapshot of the process instance, either the cached one if it matches version of
+     * given process instance info or newly unmarshalled one which is then cached. Cached snapshots are shared
+     * and read only. Process instances with lazily loaded (externalized) variables are not cached as content of
+     * such variables can change without changing version of the process instance.
+     */
+    protected ProcessInstance getProcessInstanceSnapshot(ProcessInstanceInfo processInstanceInfo) {
+        InternalKnowledgeBase kbase = (InternalKnowledgeBase) kruntime.getKieBase();
+        ProcessInstance cached = snapshotCache.get( kbase.getId(), processInstanceInfo.getId(),
+                processInstanceInfo.getVersion(), processInstanceInfo.getLastModificationDate() );
+        if ( cached != null ) {
+            return cached;
+        }
+        org.jbpm.process.instance.ProcessInstance processInstance = (org.jbpm.process.instance.ProcessInstance)
+            processInstanceInfo.getProcessInstance( kruntime, this.kruntime.getEnvironment(), true );
+        // the snapshot is disconnected so make sure the entity does not hand it out as a regular process instance
+        processInstanceInfo.clearProcessInstance();
+        Process process = kbase.getProcess( processInstance.getProcessId() );
+        if ( process == null ) {
+            throw new IllegalArgumentException( "Could not find process " + processInstance.getProcessId() );
+        }
+        processInstance.setProcess( process );
+        // variables must not be loaded lazily later on as the snapshot outlives this session
+        if ( !loadVariables( (WorkflowProcessInstanceImpl) processInstance ) ) {
+            snapshotCache.put( kbase.getId(), processInstanceInfo.getId(), processInstanceInfo.getVersion(),
+                    processInstanceInfo.getLastModificationDate(), processInstance );
+        }
+        return processInstance;
+    }
+
+    /**
+     * Loads all variables of given process instance.
+     * @return true if any of the variables was loaded lazily
+     */
+    private boolean loadVariables(WorkflowProcessInstanceImpl processInstance) {
+        List<ContextInstance> variableScopeInstances = new ArrayList<ContextInstance>();
+        addContextInstances( variableScopeInstances, processInstance );
+        for ( NodeInstance nodeInstance : processInstance.getNodeInstances( true ) ) {
+            if ( nodeInstance instanceof ContextInstanceContainer ) {
+                addContextInstances( variableScopeInstances, (ContextInstanceContainer) nodeInstance );
+            }
+        }
+        boolean lazy = false;
+        for ( ContextInstance variableScopeInstance : variableScopeInstances ) {
+            for ( Object value : ((VariableScopeInstance) variableScopeInstance).internalGetVariables().values() ) {
+                lazy = lazy || value instanceof LazyLoadedVariable;
+            }
+            ((VariableScopeInstance) variableScopeInstance).getVariables();
+        }
+        return lazy;
+    }
+
+    private void addContextInstances(List<ContextInstance> result, ContextInstanceContainer container) {
+        List<ContextInstance> contextInstances = container.getContextInstances( VariableScope.VARIABLE_SCOPE );
+        if ( contextInstances != null ) {
+            result.addAll( contextInstances );
+        }
+    }
+
+    /**
+     * @return cache of read only process instance snapshots shared by all process instance managers
+     */
+    public static ProcessInstanceSnapshotCache getSnapshotCache() {
+        return snapshotCache;
+    }
+
     public Collection<ProcessInstance> getProcessInstances() {
         return Collections.unmodifiableCollection(processInstances.values());
     }
@@ -175,6 +256,9 @@ public class JPAProcessInstanceManager
         if ( processInstanceInfo != null ) {
             context.remove( processInstanceInfo );
         }
+        if ( snapshotCache.isEnabled() ) {
+            snapshotCache.remove( ((InternalKnowledgeBase) kruntime.getKieBase()).getId(), processInstance.getId() );
+        }
         internalRemoveProcessInstance(processInstance);
     }
 
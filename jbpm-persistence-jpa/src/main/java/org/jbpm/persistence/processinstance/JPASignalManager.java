@@ -15,6 +15,7 @@
 
 package org.jbpm.persistence.processinstance;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.drools.core.common.InternalKnowledgeRuntime;
@@ -32,6 +33,8 @@ import org.slf4j.LoggerFactory;
 public class JPASignalManager extends DefaultSignalManager {
     private static final String ASYNC_SIGNAL_PREFIX = "ASYNC-";
     private static final Logger logger = LoggerFactory.getLogger(JPASignalManager.class);
+    // max number of process instances fetched with single query when loading instances waiting for the signal
+    private static final int BATCH_SIZE = Integer.parseInt(System.getProperty("org.jbpm.signal.batch.size", "100"));
 
     public JPASignalManager(InternalKnowledgeRuntime kruntime) {
         super(kruntime);
@@ -66,7 +69,7 @@ public class JPASignalManager extends DefaultSignalManager {
             }
         }
         
-        
+        preloadProcessInstances(contextManager, processInstancesToSignalList);
         for ( long id : processInstancesToSignalList ) {
             try {
                 getKnowledgeRuntime().getProcessInstance( id );
@@ -82,4 +85,22 @@ public class JPASignalManager extends DefaultSignalManager {
                            event );
     }
 
+    /**
+     * Fetches process instances waiting for the signal in chunks, each chunk with single query, so that
+     * loading them one by one afterwards does not need a data base round trip per process instance.
+     * Failures are not ignored - the query runs within the caller's transaction which (under JTA) is already
+     * marked for rollback once it fails, so the signal cannot be delivered anyway.
+     */
+    protected void preloadProcessInstances(ProcessPersistenceContextManager contextManager, List<Long> processInstanceIds) {
+        if (BATCH_SIZE <= 1 || processInstanceIds.size() < 2) {
+            return;
+        }
+        contextManager.beginCommandScopedEntityManager();
+        ProcessPersistenceContext context = contextManager.getProcessPersistenceContext();
+        for (int i = 0; i < processInstanceIds.size(); i += BATCH_SIZE) {
+            List<Long> chunk = new ArrayList<Long>(processInstanceIds.subList(i, Math.min(i + BATCH_SIZE, processInstanceIds.size())));
+            context.findProcessInstanceInfos(chunk);
+        }
+    }
+
 }
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.persistence.processinstance;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodes and decodes the content of <code>ProcessInstanceInfo.processInstanceByteArray</code>.
+ * <br/>
+ * Marshalled process instances that are bigger than configured threshold are compressed and prefixed
+ * with a header that carries format version and used compression:
+ * <pre>
+ * | magic (3 bytes) | format version (1 byte) | codec (1 byte) | uncompressed length (4 bytes) | data |
+ * </pre>
+ * Smaller process instances (or all when compression is disabled) are stored as is - unchanged from
+ * the original format - which is also what is expected when reading data without the header. As the
+ * original format always starts with java serialization stream magic it cannot be confused with the header.
+ * <br/>
+ * Configured with following system properties:
+ * <ul>
+ *  <li>org.jbpm.pi.compression.enabled - enables compression of process instance data, false by default</li>
+ *  <li>org.jbpm.pi.compression.threshold - minimal size in bytes of process instance data to be compressed, defaults to 8192</li>
+ * </ul>
+ */
+public class ProcessInstanceByteArrayCodec {
+
+    private static final byte[] MAGIC = new byte[] {'J', 'P', 'I'};
+    private static final byte FORMAT_VERSION = 1;
+    private static final int HEADER_LENGTH = MAGIC.length + 2 + 4;
+
+    public static final byte CODEC_NONE = 0;
+    public static final byte CODEC_DEFLATE = 1;
+
+    private static final ProcessInstanceByteArrayCodec INSTANCE = new ProcessInstanceByteArrayCodec(
+            Boolean.parseBoolean(System.getProperty("org.jbpm.pi.compression.enabled", "false")),
+            Integer.parseInt(System.getProperty("org.jbpm.pi.compression.threshold", "8192")));
+
+    private final boolean compressionEnabled;
+    private final int threshold;
+
+    public ProcessInstanceByteArrayCodec(boolean compressionEnabled, int threshold) {
+        this.compressionEnabled = compressionEnabled;
+        this.threshold = threshold;
+    }
+
+    public static ProcessInstanceByteArrayCodec get() {
+        return INSTANCE;
+    }
+
+    public byte[] encode(byte[] data) {
+        if (!compressionEnabled || data.length < threshold) {
+            return data;
+        }
+        // speed matters more than ratio here as it runs on every store of the process instance
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + HEADER_LENGTH);
+            writeHeader(out, CODEC_DEFLATE, data.length);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            byte[] encoded = out.toByteArray();
+            if (encoded.length >= data.length) {
+                // not worth it, keep it uncompressed
+                return data;
+            }
+            return encoded;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public byte[] decode(byte[] data) {
+        if (!hasHeader(data)) {
+            return data;
+        }
+        byte version = data[MAGIC.length];
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported process instance data format version " + version);
+        }
+        byte codec = data[MAGIC.length + 1];
+        int length = readInt(data, MAGIC.length + 2);
+        switch (codec) {
+            case CODEC_NONE:
+                byte[] result = new byte[data.length - HEADER_LENGTH];
+                System.arraycopy(data, HEADER_LENGTH, result, 0, result.length);
+                return result;
+            case CODEC_DEFLATE:
+                return inflate(data, length);
+            default:
+                throw new IllegalArgumentException("Unsupported process instance data codec " + codec);
+        }
+    }
+
+    public static boolean hasHeader(byte[] data) {
+        if (data == null || data.length < HEADER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected byte[] inflate(byte[] data, int length) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, HEADER_LENGTH, data.length - HEADER_LENGTH);
+            byte[] result = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                int count = inflater.inflate(result, offset, length - offset);
+                if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                offset += count;
+            }
+            if (offset != length) {
+                throw new IllegalArgumentException("Corrupted process instance data, expected " + length
+                        + " bytes but got " + offset);
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupted process instance data: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private void writeHeader(ByteArrayOutputStream out, byte codec, int length) {
+        out.write(MAGIC, 0, MAGIC.length);
+        out.write(FORMAT_VERSION);
+        out.write(codec);
+        out.write((length >>> 24) & 0xFF);
+        out.write((length >>> 16) & 0xFF);
+        out.write((length >>> 8) & 0xFF);
+        out.write(length & 0xFF);
+    }
+
+    private int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+                | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+}
@@ -24,6 +24,7 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.persistence.CollectionTable;
 import javax.persistence.Column;
@@ -51,6 +52,7 @@ import org.jbpm.marshalling.impl.JBPMMessages;
 import org.jbpm.marshalling.impl.ProcessInstanceMarshaller;
 import org.jbpm.marshalling.impl.ProcessMarshallerRegistry;
 import org.jbpm.marshalling.impl.ProtobufRuleFlowProcessInstanceMarshaller;
+import org.jbpm.persistence.variable.ExternalizedVariablePersistenceStrategy;
 import org.jbpm.process.instance.impl.ProcessInstanceImpl;
 import org.jbpm.workflow.instance.impl.WorkflowProcessInstanceImpl;
 import org.kie.api.runtime.Environment;
@@ -60,6 +62,11 @@ import org.kie.api.runtime.process.ProcessInstance;
 @SequenceGenerator(name="processInstanceInfoIdSeq", sequenceName="PROCESS_INSTANCE_INFO_ID_SEQ")
 public class ProcessInstanceInfo implements Transformable {
 
+    private static final boolean DIRTY_TRACKING = Boolean.parseBoolean(System.getProperty("org.jbpm.pi.dirty.tracking", "true"));
+
+    private static final AtomicLong PERFORMED_SERIALIZATIONS = new AtomicLong();
+    private static final AtomicLong SKIPPED_SERIALIZATIONS = new AtomicLong();
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO, generator="processInstanceInfoIdSeq")
     @Column(name = "InstanceId")
@@ -172,7 +179,7 @@ public class ProcessInstanceInfo implements Transformable {
         this.env = env;
         if ( processInstance == null ) {        	
             try {
-                ByteArrayInputStream bais = new ByteArrayInputStream( processInstanceByteArray );
+                ByteArrayInputStream bais = new ByteArrayInputStream( ProcessInstanceByteArrayCodec.get().decode( processInstanceByteArray ) );
                 MarshallerReaderContext context = new MarshallerReaderContext( bais,
                                                                                (InternalKnowledgeBase) kruntime.getKieBase(),
                                                                                null,
@@ -184,6 +191,8 @@ public class ProcessInstanceInfo implements Transformable {
             	context.wm = ((StatefulKnowledgeSessionImpl) kruntime).getInternalWorkingMemory();
                 processInstance = marshaller.readProcessInstance(context);
                 ((WorkflowProcessInstanceImpl) processInstance).setPersisted(false);
+                // freshly loaded instance matches the stored one
+                ((WorkflowProcessInstanceImpl) processInstance).clearDirty();
                 if (readOnly) {
                     ((WorkflowProcessInstanceImpl) processInstance).disconnect();
                 }
@@ -215,6 +224,14 @@ public class ProcessInstanceInfo implements Transformable {
 //    	if (processInstance == null) {
 //    		return;
 //    	}
+        if (DIRTY_TRACKING && processInstanceByteArray != null
+                && !((ProcessInstanceImpl) processInstance).isDirty()) {
+            // nothing changed since the instance was loaded or stored so skip marshalling it
+            SKIPPED_SERIALIZATIONS.incrementAndGet();
+            ((WorkflowProcessInstanceImpl) processInstance).setPersisted(true);
+            return;
+        }
+        PERFORMED_SERIALIZATIONS.incrementAndGet();
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         boolean variablesChanged = false;
         try {
@@ -242,25 +259,52 @@ public class ProcessInstanceInfo implements Transformable {
                                                          _instance );
             }
             context.close();
+            // remove stored content of externalized variables the process instance no longer refers to, changed
+            // content is stored under the same reference so the process instance data might not change at all
+            variablesChanged = ExternalizedVariablePersistenceStrategy.processInstanceWritten( this.env, processInstance.getId() );
         } catch ( IOException e ) {
             throw new IllegalArgumentException( "IOException while storing process instance "
         		+ processInstance.getId() + ": " + e.getMessage(), e );
         }
-        byte[] newByteArray = baos.toByteArray();
+        byte[] newByteArray = ProcessInstanceByteArrayCodec.get().encode( baos.toByteArray() );
         if ( variablesChanged || !Arrays.equals( newByteArray,
                                                  processInstanceByteArray ) ) {
             this.state = processInstance.getState();
             this.lastModificationDate = new Date();
             this.processInstanceByteArray = newByteArray;
-            this.eventTypes.clear();
-            for ( String type : processInstance.getEventTypes() ) {
-                eventTypes.add( type );
-            }
+            updateEventTypes( processInstance.getEventTypes() );
         }
         if (!processInstance.getProcessId().equals(this.processId)) {
     		this.processId = processInstance.getProcessId();
     	}
         ((WorkflowProcessInstanceImpl) processInstance).setPersisted(true);
+        ((WorkflowProcessInstanceImpl) processInstance).clearDirty();
+    }
+
+    /**
+     * Applies only the difference between stored and current event types so that unchanged
+     * subscriptions are not deleted and inserted again each time the process instance is stored.
+     */
+    private void updateEventTypes(String[] types) {
+        Set<String> currentEventTypes = new HashSet<String>( Arrays.asList( types ) );
+        if ( !this.eventTypes.equals( currentEventTypes ) ) {
+            this.eventTypes.retainAll( currentEventTypes );
+            this.eventTypes.addAll( currentEventTypes );
+        }
+    }
+
+    /**
+     * @return number of times process instance was marshalled when storing it
+     */
+    public static long getPerformedSerializations() {
+        return PERFORMED_SERIALIZATIONS.get();
+    }
+
+    /**
+     * @return number of times marshalling of process instance was skipped as it was not changed
+     */
+    public static long getSkippedSerializations() {
+        return SKIPPED_SERIALIZATIONS.get();
     }
 
 
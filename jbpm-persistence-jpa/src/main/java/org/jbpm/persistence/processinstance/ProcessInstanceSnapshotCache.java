@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.persistence.processinstance;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jbpm.process.instance.impl.ProcessInstanceImpl;
+import org.kie.api.runtime.process.ProcessInstance;
+
+/**
+ * Bounded (least recently used entries are evicted first) cache of disconnected process instances used by
+ * <code>JPAProcessInstanceManager</code> to serve read only look ups without unmarshalling the process instance
+ * every time.
+ * <br/>
+ * Every entry is bound to the version and last modification date of the <code>ProcessInstanceInfo</code> it was
+ * created from and is only returned when both still match, so a snapshot of a process instance that was changed
+ * in the meantime is never returned.
+ * <br/>
+ * Snapshots are shared by all callers - cached process instance is marked read only
+ * (see <code>ProcessInstanceImpl#setReadOnly()</code>) so any attempt to change its state, variables or node
+ * instances fails instead of affecting other callers. Values of variables are shared as well and must not be
+ * modified. The process instance must be fully loaded (including its variables and process definition) before
+ * it is cached.
+ * <br/>
+ * Cache size can be configured with system property <code>org.jbpm.pi.snapshot.cache.size</code>,
+ * 0 (default) disables the cache.
+ */
+public class ProcessInstanceSnapshotCache {
+
+    private volatile int maxSize;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private final Map<String, Snapshot> snapshots;
+
+    public ProcessInstanceSnapshotCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.snapshots = new LinkedHashMap<String, Snapshot>(16, 0.75f, true) {
+            private static final long serialVersionUID = -3516306253474311543L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Snapshot> eldest) {
+                return size() > ProcessInstanceSnapshotCache.this.maxSize;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Changes the size of the cache, evicting least recently used snapshots that do not fit anymore.
+     */
+    public void setMaxSize(int maxSize) {
+        synchronized (snapshots) {
+            this.maxSize = maxSize;
+            for (Iterator<String> iterator = snapshots.keySet().iterator(); snapshots.size() > Math.max(maxSize, 0);) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns shared read only process instance snapshot if there is one matching given version and last
+     * modification date. Snapshot that does not match is removed from the cache.
+     */
+    public ProcessInstance get(String owner, Long processInstanceId, int version, Date lastModificationDate) {
+        if (!isEnabled() || processInstanceId == null) {
+            return null;
+        }
+        String key = key(owner, processInstanceId);
+        Snapshot snapshot;
+        synchronized (snapshots) {
+            snapshot = snapshots.get(key);
+            if (snapshot != null && !snapshot.matches(version, lastModificationDate)) {
+                snapshots.remove(key);
+                snapshot = null;
+            }
+        }
+        if (snapshot != null) {
+            hits.incrementAndGet();
+            return snapshot.processInstance;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Caches given process instance, marking it read only. The process instance must not be used by anyone
+     * to change it afterwards.
+     */
+    public void put(String owner, Long processInstanceId, int version, Date lastModificationDate, ProcessInstance processInstance) {
+        if (!isEnabled() || processInstanceId == null || !(processInstance instanceof ProcessInstanceImpl)) {
+            return;
+        }
+        ((ProcessInstanceImpl) processInstance).setReadOnly();
+        synchronized (snapshots) {
+            snapshots.put(key(owner, processInstanceId), new Snapshot(version, lastModificationDate, processInstance));
+        }
+    }
+
+    public void remove(String owner, Long processInstanceId) {
+        if (!isEnabled() || processInstanceId == null) {
+            return;
+        }
+        synchronized (snapshots) {
+            snapshots.remove(key(owner, processInstanceId));
+        }
+    }
+
+    public void clear() {
+        synchronized (snapshots) {
+            snapshots.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (snapshots) {
+            return snapshots.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    protected String key(String owner, Long processInstanceId) {
+        return owner + "|" + processInstanceId;
+    }
+
+    private static class Snapshot {
+        private final int version;
+        private final Date lastModificationDate;
+        private final ProcessInstance processInstance;
+
+        Snapshot(int version, Date lastModificationDate, ProcessInstance processInstance) {
+            this.version = version;
+            this.lastModificationDate = lastModificationDate;
+            this.processInstance = processInstance;
+        }
+
+        boolean matches(int version, Date lastModificationDate) {
+            if (this.version != version) {
+                return false;
+            }
+            // compare time only as the date might be java.sql.Timestamp which does not equal java.util.Date
+            if (this.lastModificationDate == null || lastModificationDate == null) {
+                return this.lastModificationDate == lastModificationDate;
+            }
+            return this.lastModificationDate.getTime() == lastModificationDate.getTime();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.persistence.timer;
+
+import java.util.List;
+
+import org.drools.core.command.impl.ExecutableCommand;
+import org.drools.core.command.impl.RegistryContext;
+import org.drools.core.common.InternalKnowledgeRuntime;
+import org.drools.core.time.JobContext;
+import org.drools.core.time.SelfRemovalJobContext;
+import org.drools.core.time.impl.TimerJobInstance;
+import org.drools.persistence.jpa.JDKCallableJobCommand;
+import org.drools.persistence.jpa.JpaTimerJobInstance;
+import org.jbpm.process.instance.timer.TimerManager.ProcessJobContext;
+import org.kie.api.runtime.Context;
+import org.kie.api.runtime.KieSession;
+
+/**
+ * Command that fires a batch of timer jobs of the same ksession one after another, all of them within
+ * the transaction of the command.
+ */
+public class BatchTimerJobCommand implements ExecutableCommand<Void> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<? extends TimerJobInstance> timerJobInstances;
+
+    public BatchTimerJobCommand(List<? extends TimerJobInstance> timerJobInstances) {
+        this.timerJobInstances = timerJobInstances;
+    }
+
+    @Override
+    public Void execute(Context context) {
+        KieSession ksession = ((RegistryContext) context).lookup( KieSession.class );
+        for (TimerJobInstance timerJobInstance : timerJobInstances) {
+            JobContext ctx = timerJobInstance.getJobContext();
+            if (ctx instanceof SelfRemovalJobContext) {
+                ctx = ((SelfRemovalJobContext) ctx).getJobContext();
+            }
+            if (ctx instanceof ProcessJobContext && ksession instanceof InternalKnowledgeRuntime) {
+                ((ProcessJobContext) ctx).setKnowledgeRuntime((InternalKnowledgeRuntime) ksession);
+            }
+            new JDKCallableJobCommand( (JpaTimerJobInstance) timerJobInstance ).execute( context );
+        }
+        return null;
+    }
+
+}
@@ -15,20 +15,27 @@
  */
 package org.jbpm.persistence.timer;
 
+import java.util.List;
+
 import org.drools.core.time.InternalSchedulerService;
 import org.drools.core.time.Job;
 import org.drools.core.time.JobContext;
 import org.drools.core.time.JobHandle;
+import org.drools.core.time.SelfRemovalJobContext;
 import org.drools.core.time.Trigger;
 import org.drools.core.time.impl.DefaultJobHandle;
+import org.drools.core.time.impl.TimerJobInstance;
 import org.drools.persistence.TransactionManager;
 import org.drools.persistence.TransactionManagerFactory;
 import org.drools.persistence.jpa.JDKCallableJobCommand;
 import org.drools.persistence.jpa.JpaTimerJobInstance;
 import org.jbpm.persistence.jta.ContainerManagedTransactionManager;
+import org.jbpm.process.core.timer.BatchableTimerJobInstance;
 import org.jbpm.process.core.timer.TimerServiceRegistry;
 import org.jbpm.process.core.timer.impl.GlobalTimerService;
 import org.jbpm.process.core.timer.impl.GlobalTimerService.DisposableCommandService;
+import org.jbpm.process.instance.timer.TimerManager.ProcessJobContext;
+import org.jbpm.process.instance.timer.TimerManager.StartProcessJobContext;
 import org.kie.api.runtime.Environment;
 import org.kie.api.runtime.EnvironmentName;
 import org.kie.api.runtime.ExecutableRunner;
@@ -42,9 +49,14 @@ import org.slf4j.LoggerFactory;
  * Important to note is that when timer service created session this job instance
  * will dispose that session to leave it in the same state it was before job was executed
  * to avoid concurrent usage of the same session by different threads
+ * 
+ * Process timers of the same session can be fired in batch - using single runtime engine
+ * and transaction for all of them. Batch key is the timer service and session id, so with
+ * per process instance (or per request) strategy each batch holds timers of one process
+ * instance only and batching helps mainly the singleton strategy.
  *
  */
-public class GlobalJpaTimerJobInstance extends JpaTimerJobInstance {
+public class GlobalJpaTimerJobInstance extends JpaTimerJobInstance implements BatchableTimerJobInstance {
 	
 	private static final Logger logger = LoggerFactory.getLogger(GlobalJpaTimerJobInstance.class);
 
@@ -94,6 +106,56 @@ public class GlobalJpaTimerJobInstance extends JpaTimerJobInstance {
         }
     }
     
+    @Override
+    public String getBatchKey() {
+        JobContext ctx = getJobContext();
+        if (ctx instanceof SelfRemovalJobContext) {
+            ctx = ((SelfRemovalJobContext) ctx).getJobContext();
+        }
+        if (ctx instanceof ProcessJobContext && !(ctx instanceof StartProcessJobContext)) {
+            return timerServiceId + "-" + ((ProcessJobContext) ctx).getSessionId();
+        }
+        return null;
+    }
+
+    @Override
+    public void callBatch(List<? extends TimerJobInstance> batch) throws Exception {
+        ExecutableRunner runner = null;
+        TransactionManager jtaTm = null;
+        boolean success = false;
+        try {
+            BatchTimerJobCommand command = new BatchTimerJobCommand( batch );
+            if (scheduler == null) {
+                scheduler = (InternalSchedulerService) TimerServiceRegistry.getInstance().get(timerServiceId);
+            }
+            if (scheduler == null) {
+                throw new RuntimeException("No scheduler found for " + timerServiceId);
+            }
+            jtaTm = startTxIfNeeded(((GlobalTimerService) scheduler).getRuntimeManager().getEnvironment().getEnvironment());
+
+            runner = ((GlobalTimerService) scheduler).getRunner( getJobContext() );
+
+            runner.execute( command );
+            GlobalJPATimerJobFactoryManager timerService = ((GlobalJPATimerJobFactoryManager)((GlobalTimerService) scheduler).getTimerJobFactoryManager());
+            for (TimerJobInstance timerJobInstance : batch) {
+                timerService.removeTimerJobInstance(((DefaultJobHandle)timerJobInstance.getJobHandle()).getTimerJobInstance());
+            }
+            success = true;
+        } catch( Exception e ) {
+            logger.debug("Batch of {} timers failed", batch.size(), e);
+            success = false;
+            throw e;
+        } finally {
+            if (runner != null && runner instanceof DisposableCommandService) {
+                if (allowedToDispose(((DisposableCommandService) runner).getEnvironment())) {
+                    logger.debug("Allowed to dispose command service from global timer job instance");
+                    ((DisposableCommandService) runner).dispose();
+                }
+            }
+            closeTansactionIfNeeded(jtaTm, success);
+        }
+    }
+
     @Override
 	public String toString() {
 		return "GlobalJpaTimerJobInstance [timerServiceId=" + timerServiceId
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.persistence.variable;
+
+import org.jbpm.process.instance.context.variable.LazyLoadedVariable;
+
+/**
+ * Placeholder of a variable stored in <code>ExternalizedVariableInfo</code> that loads the value on first use.
+ */
+public class ExternalizedVariable implements LazyLoadedVariable {
+
+    private final Long id;
+    private final ExternalizedVariablePersistenceStrategy strategy;
+    private final ClassLoader classLoader;
+
+    private boolean loaded = false;
+    private Object value;
+
+    public ExternalizedVariable(Long id, ExternalizedVariablePersistenceStrategy strategy, ClassLoader classLoader) {
+        this.id = id;
+        this.strategy = strategy;
+        this.classLoader = classLoader;
+    }
+
+    @Override
+    public Object load() {
+        if (!loaded) {
+            value = strategy.load(id, classLoader);
+            loaded = true;
+        }
+        return value;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "ExternalizedVariable [id=" + id + ", loaded=" + loaded + "]";
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.persistence.variable;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Version;
+
+/**
+ * Content of a process variable that is stored outside of the process instance data
+ * by <code>ExternalizedVariablePersistenceStrategy</code>.
+ */
+@Entity
+@SequenceGenerator(name="externalizedVariableInfoIdSeq", sequenceName="EXTERNALIZED_VARIABLE_ID_SEQ")
+public class ExternalizedVariableInfo {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO, generator="externalizedVariableInfoIdSeq")
+    private Long id;
+
+    @Version
+    @Column(name = "OPTLOCK")
+    private int version;
+
+    private Long processInstanceId;
+
+    private String name;
+
+    private long checksum;
+
+    private int contentLength;
+
+    private Date lastModificationDate;
+
+    @Lob
+    @Column(length=2147483647)
+    private byte[] content;
+
+    public ExternalizedVariableInfo() {
+    }
+
+    public ExternalizedVariableInfo(Long processInstanceId, String name) {
+        this.processInstanceId = processInstanceId;
+        this.name = name;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public Long getProcessInstanceId() {
+        return processInstanceId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    public int getContentLength() {
+        return contentLength;
+    }
+
+    public Date getLastModificationDate() {
+        return lastModificationDate;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public void setContent(byte[] content, long checksum) {
+        this.content = content;
+        this.contentLength = content.length;
+        this.checksum = checksum;
+        this.lastModificationDate = new Date();
+    }
+}
@@ -0,0 +1,439 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.persistence.variable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.zip.CRC32;
+
+import javax.persistence.EntityManager;
+
+import org.drools.core.common.DroolsObjectInputStream;
+import org.drools.core.marshalling.impl.ProcessMarshallerWriteContext;
+import org.drools.persistence.OrderedTransactionSynchronization;
+import org.drools.persistence.TransactionManager;
+import org.drools.persistence.TransactionManagerHelper;
+import org.jbpm.marshalling.impl.NamedObjectMarshallingStrategy;
+import org.kie.api.marshalling.ObjectMarshallingStrategy;
+import org.kie.api.runtime.Environment;
+import org.kie.api.runtime.EnvironmentName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Marshalling strategy that stores serialized process variables bigger than configured threshold in a separate
+ * table (<code>ExternalizedVariableInfo</code>) keyed by process instance id and variable name, and keeps only
+ * a reference to it in the process instance data. Smaller variables are serialized inline, same as with
+ * <code>SerializablePlaceholderResolverStrategy</code>.
+ * <br/>
+ * Externalized variables are loaded lazily - only when they are accessed for the first time - and are written back
+ * only when their content changed - in that case the process instance is considered changed as well (even though
+ * its own data stay the same) so its version and last modification date are updated. Stored content is removed once the variable is kept inline again (it became
+ * smaller than the threshold) or is no longer referenced by the process instance (e.g. it was set to null).
+ * Variables of work items and tasks are always kept inline.
+ * <br/>
+ * To enable it, register the strategy in front of the default one, add <code>ExternalizedVariableInfo</code>
+ * to the persistence unit and register <code>ExternalizedVariableCleanupListener</code> to remove stored
+ * variables of completed process instances:
+ * <pre>
+ * env.set(EnvironmentName.OBJECT_MARSHALLING_STRATEGIES, new ObjectMarshallingStrategy[] {
+ *      new ExternalizedVariablePersistenceStrategy(env),
+ *      new SerializablePlaceholderResolverStrategy(ClassObjectMarshallingStrategyAcceptor.DEFAULT)});
+ * </pre>
+ * Threshold (in bytes) can be configured with system property <code>org.jbpm.var.externalize.threshold</code>,
+ * defaults to 32768.
+ */
+public class ExternalizedVariablePersistenceStrategy implements NamedObjectMarshallingStrategy {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExternalizedVariablePersistenceStrategy.class);
+
+    private static final byte INLINE = 0;
+    private static final byte EXTERNAL = 1;
+
+    private final Environment env;
+    private final int threshold;
+    // variables loaded or stored within entity manager (transaction), by process instance id and variable name,
+    // entries of process instance are dropped once the transaction completes
+    private final Map<EntityManager, Map<Long, StoredVariables>> storedVariables = new WeakHashMap<EntityManager, Map<Long, StoredVariables>>();
+
+    public ExternalizedVariablePersistenceStrategy(Environment env) {
+        this(env, Integer.parseInt(System.getProperty("org.jbpm.var.externalize.threshold", "32768")));
+    }
+
+    public ExternalizedVariablePersistenceStrategy(Environment env, int threshold) {
+        this.env = env;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public boolean accept(Object object) {
+        return object instanceof ExternalizedVariable || object instanceof Serializable;
+    }
+
+    @Override
+    public void write(ObjectOutputStream os, Object object) throws IOException {
+        os.writeObject(object);
+    }
+
+    @Override
+    public Object read(ObjectInputStream os) throws IOException, ClassNotFoundException {
+        return os.readObject();
+    }
+
+    @Override
+    public byte[] marshal(Context context, ObjectOutputStream os, Object object) throws IOException {
+        if (object instanceof ExternalizedVariable) {
+            object = ((ExternalizedVariable) object).load();
+        }
+        return inline(serialize(object));
+    }
+
+    @Override
+    public byte[] marshal(Context context, ObjectOutputStream os, String name, Object object) throws IOException {
+        Long processInstanceId = getProcessInstanceId(os);
+        Long id = null;
+        if (object instanceof ExternalizedVariable) {
+            ExternalizedVariable variable = (ExternalizedVariable) object;
+            id = variable.getId();
+            if (!variable.isLoaded()) {
+                // not used so it could not change, just keep the reference
+                if (processInstanceId != null) {
+                    StoredVariables stored = getStoredVariables(getEntityManager(env), processInstanceId, false);
+                    if (stored != null) {
+                        stored.referenced.add(name);
+                    }
+                }
+                return reference(id);
+            }
+            object = variable.load();
+        }
+        byte[] content = serialize(object);
+        if (processInstanceId == null) {
+            return inline(content);
+        }
+        if (content.length < threshold) {
+            remove(processInstanceId, name, id);
+            return inline(content);
+        }
+        return reference(store(processInstanceId, name, id, content));
+    }
+
+    @Override
+    public Object unmarshal(Context context, ObjectInputStream is, byte[] object, ClassLoader classloader) throws IOException, ClassNotFoundException {
+        if (object[0] == EXTERNAL) {
+            return new ExternalizedVariable(ByteBuffer.wrap(object, 1, 8).getLong(), this, classloader);
+        }
+        return deserialize(object, 1, classloader);
+    }
+
+    @Override
+    public Context createContext() {
+        return null;
+    }
+
+    protected Object load(Long id, ClassLoader classLoader) {
+        EntityManager em = getEntityManager(env);
+        ExternalizedVariableInfo variableInfo = em.find(ExternalizedVariableInfo.class, id);
+        if (variableInfo == null) {
+            throw new IllegalStateException("Unable to find externalized variable with id " + id);
+        }
+        // loaded variable is likely to be changed, keep it so it can be updated or removed without look up
+        getStoredVariables(em, variableInfo.getProcessInstanceId(), true).variables.put(variableInfo.getName(), variableInfo);
+        try {
+            return deserialize(variableInfo.getContent(), 0, classLoader);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to read externalized variable " + variableInfo.getName()
+                    + " of process instance " + variableInfo.getProcessInstanceId(), e);
+        }
+    }
+
+    /**
+     * Stores content of given variable, reusing the row already loaded or stored within current entity manager
+     * (or the one with given id) so that the variable is looked up by name only when it is externalized first time.
+     */
+    protected Long store(Long processInstanceId, String name, Long id, byte[] content) {
+        EntityManager em = getEntityManager(env);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        long checksum = crc.getValue();
+
+        StoredVariables stored = getStoredVariables(em, processInstanceId, true);
+        ExternalizedVariableInfo variableInfo = managed(em, stored.variables.get(name));
+        if (variableInfo == null && id != null) {
+            variableInfo = em.find(ExternalizedVariableInfo.class, id);
+        }
+        if (variableInfo == null) {
+            List<ExternalizedVariableInfo> found = em.createQuery("select v from ExternalizedVariableInfo v "
+                    + "where v.processInstanceId = :processInstanceId and v.name = :name", ExternalizedVariableInfo.class)
+                    .setParameter("processInstanceId", processInstanceId)
+                    .setParameter("name", name)
+                    .getResultList();
+            if (!found.isEmpty()) {
+                variableInfo = found.get(0);
+            }
+        }
+        if (variableInfo == null) {
+            variableInfo = new ExternalizedVariableInfo(processInstanceId, name);
+            variableInfo.setContent(content, checksum);
+            em.persist(variableInfo);
+            stored.changed = true;
+        } else if (variableInfo.getChecksum() == checksum && variableInfo.getContentLength() == content.length) {
+            logger.debug("Variable {} of process instance {} not changed", name, processInstanceId);
+        } else {
+            variableInfo.setContent(content, checksum);
+            stored.changed = true;
+        }
+        stored.variables.put(name, variableInfo);
+        stored.referenced.add(name);
+        return variableInfo.getId();
+    }
+
+    /**
+     * Removes stored content of given variable that is now kept inline, if it was loaded or stored within current
+     * entity manager (or its id is known).
+     */
+    protected void remove(Long processInstanceId, String name, Long id) {
+        EntityManager em = getEntityManager(env);
+        ExternalizedVariableInfo variableInfo = null;
+        StoredVariables stored = getStoredVariables(em, processInstanceId, false);
+        if (stored != null) {
+            variableInfo = managed(em, stored.variables.remove(name));
+        }
+        if (variableInfo == null && id != null) {
+            variableInfo = em.find(ExternalizedVariableInfo.class, id);
+        }
+        if (variableInfo != null) {
+            em.remove(variableInfo);
+            if (stored != null) {
+                stored.changed = true;
+            }
+            logger.debug("Removed externalized variable {} of process instance {}", name, processInstanceId);
+        }
+    }
+
+    /**
+     * Removes stored content of variables of given process instance that were loaded or stored within current
+     * entity manager but are no longer referenced from the process instance data just written, e.g. because
+     * they were set to null or their scope was completed.
+     * @return true if stored content of any variable of given process instance was added, changed or removed
+     * since the process instance data were written last time
+     */
+    protected boolean removeUnreferenced(Long processInstanceId) {
+        EntityManager em = getEntityManager(env);
+        StoredVariables stored = getStoredVariables(em, processInstanceId, false);
+        if (stored == null) {
+            return false;
+        }
+        for (Iterator<ExternalizedVariableInfo> iterator = stored.variables.values().iterator(); iterator.hasNext();) {
+            ExternalizedVariableInfo variableInfo = iterator.next();
+            if (!stored.referenced.contains(variableInfo.getName())) {
+                iterator.remove();
+                variableInfo = managed(em, variableInfo);
+                if (variableInfo != null) {
+                    em.remove(variableInfo);
+                    stored.changed = true;
+                    logger.debug("Removed externalized variable {} of process instance {}", variableInfo.getName(), processInstanceId);
+                }
+            }
+        }
+        stored.referenced.clear();
+        boolean changed = stored.changed;
+        stored.changed = false;
+        return changed;
+    }
+
+    /**
+     * Called once process instance data were written so that stored content of variables that are no longer
+     * referenced by the process instance is removed.
+     * @return true if stored content of any externalized variable changed so the process instance must be
+     * considered changed even if its own data are the same
+     */
+    public static boolean processInstanceWritten(Environment env, long processInstanceId) {
+        boolean changed = false;
+        for (ExternalizedVariablePersistenceStrategy strategy : getStrategies(env)) {
+            changed = strategy.removeUnreferenced(processInstanceId) || changed;
+        }
+        return changed;
+    }
+
+    /**
+     * Removes all externalized variables of given process instance.
+     */
+    public static void removeVariables(Environment env, long processInstanceId) {
+        int removed = getEntityManager(env).createQuery("delete from ExternalizedVariableInfo v "
+                + "where v.processInstanceId = :processInstanceId")
+                .setParameter("processInstanceId", processInstanceId)
+                .executeUpdate();
+        for (ExternalizedVariablePersistenceStrategy strategy : getStrategies(env)) {
+            strategy.forget(processInstanceId);
+        }
+        logger.debug("Removed {} externalized variables of process instance {}", removed, processInstanceId);
+    }
+
+    private static List<ExternalizedVariablePersistenceStrategy> getStrategies(Environment env) {
+        List<ExternalizedVariablePersistenceStrategy> strategies = new ArrayList<ExternalizedVariablePersistenceStrategy>();
+        ObjectMarshallingStrategy[] registered = env == null ? null
+                : (ObjectMarshallingStrategy[]) env.get(EnvironmentName.OBJECT_MARSHALLING_STRATEGIES);
+        if (registered != null) {
+            for (ObjectMarshallingStrategy strategy : registered) {
+                if (strategy instanceof ExternalizedVariablePersistenceStrategy) {
+                    strategies.add((ExternalizedVariablePersistenceStrategy) strategy);
+                }
+            }
+        }
+        return strategies;
+    }
+
+    private void forget(long processInstanceId) {
+        synchronized (storedVariables) {
+            for (Map<Long, StoredVariables> byProcessInstance : storedVariables.values()) {
+                byProcessInstance.remove(processInstanceId);
+            }
+        }
+    }
+
+    private StoredVariables getStoredVariables(EntityManager em, Long processInstanceId, boolean create) {
+        synchronized (storedVariables) {
+            Map<Long, StoredVariables> byProcessInstance = storedVariables.get(em);
+            if (byProcessInstance == null) {
+                if (!create) {
+                    return null;
+                }
+                byProcessInstance = new HashMap<Long, StoredVariables>();
+                storedVariables.put(em, byProcessInstance);
+            }
+            StoredVariables stored = byProcessInstance.get(processInstanceId);
+            if (stored == null && create) {
+                stored = new StoredVariables();
+                byProcessInstance.put(processInstanceId, stored);
+                forgetOnCompletion(em, processInstanceId);
+            }
+            return stored;
+        }
+    }
+
+    /**
+     * Makes sure variables of given process instance are not kept beyond current transaction, application scoped
+     * entity manager outlives it.
+     */
+    private void forgetOnCompletion(final EntityManager em, final Long processInstanceId) {
+        Object txm = env.get(EnvironmentName.TRANSACTION_MANAGER);
+        if (!(txm instanceof TransactionManager) || ((TransactionManager) txm).getStatus() != TransactionManager.STATUS_ACTIVE) {
+            return;
+        }
+        TransactionManagerHelper.registerTransactionSyncInContainer((TransactionManager) txm,
+                new OrderedTransactionSynchronization(10, "ExternalizedVariables-" + System.identityHashCode(this)
+                        + "-" + System.identityHashCode(em) + "-" + processInstanceId) {
+
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (storedVariables) {
+                    Map<Long, StoredVariables> byProcessInstance = storedVariables.get(em);
+                    if (byProcessInstance != null) {
+                        byProcessInstance.remove(processInstanceId);
+                        if (byProcessInstance.isEmpty()) {
+                            storedVariables.remove(em);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private static ExternalizedVariableInfo managed(EntityManager em, ExternalizedVariableInfo variableInfo) {
+        if (variableInfo == null || em.contains(variableInfo)) {
+            return variableInfo;
+        }
+        // detached in the meantime (e.g. entity manager was cleared)
+        return em.find(ExternalizedVariableInfo.class, variableInfo.getId());
+    }
+
+    protected static EntityManager getEntityManager(Environment env) {
+        EntityManager em = (EntityManager) env.get(EnvironmentName.CMD_SCOPED_ENTITY_MANAGER);
+        if (em == null) {
+            em = (EntityManager) env.get(EnvironmentName.APP_SCOPED_ENTITY_MANAGER);
+        }
+        if (em == null) {
+            throw new IllegalStateException("No entity manager available to access externalized variables");
+        }
+        return em;
+    }
+
+    protected Long getProcessInstanceId(ObjectOutputStream os) {
+        if (os instanceof ProcessMarshallerWriteContext) {
+            ProcessMarshallerWriteContext context = (ProcessMarshallerWriteContext) os;
+            // work item and task data are stored on their own
+            if (context.getWorkItemId() == null && context.getTaskId() == null) {
+                return context.getProcessInstanceId();
+            }
+        }
+        return null;
+    }
+
+    private byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(object);
+        oos.close();
+        return baos.toByteArray();
+    }
+
+    private Object deserialize(byte[] data, int offset, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+        ObjectInputStream ois = new DroolsObjectInputStream(new ByteArrayInputStream(data, offset, data.length - offset), classLoader);
+        try {
+            return ois.readObject();
+        } finally {
+            ois.close();
+        }
+    }
+
+    private byte[] inline(byte[] content) {
+        byte[] result = new byte[content.length + 1];
+        result[0] = INLINE;
+        System.arraycopy(content, 0, result, 1, content.length);
+        return result;
+    }
+
+    private byte[] reference(Long id) {
+        return ByteBuffer.allocate(9).put(EXTERNAL).putLong(id).array();
+    }
+
+    private static class StoredVariables {
+        private final Map<String, ExternalizedVariableInfo> variables = new HashMap<String, ExternalizedVariableInfo>();
+        // variables referenced from the process instance data being written
+        private final Set<String> referenced = new HashSet<String>();
+        // stored content was added, changed or removed since the process instance data were written last time
+        private boolean changed = false;
+    }
+}
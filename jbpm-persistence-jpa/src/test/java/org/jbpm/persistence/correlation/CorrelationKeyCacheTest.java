@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.persistence.correlation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class CorrelationKeyCacheTest {
+
+    @Test
+    public void testResolutionAndInvalidation() {
+        CorrelationKeyCache cache = new CorrelationKeyCache(10, 60000, 60000);
+
+        cache.put(key("customer", "order-1"), 5L);
+        assertEquals(Long.valueOf(5L), cache.get(key("customer", "order-1")));
+        // properties are matched regardless of their order
+        assertEquals(Long.valueOf(5L), cache.get(key("order-1", "customer")));
+        // values must not be simply concatenated
+        assertNull(cache.get(key("customerorder-1")));
+        assertNull(cache.get(key("custom", "erorder-1")));
+
+        cache.remove(key("customer", "order-1"));
+        assertNull(cache.get(key("customer", "order-1")));
+
+        // without transaction the key is removed right away
+        cache.put(key("customer", "order-1"), 5L);
+        cache.removeOnCompletion(null, key("customer", "order-1"));
+        assertEquals(0, cache.size());
+
+        assertEquals(2, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void testResolutionExpires() throws Exception {
+        CorrelationKeyCache cache = new CorrelationKeyCache(10, 50, 50);
+
+        cache.put(key("customer"), 5L);
+        assertEquals(Long.valueOf(5L), cache.get(key("customer")));
+
+        // key might have been removed by other cluster member in the meantime
+        Thread.sleep(100);
+        assertNull(cache.get(key("customer")));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testNegativeCaching() throws Exception {
+        CorrelationKeyCache cache = new CorrelationKeyCache(10, 60000, 50);
+
+        cache.put(key("unknown"), null);
+        assertEquals(CorrelationKeyCache.NOT_FOUND, cache.get(key("unknown")));
+
+        Thread.sleep(100);
+        assertNull(cache.get(key("unknown")));
+        assertEquals(0, cache.size());
+
+        // negative caching can be turned off
+        cache = new CorrelationKeyCache(10, 60000, 0);
+        cache.put(key("unknown"), null);
+        assertNull(cache.get(key("unknown")));
+    }
+
+    @Test
+    public void testBoundedSize() {
+        CorrelationKeyCache cache = new CorrelationKeyCache(2, 60000, 60000);
+
+        cache.put(key("1"), 1L);
+        cache.put(key("2"), 2L);
+        // access first one so the second one is the least recently used
+        cache.get(key("1"));
+        cache.put(key("3"), 3L);
+
+        assertEquals(2, cache.size());
+        assertEquals(Long.valueOf(1L), cache.get(key("1")));
+        assertNull(cache.get(key("2")));
+    }
+
+    @Test
+    public void testDisabled() {
+        CorrelationKeyCache cache = new CorrelationKeyCache(0, 60000, 60000);
+
+        cache.put(key("1"), 1L);
+        assertNull(cache.get(key("1")));
+        assertEquals(0, cache.size());
+    }
+
+    private CorrelationKeyInfo key(String... values) {
+        CorrelationKeyInfo correlationKey = new CorrelationKeyInfo();
+        for (String value : values) {
+            correlationKey.addProperty(new CorrelationPropertyInfo(null, value));
+        }
+        return correlationKey;
+    }
+}
@@ -19,16 +19,25 @@ import static org.jbpm.persistence.util.PersistenceUtil.*;
 import static org.kie.api.runtime.EnvironmentName.ENTITY_MANAGER_FACTORY;
 import static org.kie.api.runtime.EnvironmentName.USE_PESSIMISTIC_LOCKING;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 
+import javax.naming.InitialContext;
 import javax.persistence.EntityManagerFactory;
+import javax.transaction.Status;
+import javax.transaction.UserTransaction;
 
 import org.drools.persistence.jta.JtaTransactionManager;
 import org.jbpm.persistence.util.PersistenceUtil;
+import org.jbpm.process.instance.ProcessInstance;
+import org.jbpm.ruleflow.core.RuleFlowProcess;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
@@ -76,6 +85,38 @@ public class JpaBasedPersistenceTest extends MapPersistenceTest {
        cleanUp(context); 
     }
     
+    @Test
+    public void signalEventToMultipleProcessInstancesInUserTransactionTest() throws Exception {
+        String processId = "signalProcessTest";
+        String eventType = "myEvent";
+        RuleFlowProcess process = ProcessCreatorForHelp.newSimpleEventProcess( processId,
+                                                         eventType );
+
+        KieBase kbase = createKieBase(process);
+        StatefulKnowledgeSession crmPersistentSession = createSession(kbase);
+
+        List<Long> processInstanceIds = new ArrayList<Long>();
+        for ( int i = 0; i < 5; i++ ) {
+            ProcessInstance processInstance = (ProcessInstance) crmPersistentSession.startProcess( processId );
+            processInstanceIds.add( processInstance.getId() );
+        }
+
+        crmPersistentSession = createSession(kbase);
+
+        UserTransaction ut = (UserTransaction) new InitialContext().lookup( "java:comp/UserTransaction" );
+        ut.begin();
+        crmPersistentSession.signalEvent( eventType,
+                              null );
+        // loading waiting process instances in batches joins the transaction without marking it for rollback
+        Assert.assertEquals( Status.STATUS_ACTIVE, ut.getStatus() );
+        ut.commit();
+
+        Assert.assertEquals( 0, getProcessInstancesCount() );
+        for ( Long processInstanceId : processInstanceIds ) {
+            Assert.assertNull( crmPersistentSession.getProcessInstance( processInstanceId ) );
+        }
+    }
+
     @Override
     protected StatefulKnowledgeSession createSession(KieBase kbase) {
         Environment env = createEnvironment(context);
@@ -15,7 +15,13 @@
 
 package org.jbpm.persistence.map.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.drools.core.command.impl.ExecutableCommand;
+import org.drools.core.command.impl.RegistryContext;
 import org.drools.core.process.instance.WorkItemHandler;
+import org.jbpm.persistence.ProcessPersistenceContextManager;
 import org.jbpm.process.instance.ProcessInstance;
 import org.jbpm.ruleflow.core.RuleFlowProcess;
 import org.jbpm.ruleflow.instance.RuleFlowProcessInstance;
@@ -23,6 +29,9 @@ import org.jbpm.test.util.AbstractBaseTest;
 import org.junit.Assert;
 import org.junit.Test;
 import org.kie.api.KieBase;
+import org.kie.api.runtime.Context;
+import org.kie.api.runtime.EnvironmentName;
+import org.kie.api.runtime.KieSession;
 import org.kie.api.runtime.process.WorkItem;
 import org.kie.api.runtime.process.WorkItemManager;
 import org.kie.internal.KnowledgeBaseFactory;
@@ -96,6 +105,71 @@ public abstract class MapPersistenceTest extends AbstractBaseTest {
 
         Assert.assertNull( processInstance );
     }
+
+    @Test
+    public void signalEventToMultipleProcessInstancesTest() {
+        String processId = "signalProcessTest";
+        String eventType = "myEvent";
+        RuleFlowProcess process = ProcessCreatorForHelp.newSimpleEventProcess( processId,
+                                                         eventType );
+
+        KieBase kbase = createKieBase(process);
+
+        StatefulKnowledgeSession crmPersistentSession = createSession(kbase);
+
+        List<Long> processInstanceIds = new ArrayList<Long>();
+        for ( int i = 0; i < 5; i++ ) {
+            ProcessInstance processInstance = (ProcessInstance) crmPersistentSession.startProcess( processId );
+            Assert.assertEquals( ProcessInstance.STATE_ACTIVE,
+                                 processInstance.getState() );
+            processInstanceIds.add( processInstance.getId() );
+        }
+
+        crmPersistentSession = createSession(kbase);
+
+        // all waiting process instances are loaded at once and signaled
+        crmPersistentSession.signalEvent( eventType,
+                              null );
+        for ( Long processInstanceId : processInstanceIds ) {
+            Assert.assertNull( crmPersistentSession.getProcessInstance( processInstanceId ) );
+        }
+    }
+    
+    @Test
+    public void countProcessInstancesWaitingForEventTest() {
+        String processId = "signalProcessTest";
+        String eventType = "myEvent";
+        RuleFlowProcess process = ProcessCreatorForHelp.newSimpleEventProcess( processId,
+                                                         eventType );
+
+        KieBase kbase = createKieBase(process);
+
+        StatefulKnowledgeSession crmPersistentSession = createSession(kbase);
+        for ( int i = 0; i < 3; i++ ) {
+            crmPersistentSession.startProcess( processId );
+        }
+        Assert.assertEquals( 3,
+                             countProcessInstancesWaitingForEvent( crmPersistentSession, eventType ) );
+        Assert.assertEquals( 0,
+                             countProcessInstancesWaitingForEvent( crmPersistentSession, "otherEvent" ) );
+
+        crmPersistentSession = createSession(kbase);
+        crmPersistentSession.signalEvent( eventType,
+                              null );
+        Assert.assertEquals( 0,
+                             countProcessInstancesWaitingForEvent( crmPersistentSession, eventType ) );
+    }
+
+    private long countProcessInstancesWaitingForEvent(StatefulKnowledgeSession ksession, final String eventType) {
+        return ksession.execute( new ExecutableCommand<Long>() {
+            public Long execute(Context context) {
+                KieSession ksession = ((RegistryContext) context).lookup( KieSession.class );
+                ProcessPersistenceContextManager contextManager = (ProcessPersistenceContextManager) ksession.getEnvironment()
+                        .get( EnvironmentName.PERSISTENCE_CONTEXT_MANAGER );
+                return contextManager.getProcessPersistenceContext().countProcessInstancesWaitingForEvent( eventType );
+            }
+        } );
+    }
     
     @Test
     public void executeMultipleProcessTest() {
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.persistence.processinstance;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ProcessInstanceByteArrayCodecTest {
+
+    @Test
+    public void testSmallDataNotCompressed() throws Exception {
+        ProcessInstanceByteArrayCodec codec = new ProcessInstanceByteArrayCodec(true, 8192);
+        byte[] data = buildData(10);
+
+        assertTrue(data.length < 8192);
+        assertSame(data, codec.encode(data));
+        assertSame(data, codec.decode(data));
+    }
+
+    @Test
+    public void testLargeDataCompressed() throws Exception {
+        ProcessInstanceByteArrayCodec codec = new ProcessInstanceByteArrayCodec(true, 8192);
+        byte[] data = buildData(2000);
+
+        byte[] encoded = codec.encode(data);
+        assertTrue(ProcessInstanceByteArrayCodec.hasHeader(encoded));
+        assertTrue(encoded.length < data.length);
+        assertArrayEquals(data, codec.decode(encoded));
+    }
+
+    @Test
+    public void testCompressedDataReadableWhenCompressionDisabled() throws Exception {
+        byte[] data = buildData(2000);
+        byte[] encoded = new ProcessInstanceByteArrayCodec(true, 1024).encode(data);
+
+        ProcessInstanceByteArrayCodec disabled = new ProcessInstanceByteArrayCodec(false, 1024);
+        assertSame(data, disabled.encode(data));
+        assertArrayEquals(data, disabled.decode(encoded));
+    }
+
+    @Test
+    public void testLegacyDataHasNoHeader() throws Exception {
+        assertFalse(ProcessInstanceByteArrayCodec.hasHeader(buildData(1)));
+        assertFalse(ProcessInstanceByteArrayCodec.hasHeader(null));
+    }
+
+    protected static byte[] buildData(int variables) throws Exception {
+        Random random = new Random(variables);
+        Map<String, Object> data = new HashMap<String, Object>();
+        for (int i = 0; i < variables; i++) {
+            Map<String, Object> variable = new HashMap<String, Object>();
+            variable.put("name", "customer-" + random.nextInt(1000));
+            variable.put("address", "Street " + random.nextInt(100) + ", City " + random.nextInt(50));
+            variable.put("amount", random.nextDouble() * 1000);
+            variable.put("approved", random.nextBoolean());
+            data.put("variable" + i, variable);
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(baos);
+        out.writeUTF("RuleFlow");
+        out.writeObject(data);
+        out.close();
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.persistence.processinstance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Timestamp;
+import java.util.Date;
+
+import org.jbpm.ruleflow.instance.RuleFlowProcessInstance;
+import org.junit.Test;
+import org.kie.api.runtime.process.ProcessInstance;
+
+public class ProcessInstanceSnapshotCacheTest {
+
+    private static final String OWNER = "kbase";
+
+    @Test
+    public void testSnapshotIsBoundToVersion() {
+        ProcessInstanceSnapshotCache cache = new ProcessInstanceSnapshotCache(10);
+        Date modified = new Date();
+        RuleFlowProcessInstance processInstance = new RuleFlowProcessInstance();
+        processInstance.setId(1);
+
+        cache.put(OWNER, 1L, 3, modified, processInstance);
+        assertEquals(1, cache.get(OWNER, 1L, 3, modified).getId());
+        // dates loaded from data base are timestamps
+        assertEquals(1, cache.get(OWNER, 1L, 3, new Timestamp(modified.getTime())).getId());
+        // different owner must not see the snapshot
+        assertNull(cache.get("other-kbase", 1L, 3, modified));
+
+        // stale snapshot is never returned and is dropped
+        assertNull(cache.get(OWNER, 1L, 4, modified));
+        assertEquals(0, cache.size());
+
+        cache.put(OWNER, 1L, 4, modified, processInstance);
+        assertNull(cache.get(OWNER, 1L, 4, new Date(modified.getTime() + 1)));
+
+        assertEquals(2, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void testSnapshotIsSharedAndReadOnly() {
+        ProcessInstanceSnapshotCache cache = new ProcessInstanceSnapshotCache(10);
+        Date modified = new Date();
+        RuleFlowProcessInstance processInstance = new RuleFlowProcessInstance();
+        processInstance.setMetaData("key", "value");
+
+        cache.put(OWNER, 1L, 1, modified, processInstance);
+        assertTrue(processInstance.isReadOnly());
+        assertSame(processInstance, cache.get(OWNER, 1L, 1, modified));
+
+        try {
+            processInstance.setMetaData("key", "changed");
+            fail("Cached snapshot must not be changed");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            processInstance.getMetaData().put("key", "changed");
+            fail("Cached snapshot must not be changed");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            processInstance.setState(ProcessInstance.STATE_ABORTED);
+            fail("Cached snapshot must not be changed");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals("value", processInstance.getMetaData().get("key"));
+        assertEquals(ProcessInstance.STATE_PENDING, cache.get(OWNER, 1L, 1, modified).getState());
+    }
+
+    @Test
+    public void testMaxSizeChanged() {
+        ProcessInstanceSnapshotCache cache = new ProcessInstanceSnapshotCache(3);
+        for (long i = 1; i <= 3; i++) {
+            cache.put(OWNER, i, 1, null, new RuleFlowProcessInstance());
+        }
+        cache.setMaxSize(1);
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get(OWNER, 3L, 1, null));
+
+        cache.setMaxSize(0);
+        assertEquals(0, cache.size());
+        assertFalse(cache.isEnabled());
+    }
+
+    @Test
+    public void testBoundedSize() {
+        ProcessInstanceSnapshotCache cache = new ProcessInstanceSnapshotCache(2);
+        Date modified = new Date();
+
+        cache.put(OWNER, 1L, 1, modified, new RuleFlowProcessInstance());
+        cache.put(OWNER, 2L, 1, modified, new RuleFlowProcessInstance());
+        // access first one so the second one is the least recently used
+        cache.get(OWNER, 1L, 1, modified);
+        cache.put(OWNER, 3L, 1, modified, new RuleFlowProcessInstance());
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get(OWNER, 2L, 1, modified));
+
+        cache.remove(OWNER, 1L);
+        assertNull(cache.get(OWNER, 1L, 1, modified));
+    }
+
+    @Test
+    public void testDisabled() {
+        ProcessInstanceSnapshotCache cache = new ProcessInstanceSnapshotCache(0);
+
+        cache.put(OWNER, 1L, 1, null, new RuleFlowProcessInstance());
+        assertNull(cache.get(OWNER, 1L, 1, null));
+        assertEquals(0, cache.size());
+    }
+}
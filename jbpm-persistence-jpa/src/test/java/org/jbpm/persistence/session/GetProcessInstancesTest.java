@@ -26,6 +26,7 @@ import javax.naming.InitialContext;
 import javax.transaction.UserTransaction;
 
 import org.jbpm.persistence.processinstance.JPAProcessInstanceManager;
+import org.jbpm.persistence.processinstance.ProcessInstanceInfo;
 import org.jbpm.test.util.AbstractBaseTest;
 import org.junit.After;
 import org.junit.Before;
@@ -170,6 +171,21 @@ public class GetProcessInstancesTest extends AbstractBaseTest {
         assertProcessInstancesNotExist(notProcess);
     }
 
+    @Test
+    public void unchangedProcessInstanceIsNotSerializedAgain() throws Exception {
+        StatefulKnowledgeSession ksession = reloadKnowledgeSession();
+        long performed = ProcessInstanceInfo.getPerformedSerializations();
+        long processInstanceId = ksession.createProcessInstance("org.jbpm.processinstance.helloworld", null).getId();
+        assertEquals(performed + 1, ProcessInstanceInfo.getPerformedSerializations());
+
+        long skipped = ProcessInstanceInfo.getSkippedSerializations();
+        assertNotNull(ksession.getProcessInstance(processInstanceId));
+        // process instance was only read so it must not be marshalled again
+        assertEquals(skipped + 1, ProcessInstanceInfo.getSkippedSerializations());
+        assertEquals(performed + 1, ProcessInstanceInfo.getPerformedSerializations());
+        ksession.dispose();
+    }
+
    
     /**
      * Helper functions
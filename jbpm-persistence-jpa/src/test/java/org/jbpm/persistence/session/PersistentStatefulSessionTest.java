@@ -29,9 +29,14 @@ import javax.naming.InitialContext;
 import javax.transaction.UserTransaction;
 
 import org.drools.core.io.impl.ClassPathResource;
+import org.jbpm.persistence.processinstance.JPAProcessInstanceManager;
+import org.jbpm.persistence.processinstance.ProcessInstanceSnapshotCache;
 import org.jbpm.persistence.session.objects.TestWorkItemHandler;
+import org.jbpm.process.core.context.variable.VariableScope;
+import org.jbpm.process.instance.context.variable.VariableScopeInstance;
 import org.jbpm.process.instance.impl.demo.SystemOutWorkItemHandler;
 import org.jbpm.test.util.AbstractBaseTest;
+import org.jbpm.workflow.instance.impl.WorkflowProcessInstanceImpl;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -53,6 +58,7 @@ import org.kie.api.runtime.Environment;
 import org.kie.api.runtime.EnvironmentName;
 import org.kie.api.runtime.process.ProcessInstance;
 import org.kie.api.runtime.process.WorkItem;
+import org.kie.api.runtime.process.WorkflowProcessInstance;
 import org.kie.internal.KnowledgeBase;
 import org.kie.internal.KnowledgeBaseFactory;
 import org.kie.internal.builder.KnowledgeBuilder;
@@ -608,6 +614,57 @@ public class PersistentStatefulSessionTest extends AbstractBaseTest {
         assertNull( processInstance );
     }
 
+    @Test
+    public void testReadOnlyProcessInstanceSnapshotCannotBeChanged() {
+        ProcessInstanceSnapshotCache snapshotCache = JPAProcessInstanceManager.getSnapshotCache();
+        int maxSize = snapshotCache.getMaxSize();
+        snapshotCache.setMaxSize(10);
+        try {
+            KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+            kbuilder.add( new ClassPathResource( "VariablesProcess.rf" ), ResourceType.DRF );
+            KnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase();
+            kbase.addKnowledgePackages( kbuilder.getKnowledgePackages() );
+
+            StatefulKnowledgeSession ksession = JPAKnowledgeService.newStatefulKnowledgeSession( kbase, null, env );
+            long id = ksession.getIdentifier();
+
+            Map<String, Object> parameters = new HashMap<String, Object>();
+            parameters.put("name", "John Doe");
+            long processInstanceId = ksession.startProcess( "org.drools.test.TestProcess", parameters ).getId();
+            assertNotNull( TestWorkItemHandler.getInstance().getWorkItem() );
+
+            ksession = JPAKnowledgeService.loadStatefulKnowledgeSession( id, kbase, null, env );
+            WorkflowProcessInstanceImpl first = (WorkflowProcessInstanceImpl) ksession.getProcessInstance( processInstanceId, true );
+            assertEquals( "John Doe", first.getVariable( "name" ) );
+            assertTrue( first.isReadOnly() );
+            // snapshot is shared so callers must not be able to modify it
+            try {
+                ((VariableScopeInstance) first.getContextInstance( VariableScope.VARIABLE_SCOPE )).internalSetVariable( "name", "Jane Doe" );
+                fail( "Read only snapshot must not be changed" );
+            } catch (IllegalStateException e) {
+                // expected
+            }
+            try {
+                first.setState( ProcessInstance.STATE_ABORTED );
+                fail( "Read only snapshot must not be changed" );
+            } catch (IllegalStateException e) {
+                // expected
+            }
+
+            long hits = snapshotCache.getHits();
+            WorkflowProcessInstanceImpl second = (WorkflowProcessInstanceImpl) ksession.getProcessInstance( processInstanceId, true );
+            assertEquals( hits + 1, snapshotCache.getHits() );
+            assertSame( first, second );
+            assertNotNull( second.getProcess() );
+            assertEquals( ProcessInstance.STATE_ACTIVE, second.getState() );
+            assertEquals( "John Doe", second.getVariable( "name" ) );
+            assertEquals( "John Doe", ((WorkflowProcessInstance) ksession.getProcessInstance( processInstanceId )).getVariable( "name" ) );
+        } finally {
+            snapshotCache.setMaxSize(maxSize);
+            snapshotCache.clear();
+        }
+    }
+
     @Test
     public void testSetFocus() {
         String str = "";
@@ -21,6 +21,7 @@ import static org.junit.Assert.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -39,6 +40,7 @@ import javax.transaction.UserTransaction;
 
 import junit.framework.Assert;
 
+import org.drools.core.command.runtime.process.SetProcessInstanceVariablesCommand;
 import org.drools.core.impl.InternalKnowledgeBase;
 import org.drools.core.impl.KnowledgeBaseImpl;
 import org.drools.core.io.impl.ClassPathResource;
@@ -48,6 +50,7 @@ import org.drools.core.process.core.Work;
 import org.drools.core.process.core.datatype.impl.type.ObjectDataType;
 import org.drools.core.process.core.impl.WorkImpl;
 import org.drools.persistence.jpa.marshaller.JPAPlaceholderResolverStrategy;
+import org.jbpm.persistence.processinstance.ProcessInstanceInfo;
 import org.jbpm.persistence.session.objects.MyEntity;
 import org.jbpm.persistence.session.objects.MyEntityMethods;
 import org.jbpm.persistence.session.objects.MyEntityOnlyFields;
@@ -57,6 +60,8 @@ import org.jbpm.persistence.session.objects.MyVariableExtendingSerializable;
 import org.jbpm.persistence.session.objects.MyVariableSerializable;
 import org.jbpm.persistence.session.objects.TestWorkItemHandler;
 import org.jbpm.persistence.util.PersistenceUtil;
+import org.jbpm.persistence.variable.ExternalizedVariableCleanupListener;
+import org.jbpm.persistence.variable.ExternalizedVariablePersistenceStrategy;
 import org.jbpm.process.core.context.variable.Variable;
 import org.jbpm.process.instance.impl.Action;
 import org.jbpm.ruleflow.core.RuleFlowProcess;
@@ -554,6 +559,139 @@ public class VariablePersistenceStrategyTest extends AbstractBaseTest {
         assertNull(processInstance);
     }
 
+    @Test
+    public void testExternalizedVariablePersistence() throws Exception {
+        MyEntity myEntity = new MyEntity("This is a test Entity");
+        MyVariableSerializable myVariableSerializable = new MyVariableSerializable("This is a test SerializableObject");
+        EntityManager em = emf.createEntityManager();
+        UserTransaction utx = (UserTransaction) new InitialContext().lookup( "java:comp/UserTransaction" );
+        utx.begin();
+        em.joinTransaction();
+        em.persist(myEntity);
+        utx.commit();
+        em.close();
+
+        Environment env = PersistenceUtil.createEnvironment(context);
+        // low threshold so serializable variables are always stored externally
+        env.set(EnvironmentName.OBJECT_MARSHALLING_STRATEGIES, new ObjectMarshallingStrategy[]{
+                                    new JPAPlaceholderResolverStrategy(env),
+                                    new ExternalizedVariablePersistenceStrategy(env, 16),
+                                    new SerializablePlaceholderResolverStrategy( ClassObjectMarshallingStrategyAcceptor.DEFAULT  )
+                                     });
+        KnowledgeBase kbase = createKnowledgeBase( "VPSProcessWithWorkItems.rf" );
+        StatefulKnowledgeSession ksession = createSession( kbase , env);
+
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put("x", "SomeString");
+        parameters.put("y", myEntity);
+        parameters.put("z", myVariableSerializable);
+        long processInstanceId = ksession.startProcess( "com.sample.ruleflow", parameters ).getId();
+
+        TestWorkItemHandler handler = TestWorkItemHandler.getInstance();
+        WorkItem workItem = handler.getWorkItem();
+        assertNotNull( workItem );
+        assertTrue(countExternalizedVariables(processInstanceId) > 0);
+
+        ksession = reloadSession( ksession, kbase , env);
+        WorkflowProcessInstance processInstance = (WorkflowProcessInstance)
+            ksession.getProcessInstance( processInstanceId );
+        assertNotNull( processInstance );
+        assertEquals("SomeString", processInstance.getVariable("x"));
+        assertEquals("This is a test Entity", ((MyEntity) processInstance.getVariable("y")).getTest());
+        assertEquals("This is a test SerializableObject", ((MyVariableSerializable) processInstance.getVariable("z")).getText());
+
+        Map<String, Object> results = new HashMap<String, Object>();
+        results.put("zeta", processInstance.getVariable("z"));
+        results.put("equis", processInstance.getVariable("x")+"->modifiedResult");
+        ksession.getWorkItemManager().completeWorkItem( workItem.getId(),  results );
+
+        workItem = handler.getWorkItem();
+        assertNotNull( workItem );
+
+        ksession = reloadSession( ksession, kbase, env );
+        processInstance = (WorkflowProcessInstance) ksession.getProcessInstance(processInstanceId);
+        assertEquals("SomeString->modifiedResult", processInstance.getVariable("x"));
+        assertEquals("This is a new test SerializableObject", ((MyVariableSerializable) processInstance.getVariable("c")).getText());
+
+        ksession.addEventListener(new ExternalizedVariableCleanupListener());
+        for (int i = 0; i < 2; i++) {
+            results = new HashMap<String, Object>();
+            results.put("zeta", processInstance.getVariable("z"));
+            results.put("equis", processInstance.getVariable("x"));
+            ksession.getWorkItemManager().completeWorkItem( workItem.getId(),  results );
+            workItem = handler.getWorkItem();
+            if (workItem == null) {
+                break;
+            }
+            processInstance = (WorkflowProcessInstance) ksession.getProcessInstance(processInstanceId);
+        }
+        assertNull(workItem);
+        assertNull(ksession.getProcessInstance(processInstanceId));
+        // externalized variables are removed together with the process instance
+        assertEquals(0, countExternalizedVariables(processInstanceId));
+        ksession.dispose();
+    }
+
+    @Test
+    public void testExternalizedVariableRemovedWhenInlinedOrNull() throws Exception {
+        Environment env = PersistenceUtil.createEnvironment(context);
+        env.set(EnvironmentName.OBJECT_MARSHALLING_STRATEGIES, new ObjectMarshallingStrategy[]{
+                                    new ExternalizedVariablePersistenceStrategy(env, 32),
+                                    new SerializablePlaceholderResolverStrategy( ClassObjectMarshallingStrategyAcceptor.DEFAULT  )
+                                     });
+        KnowledgeBase kbase = createKnowledgeBase( "VPSProcessWithWorkItems.rf" );
+        StatefulKnowledgeSession ksession = createSession( kbase , env);
+
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put("x", "This is a string long enough to be stored externally");
+        parameters.put("z", new MyVariableSerializable("This is a test SerializableObject"));
+        long processInstanceId = ksession.startProcess( "com.sample.ruleflow", parameters ).getId();
+        assertNotNull( TestWorkItemHandler.getInstance().getWorkItem() );
+        assertEquals(2, countExternalizedVariables(processInstanceId));
+
+        ksession = reloadSession( ksession, kbase , env);
+        int version = getProcessInstanceVersion(processInstanceId);
+        // changed variable is updated in place
+        ksession.execute(new SetProcessInstanceVariablesCommand(processInstanceId,
+                Collections.<String, Object>singletonMap("x", "This is another string long enough to be stored externally")));
+        assertEquals(2, countExternalizedVariables(processInstanceId));
+        // process instance data still refer to the same row but the process instance changed
+        assertTrue(getProcessInstanceVersion(processInstanceId) > version);
+
+        // variable that is kept inline again or set to null is removed
+        Map<String, Object> variables = new HashMap<String, Object>();
+        variables.put("x", "short");
+        variables.put("z", null);
+        ksession.execute(new SetProcessInstanceVariablesCommand(processInstanceId, variables));
+        assertEquals(0, countExternalizedVariables(processInstanceId));
+
+        ksession = reloadSession( ksession, kbase , env);
+        WorkflowProcessInstance processInstance = (WorkflowProcessInstance) ksession.getProcessInstance( processInstanceId );
+        assertEquals("short", processInstance.getVariable("x"));
+        assertNull(processInstance.getVariable("z"));
+        ksession.dispose();
+    }
+
+    private long countExternalizedVariables(long processInstanceId) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("select count(v) from ExternalizedVariableInfo v where v.processInstanceId = :processInstanceId", Long.class)
+                    .setParameter("processInstanceId", processInstanceId)
+                    .getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+
+    private int getProcessInstanceVersion(long processInstanceId) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.find(ProcessInstanceInfo.class, processInstanceId).getVersion();
+        } finally {
+            em.close();
+        }
+    }
+
     @Test
     public void testEntityWithSuperClassAnnotationField() throws Exception {
     	MySubEntity subEntity = new MySubEntity();
@@ -18,9 +18,8 @@ package org.jbpm.runtime.manager.impl;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.locks.ReentrantLock;
+
+import javax.persistence.EntityManagerFactory;
 
 import org.drools.core.time.TimerService;
 import org.drools.persistence.OrderedTransactionSynchronization;
@@ -28,11 +27,13 @@ import org.drools.persistence.TransactionManager;
 import org.drools.persistence.TransactionManagerFactory;
 import org.drools.persistence.TransactionManagerHelper;
 import org.drools.persistence.TransactionSynchronization;
+import org.jbpm.process.audit.AsyncAuditLogWriter;
 import org.jbpm.process.core.timer.GlobalSchedulerService;
 import org.jbpm.process.core.timer.TimerServiceRegistry;
 import org.jbpm.process.core.timer.impl.GlobalTimerService;
 import org.jbpm.runtime.manager.api.SchedulerProvider;
 import org.jbpm.runtime.manager.impl.deploy.DeploymentDescriptorManager;
+import org.jbpm.runtime.manager.impl.lock.EngineLocks;
 import org.jbpm.services.task.impl.TaskContentRegistry;
 import org.jbpm.services.task.wih.ExternalTaskEventListener;
 import org.kie.api.event.process.ProcessEventListener;
@@ -79,6 +80,8 @@ public abstract class AbstractRuntimeManager implements InternalRuntimeManager {
     
     private static final Logger logger = LoggerFactory.getLogger(AbstractRuntimeManager.class);
 
+    private static final long AUDIT_LOG_WRITER_CLOSE_TIMEOUT = Long.parseLong(System.getProperty("org.jbpm.audit.async.close.timeout", "30000"));
+
     protected RuntimeManagerRegistry registry = RuntimeManagerRegistry.get();
     protected RuntimeEnvironment environment;
     protected DeploymentDescriptor deploymentDescriptor;
@@ -94,7 +97,7 @@ public abstract class AbstractRuntimeManager implements InternalRuntimeManager {
     
     protected SecurityManager securityManager = null;
     
-    protected ConcurrentMap<Long, ReentrantLock> engineLocks = new ConcurrentHashMap<Long, ReentrantLock>(); 
+    protected EngineLocks engineLocks = EngineLocks.create(); 
     
     public AbstractRuntimeManager(RuntimeEnvironment environment, String identifier) {
         this.environment = environment;
@@ -211,6 +214,7 @@ public abstract class AbstractRuntimeManager implements InternalRuntimeManager {
     
     public void close(boolean removeJobs) {
     	cacheManager.dispose();
+    	closeAuditLogWriter();
         environment.close();
         registry.remove(identifier);
         TimerService timerService = TimerServiceRegistry.getInstance().remove(getIdentifier() + TimerServiceRegistry.TIMER_SERVICE_SUFFIX);
@@ -227,6 +231,17 @@ public abstract class AbstractRuntimeManager implements InternalRuntimeManager {
         this.closed = true;
     }
 
+    /**
+     * Writes the audit logs still queued for asynchronous write before the entity manager factory can be closed.
+     * The writer is shared by all managers of the entity manager factory - others get a new one when they need it.
+     */
+    protected void closeAuditLogWriter() {
+        EntityManagerFactory emf = (EntityManagerFactory) environment.getEnvironment().get(EnvironmentName.ENTITY_MANAGER_FACTORY);
+        if (emf != null) {
+            AsyncAuditLogWriter.close(emf, AUDIT_LOG_WRITER_CLOSE_TIMEOUT);
+        }
+    }
+
     public org.kie.internal.runtime.manager.RuntimeEnvironment getEnvironment() {
         return (org.kie.internal.runtime.manager.RuntimeEnvironment)environment;
     }
@@ -432,18 +447,9 @@ public abstract class AbstractRuntimeManager implements InternalRuntimeManager {
         }
         
         if (id != null) {
-            ReentrantLock newLock = new ReentrantLock();
-            ReentrantLock lock = engineLocks.putIfAbsent(id, newLock);
-            if (lock == null) {
-                lock = newLock;
-                logger.debug("New lock created as it did not exist before");
-            } else {
-                logger.debug("Lock exists with {} waiting threads", lock.getQueueLength());
-            }
-            logger.debug("Trying to get a lock {} for {} by {}", lock, id, runtime);
-            lock.lock();
-            logger.debug("Lock {} taken for {} by {} for waiting threads by {}", lock, id, runtime, lock.hasQueuedThreads());
-            
+            logger.debug("Trying to get a lock for {} by {}", id, runtime);
+            engineLocks.lock(id);
+            logger.debug("Lock taken for {} by {}", id, runtime);
         }
         
     }
@@ -453,13 +459,8 @@ public abstract class AbstractRuntimeManager implements InternalRuntimeManager {
             logger.debug("Locking on runtime manager disabled");
             return;
         }
-        ReentrantLock newLock = new ReentrantLock();
-        ReentrantLock lock = engineLocks.putIfAbsent(id, newLock);
-        if (lock == null) {
-            lock = newLock;
-        }
-        lock.lock();
-        logger.debug("[on new process instance] Lock {} created and stored in list by {}", lock, runtime);
+        engineLocks.lock(id);
+        logger.debug("[on new process instance] Lock for {} taken by {}", id, runtime);
     }
     
     
@@ -480,17 +481,8 @@ public abstract class AbstractRuntimeManager implements InternalRuntimeManager {
     protected void releaseAndCleanLock(Long id, RuntimeEngine runtime) {
 
         if (id != null) {
-            ReentrantLock lock = engineLocks.get(id);
-            if (lock != null) {
-                if (!lock.hasQueuedThreads()) {
-                    logger.debug("Removing lock {} from list as non is waiting for it by {}", lock, runtime);
-                    engineLocks.remove(id);
-                }
-                if (lock.isHeldByCurrentThread()) {
-                    lock.unlock();
-                    logger.debug("{} unlocked by {}", lock, runtime);
-                }
-            }
+            engineLocks.unlock(id);
+            logger.debug("Lock for {} released by {}", id, runtime);
         }
         
     }
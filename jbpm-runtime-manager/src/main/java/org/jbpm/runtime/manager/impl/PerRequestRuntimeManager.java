@@ -21,6 +21,7 @@ import java.util.Map;
 import org.jbpm.runtime.manager.impl.factory.LocalTaskServiceFactory;
 import org.jbpm.runtime.manager.impl.tx.DestroySessionTransactionSynchronization;
 import org.jbpm.runtime.manager.impl.tx.DisposeSessionTransactionSynchronization;
+import org.jbpm.runtime.manager.impl.tx.PooledSessionTransactionSynchronization;
 import org.jbpm.services.task.impl.TaskContentRegistry;
 import org.kie.api.runtime.KieSession;
 import org.kie.api.runtime.manager.Context;
@@ -44,12 +45,18 @@ import org.kie.internal.task.api.InternalTaskService;
  * the database to avoid outdated data.  
  * <br/>
  * This implementation does not require any special <code>Context</code> to proceed.
+ * <br/>
+ * Optionally runtime engines can be pooled (see <code>RuntimeEnginePool</code>) so the <code>KieSession</code>
+ * and its registered handlers are reset and reused by subsequent requests instead of being destroyed.
  *
  */
 public class PerRequestRuntimeManager extends AbstractRuntimeManager {
 
     private SessionFactory factory;
     private TaskServiceFactory taskServiceFactory;
+
+    private RuntimeEnginePool enginePool = new RuntimeEnginePool(Integer.parseInt(System.getProperty("org.jbpm.rm.pr.pool.size", "0")),
+            Long.parseLong(System.getProperty("org.jbpm.rm.pr.pool.idle.timeout", "300000")));
     
     private static ThreadLocal<Map<String, RuntimeEngine>> local = new ThreadLocal<Map<String, RuntimeEngine>>() {
 
@@ -83,14 +90,22 @@ public class PerRequestRuntimeManager extends AbstractRuntimeManager {
         	
         	return engine;
         }
-    	if (engineInitEager) {
+        runtime = enginePool.acquire();
+        if (runtime != null) {
+            ((RuntimeEngineImpl) runtime).reuse(context, new PerRequestInitializer());
+            registerDisposeCallback(runtime, new DisposeSessionTransactionSynchronization(this, runtime));
+            registerDestroyCallback(runtime, ((RuntimeEngineImpl) runtime).internalGetKieSession());
+            if (engineInitEager) {
+                runtime.getTaskService();
+            }
+        } else if (engineInitEager) {
 	        InternalTaskService internalTaskService = (InternalTaskService) taskServiceFactory.newTaskService();	        
 	        runtime = new RuntimeEngineImpl(factory.newKieSession(), internalTaskService);
 	        ((RuntimeEngineImpl) runtime).setManager(this);
 	        
 	        configureRuntimeOnTaskService(internalTaskService, runtime);
 	        registerDisposeCallback(runtime, new DisposeSessionTransactionSynchronization(this, runtime));
-	        registerDisposeCallback(runtime, new DestroySessionTransactionSynchronization(runtime.getKieSession()));
+	        registerDestroyCallback(runtime, runtime.getKieSession());
 	        registerItems(runtime);
 	        attachManager(runtime);
     	} else {
@@ -131,6 +146,9 @@ public class PerRequestRuntimeManager extends AbstractRuntimeManager {
     	}
     	if (canDispose(runtime)) {
     	    local.get().remove(identifier);
+    	    if (enginePool.release((RuntimeEngineImpl) runtime)) {
+    	        return;
+    	    }
             try {
                 if (canDestroy(runtime)) {
                     runtime.getKieSession().destroy();
@@ -148,6 +166,15 @@ public class PerRequestRuntimeManager extends AbstractRuntimeManager {
     	}
     }
 
+    protected void registerDestroyCallback(RuntimeEngine runtime, KieSession ksession) {
+        if (enginePool.isEnabled()) {
+            // session is destroyed before completion only if there is no place for the engine in the pool
+            registerDisposeCallback(runtime, new PooledSessionTransactionSynchronization(enginePool, (RuntimeEngineImpl) runtime, ksession));
+        } else {
+            registerDisposeCallback(runtime, new DestroySessionTransactionSynchronization(ksession));
+        }
+    }
+
     @Override
     public void softDispose(RuntimeEngine runtimeEngine) {        
         super.softDispose(runtimeEngine);
@@ -164,6 +191,7 @@ public class PerRequestRuntimeManager extends AbstractRuntimeManager {
         } catch(Exception e) {
            // do nothing 
         }
+        enginePool.close();
         super.close();
         factory.close();
     }
@@ -176,6 +204,14 @@ public class PerRequestRuntimeManager extends AbstractRuntimeManager {
         this.factory = factory;
     }
 
+    public RuntimeEnginePool getEnginePool() {
+        return enginePool;
+    }
+
+    public void setEnginePool(RuntimeEnginePool enginePool) {
+        this.enginePool = enginePool;
+    }
+
     public TaskServiceFactory getTaskServiceFactory() {
         return taskServiceFactory;
     }
@@ -203,7 +239,7 @@ public class PerRequestRuntimeManager extends AbstractRuntimeManager {
     		KieSession ksession = factory.newKieSession();
     		((RuntimeEngineImpl)engine).internalSetKieSession(ksession);
     		registerDisposeCallback(engine, new DisposeSessionTransactionSynchronization(manager, engine));
-            registerDisposeCallback(engine, new DestroySessionTransactionSynchronization(ksession));
+    		registerDestroyCallback(engine, ksession);
             registerItems(engine);
             attachManager(engine);
     		return ksession;
@@ -49,6 +49,7 @@ public class RuntimeEngineImpl implements RuntimeEngine, Disposable {
     
     private boolean disposed = false;
     private boolean afterCompletion = false;
+    private boolean pooled = false;
     
     private List<DisposeListener> listeners = new CopyOnWriteArrayList<DisposeListener>();
     
@@ -65,7 +66,7 @@ public class RuntimeEngineImpl implements RuntimeEngine, Disposable {
     
     @Override
     public KieSession getKieSession() {
-        if (this.disposed) {
+        if (isDisposed()) {
             throw new IllegalStateException("This runtime is already diposed");
         }
         if (ksession == null && initializer != null) {
@@ -77,7 +78,7 @@ public class RuntimeEngineImpl implements RuntimeEngine, Disposable {
 
     @Override
     public TaskService getTaskService() {
-        if (this.disposed) {
+        if (isDisposed()) {
             throw new IllegalStateException("This runtime is already diposed");
         }
         if (taskService == null) {
@@ -94,6 +95,7 @@ public class RuntimeEngineImpl implements RuntimeEngine, Disposable {
     @Override
     public void dispose() {
         if (!this.disposed) {         
+            this.pooled = false;
             // first call listeners and then dispose itself
             for (DisposeListener listener : listeners) {
                 listener.onDispose(this);
@@ -131,7 +133,31 @@ public class RuntimeEngineImpl implements RuntimeEngine, Disposable {
     }
 
     public boolean isDisposed() {
-        return disposed;
+        return disposed || pooled;
+    }
+
+    /**
+     * Marks this runtime engine as returned to a pool - it is then considered disposed by the owning
+     * runtime manager though its <code>KieSession</code> and dispose listeners are kept for next use.
+     */
+    public void markPooled() {
+        this.pooled = true;
+    }
+
+    /**
+     * Prepares pooled runtime engine to serve next request - drops all per request services
+     * (task service and audit service) so they are created again on demand.
+     */
+    public void reuse(Context<?> context, RuntimeEngineInitlializer initializer) {
+        if (auditService != null) {
+            auditService.dispose();
+            auditService = null;
+        }
+        this.taskService = null;
+        this.context = context;
+        this.initializer = initializer;
+        this.afterCompletion = false;
+        this.pooled = false;
     }
 
 	@Override
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.runtime.manager.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.drools.core.command.impl.ExecutableCommand;
+import org.drools.core.command.impl.RegistryContext;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.FactHandle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded pool of runtime engines (and by that <code>KieSession</code>s together with their registered
+ * handlers and listeners) used by <code>PerRequestRuntimeManager</code> to avoid creating and destroying
+ * a session for every request.
+ * <br/>
+ * Each engine taken from the pool is health checked and reset - it must not have any process instances
+ * in memory and all its facts are removed. Engines that fail the check or that were idle longer than
+ * configured timeout are destroyed instead of reused.
+ * <br/>
+ * Pool is configured with following system properties:
+ * <ul>
+ *  <li>org.jbpm.rm.pr.pool.size - max number of idle engines kept in the pool, 0 (default) disables pooling</li>
+ *  <li>org.jbpm.rm.pr.pool.idle.timeout - time in milliseconds after which idle engine is evicted, defaults to 5 minutes</li>
+ * </ul>
+ * Since handlers are reused across requests they should not keep any request related state and should
+ * always look up the <code>KieSession</code> from the runtime engine they were created for.
+ * <br/>
+ * Within transaction the engine is released only after the transaction completes when its session can
+ * no longer be destroyed, so the place in the pool is reserved before completion (see {@link #reserve(RuntimeEngineImpl)})
+ * and the session is destroyed right away when the pool is full.
+ */
+public class RuntimeEnginePool {
+
+    private static final Logger logger = LoggerFactory.getLogger(RuntimeEnginePool.class);
+
+    private final int maxSize;
+    private final long idleTimeout;
+
+    private final Deque<PooledEngine> idle = new ArrayDeque<PooledEngine>();
+    private final Map<RuntimeEngineImpl, Boolean> reservations = new IdentityHashMap<RuntimeEngineImpl, Boolean>();
+    private int reserved;
+
+    public RuntimeEnginePool(int maxSize, long idleTimeout) {
+        this.maxSize = maxSize;
+        this.idleTimeout = idleTimeout;
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * Returns healthy and reset runtime engine from the pool or null if there is none available.
+     */
+    public RuntimeEngineImpl acquire() {
+        if (!isEnabled()) {
+            return null;
+        }
+        for (PooledEngine pooled : evictIdle()) {
+            destroy(pooled.engine);
+        }
+        while (true) {
+            PooledEngine pooled;
+            synchronized (idle) {
+                // most recently used engines first as they are most likely to be warmed up
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null) {
+                return null;
+            }
+            if (reset(pooled.engine)) {
+                return pooled.engine;
+            }
+            logger.debug("Runtime engine {} failed health check, destroying it", pooled.engine);
+            destroy(pooled.engine);
+        }
+    }
+
+    /**
+     * Reserves place in the pool for given runtime engine that is going to be released later on.
+     * @return true if the place was reserved, false if the pool is full - in that case the engine will
+     * not be pooled when released and the caller is responsible for destroying its session
+     */
+    public boolean reserve(RuntimeEngineImpl engine) {
+        if (!isEnabled()) {
+            return false;
+        }
+        synchronized (idle) {
+            Boolean reservation = reservations.get(engine);
+            if (reservation != null) {
+                return reservation;
+            }
+            boolean available = idle.size() + reserved < maxSize;
+            reservations.put(engine, available);
+            if (available) {
+                reserved++;
+            }
+            return available;
+        }
+    }
+
+    /**
+     * Returns runtime engine to the pool.
+     * @return true if the engine was pooled, false if the pool is full (or the engine could not get a reservation)
+     * and the engine should be disposed by the caller
+     */
+    public boolean release(RuntimeEngineImpl engine) {
+        if (!isEnabled() || engine.internalGetKieSession() == null) {
+            return false;
+        }
+        synchronized (idle) {
+            Boolean reservation = reservations.remove(engine);
+            if (reservation == null) {
+                if (idle.size() + reserved >= maxSize) {
+                    return false;
+                }
+            } else if (reservation) {
+                reserved--;
+            } else {
+                return false;
+            }
+            engine.markPooled();
+            idle.addFirst(new PooledEngine(engine, System.currentTimeMillis()));
+        }
+        return true;
+    }
+
+    public int size() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    /**
+     * Destroys all pooled runtime engines.
+     */
+    public void close() {
+        List<PooledEngine> engines;
+        synchronized (idle) {
+            engines = new ArrayList<PooledEngine>(idle);
+            idle.clear();
+        }
+        for (PooledEngine pooled : engines) {
+            destroy(pooled.engine);
+        }
+    }
+
+    protected List<PooledEngine> evictIdle() {
+        List<PooledEngine> evicted = new ArrayList<PooledEngine>();
+        if (idleTimeout <= 0) {
+            return evicted;
+        }
+        long threshold = System.currentTimeMillis() - idleTimeout;
+        synchronized (idle) {
+            Iterator<PooledEngine> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledEngine pooled = it.next();
+                // engines are ordered by release time so stop on first not expired one
+                if (pooled.releasedAt > threshold) {
+                    break;
+                }
+                it.remove();
+                evicted.add(pooled);
+            }
+        }
+        return evicted;
+    }
+
+    protected boolean reset(RuntimeEngineImpl engine) {
+        try {
+            return engine.internalGetKieSession().execute(new ExecutableCommand<Boolean>() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public Boolean execute(org.kie.api.runtime.Context context) {
+                    KieSession ksession = ((RegistryContext) context).lookup(KieSession.class);
+                    if (!ksession.getProcessInstances().isEmpty()) {
+                        return false;
+                    }
+                    for (FactHandle factHandle : new ArrayList<FactHandle>(ksession.getFactHandles())) {
+                        ksession.delete(factHandle);
+                    }
+                    return true;
+                }
+            });
+        } catch (Exception e) {
+            logger.debug("Health check of runtime engine {} failed due to {}", engine, e.getMessage());
+            return false;
+        }
+    }
+
+    protected void destroy(RuntimeEngineImpl engine) {
+        try {
+            engine.internalGetKieSession().destroy();
+        } catch (Exception e) {
+            logger.debug("Unable to destroy pooled session due to {}", e.getMessage());
+        }
+        engine.dispose();
+    }
+
+    protected static class PooledEngine {
+        private final RuntimeEngineImpl engine;
+        private final long releasedAt;
+
+        PooledEngine(RuntimeEngineImpl engine, long releasedAt) {
+            this.engine = engine;
+            this.releasedAt = releasedAt;
+        }
+    }
+}
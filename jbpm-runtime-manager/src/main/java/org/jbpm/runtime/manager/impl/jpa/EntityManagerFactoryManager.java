@@ -21,6 +21,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
 
+import org.jbpm.process.audit.AsyncAuditLogWriter;
+
 public class EntityManagerFactoryManager {
 
 	private static EntityManagerFactoryManager INSTANCE = new EntityManagerFactoryManager();
@@ -59,6 +61,8 @@ public class EntityManagerFactoryManager {
 	
 	public synchronized void clear() {
 		for (EntityManagerFactory emf : entityManagerFactories.values()) {
+			// audit logs queued for asynchronous write need the factory
+			AsyncAuditLogWriter.close(emf, 30000);
 			if (emf.isOpen()) {
 				emf.close();
 			}
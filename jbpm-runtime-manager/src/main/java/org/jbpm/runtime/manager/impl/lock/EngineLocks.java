@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.runtime.manager.impl.lock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Locks used by runtime managers to make sure that only one thread works with given context 
+ * (e.g. process instance) at a time. Following system properties configure the locks:
+ * <ul>
+ *  <li>org.jbpm.rm.lock.stripes - number of lock stripes, when greater than 0 <code>StripedEngineLocks</code> are used
+ *  otherwise (default) <code>PerContextEngineLocks</code></li>
+ *  <li>org.jbpm.rm.lock.fair - use fair locks (default false)</li>
+ *  <li>org.jbpm.rm.lock.timeout - max time in milliseconds to wait for the lock, 0 waits without limit. Defaults to 0
+ *  for <code>PerContextEngineLocks</code> and to <code>StripedEngineLocks.DEFAULT_TIMEOUT</code> for striped locks</li>
+ * </ul>
+ */
+public abstract class EngineLocks {
+
+    protected final boolean fair;
+    protected final long timeout;
+
+    protected EngineLocks(boolean fair, long timeout) {
+        this.fair = fair;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Acquires lock for given context id, blocks until the lock is available or timeout elapses.
+     * @throws IllegalStateException when lock could not be acquired within configured timeout
+     */
+    public abstract void lock(Long id);
+
+    /**
+     * Releases lock for given context id if it is held by current thread.
+     */
+    public abstract void unlock(Long id);
+
+    protected void acquire(ReentrantLock lock, Long id) {
+        acquire(lock, id, timeout);
+    }
+
+    protected void acquire(ReentrantLock lock, Long id, long timeout) {
+        if (timeout <= 0) {
+            lock.lock();
+            return;
+        }
+        try {
+            if (!lock.tryLock(timeout, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Unable to acquire lock for context " + id + " within " + timeout + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for lock for context " + id, e);
+        }
+    }
+
+    public static EngineLocks create() {
+        int stripes = Integer.parseInt(System.getProperty("org.jbpm.rm.lock.stripes", "0"));
+        boolean fair = Boolean.parseBoolean(System.getProperty("org.jbpm.rm.lock.fair", "false"));
+        String timeout = System.getProperty("org.jbpm.rm.lock.timeout");
+
+        if (stripes > 0) {
+            return new StripedEngineLocks(stripes, fair, timeout == null ? StripedEngineLocks.DEFAULT_TIMEOUT : Long.parseLong(timeout));
+        }
+        return new PerContextEngineLocks(fair, timeout == null ? 0 : Long.parseLong(timeout));
+    }
+}
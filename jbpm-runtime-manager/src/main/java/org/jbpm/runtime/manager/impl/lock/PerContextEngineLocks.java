@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.runtime.manager.impl.lock;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dedicated lock per context id, created on demand and removed once no thread holds or waits for it.
+ * Every thread counts itself as a user of the lock before it starts waiting for it, so a lock can never
+ * be removed while another thread is about to acquire it.
+ */
+public class PerContextEngineLocks extends EngineLocks {
+
+    private static final Logger logger = LoggerFactory.getLogger(PerContextEngineLocks.class);
+
+    private final Map<Long, ContextLock> locks = new HashMap<Long, ContextLock>();
+
+    public PerContextEngineLocks(boolean fair, long timeout) {
+        super(fair, timeout);
+    }
+
+    @Override
+    public void lock(Long id) {
+        ContextLock lock;
+        synchronized (locks) {
+            lock = locks.get(id);
+            if (lock == null) {
+                lock = new ContextLock(fair);
+                locks.put(id, lock);
+                logger.debug("New lock created as it did not exist before");
+            } else {
+                logger.debug("Lock exists with {} waiting threads", lock.getQueueLength());
+            }
+            lock.users++;
+        }
+        try {
+            acquire(lock, id);
+        } catch (RuntimeException e) {
+            release(id, lock);
+            throw e;
+        }
+    }
+
+    @Override
+    public void unlock(Long id) {
+        ContextLock lock;
+        synchronized (locks) {
+            lock = locks.get(id);
+        }
+        if (lock != null && lock.isHeldByCurrentThread()) {
+            lock.unlock();
+            release(id, lock);
+        }
+    }
+
+    public int size() {
+        synchronized (locks) {
+            return locks.size();
+        }
+    }
+
+    private void release(Long id, ContextLock lock) {
+        synchronized (locks) {
+            lock.users--;
+            if (lock.users == 0 && locks.get(id) == lock) {
+                logger.debug("Removing lock {} from list as non is using it", lock);
+                locks.remove(id);
+            }
+        }
+    }
+
+    private static class ContextLock extends ReentrantLock {
+
+        private static final long serialVersionUID = -2873514473562960224L;
+
+        // threads holding (once per hold) or waiting for the lock, guarded by the map of locks
+        private int users = 0;
+
+        ContextLock(boolean fair) {
+            super(fair);
+        }
+    }
+}
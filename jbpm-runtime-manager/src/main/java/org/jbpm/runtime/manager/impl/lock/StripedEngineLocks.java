@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.runtime.manager.impl.lock;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed table of locks where every context id is mapped to one of the stripes, so no locks are allocated
+ * or removed at runtime. Different contexts might share the same stripe and thus wait for each other,
+ * the more stripes the lower the chance of it.
+ * <br/>
+ * A thread may hold locks of more than one context (e.g. when new process instance is started). Such a thread
+ * waits without limit only for stripes that come after all stripes it already holds, waiting for a stripe out
+ * of that order is always limited by the timeout (<code>DEFAULT_TIMEOUT</code> when no timeout is configured),
+ * so threads that lock stripes in opposite order cannot wait for each other forever. Every thread keeps track
+ * of the contexts it holds, so releasing a context never releases a stripe held for another context.
+ */
+public class StripedEngineLocks extends EngineLocks {
+
+    public static final long DEFAULT_TIMEOUT = 60000;
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    // number of holds of every context locked by current thread
+    private final ThreadLocal<Map<Long, Integer>> held = new ThreadLocal<Map<Long, Integer>>() {
+        @Override
+        protected Map<Long, Integer> initialValue() {
+            return new HashMap<Long, Integer>();
+        }
+    };
+
+    public StripedEngineLocks(int stripes, boolean fair, long timeout) {
+        super(fair, timeout);
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock(fair);
+        }
+        this.mask = size - 1;
+    }
+
+    @Override
+    public void lock(Long id) {
+        Map<Long, Integer> contexts = held.get();
+        int stripe = stripeIndex(id);
+        ReentrantLock lock = stripes[stripe];
+        if (lock.isHeldByCurrentThread()) {
+            // same stripe as another context held by this thread, nothing to wait for
+            lock.lock();
+        } else if (holdsStripeAfter(contexts, stripe)) {
+            acquire(lock, id, timeout > 0 ? timeout : DEFAULT_TIMEOUT);
+        } else {
+            acquire(lock, id);
+        }
+        Integer holds = contexts.get(id);
+        contexts.put(id, holds == null ? 1 : holds + 1);
+    }
+
+    @Override
+    public void unlock(Long id) {
+        Map<Long, Integer> contexts = held.get();
+        Integer holds = contexts.get(id);
+        if (holds == null) {
+            // context not locked by this thread, the stripe might be held for another context
+            if (contexts.isEmpty()) {
+                held.remove();
+            }
+            return;
+        }
+        if (holds > 1) {
+            contexts.put(id, holds - 1);
+        } else {
+            contexts.remove(id);
+            if (contexts.isEmpty()) {
+                held.remove();
+            }
+        }
+        stripes[stripeIndex(id)].unlock();
+    }
+
+    public int getStripes() {
+        return stripes.length;
+    }
+
+    protected ReentrantLock stripeFor(Long id) {
+        return stripes[stripeIndex(id)];
+    }
+
+    protected int stripeIndex(Long id) {
+        int hash = id.hashCode();
+        // spread the bits so sequential ids are distributed evenly
+        hash ^= (hash >>> 16);
+        hash *= 0x85ebca6b;
+        hash ^= (hash >>> 13);
+        return hash & mask;
+    }
+
+    private boolean holdsStripeAfter(Map<Long, Integer> contexts, int stripe) {
+        for (Long id : contexts.keySet()) {
+            if (stripeIndex(id) > stripe) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
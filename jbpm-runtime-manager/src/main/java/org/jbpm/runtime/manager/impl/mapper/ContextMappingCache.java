@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.runtime.manager.impl.mapper;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded (least recently used entries are evicted first) cache of context to <code>KieSession</code> id
+ * mappings used by <code>JPAMapper</code> to avoid data base round trip for every look up of the mapping.
+ * Cache size can be configured with system property <code>org.jbpm.rm.mapping.cache.size</code>,
+ * 0 (default) disables the cache. The cache is local to the JVM, it is not invalidated when the mapping
+ * is removed by another cluster member.
+ */
+public class ContextMappingCache {
+
+    private final int maxSize;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private final Map<String, Long> mappings;
+
+    public ContextMappingCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.mappings = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            private static final long serialVersionUID = 6425340862390716541L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    public Long get(Object contextId, String ownerId) {
+        if (!isEnabled() || contextId == null) {
+            return null;
+        }
+        Long ksessionId;
+        synchronized (mappings) {
+            ksessionId = mappings.get(key(contextId, ownerId));
+        }
+        if (ksessionId != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return ksessionId;
+    }
+
+    public void put(Object contextId, String ownerId, Long ksessionId) {
+        if (!isEnabled() || contextId == null || ksessionId == null) {
+            return;
+        }
+        synchronized (mappings) {
+            mappings.put(key(contextId, ownerId), ksessionId);
+        }
+    }
+
+    public void remove(Object contextId, String ownerId) {
+        if (!isEnabled() || contextId == null) {
+            return;
+        }
+        synchronized (mappings) {
+            mappings.remove(key(contextId, ownerId));
+        }
+    }
+
+    public void clear() {
+        synchronized (mappings) {
+            mappings.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (mappings) {
+            return mappings.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return ratio of look ups served from the cache, between 0 and 1
+     */
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        if (total == 0) {
+            return 0;
+        }
+        return (double) hitCount / total;
+    }
+
+    protected String key(Object contextId, String ownerId) {
+        return ownerId + "|" + contextId;
+    }
+}
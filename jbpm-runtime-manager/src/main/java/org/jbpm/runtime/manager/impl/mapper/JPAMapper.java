@@ -25,7 +25,11 @@ import javax.persistence.NoResultException;
 import javax.persistence.NonUniqueResultException;
 import javax.persistence.Query;
 
+import org.drools.persistence.OrderedTransactionSynchronization;
+import org.drools.persistence.TransactionManager;
+import org.drools.persistence.TransactionManagerHelper;
 import org.jbpm.runtime.manager.impl.jpa.ContextMappingInfo;
+import org.jbpm.runtime.manager.impl.tx.TransactionManagerLookup;
 import org.kie.api.runtime.Environment;
 import org.kie.api.runtime.EnvironmentName;
 import org.kie.api.runtime.manager.Context;
@@ -38,26 +42,46 @@ import org.kie.internal.runtime.manager.context.ProcessInstanceIdContext;
  * Database based mapper implementation backed by JPA to store
  * the context to <code>KieSession</code> id mapping. It uses the <code>ContextMappingInfo</code>
  * entity for persistence.
+ * Mappings can additionally be kept in bounded <code>ContextMappingCache</code> so repeated look ups 
+ * of the same context do not go to data base. Mappings stored or read within active transaction are 
+ * put into the cache only after the transaction is committed so rolled back mappings are never served.
+ * The cache is disabled by default as mappings removed by other cluster members would still be served
+ * from it - enable it (system property <code>org.jbpm.rm.mapping.cache.size</code>) only when mappings
+ * are not shared across cluster members.
  * 
  * @see ContextMappingInfo
+ * @see ContextMappingCache
  *
  */
 @SuppressWarnings("rawtypes")
 public class JPAMapper extends InternalMapper {
     
 	private EntityManagerFactory emf;
+	
+	private final TransactionManagerLookup transactionManagerLookup = new TransactionManagerLookup();
+	
+	private ContextMappingCache cache = new ContextMappingCache(Integer.parseInt(System.getProperty("org.jbpm.rm.mapping.cache.size", "0")));
     
     public JPAMapper(EntityManagerFactory emf) {
         this.emf = emf;
     }
 
+    public ContextMappingCache getCache() {
+        return cache;
+    }
+
+    public void setCache(ContextMappingCache cache) {
+        this.cache = cache;
+    }
     
     @Override
     public void saveMapping(Context context, Long ksessionId, String ownerId) {
 		EntityManagerInfo info = getEntityManager(context);
 		EntityManager em = info.getEntityManager();
-		em.persist(new ContextMappingInfo(resolveContext(context, em).getContextId().toString(),
+		Object contextId = resolveContext(context, em).getContextId();
+		em.persist(new ContextMappingInfo(contextId.toString(),
 				ksessionId, ownerId));
+		cacheOnCommit(context, contextId, ownerId, ksessionId);
 
 		if (!info.isShared()) {
 			em.close();
@@ -66,12 +90,21 @@ public class JPAMapper extends InternalMapper {
 
     @Override
     public Long findMapping(Context context, String ownerId) {
+        // correlation key needs to be resolved to process instance id first so it is not served from cache
+        if (!(context instanceof CorrelationKeyContext)) {
+            Long ksessionId = cache.get(context.getContextId(), ownerId);
+            if (ksessionId != null) {
+                return ksessionId;
+            }
+        }
     	EntityManagerInfo info = getEntityManager(context);
     	EntityManager em = info.getEntityManager();
         try {
-            ContextMappingInfo contextMapping = findContextByContextId(resolveContext(context, em), ownerId, em);
+            Context resolved = resolveContext(context, em);
+            ContextMappingInfo contextMapping = findContextByContextId(resolved, ownerId, em);
      
 		    if (contextMapping != null) {
+		        cacheOnCommit(context, resolved.getContextId(), ownerId, contextMapping.getKsessionId());
 		        return contextMapping.getKsessionId();
 		    }
 		    return null;
@@ -88,7 +121,9 @@ public class JPAMapper extends InternalMapper {
     	EntityManagerInfo info = getEntityManager(context);
     	EntityManager em = info.getEntityManager();
         
-        ContextMappingInfo contextMapping = findContextByContextId(resolveContext(context, em), ownerId, em);
+        Context resolved = resolveContext(context, em);
+        evictOnCompletion(context, resolved.getContextId(), ownerId);
+        ContextMappingInfo contextMapping = findContextByContextId(resolved, ownerId, em);
         if (contextMapping != null) {
             em.remove(contextMapping);
         }
@@ -171,6 +206,67 @@ public class JPAMapper extends InternalMapper {
         }
     }
     
+    protected void cacheOnCommit(Context context, final Object contextId, final String ownerId, final Long ksessionId) {
+        if (!cache.isEnabled() || contextId == null) {
+            return;
+        }
+        TransactionManager tm = getTransactionManager(context);
+        if (tm != null && tm.getStatus() == TransactionManager.STATUS_ACTIVE) {
+            TransactionManagerHelper.registerTransactionSyncInContainer(tm, new OrderedTransactionSynchronization(5, "JPAMapper-put-" + ownerId + "-" + contextId) {
+
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == TransactionManager.STATUS_COMMITTED) {
+                        cache.put(contextId, ownerId, ksessionId);
+                    }
+                }
+            });
+        } else {
+            cache.put(contextId, ownerId, ksessionId);
+        }
+    }
+
+    protected void evictOnCompletion(Context context, final Object contextId, final String ownerId) {
+        if (!cache.isEnabled() || contextId == null) {
+            return;
+        }
+        cache.remove(contextId, ownerId);
+        TransactionManager tm = getTransactionManager(context);
+        if (tm != null && tm.getStatus() == TransactionManager.STATUS_ACTIVE) {
+            // evict again once the transaction completes as concurrent look up might have cached the mapping
+            // meanwhile, ordered after cacheOnCommit so mapping stored and removed in one transaction is not cached
+            TransactionManagerHelper.registerTransactionSyncInContainer(tm, new OrderedTransactionSynchronization(6, "JPAMapper-remove-" + ownerId + "-" + contextId) {
+
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    cache.remove(contextId, ownerId);
+                }
+            });
+        }
+    }
+
+    protected TransactionManager getTransactionManager(Context context) {
+        if (context instanceof EnvironmentAwareProcessInstanceContext) {
+            Environment env = ((EnvironmentAwareProcessInstanceContext) context).getEnvironment();
+            if (env != null) {
+                Object tm = env.get(EnvironmentName.TRANSACTION_MANAGER);
+                if (tm instanceof TransactionManager) {
+                    return (TransactionManager) tm;
+                }
+            }
+        }
+        // without transaction manager mappings are cached right away
+        return transactionManagerLookup.getTransactionManager();
+    }
+    
     private EntityManagerInfo getEntityManager(Context context) {
     	Environment env = null;
     	if (context instanceof EnvironmentAwareProcessInstanceContext){
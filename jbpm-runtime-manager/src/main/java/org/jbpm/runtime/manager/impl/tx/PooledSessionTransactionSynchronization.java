@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jbpm.runtime.manager.impl.tx;
+
+import org.jbpm.runtime.manager.impl.RuntimeEngineImpl;
+import org.jbpm.runtime.manager.impl.RuntimeEnginePool;
+import org.kie.api.runtime.KieSession;
+
+/**
+ * Transaction synchronization used instead of <code>DestroySessionTransactionSynchronization</code> when runtime
+ * engines are pooled. In the <code>beforeCompletion</code> call it reserves place in the pool for the runtime engine
+ * and only when the pool is full it destroys the <code>KieSession</code>, as the engine is going to be disposed
+ * after completion and its session would otherwise remain in the data base.
+ *
+ */
+public class PooledSessionTransactionSynchronization extends DestroySessionTransactionSynchronization {
+
+    private RuntimeEnginePool pool;
+    private RuntimeEngineImpl runtime;
+
+    public PooledSessionTransactionSynchronization(RuntimeEnginePool pool, RuntimeEngineImpl runtime, KieSession ksession) {
+        super(ksession);
+        this.pool = pool;
+        this.runtime = runtime;
+    }
+
+    @Override
+    public void beforeCompletion() {
+        if (!pool.reserve(runtime)) {
+            super.beforeCompletion();
+        }
+    }
+
+}
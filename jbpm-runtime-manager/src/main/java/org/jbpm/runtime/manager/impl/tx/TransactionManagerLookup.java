@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.runtime.manager.impl.tx;
+
+import org.drools.persistence.TransactionManager;
+import org.drools.persistence.TransactionManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Looks up transaction manager on first use and keeps it, or the fact that there is none available,
+ * so the look up is not repeated every time.
+ */
+public class TransactionManagerLookup {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionManagerLookup.class);
+
+    private volatile TransactionManager transactionManager;
+    private volatile boolean available = true;
+
+    /**
+     * @return transaction manager or null when none is available
+     */
+    public TransactionManager getTransactionManager() {
+        if (transactionManager == null && available) {
+            try {
+                transactionManager = TransactionManagerFactory.get().newTransactionManager();
+            } catch (Exception e) {
+                logger.debug("Transaction manager not available due to {}", e.getMessage());
+                available = false;
+            }
+        }
+        return transactionManager;
+    }
+}
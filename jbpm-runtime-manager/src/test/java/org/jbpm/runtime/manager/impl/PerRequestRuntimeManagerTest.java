@@ -29,6 +29,9 @@ import java.util.Map;
 import java.util.Properties;
 
 import javax.naming.InitialContext;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
 import javax.transaction.UserTransaction;
 
 import org.jbpm.runtime.manager.util.TestUtil;
@@ -129,6 +132,95 @@ public class PerRequestRuntimeManagerTest extends AbstractBaseTest {
         }
     }
     
+    @Test
+    public void testPooledSessionIsReused() {
+        RuntimeEnvironment environment = RuntimeEnvironmentBuilder.Factory.get()
+    			.newEmptyBuilder()
+                .userGroupCallback(userGroupCallback)
+                .addAsset(ResourceFactory.newClassPathResource("BPMN2-ScriptTask.bpmn2"), ResourceType.BPMN2)
+                .get();
+        
+        manager = RuntimeManagerFactory.Factory.get().newPerRequestRuntimeManager(environment);        
+        assertNotNull(manager);
+        RuntimeEnginePool pool = new RuntimeEnginePool(1, 60000);
+        ((PerRequestRuntimeManager) manager).setEnginePool(pool);
+        
+        RuntimeEngine runtime = manager.getRuntimeEngine(EmptyContext.get());
+        KieSession ksession = runtime.getKieSession();
+        long sessionId = ksession.getIdentifier();
+        ksession.insert("fact from first request");
+        ksession.startProcess("ScriptTask");
+        manager.disposeRuntimeEngine(runtime);
+        assertEquals(1, pool.size());
+        
+        runtime = manager.getRuntimeEngine(EmptyContext.get());
+        ksession = runtime.getKieSession();
+        assertEquals(0, pool.size());
+        // same session is reused but without any facts from previous request
+        assertEquals(sessionId, ksession.getIdentifier());
+        assertEquals(0, ksession.getFactCount());
+        
+        // engine in use is still returned within the same thread instead of taking one from the pool
+        RuntimeEngine other = manager.getRuntimeEngine(EmptyContext.get());
+        assertEquals(runtime, other);
+        manager.disposeRuntimeEngine(runtime);
+        assertEquals(1, pool.size());
+        
+        manager.close();
+        assertEquals(0, pool.size());
+        manager = null;
+    }
+    
+    @Test
+    public void testSessionDestroyedWhenPoolIsFullWithinTransaction() throws Exception {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("org.jbpm.persistence.jpa");
+        RuntimeEnvironment environment = RuntimeEnvironmentBuilder.Factory.get()
+    			.newDefaultBuilder()
+                .userGroupCallback(userGroupCallback)
+                .entityManagerFactory(emf)
+                .addAsset(ResourceFactory.newClassPathResource("BPMN2-ScriptTask.bpmn2"), ResourceType.BPMN2)
+                .get();
+        
+        manager = RuntimeManagerFactory.Factory.get().newPerRequestRuntimeManager(environment);        
+        assertNotNull(manager);
+        final RuntimeEnginePool pool = new RuntimeEnginePool(1, 60000);
+        ((PerRequestRuntimeManager) manager).setEnginePool(pool);
+        
+        UserTransaction ut = InitialContext.doLookup("java:comp/UserTransaction");
+        ut.begin();
+        RuntimeEngine runtime = manager.getRuntimeEngine(EmptyContext.get());
+        runtime.getKieSession().startProcess("ScriptTask");
+        
+        // other request (without transaction) fills the pool meanwhile
+        Thread other = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                RuntimeEngine otherRuntime = manager.getRuntimeEngine(EmptyContext.get());
+                otherRuntime.getKieSession().startProcess("ScriptTask");
+                manager.disposeRuntimeEngine(otherRuntime);
+            }
+        });
+        other.start();
+        other.join();
+        assertEquals(1, pool.size());
+        
+        manager.disposeRuntimeEngine(runtime);
+        ut.commit();
+        
+        // engine did not fit into the pool so its session must be removed from data base
+        assertEquals(1, pool.size());
+        EntityManager em = emf.createEntityManager();
+        assertEquals(1, em.createQuery("from SessionInfo").getResultList().size());
+        em.close();
+        
+        manager.close();
+        manager = null;
+        em = emf.createEntityManager();
+        assertEquals(0, em.createQuery("from SessionInfo").getResultList().size());
+        em.close();
+        emf.close();
+    }
+    
     @Test
     public void testCreationOfSessionWithPeristence() {
         RuntimeEnvironment environment = RuntimeEnvironmentBuilder.Factory.get()
@@ -0,0 +1,160 @@
+package org.jbpm.runtime.manager.impl.lock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class EngineLocksTest {
+
+	@Test
+	public void testPerContextLocksAreRemoved() {
+		PerContextEngineLocks locks = new PerContextEngineLocks(false, 0);
+
+		locks.lock(1L);
+		locks.lock(2L);
+		assertEquals(2, locks.size());
+
+		locks.unlock(1L);
+		locks.unlock(2L);
+		assertEquals(0, locks.size());
+	}
+
+	@Test(timeout = 10000)
+	public void testPerContextLockKeptForWaitingThread() throws Exception {
+		final PerContextEngineLocks locks = new PerContextEngineLocks(false, 0);
+		locks.lock(1L);
+
+		Thread waiting = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				locks.lock(1L);
+				locks.unlock(1L);
+			}
+		});
+		waiting.start();
+		while (waiting.getState() != Thread.State.WAITING) {
+			Thread.sleep(10);
+		}
+		locks.unlock(1L);
+		waiting.join();
+		assertEquals(0, locks.size());
+
+		// a lock that was removed is never handed out again
+		locks.lock(1L);
+		assertEquals(1, locks.size());
+		locks.unlock(1L);
+		assertEquals(0, locks.size());
+	}
+
+	@Test
+	public void testStripedUnlockKeepsStripeOfOtherContext() {
+		StripedEngineLocks locks = new StripedEngineLocks(4, false, 0);
+		long other = 2;
+		while (locks.stripeIndex(other) != locks.stripeIndex(1L)) {
+			other++;
+		}
+		locks.lock(1L);
+		// not locked by this thread, must not release the stripe held for context 1
+		locks.unlock(other);
+		assertTrue(locks.stripeFor(1L).isHeldByCurrentThread());
+
+		locks.lock(other);
+		locks.unlock(1L);
+		assertTrue(locks.stripeFor(other).isHeldByCurrentThread());
+		locks.unlock(1L);
+		assertTrue(locks.stripeFor(other).isHeldByCurrentThread());
+		locks.unlock(other);
+		assertFalse(locks.stripeFor(other).isHeldByCurrentThread());
+	}
+
+	@Test
+	public void testStripedLocksFixedSize() {
+		StripedEngineLocks locks = new StripedEngineLocks(100, false, 0);
+		// rounded up to power of two
+		assertEquals(128, locks.getStripes());
+
+		for (long i = 0; i < 1000; i++) {
+			locks.lock(i);
+			locks.unlock(i);
+		}
+		assertEquals(128, locks.getStripes());
+	}
+
+	@Test(timeout = 10000)
+	public void testStripedLockTimeout() throws Exception {
+		final StripedEngineLocks locks = new StripedEngineLocks(16, true, 200);
+		final CountDownLatch locked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		Thread holder = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				locks.lock(1L);
+				locked.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					// ignore
+				}
+				locks.unlock(1L);
+			}
+		});
+		holder.start();
+		locked.await();
+
+		try {
+			locks.lock(1L);
+			fail("Lock should not be acquired as it is held by another thread");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().contains("within 200 ms"));
+		}
+		release.countDown();
+		holder.join();
+
+		// once released it can be taken again
+		locks.lock(1L);
+		locks.unlock(1L);
+	}
+
+	@Test(timeout = 10000)
+	public void testSameContextIsExclusive() throws Exception {
+		final EngineLocks locks = new StripedEngineLocks(4, false, 0);
+		final AtomicBoolean inside = new AtomicBoolean(false);
+		final AtomicBoolean overlap = new AtomicBoolean(false);
+
+		Runnable task = new Runnable() {
+
+			@Override
+			public void run() {
+				for (int i = 0; i < 1000; i++) {
+					locks.lock(5L);
+					try {
+						if (!inside.compareAndSet(false, true)) {
+							overlap.set(true);
+						}
+						inside.set(false);
+					} finally {
+						locks.unlock(5L);
+					}
+				}
+			}
+		};
+		Thread t1 = new Thread(task);
+		Thread t2 = new Thread(task);
+		t1.start();
+		t2.start();
+		t1.join();
+		t2.join();
+
+		assertEquals(false, overlap.get());
+	}
+}
@@ -0,0 +1,51 @@
+package org.jbpm.runtime.manager.impl.mapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class ContextMappingCacheTest {
+
+	@Test
+	public void testWriteThroughAndRemove() {
+		ContextMappingCache cache = new ContextMappingCache(10);
+
+		cache.put(1L, "owner", 5L);
+		assertEquals(Long.valueOf(5L), cache.get(1L, "owner"));
+		// different owner must not see the mapping
+		assertNull(cache.get(1L, "other-owner"));
+
+		cache.remove(1L, "owner");
+		assertNull(cache.get(1L, "owner"));
+
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertEquals(1.0 / 3, cache.getHitRate(), 0.0001);
+	}
+
+	@Test
+	public void testBoundedSize() {
+		ContextMappingCache cache = new ContextMappingCache(2);
+
+		cache.put(1L, "owner", 1L);
+		cache.put(2L, "owner", 2L);
+		// access first one so the second one is the least recently used
+		cache.get(1L, "owner");
+		cache.put(3L, "owner", 3L);
+
+		assertEquals(2, cache.size());
+		assertEquals(Long.valueOf(1L), cache.get(1L, "owner"));
+		assertNull(cache.get(2L, "owner"));
+		assertEquals(Long.valueOf(3L), cache.get(3L, "owner"));
+	}
+
+	@Test
+	public void testDisabled() {
+		ContextMappingCache cache = new ContextMappingCache(0);
+
+		cache.put(1L, "owner", 1L);
+		assertNull(cache.get(1L, "owner"));
+		assertEquals(0, cache.size());
+	}
+}
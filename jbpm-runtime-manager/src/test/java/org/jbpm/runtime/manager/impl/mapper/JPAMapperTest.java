@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.runtime.manager.impl.mapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import javax.naming.InitialContext;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.transaction.UserTransaction;
+
+import org.jbpm.runtime.manager.util.TestUtil;
+import org.jbpm.test.util.AbstractBaseTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.internal.runtime.manager.context.ProcessInstanceIdContext;
+
+import bitronix.tm.resource.jdbc.PoolingDataSource;
+
+public class JPAMapperTest extends AbstractBaseTest {
+
+    private PoolingDataSource pds;
+    private EntityManagerFactory emf;
+
+    @Before
+    public void setup() {
+        pds = TestUtil.setupPoolingDataSource();
+        emf = Persistence.createEntityManagerFactory("org.jbpm.persistence.jpa");
+    }
+
+    @After
+    public void teardown() {
+        emf.close();
+        pds.close();
+    }
+
+    @Test
+    public void testCacheDisabledByDefault() throws Exception {
+        JPAMapper mapper = new JPAMapper(emf);
+        assertFalse(mapper.getCache().isEnabled());
+
+        UserTransaction ut = InitialContext.doLookup("java:comp/UserTransaction");
+        ut.begin();
+        mapper.saveMapping(ProcessInstanceIdContext.get(4L), 40L, "owner");
+        ut.commit();
+
+        assertEquals(Long.valueOf(40L), mapper.findMapping(ProcessInstanceIdContext.get(4L), "owner"));
+        assertEquals(0, mapper.getCache().size());
+    }
+
+    @Test
+    public void testRolledBackMappingIsNotCached() throws Exception {
+        JPAMapper mapper = createCachingMapper();
+
+        UserTransaction ut = InitialContext.doLookup("java:comp/UserTransaction");
+        ut.begin();
+        mapper.saveMapping(ProcessInstanceIdContext.get(1L), 10L, "owner");
+        // not visible in cache until committed
+        assertNull(mapper.getCache().get(1L, "owner"));
+        ut.rollback();
+
+        assertNull(mapper.getCache().get(1L, "owner"));
+        assertNull(mapper.findMapping(ProcessInstanceIdContext.get(1L), "owner"));
+    }
+
+    @Test
+    public void testCommittedMappingIsCached() throws Exception {
+        JPAMapper mapper = createCachingMapper();
+
+        UserTransaction ut = InitialContext.doLookup("java:comp/UserTransaction");
+        ut.begin();
+        mapper.saveMapping(ProcessInstanceIdContext.get(2L), 20L, "owner");
+        ut.commit();
+
+        assertEquals(Long.valueOf(20L), mapper.getCache().get(2L, "owner"));
+        assertEquals(Long.valueOf(20L), mapper.findMapping(ProcessInstanceIdContext.get(2L), "owner"));
+    }
+
+    @Test
+    public void testMappingSavedAndRemovedInOneTransactionIsNotCached() throws Exception {
+        JPAMapper mapper = createCachingMapper();
+
+        UserTransaction ut = InitialContext.doLookup("java:comp/UserTransaction");
+        ut.begin();
+        mapper.saveMapping(ProcessInstanceIdContext.get(3L), 30L, "owner");
+        mapper.removeMapping(ProcessInstanceIdContext.get(3L), "owner");
+        ut.commit();
+
+        assertNull(mapper.getCache().get(3L, "owner"));
+    }
+
+    private JPAMapper createCachingMapper() {
+        JPAMapper mapper = new JPAMapper(emf);
+        mapper.setCache(new ContextMappingCache(10));
+        return mapper;
+    }
+}
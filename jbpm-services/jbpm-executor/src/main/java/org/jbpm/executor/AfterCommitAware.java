@@ -0,0 +1,32 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jbpm.executor;
+
+/**
+ * Implemented by store services that take part in transactions and thus can defer actions
+ * until the data they stored is visible to others.
+ */
+public interface AfterCommitAware {
+
+    /**
+     * Runs given action once the transaction in progress is committed or right away when there is
+     * no transaction in progress. Action is not run when the transaction is rolled back.
+     * @param identifier identifier of the action - actions with the same identifier registered within
+     * one transaction are run only once
+     * @param action action to be run
+     */
+    void afterCommit(String identifier, Runnable action);
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.executor;
+
+import java.util.List;
+
+import org.kie.api.executor.RequestInfo;
+
+/**
+ * Implemented by query services that are capable of claiming more than one pending
+ * <code>RequestInfo</code> within single (locking) operation.
+ */
+public interface BatchClaimAware {
+
+    /**
+     * Locks and marks as running up to <code>batchSize</code> pending requests, ordered by priority.
+     * @param batchSize maximum number of requests to be claimed
+     * @return claimed requests or empty list if there are no requests ready to be processed
+     */
+    List<RequestInfo> getRequestsForProcessing(int batchSize);
+}
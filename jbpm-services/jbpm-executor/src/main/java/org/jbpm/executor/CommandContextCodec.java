@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.executor;
+
+import java.io.IOException;
+
+import org.kie.api.executor.CommandContext;
+import org.kie.api.executor.ExecutionResults;
+
+/**
+ * Encodes and decodes <code>CommandContext</code> (request data) and <code>ExecutionResults</code> (response data)
+ * of executor jobs. Implementations must be thread safe and must be able to decode data produced by
+ * any of the built in codecs so the codec can be changed without affecting already stored jobs.
+ */
+public interface CommandContextCodec {
+
+    byte[] encodeContext(CommandContext context) throws IOException;
+
+    CommandContext decodeContext(byte[] data, ClassLoader classLoader) throws IOException, ClassNotFoundException;
+
+    byte[] encodeResults(ExecutionResults results) throws IOException;
+
+    ExecutionResults decodeResults(byte[] data, ClassLoader classLoader) throws IOException, ClassNotFoundException;
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.executor;
+
+import java.util.Date;
+import java.util.List;
+
+import org.kie.api.executor.RequestInfo;
+
+/**
+ * Implemented by query services that are capable of claiming and inspecting pending
+ * <code>RequestInfo</code> instances within given priority range (inclusive).
+ */
+public interface PriorityLaneAware {
+
+    /**
+     * Locks and marks as running up to <code>batchSize</code> pending requests with priority within given range,
+     * ordered by priority and then by the time they were scheduled for.
+     * @param batchSize maximum number of requests to be claimed
+     * @param minPriority lowest priority (inclusive)
+     * @param maxPriority highest priority (inclusive)
+     * @return claimed requests or empty list if there are no requests ready to be processed
+     */
+    List<RequestInfo> getRequestsForProcessing(int batchSize, int minPriority, int maxPriority);
+
+    /**
+     * Returns number of requests that are ready to be processed within given priority range.
+     * @param minPriority lowest priority (inclusive)
+     * @param maxPriority highest priority (inclusive)
+     * @return number of pending requests
+     */
+    long getPendingRequestsCount(int minPriority, int maxPriority);
+
+    /**
+     * Returns time the oldest request that is ready to be processed within given priority range was scheduled for.
+     * @param minPriority lowest priority (inclusive)
+     * @param maxPriority highest priority (inclusive)
+     * @return time of the oldest pending request or null if there are no pending requests
+     */
+    Date getOldestPendingRequestTime(int minPriority, int maxPriority);
+
+    /**
+     * Returns number of requests of given deployment that are ready to be processed within given priority range.
+     * @param minPriority lowest priority (inclusive)
+     * @param maxPriority highest priority (inclusive)
+     * @param deploymentId deployment the requests belong to
+     * @return number of pending requests
+     */
+    long getPendingRequestsCount(int minPriority, int maxPriority, String deploymentId);
+
+    /**
+     * Returns time the oldest request of given deployment that is ready to be processed within given priority 
+     * range was scheduled for.
+     * @param minPriority lowest priority (inclusive)
+     * @param maxPriority highest priority (inclusive)
+     * @param deploymentId deployment the requests belong to
+     * @return time of the oldest pending request or null if there are no pending requests
+     */
+    Date getOldestPendingRequestTime(int minPriority, int maxPriority, String deploymentId);
+}
@@ -21,6 +21,7 @@ import java.util.Date;
 import javax.persistence.EntityManagerFactory;
 
 import org.jbpm.executor.impl.jpa.ExecutorJPAAuditService;
+import org.jbpm.process.audit.query.AbstractAuditDeleteBuilderImpl;
 import org.jbpm.process.core.timer.DateTimeUtils;
 import org.jbpm.runtime.manager.impl.jpa.EntityManagerFactoryManager;
 import org.kie.api.executor.Command;
@@ -29,6 +30,8 @@ import org.kie.api.executor.ExecutionResults;
 import org.kie.api.executor.Reoccurring;
 import org.kie.api.executor.STATUS;
 import org.kie.api.runtime.process.ProcessInstance;
+import org.kie.internal.query.ParametrizedBuilder;
+import org.kie.internal.query.ParametrizedUpdate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,6 +57,10 @@ import org.slf4j.LoggerFactory;
  * 	<li>OlderThanPeriod - indicated what logs should be deleted older than given time expression (valid time expression e.g. 1d, 5h, etc)</li>
  * 	<li>ForProcess - indicates logs to be deleted only for given process definition</li>
  * 	<li>ForDeployment - indicates logs to be deleted that are from given deployment id</li>
+ * 	<li>ChunkSize - enables chunked clean up - each table is cleaned in chunks of at most given number of records where every chunk 
+ * 	is deleted in its own transaction, recommended for large tables. When the clean up is interrupted the next run continues 
+ * 	with records that were not yet deleted</li>
+ * 	<li>ChunkPause - time in milliseconds to wait between chunks to throttle the load on data base - applies only to chunked clean up</li>
  * </ul>
  */
 public class LogCleanupCommand implements Command, Reoccurring {
@@ -114,6 +121,8 @@ public class LogCleanupCommand implements Command, Reoccurring {
 		String olderThanPeriod = (String)ctx.getData("OlderThanPeriod");
 		String forProcess = (String)ctx.getData("ForProcess");
 		String forDeployment = (String)ctx.getData("ForDeployment");
+		int chunkSize = ctx.getData("ChunkSize") == null ? 0 : Integer.parseInt(ctx.getData("ChunkSize").toString());
+		long chunkPause = ctx.getData("ChunkPause") == null ? 0 : Long.parseLong(ctx.getData("ChunkPause").toString());
 		
 		if (olderThanPeriod != null) {
 			long olderThanDuration = DateTimeUtils.parseDateAsDuration(olderThanPeriod);
@@ -126,20 +135,16 @@ public class LogCleanupCommand implements Command, Reoccurring {
         if (!skipTaskLog) {
             // task tables
             long taLogsRemoved = 0l;
-            taLogsRemoved = auditLogService.auditTaskDelete()
+            taLogsRemoved = executeDelete(auditLogService.auditTaskDelete()
             .processId(forProcess)      
             .dateRangeEnd(olderThan==null?null:formatToUse.parse(olderThan))
-            .deploymentId(forDeployment)
-            .build()
-            .execute();
+            .deploymentId(forDeployment), chunkSize, chunkPause);
             logger.info("TaskAuditLogRemoved {}", taLogsRemoved);
             executionResults.setData("TaskAuditLogRemoved", taLogsRemoved);
             
             long teLogsRemoved = 0l;
-            teLogsRemoved = auditLogService.taskEventInstanceLogDelete()
-            .dateRangeEnd(olderThan==null?null:formatToUse.parse(olderThan))        
-            .build()
-            .execute();
+            teLogsRemoved = executeDelete(auditLogService.taskEventInstanceLogDelete()
+            .dateRangeEnd(olderThan==null?null:formatToUse.parse(olderThan)), chunkSize, chunkPause);
             logger.info("TaskEventLogRemoved {}", teLogsRemoved);
             executionResults.setData("TaskEventLogRemoved", teLogsRemoved);
         }		
@@ -147,33 +152,27 @@ public class LogCleanupCommand implements Command, Reoccurring {
 		if (!skipProcessLog) {
 		// process tables			
 			long niLogsRemoved = 0l;
-			niLogsRemoved = auditLogService.nodeInstanceLogDelete()
+			niLogsRemoved = executeDelete(auditLogService.nodeInstanceLogDelete()
 			.processId(forProcess)
 			.dateRangeEnd(olderThan==null?null:formatToUse.parse(olderThan))
-			.externalId(forDeployment)
-			.build()
-			.execute();
+			.externalId(forDeployment), chunkSize, chunkPause);
 			logger.info("NodeInstanceLogRemoved {}", niLogsRemoved);
 			executionResults.setData("NodeInstanceLogRemoved", niLogsRemoved);
 			
 			long viLogsRemoved = 0l;
-			viLogsRemoved = auditLogService.variableInstanceLogDelete()
+			viLogsRemoved = executeDelete(auditLogService.variableInstanceLogDelete()
 			.processId(forProcess)
 			.dateRangeEnd(olderThan==null?null:formatToUse.parse(olderThan))
-			.externalId(forDeployment)
-			.build()
-			.execute();
+			.externalId(forDeployment), chunkSize, chunkPause);
 			logger.info("VariableInstanceLogRemoved {}", viLogsRemoved);
 			executionResults.setData("VariableInstanceLogRemoved", viLogsRemoved);
 			
 			long piLogsRemoved = 0l;        
-            piLogsRemoved = auditLogService.processInstanceLogDelete()
+            piLogsRemoved = executeDelete(auditLogService.processInstanceLogDelete()
             .processId(forProcess)
             .status(ProcessInstance.STATE_COMPLETED, ProcessInstance.STATE_ABORTED)
             .endDateRangeEnd(olderThan==null?null:formatToUse.parse(olderThan))
-            .externalId(forDeployment)
-            .build()
-            .execute();
+            .externalId(forDeployment), chunkSize, chunkPause);
             logger.info("ProcessInstanceLogRemoved {}", piLogsRemoved);
             executionResults.setData("ProcessInstanceLogRemoved", piLogsRemoved);
 		}
@@ -182,19 +181,15 @@ public class LogCleanupCommand implements Command, Reoccurring {
 		if (!skipExecutorLog) {
 			// executor tables	
 			long errorInfoLogsRemoved = 0l;
-			errorInfoLogsRemoved = auditLogService.errorInfoLogDeleteBuilder()		
-			.dateRangeEnd(olderThan==null?null:formatToUse.parse(olderThan))
-			.build()
-			.execute();
+			errorInfoLogsRemoved = executeDelete(auditLogService.errorInfoLogDeleteBuilder()
+			.dateRangeEnd(olderThan==null?null:formatToUse.parse(olderThan)), chunkSize, chunkPause);
 			logger.info("ErrorInfoLogsRemoved {}", errorInfoLogsRemoved);
 			executionResults.setData("ErrorInfoLogsRemoved", errorInfoLogsRemoved);
 			
 			long requestInfoLogsRemoved = 0l;
-			requestInfoLogsRemoved = auditLogService.requestInfoLogDeleteBuilder()
+			requestInfoLogsRemoved = executeDelete(auditLogService.requestInfoLogDeleteBuilder()
 			.dateRangeEnd(olderThan==null?null:formatToUse.parse(olderThan))
-			.status(STATUS.CANCELLED, STATUS.DONE, STATUS.ERROR)
-			.build()
-			.execute();
+			.status(STATUS.CANCELLED, STATUS.DONE, STATUS.ERROR), chunkSize, chunkPause);
 			logger.info("RequestInfoLogsRemoved {}", requestInfoLogsRemoved);
 			executionResults.setData("RequestInfoLogsRemoved", requestInfoLogsRemoved);
 		}
@@ -206,5 +201,12 @@ public class LogCleanupCommand implements Command, Reoccurring {
 		
         return executionResults;
 	}
+	
+	protected int executeDelete(ParametrizedBuilder<ParametrizedUpdate> deleteBuilder, int chunkSize, long chunkPause) {
+		if (chunkSize > 0 && deleteBuilder instanceof AbstractAuditDeleteBuilderImpl) {
+			return ((AbstractAuditDeleteBuilderImpl<?>) deleteBuilder).buildChunked(chunkSize, chunkPause).execute();
+		}
+		return deleteBuilder.build().execute();
+	}
 
 }
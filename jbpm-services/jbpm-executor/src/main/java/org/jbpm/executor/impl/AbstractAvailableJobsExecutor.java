@@ -16,20 +16,17 @@
 
 package org.jbpm.executor.impl;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.io.input.ClassLoaderObjectInputStream;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.jbpm.executor.CommandContextCodec;
 import org.jbpm.executor.entities.ErrorInfo;
 import org.jbpm.executor.entities.RequestInfo;
+import org.jbpm.executor.impl.codec.CommandContextCodecFactory;
 import org.jbpm.executor.impl.event.ExecutorEventSupport;
 import org.kie.api.executor.Command;
 import org.kie.api.executor.CommandCallback;
@@ -39,6 +36,7 @@ import org.kie.api.executor.ExecutorQueryService;
 import org.kie.api.executor.ExecutorStoreService;
 import org.kie.api.executor.Reoccurring;
 import org.kie.api.executor.STATUS;
+import org.kie.internal.runtime.manager.CacheManager;
 import org.kie.internal.runtime.manager.InternalRuntimeManager;
 import org.kie.internal.runtime.manager.RuntimeManagerRegistry;
 import org.slf4j.Logger;
@@ -64,6 +62,12 @@ public abstract class AbstractAvailableJobsExecutor {
     protected ExecutorStoreService executorStoreService;
     
     protected ExecutorEventSupport eventSupport = new ExecutorEventSupport();
+    
+    protected CommandContextCodec codec = CommandContextCodecFactory.get();
+
+    public void setCodec(CommandContextCodec codec) {
+        this.codec = codec;
+    }
 
     public void setEventSupport(ExecutorEventSupport eventSupport) {
         this.eventSupport = eventSupport;
@@ -97,17 +101,11 @@ public abstract class AbstractAvailableJobsExecutor {
                     logger.debug("Processing Request Id: {}, status {} command {}", request.getId(), request.getStatus(), request.getCommandName());
                     byte[] reqData = request.getRequestData();
                     if (reqData != null) {
-                        ObjectInputStream in = null;
                         try {
-                            in = new ClassLoaderObjectInputStream(cl, new ByteArrayInputStream(reqData));
-                            ctx = (CommandContext) in.readObject();
+                            ctx = codec.decodeContext(reqData, cl);
                         } catch (IOException e) {                        
                             logger.warn("Exception while serializing context data", e);
                             return;
-                        } finally {
-                            if (in != null) {
-                                in.close();
-                            }
                         }
                     }
                     if (request.getResponseData() == null) {                        
@@ -119,7 +117,7 @@ public abstract class AbstractAvailableJobsExecutor {
                         ctx.setData("ClassLoader", cl);
                         
                         
-                        cmd = classCacheManager.findCommand(request.getCommandName(), cl);
+                        cmd = classCacheManager.findCommand(request.getCommandName(), getCacheManager(request.getDeploymentId()), cl);
                         results = cmd.execute(ctx);
                       
                         
@@ -127,10 +125,7 @@ public abstract class AbstractAvailableJobsExecutor {
                             results = new ExecutionResults();
                         }
                         try {
-                            ByteArrayOutputStream bout = new ByteArrayOutputStream();
-                            ObjectOutputStream out = new ObjectOutputStream(bout);
-                            out.writeObject(results);
-                            byte[] respData = bout.toByteArray();
+                            byte[] respData = codec.encodeResults(results);
                             request.setResponseData(respData);
                         } catch (IOException e) {
                             request.setResponseData(null);
@@ -145,17 +140,11 @@ public abstract class AbstractAvailableJobsExecutor {
                         logger.debug("Job was already successfully executed, retrying callbacks only...");
                         byte[] resData = request.getResponseData();
                         if (resData != null) {
-                            ObjectInputStream in = null;
                             try {
-                                in = new ClassLoaderObjectInputStream(cl, new ByteArrayInputStream(resData));
-                                results = (ExecutionResults) in.readObject();
+                                results = codec.decodeResults(resData, cl);
                             } catch (IOException e) {                        
                                 logger.warn("Exception while serializing response data", e);
                                 return;
-                            } finally {
-                                if (in != null) {
-                                    in.close();
-                                }
                             }
                         }
                         request.setStatus(STATUS.DONE);
@@ -205,6 +194,19 @@ public abstract class AbstractAvailableJobsExecutor {
         return cl;
     }
     
+    protected CacheManager getCacheManager(String deploymentId) {
+        if (deploymentId == null) {
+            return null;
+        }
+        
+        InternalRuntimeManager manager = ((InternalRuntimeManager)RuntimeManagerRegistry.get().getManager(deploymentId));
+        if (manager != null) {
+            return manager.getCacheManager();
+        }
+        
+        return null;
+    }
+    
     public void addContextData(String name, Object data) {
     	this.contextData.put(name, data);
     }
@@ -286,10 +288,7 @@ public abstract class AbstractAvailableJobsExecutor {
                         // remove transient data
                         ctx.getData().remove("ClassLoader");
                         
-                        ByteArrayOutputStream bout = new ByteArrayOutputStream();
-                        ObjectOutputStream oout = new ObjectOutputStream(bout);
-                        oout.writeObject(ctx);
-                        requestInfo.setRequestData(bout.toByteArray());
+                        requestInfo.setRequestData(codec.encodeContext(ctx));
                     } catch (IOException e) {
                         logger.warn("Error serializing context data", e);
                         requestInfo.setRequestData(null);
@@ -16,7 +16,14 @@
 
 package org.jbpm.executor.impl;
 
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.jbpm.executor.BatchClaimAware;
+import org.jbpm.executor.PriorityLaneAware;
 import org.jbpm.executor.entities.RequestInfo;
+import org.kie.api.executor.STATUS;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,23 +31,133 @@ import org.slf4j.LoggerFactory;
  * Heart of the executor component - executes the actual tasks.
  * Handles retries and error management. Based on results of execution notifies
  * defined callbacks about the execution results.
- *
+ * <br/>
+ * By default single request is claimed on each wake up. Batch claiming can be enabled with following:
+ * <ul>
+ *  <li>batch size - default 1 (disabled) - use system property org.kie.executor.batch.size</li>
+ *  <li>claim timeout - default 60000 milliseconds - use system property org.kie.executor.batch.claim.timeout</li>
+ * </ul>
+ * Requests claimed in batch are handed over to worker executor if configured, otherwise they are executed one after
+ * another by the claiming thread. Those that could not be started within claim timeout are put back to the queue 
+ * so other executor threads can pick them up.
  */
 public class AvailableJobsExecutor extends AbstractAvailableJobsExecutor {
 
     private static final Logger logger = LoggerFactory.getLogger(AvailableJobsExecutor.class);
     
+    protected int batchSize = Integer.parseInt(System.getProperty("org.kie.executor.batch.size", "1"));
+    protected long claimTimeout = Long.parseLong(System.getProperty("org.kie.executor.batch.claim.timeout", "60000"));
+    
+    private Executor workerExecutor;
+    
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+    
+    public void setClaimTimeout(long claimTimeout) {
+        this.claimTimeout = claimTimeout;
+    }
+    
+    public void setWorkerExecutor(Executor workerExecutor) {
+        this.workerExecutor = workerExecutor;
+    }
+    
     public void executeJob() {
+        executeAvailableJobs();
+    }
+    
+    /**
+     * Claims and executes jobs that are ready to be processed.
+     * @return number of jobs that were claimed for execution, 0 when nothing was available
+     */
+    public int executeAvailableJobs() {
+        return executeAvailableJobs(null);
+    }
+    
+    /**
+     * Claims and executes jobs that are ready to be processed and belong to given priority lane.
+     * @param lane priority lane to claim jobs from, null means any priority
+     * @return number of jobs that were claimed for execution, 0 when nothing was available
+     */
+    public int executeAvailableJobs(PriorityLane lane) {
         logger.debug("Executor Thread {} Waking Up!!!", this.toString());
         try {
+            int claimSize = getClaimSize();
+            if (lane != null && queryService instanceof PriorityLaneAware) {
+                int claimed = executeJobs(((PriorityLaneAware) queryService).getRequestsForProcessing(claimSize, lane.getMinPriority(), lane.getMaxPriority()));
+                lane.claimed(claimed);
+                
+                return claimed;
+            }
+            if ((claimSize > 1 || workerExecutor instanceof ConcurrencyLimitedExecutor) && queryService instanceof BatchClaimAware) {
+                return executeJobs(((BatchClaimAware) queryService).getRequestsForProcessing(claimSize));
+            }
             RequestInfo request = (RequestInfo) queryService.getRequestForProcessing();
             if (request != null) {
             	executeGivenJob(request);
+            	return 1;
             }
         } catch (Exception e) {
             logger.warn("Unexpected error while processin executor's job {}", e.getMessage(), e);
         }
+        return 0;
+    }
+    
+    protected int getClaimSize() {
+        if (workerExecutor instanceof ConcurrencyLimitedExecutor) {
+            // claim only as many jobs as can be started right away
+            int available = Math.max(1, ((ConcurrencyLimitedExecutor) workerExecutor).availablePermits());
+            
+            return batchSize > 1 ? Math.min(batchSize, available) : available;
+        }
+        return batchSize;
+    }
+    
+    protected int executeJobs(List<org.kie.api.executor.RequestInfo> requests) {
+        if (requests == null || requests.isEmpty()) {
+            return 0;
+        }
+        logger.debug("Claimed {} requests for processing", requests.size());
+        final long claimedAt = System.currentTimeMillis();
+        for (org.kie.api.executor.RequestInfo claimed : requests) {
+            final RequestInfo request = (RequestInfo) claimed;
+            
+            if (workerExecutor == null) {
+                executeClaimedJob(request, claimedAt);
+                continue;
+            }
+            try {
+                workerExecutor.execute(new Runnable() {
+                    
+                    @Override
+                    public void run() {
+                        executeClaimedJob(request, claimedAt);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                logger.debug("Worker executor rejected request {}, returning it to the queue", request.getId());
+                releaseRequest(request);
+            }
+        }
+        return requests.size();
+    }
+    
+    protected void executeClaimedJob(RequestInfo request, long claimedAt) {
+        if (claimTimeout > 0 && System.currentTimeMillis() - claimedAt > claimTimeout) {
+            logger.debug("Claim of request {} expired before it was started, returning it to the queue", request.getId());
+            releaseRequest(request);
+            return;
+        }
+        executeGivenJob(request);
+    }
+    
+    protected void releaseRequest(RequestInfo request) {
+        try {
+            request.setStatus(STATUS.QUEUED);
+            executorStoreService.updateRequest(request);
+        } catch (Exception e) {
+            logger.warn("Unable to return request {} to the queue due to {}", request.getId(), e.getMessage(), e);
+        }
     }
-
 
 }
@@ -18,20 +18,28 @@ package org.jbpm.executor.impl;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.kie.api.executor.Command;
 import org.kie.api.executor.CommandCallback;
 import org.kie.api.executor.CommandContext;
 import org.kie.internal.runtime.Cacheable;
 import org.kie.internal.runtime.Closeable;
+import org.kie.internal.runtime.manager.CacheManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Simple cache to keep classes of commands and callback to not attempt to load them every time.
+ * Simple cache to keep instances of commands to not attempt to load them every time.
+ * Commands of a deployment are kept in the cache of the deployment's runtime manager
+ * (see <code>findCommand(String, CacheManager, ClassLoader)</code>) so they are released together with
+ * the runtime manager once the deployment is undeployed and never keep its class loader alive.
+ * Other commands are kept per class loader in this cache manager, lookups do not require any locking.
+ * Callbacks are not cached - new instance is created for every execution as callbacks are not required
+ * to be thread safe.
  *
  */
 
@@ -39,78 +47,91 @@ public class ClassCacheManager {
     
     private static final Logger logger = LoggerFactory.getLogger(ClassCacheManager.class);
     
-    private final Map<String, Command> commandCache = new HashMap<String, Command>();
-    private final Map<String, CommandCallback> callbackCache = new HashMap<String, CommandCallback>();  
+    private static final String COMMAND_KEY_PREFIX = "executor-command:";
+    
+    private final ConcurrentMap<ClassLoader, ConcurrentMap<String, Command>> commandCache = new ConcurrentHashMap<ClassLoader, ConcurrentMap<String, Command>>();
 
     /**
      * Finds command by FQCN and if not found loads the class and store the instance in
-     * the cache.
+     * the cache of given class loader.
      * @param name - fully qualified class name of the command
      * @return initialized class instance
      */
     public Command findCommand(String name, ClassLoader cl) {
-        synchronized (commandCache) {
-            
-            if (!commandCache.containsKey(name)) {
-                
-                try {
-                    Command commandInstance = (Command) Class.forName(name, true, cl).newInstance();
-                    commandCache.put(name, commandInstance);
-                } catch (Exception ex) {
-                    throw new IllegalArgumentException("Unknown Command implementation with name '" + name + "'");
-                }
-    
-            } else {
-                Command cmd = commandCache.get(name);
-                if (!cmd.getClass().getClassLoader().equals(cl)) {
-                    commandCache.remove(name);
-                    try {
-                        Command commandInstance = (Command) Class.forName(name, true, cl).newInstance();
-                        commandCache.put(name, commandInstance);
-                    } catch (Exception ex) {
-                        throw new IllegalArgumentException("Unknown Command implementation with name '" + name + "'");
-                    } 
-                }
-            }
+        return findInstance(commandCache, Command.class, name, cl);
+    }
 
-       
+    /**
+     * Finds command by FQCN in the cache of a deployment and if not found loads the class and stores
+     * the instance in that cache. Falls back to <code>findCommand(String, ClassLoader)</code> when there
+     * is no deployment cache.
+     * @param name - fully qualified class name of the command
+     * @param deploymentCache - cache of the runtime manager of the deployment the command belongs to
+     * @return initialized class instance
+     */
+    public Command findCommand(String name, CacheManager deploymentCache, ClassLoader cl) {
+        if (deploymentCache == null) {
+            return findCommand(name, cl);
         }
-        return commandCache.get(name);
+        String key = COMMAND_KEY_PREFIX + name;
+        Command command = (Command) deploymentCache.get(key);
+        if (command == null) {
+            command = newInstance(Command.class, name, cl);
+            deploymentCache.add(key, command);
+        }
+        return command;
     }
 
     /**
-     * Finds command callback by FQCN and if not found loads the class and store the instance in
-     * the cache.
+     * Loads command callback by FQCN and creates new instance of it.
      * @param name - fully qualified class name of the command callback
      * @return initialized class instance
      */
     public CommandCallback findCommandCallback(String name, ClassLoader cl) {
-        synchronized (callbackCache) {
-            
-            if (!callbackCache.containsKey(name)) {
-                try {
-                    CommandCallback commandCallbackInstance = (CommandCallback) Class.forName(name, true, cl).newInstance();
-                    return commandCallbackInstance;
-                    //                            callbackCache.put(name, commandCallbackInstance);
-                } catch (Exception ex) {
-                    throw new IllegalArgumentException("Unknown Command implementation with name '" + name + "'");
-                }
+        if (cl == null) {
+            cl = ClassCacheManager.class.getClassLoader();
+        }
+        try {
+            return (CommandCallback) Class.forName(name, true, cl).newInstance();
+        } catch (Exception ex) {
+            throw new IllegalArgumentException("Unknown Command implementation with name '" + name + "'");
+        }
+    }
 
-            } else {
-                CommandCallback cmdCallback = callbackCache.get(name);
-                if (!cmdCallback.getClass().getClassLoader().equals(cl)) {
-                    callbackCache.remove(name);
-                    try {
-                        CommandCallback commandCallbackInstance = (CommandCallback) Class.forName(name, true, cl).newInstance();
-                        callbackCache.put(name, commandCallbackInstance);
-                    } catch (Exception ex) {
-                        throw new IllegalArgumentException("Unknown Command implementation with name '" + name + "'");
-                    }
-                }
+    protected <T> T findInstance(ConcurrentMap<ClassLoader, ConcurrentMap<String, T>> cache, Class<T> type, String name, ClassLoader cl) {
+        if (cl == null) {
+            cl = ClassCacheManager.class.getClassLoader();
+        }
+        ConcurrentMap<String, T> instances = cache.get(cl);
+        if (instances == null) {
+            instances = new ConcurrentHashMap<String, T>();
+            ConcurrentMap<String, T> existing = cache.putIfAbsent(cl, instances);
+            if (existing != null) {
+                instances = existing;
+            }
+        }
+        T instance = instances.get(name);
+        if (instance == null) {
+            instance = newInstance(type, name, cl);
+            T existing = instances.putIfAbsent(name, instance);
+            if (existing != null) {
+                // other thread was faster, use its instance
+                closeInstance(instance);
+                instance = existing;
             }
+        }
+        return instance;
+    }
 
+    protected <T> T newInstance(Class<T> type, String name, ClassLoader cl) {
+        if (cl == null) {
+            cl = ClassCacheManager.class.getClassLoader();
+        }
+        try {
+            return type.cast(Class.forName(name, true, cl).newInstance());
+        } catch (Exception ex) {
+            throw new IllegalArgumentException("Unknown Command implementation with name '" + name + "'");
         }
-        return callbackCache.get(name);
     }
 
     /**
@@ -144,18 +165,32 @@ public class ClassCacheManager {
     	}
     }
         
+    /**
+     * Removes all cached instances that were loaded by given class loader.
+     * @param cl class loader of the deployment that is no longer available
+     */
+    public void evict(ClassLoader cl) {
+        if (cl == null) {
+            return;
+        }
+        closeInstances(commandCache.remove(cl));
+        logger.debug("Evicted commands loaded by {}", cl);
+    }
+
     public void dispose() {
-    	if (commandCache != null) {
-    		for (Object command : commandCache.values()) {
-    			closeInstance(command);
-    		}
-    	}
-    	
-    	if (callbackCache != null) {
-    		for (Object callback : callbackCache.values()) {
-    			closeInstance(callback);
-    		}
-    	}
+        for (Map<String, Command> commands : commandCache.values()) {
+            closeInstances(commands);
+        }
+        commandCache.clear();
+    }
+
+    protected void closeInstances(Map<String, ?> instances) {
+        if (instances == null) {
+            return;
+        }
+        for (Object instance : instances.values()) {
+            closeInstance(instance);
+        }
     }
 
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.executor.impl;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes every job on its own thread and limits number of jobs running at the same time
+ * instead of number of threads. When running on JVM that supports virtual threads
+ * (and they are not disabled) each job gets a virtual thread so jobs blocked on I/O do not
+ * occupy platform threads, otherwise unbounded cached thread pool is used.
+ * When concurrency limit is reached <code>execute</code> blocks the caller until one of the
+ * running jobs completes.
+ */
+public class ConcurrencyLimitedExecutor implements Executor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitedExecutor.class);
+
+    private final Semaphore permits;
+    private final ExecutorService delegate;
+    private final int limit;
+
+    public ConcurrencyLimitedExecutor(int limit, boolean virtualThreads, ThreadFactory threadFactory) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Concurrency limit must be greater than 0");
+        }
+        this.limit = limit;
+        this.permits = new Semaphore(limit);
+        this.delegate = createExecutorService(virtualThreads, threadFactory);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for free execution slot", e);
+        }
+        try {
+            delegate.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        command.run();
+                    } finally {
+                        permits.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public void shutdown() {
+        delegate.shutdown();
+        try {
+            if (!delegate.awaitTermination(5, TimeUnit.SECONDS)) {
+                delegate.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            delegate.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    protected ExecutorService createExecutorService(boolean virtualThreads, ThreadFactory threadFactory) {
+        if (virtualThreads) {
+            try {
+                Method factoryMethod = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                logger.info("Executor jobs will run on virtual threads with concurrency limit {}", limit);
+                return (ExecutorService) factoryMethod.invoke(null);
+            } catch (NoSuchMethodException e) {
+                logger.info("Virtual threads are not supported by this JVM, executor jobs will run on platform threads");
+            } catch (Exception e) {
+                logger.warn("Unable to create virtual thread executor due to {}, executor jobs will run on platform threads", e.getMessage());
+            }
+        }
+        if (threadFactory != null) {
+            return Executors.newCachedThreadPool(threadFactory);
+        }
+        return Executors.newCachedThreadPool();
+    }
+}
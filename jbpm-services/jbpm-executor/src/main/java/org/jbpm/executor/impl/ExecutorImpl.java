@@ -16,12 +16,11 @@
 
 package org.jbpm.executor.impl;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -38,8 +37,11 @@ import javax.jms.TextMessage;
 import javax.naming.InitialContext;
 
 import org.drools.core.time.TimeUtils;
+import org.jbpm.executor.AfterCommitAware;
+import org.jbpm.executor.CommandContextCodec;
 import org.jbpm.executor.ExecutorNotStartedException;
 import org.jbpm.executor.entities.RequestInfo;
+import org.jbpm.executor.impl.codec.CommandContextCodecFactory;
 import org.jbpm.executor.impl.event.ExecutorEventSupport;
 import org.kie.api.executor.CommandContext;
 import org.kie.api.executor.ExecutorStoreService;
@@ -56,7 +58,21 @@ import org.slf4j.LoggerFactory;
  *  <li>thread pool size - default 1 - use system property org.kie.executor.pool.size</li>
  *  <li>retry count - default 3 retries - use system property org.kie.executor.retry.count</li>
  *  <li>execution interval - default 3 seconds - use system property org.kie.executor.interval</li>
+ *  <li>codec of jobs' data - default java - use system property org.kie.executor.codec, see <code>CommandContextCodecFactory</code></li>
+ *  <li>batch size - default 1 - use system property org.kie.executor.batch.size</li>
+ *  <li>claim timeout of batched requests - default 60000 milliseconds - use system property org.kie.executor.batch.claim.timeout</li>
  * </ul>
+ * Instead of fixed rate polling executor threads can be driven by events (org.kie.executor.wakeup set to true) - 
+ * then jobs scheduled on this node wake up idle executor thread directly, executor threads keep on executing jobs
+ * as long as there are any available and back off when there is nothing to do. Back off starts at 
+ * org.kie.executor.wakeup.min.delay (default 100 milliseconds) and grows up to execution interval so 
+ * polling remains only as fallback for jobs scheduled by other nodes.
+ * Executor threads can be split into priority lanes (org.kie.executor.lanes) where each lane has dedicated threads
+ * that only execute jobs within given priority range, see <code>PriorityLane</code> for details. When lanes are 
+ * configured thread pool size is given by the sum of the lanes' threads.
+ * When org.kie.executor.concurrency.limit is set executor threads only claim jobs and each job is executed 
+ * on its own (virtual if supported by the JVM and org.kie.executor.virtual.threads is not set to false) thread, 
+ * with at most given number of jobs running at the same time. This mode does not apply to priority lanes.
  * Additionally executor can be disable to not start at all when system property org.kie.executor.disabled is 
  * set to true
  * Executor can be used with JMS as the medium to notify about jobs to be executed instead of relying strictly 
@@ -83,6 +99,19 @@ public class ExecutorImpl implements Executor {
     private int initialDelay = Integer.parseInt(System.getProperty("org.kie.executor.initial.delay", "100"));
     private TimeUnit timeunit = TimeUnit.valueOf(System.getProperty("org.kie.executor.timeunit", "SECONDS"));
     
+    // event driven executor threads
+    private boolean wakeup = Boolean.parseBoolean(System.getProperty("org.kie.executor.wakeup", "false"));
+    private long wakeupMinDelay = Long.parseLong(System.getProperty("org.kie.executor.wakeup.min.delay", "100"));
+    private List<ExecutorWorker> workers = new CopyOnWriteArrayList<ExecutorWorker>();
+    
+    // jobs executed on dedicated (virtual) threads limited by concurrency instead of thread pool size
+    private int concurrencyLimit = Integer.parseInt(System.getProperty("org.kie.executor.concurrency.limit", "0"));
+    private boolean virtualThreads = Boolean.parseBoolean(System.getProperty("org.kie.executor.virtual.threads", "true"));
+    private ConcurrencyLimitedExecutor jobExecutor;
+    
+    // priority lanes with dedicated executor threads
+    private List<PriorityLane> lanes = PriorityLane.parse(System.getProperty("org.kie.executor.lanes"));
+    
     
     // jms related instances
     private boolean useJMS = Boolean.parseBoolean(System.getProperty("org.kie.executor.jms", "true"));
@@ -95,6 +124,8 @@ public class ExecutorImpl implements Executor {
 	private ScheduledExecutorService scheduler;
 	
 	private ExecutorEventSupport eventSupport = new ExecutorEventSupport();
+	
+	private CommandContextCodec codec = CommandContextCodecFactory.get();
 
     public ExecutorImpl() {
     }
@@ -103,6 +134,10 @@ public class ExecutorImpl implements Executor {
         this.eventSupport = eventSupport;
     }
     
+    public void setCodec(CommandContextCodec codec) {
+        this.codec = codec;
+    }
+    
     public void setExecutorStoreService(ExecutorStoreService executorStoreService) {
 		this.executorStoreService = executorStoreService;
 	}
@@ -193,6 +228,30 @@ public class ExecutorImpl implements Executor {
         this.threadPoolSize = threadPoolSize;
     }
     
+    public int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+    
+    public void setConcurrencyLimit(int concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+    
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+    
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+    
+    public List<PriorityLane> getPriorityLanes() {
+        return lanes;
+    }
+    
+    public void setPriorityLanes(List<PriorityLane> lanes) {
+        this.lanes = PriorityLane.coverAllPriorities(lanes);
+    }
+    
     /**
      * {@inheritDoc}
      */
@@ -216,18 +275,11 @@ public class ExecutorImpl implements Executor {
                     + " \t - Interval: {} {} \n" + " \t - Retries per Request: {}\n",
                     threadPoolSize, interval, timeunit.toString(), retries);
             
-            int delayIncremental = 0;
-            
-            scheduler = Executors.newScheduledThreadPool(threadPoolSize);
-            for (int i = 0; i < threadPoolSize; i++) {
-                long delay = 2000 + delayIncremental;
-                long interval = TimeUnit.MILLISECONDS.convert(this.interval, timeunit);
-                logger.debug("Starting executor thread with initial delay {} interval {} and time unit {}", delay, interval, TimeUnit.MILLISECONDS);
-                handle.add(scheduler.scheduleAtFixedRate(executorStoreService.buildExecutorRunnable(), delay, interval, TimeUnit.MILLISECONDS));
-                               
-                delayIncremental += this.initialDelay;
-                
+            scheduler = Executors.newScheduledThreadPool(getTotalThreadPoolSize());
+            if (concurrencyLimit > 0) {
+                jobExecutor = new ConcurrencyLimitedExecutor(concurrencyLimit, virtualThreads, null);
             }
+            startExecutorThreads();
             
             if (useJMS) {
                 try {
@@ -257,23 +309,102 @@ public class ExecutorImpl implements Executor {
                     + " \t - Interval: {}" + " Seconds\n" + " \t - Retries per Request: {}\n",
                     threadPoolSize, interval, retries);
             
-            int delayIncremental = 0;
-            
-            scheduler = Executors.newScheduledThreadPool(threadPoolSize, threadFactory);
+            scheduler = Executors.newScheduledThreadPool(getTotalThreadPoolSize(), threadFactory);
+            if (concurrencyLimit > 0) {
+                // managed threads are required when thread factory is given so virtual threads are not used
+                jobExecutor = new ConcurrencyLimitedExecutor(concurrencyLimit, false, threadFactory);
+            }
+            startExecutorThreads();
+        } else {
+        	throw new ExecutorNotStartedException();
+        }
+    }
+    
+    protected int getTotalThreadPoolSize() {
+        if (lanes.isEmpty()) {
+            return threadPoolSize;
+        }
+        int total = 0;
+        for (PriorityLane lane : lanes) {
+            total += lane.getThreads();
+        }
+        return total;
+    }
+    
+    protected void startExecutorThreads() {
+        long interval = TimeUnit.MILLISECONDS.convert(this.interval, timeunit);
+        int delayIncremental = 0;
+        
+        if (lanes.isEmpty()) {
             for (int i = 0; i < threadPoolSize; i++) {
-                
-                long delay = 2000 + delayIncremental;
-                long interval = TimeUnit.MILLISECONDS.convert(this.interval, timeunit);
-                logger.debug("Starting executor thread with initial delay {} interval {} and time unit {}", delay, interval, TimeUnit.MILLISECONDS);
-                handle.add(scheduler.scheduleAtFixedRate(executorStoreService.buildExecutorRunnable(), delay, interval, TimeUnit.MILLISECONDS));
-                
+                startExecutorThread(null, 2000 + delayIncremental, interval);
+                delayIncremental += this.initialDelay;
+            }
+            return;
+        }
+        for (PriorityLane lane : lanes) {
+            logger.info("Starting {} executor thread(s) for lane {} serving priorities {}-{}", lane.getThreads(), lane.getName(), lane.getMinPriority(), lane.getMaxPriority());
+            for (int i = 0; i < lane.getThreads(); i++) {
+                startExecutorThread(lane, 2000 + delayIncremental, interval);
                 delayIncremental += this.initialDelay;
             }
+        }
+    }
+    
+    protected void startExecutorThread(PriorityLane lane, long delay, long interval) {
+        logger.debug("Starting executor thread with initial delay {} interval {} and time unit {}", delay, interval, TimeUnit.MILLISECONDS);
+        Runnable runnable = buildExecutorRunnable();
+        if (lane != null) {
+            if (!(runnable instanceof ExecutorRunnable)) {
+                throw new IllegalStateException("Priority lanes are not supported by executor runnable " + runnable);
+            }
+            ((ExecutorRunnable) runnable).setLane(lane);
+        }
+        if (wakeup && runnable instanceof ExecutorRunnable) {
+            ExecutorWorker worker = new ExecutorWorker((ExecutorRunnable) runnable, scheduler, wakeupMinDelay, interval);
+            workers.add(worker);
+            worker.start(delay);
         } else {
-        	throw new ExecutorNotStartedException();
+            handle.add(scheduler.scheduleAtFixedRate(runnable, delay, interval, TimeUnit.MILLISECONDS));
+        }
+    }
+    
+    protected void wakeUpWorkerAfterCommit(final int priority) {
+        Runnable wakeUp = new Runnable() {
+            
+            @Override
+            public void run() {
+                wakeUpWorker(priority);
+            }
+        };
+        if (executorStoreService instanceof AfterCommitAware) {
+            // job becomes visible to executor threads only once the transaction that scheduled it is committed
+            ((AfterCommitAware) executorStoreService).afterCommit("wakeup-" + priority, wakeUp);
+        } else {
+            wakeUp.run();
         }
     }
     
+    protected void wakeUpWorker(int priority) {
+        for (ExecutorWorker worker : workers) {
+            if (worker.accepts(priority) && worker.wakeUp()) {
+                return;
+            }
+        }
+    }
+    
+    protected Runnable buildExecutorRunnable() {
+        Runnable runnable = executorStoreService.buildExecutorRunnable();
+        if (runnable instanceof ExecutorRunnable && lanes.isEmpty()) {
+            // requests claimed in batches are handed over to dedicated job threads when concurrency limit is set,
+            // otherwise (and with lanes as each lane must execute on its own threads) they are executed inline by
+            // the claiming executor thread - scheduler's threads run the pollers so claimed jobs must not queue there
+            ((ExecutorRunnable) runnable).setWorkerExecutor(jobExecutor);
+        }
+        
+        return runnable;
+    }
+    
     /**
      * {@inheritDoc}
      */
@@ -284,9 +415,17 @@ public class ExecutorImpl implements Executor {
         		h.cancel(false);
         	}
         }
+        for (ExecutorWorker worker : workers) {
+            worker.stop();
+        }
+        workers.clear();
         if (scheduler != null) {
             scheduler.shutdownNow();
         }
+        if (jobExecutor != null) {
+            jobExecutor.shutdown();
+            jobExecutor = null;
+        }
     }
 
     /**
@@ -347,10 +486,7 @@ public class ExecutorImpl implements Executor {
         
         if (ctx != null) {
             try {
-                ByteArrayOutputStream bout = new ByteArrayOutputStream();
-                ObjectOutputStream oout = new ObjectOutputStream(bout);
-                oout.writeObject(ctx);
-                requestInfo.setRequestData(bout.toByteArray());
+                requestInfo.setRequestData(codec.encodeContext(ctx));
             } catch (IOException e) {
                 logger.warn("Error serializing context data", e);
                 requestInfo.setRequestData(null);
@@ -371,6 +507,9 @@ public class ExecutorImpl implements Executor {
                 } else {
                     logger.debug("JMS message not sent for job {} as the job should not be executed immediately but at {}", requestInfo.getId(), date);
                 }
+            } else if (!workers.isEmpty() && System.currentTimeMillis() >= date.getTime()) {
+                // wake up idle executor thread of this node to pick up the job without waiting for next poll
+                wakeUpWorkerAfterCommit(priority);
             }
             
             logger.debug("Scheduled request for Command: {} - requestId: {} with {} retries", commandId, requestInfo.getId(), requestInfo.getRetries());
@@ -16,6 +16,8 @@
 
 package org.jbpm.executor.impl;
 
+import java.util.concurrent.Executor;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,14 +33,41 @@ public class ExecutorRunnable implements Runnable {
 
     private AvailableJobsExecutor availableJobsExecutor;       
     
+    private PriorityLane lane;
+    
     public void setAvailableJobsExecutor(AvailableJobsExecutor availableJobsExecutor) {
 		this.availableJobsExecutor = availableJobsExecutor;
 	}
+    
+    public void setLane(PriorityLane lane) {
+        this.lane = lane;
+    }
+    
+    public PriorityLane getLane() {
+        return lane;
+    }
+    
+    public void setWorkerExecutor(Executor workerExecutor) {
+        this.availableJobsExecutor.setWorkerExecutor(workerExecutor);
+    }
+
+    /**
+     * Executes jobs that are ready to be processed.
+     * @return number of jobs that were picked up for execution
+     */
+    public int executeAvailableJobs() {
+        logger.debug("About to execute available jobs...");
+        
+        return this.availableJobsExecutor.executeAvailableJobs(lane);
+    }
 
     public void run() {
     	try {
     		logger.debug("About to execute jobs...");
-    		
+    		if (lane != null) {
+    		    this.availableJobsExecutor.executeAvailableJobs(lane);
+    		    return;
+    		}
     		this.availableJobsExecutor.executeJob();
     	} catch (Exception e) {
     		logger.warn("Error while executing jobs due to {}", e.getMessage());
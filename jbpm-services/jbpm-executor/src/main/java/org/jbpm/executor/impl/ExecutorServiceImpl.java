@@ -16,6 +16,7 @@
 
 package org.jbpm.executor.impl;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -23,6 +24,7 @@ import java.util.concurrent.TimeUnit;
 import org.jbpm.executor.AsynchronousJobListener;
 import org.jbpm.executor.ExecutorNotStartedException;
 import org.jbpm.executor.ExecutorServiceFactory;
+import org.jbpm.executor.PriorityLaneAware;
 import org.jbpm.executor.RequeueAware;
 import org.jbpm.executor.impl.event.ExecutorEventSupport;
 import org.kie.api.executor.CommandContext;
@@ -307,6 +309,57 @@ public class ExecutorServiceImpl implements ExecutorService, RequeueAware {
         return queryService.getFutureQueuedRequests(queryContext);
     }
 
+    /**
+     * Returns priority lanes configured for the executor, empty list if lanes are not used.
+     */
+    public List<PriorityLane> getPriorityLanes() {
+        if (executor instanceof ExecutorImpl) {
+            return ((ExecutorImpl) executor).getPriorityLanes();
+        }
+        return Collections.emptyList();
+    }
+    
+    /**
+     * Returns number of jobs that are ready to be executed by given lane.
+     */
+    public long getQueueDepth(PriorityLane lane) {
+        return getPriorityLaneAwareQueryService().getPendingRequestsCount(lane.getMinPriority(), lane.getMaxPriority());
+    }
+    
+    /**
+     * Returns number of jobs of given deployment that are ready to be executed by given lane.
+     */
+    public long getQueueDepth(PriorityLane lane, String deploymentId) {
+        return getPriorityLaneAwareQueryService().getPendingRequestsCount(lane.getMinPriority(), lane.getMaxPriority(), deploymentId);
+    }
+    
+    /**
+     * Returns for how long (in milliseconds) the oldest job that is ready to be executed by given lane is waiting, 
+     * 0 if there are no jobs waiting.
+     */
+    public long getWaitTime(PriorityLane lane) {
+        return getWaitTime(lane, null);
+    }
+    
+    /**
+     * Returns for how long (in milliseconds) the oldest job of given deployment that is ready to be executed by 
+     * given lane is waiting, 0 if there are no jobs waiting. Null deployment id means jobs of all deployments.
+     */
+    public long getWaitTime(PriorityLane lane, String deploymentId) {
+        Date oldest = getPriorityLaneAwareQueryService().getOldestPendingRequestTime(lane.getMinPriority(), lane.getMaxPriority(), deploymentId);
+        if (oldest == null) {
+            return 0;
+        }
+        return Math.max(0, System.currentTimeMillis() - oldest.getTime());
+    }
+    
+    protected PriorityLaneAware getPriorityLaneAwareQueryService() {
+        if (!(queryService instanceof PriorityLaneAware)) {
+            throw new UnsupportedOperationException("Query service " + queryService + " does not support priority lanes");
+        }
+        return (PriorityLaneAware) queryService;
+    }
+    
     public void addAsyncJobListener(AsynchronousJobListener listener) {
         this.eventSupport.addEventListener(listener);
     }
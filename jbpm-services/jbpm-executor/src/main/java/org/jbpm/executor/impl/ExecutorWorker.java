@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.executor.impl;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor thread that is driven by events instead of fixed rate polling. Worker keeps on
+ * executing jobs as long as there are any available and when the queue is empty it backs off
+ * by doubling its delay starting from <code>minDelay</code> up to <code>maxDelay</code> (the poll interval)
+ * which serves as fallback to pick up jobs scheduled by other cluster members.
+ * Idle worker can be woken up at any time with <code>wakeUp</code> method, signals received while the worker
+ * is running are kept pending so the worker checks for jobs once more instead of backing off.
+ * <br/>
+ * There is at most one pending run of the worker at a time. Every run is scheduled as its own
+ * <code>ScheduledRun</code> that executes only if it is still the pending one, so a run that was replaced
+ * (e.g. cancelled by wake up after it had already started) never executes jobs nor schedules another run.
+ */
+public class ExecutorWorker implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutorWorker.class);
+
+    private final ExecutorRunnable executorRunnable;
+    private final ScheduledExecutorService scheduler;
+    private final long minDelay;
+    private final long maxDelay;
+
+    // pending run, guarded by this
+    private ScheduledRun next;
+    private final AtomicBoolean signalled = new AtomicBoolean(false);
+    private volatile boolean active = true;
+    private volatile long currentDelay;
+
+    public ExecutorWorker(ExecutorRunnable executorRunnable, ScheduledExecutorService scheduler, long minDelay, long maxDelay) {
+        this.executorRunnable = executorRunnable;
+        this.scheduler = scheduler;
+        this.minDelay = Math.min(minDelay, maxDelay);
+        this.maxDelay = maxDelay;
+        this.currentDelay = this.minDelay;
+    }
+
+    public void start(long initialDelay) {
+        schedule(initialDelay);
+    }
+
+    public synchronized void stop() {
+        active = false;
+        if (next != null) {
+            next.cancel();
+            next = null;
+        }
+    }
+
+    /**
+     * Checks if this worker executes jobs of given priority.
+     * @param priority priority of the job
+     * @return true if worker is not bound to any lane or its lane covers given priority
+     */
+    public boolean accepts(int priority) {
+        PriorityLane lane = executorRunnable.getLane();
+        
+        return lane == null || (priority >= lane.getMinPriority() && priority <= lane.getMaxPriority());
+    }
+
+    /**
+     * Signals this worker that new job is available.
+     * @return true if the worker was idle and got woken up, false if it is already running - the signal is then
+     * kept pending and consumed by the running worker
+     */
+    public boolean wakeUp() {
+        signalled.set(true);
+        synchronized (this) {
+            if (next == null) {
+                return false;
+            }
+            logger.debug("Waking up idle executor worker {}", this);
+            next.cancel();
+            next = null;
+            currentDelay = minDelay;
+            schedule(0);
+            return true;
+        }
+    }
+
+    @Override
+    public void run() {
+        if (!active) {
+            return;
+        }
+        try {
+            int executed;
+            do {
+                signalled.set(false);
+                executed = executorRunnable.executeAvailableJobs();
+                if (executed > 0) {
+                    currentDelay = minDelay;
+                }
+            } while (active && (executed > 0 || signalled.get()));
+
+            currentDelay = Math.min(currentDelay * 2, maxDelay);
+        } catch (Exception e) {
+            logger.warn("Error while executing jobs due to {}", e.getMessage());
+            currentDelay = maxDelay;
+        } finally {
+            schedule(currentDelay);
+        }
+    }
+
+    protected synchronized void schedule(long delay) {
+        if (!active) {
+            return;
+        }
+        if (signalled.get()) {
+            // signalled after the last check for jobs - wake up signal found no pending run to cancel
+            currentDelay = minDelay;
+            delay = 0;
+        }
+        try {
+            logger.debug("Next run of executor worker {} in {} ms", this, delay);
+            ScheduledRun run = new ScheduledRun();
+            // the run cannot start before it is set as pending one as it needs the monitor of this worker first
+            run.future = scheduler.schedule(run, delay, TimeUnit.MILLISECONDS);
+            next = run;
+        } catch (RejectedExecutionException e) {
+            logger.debug("Executor worker {} not rescheduled as scheduler has been shut down", this);
+        }
+    }
+
+    private class ScheduledRun implements Runnable {
+
+        private ScheduledFuture<?> future;
+
+        @Override
+        public void run() {
+            synchronized (ExecutorWorker.this) {
+                if (next != this) {
+                    // replaced by another run in the meantime
+                    return;
+                }
+                next = null;
+            }
+            ExecutorWorker.this.run();
+        }
+
+        void cancel() {
+            future.cancel(false);
+        }
+    }
+}
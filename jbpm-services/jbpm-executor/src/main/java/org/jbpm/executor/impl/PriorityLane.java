@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.executor.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Band of request priorities that is served by dedicated executor threads so low priority
+ * jobs cannot starve the high priority ones (and the other way around).
+ * Lanes are configured with system property <code>org.kie.executor.lanes</code> as comma separated
+ * list of <code>name:minPriority-maxPriority:threads</code> e.g. <code>high:7-9:2,normal:3-6:2,low:0-2:1</code>
+ * <br/>
+ * Priorities (0-9) not covered by any of the configured lanes are served by implicit lane named
+ * <code>default</code> with single thread (one per uncovered range) so their jobs are still executed.
+ */
+public class PriorityLane {
+
+    public static final String DEFAULT_LANE = "default";
+
+    private final String name;
+    private final int minPriority;
+    private final int maxPriority;
+    private final int threads;
+
+    private final AtomicLong claimedRequests = new AtomicLong();
+
+    public PriorityLane(String name, int minPriority, int maxPriority, int threads) {
+        if (minPriority < 0 || maxPriority > 9 || minPriority > maxPriority) {
+            throw new IllegalArgumentException("Invalid priority range " + minPriority + "-" + maxPriority + " of lane " + name);
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Lane " + name + " must have at least one thread");
+        }
+        this.name = name;
+        this.minPriority = minPriority;
+        this.maxPriority = maxPriority;
+        this.threads = threads;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMinPriority() {
+        return minPriority;
+    }
+
+    public int getMaxPriority() {
+        return maxPriority;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getClaimedRequests() {
+        return claimedRequests.get();
+    }
+
+    public void claimed(int count) {
+        claimedRequests.addAndGet(count);
+    }
+
+    public static List<PriorityLane> parse(String configuration) {
+        List<PriorityLane> lanes = new ArrayList<PriorityLane>();
+        if (configuration == null || configuration.trim().isEmpty()) {
+            return lanes;
+        }
+        for (String laneDefinition : configuration.split(",")) {
+            String[] elements = laneDefinition.trim().split(":");
+            if (elements.length != 3) {
+                throw new IllegalArgumentException("Invalid lane definition '" + laneDefinition + "', expected name:minPriority-maxPriority:threads");
+            }
+            String[] range = elements[1].split("-");
+            int min = Integer.parseInt(range[0].trim());
+            int max = range.length > 1 ? Integer.parseInt(range[1].trim()) : min;
+
+            lanes.add(new PriorityLane(elements[0].trim(), min, max, Integer.parseInt(elements[2].trim())));
+        }
+        return coverAllPriorities(lanes);
+    }
+
+    /**
+     * Returns given lanes extended with <code>default</code> lane (with single thread) for every range of
+     * priorities that is not covered by any of them. Empty list (no lanes) is returned as is.
+     */
+    public static List<PriorityLane> coverAllPriorities(List<PriorityLane> lanes) {
+        if (lanes == null || lanes.isEmpty()) {
+            return lanes;
+        }
+        boolean[] covered = new boolean[10];
+        for (PriorityLane lane : lanes) {
+            for (int priority = lane.getMinPriority(); priority <= lane.getMaxPriority(); priority++) {
+                covered[priority] = true;
+            }
+        }
+        List<PriorityLane> complete = new ArrayList<PriorityLane>(lanes);
+        int priority = 0;
+        while (priority < covered.length) {
+            if (covered[priority]) {
+                priority++;
+                continue;
+            }
+            int min = priority;
+            while (priority < covered.length && !covered[priority]) {
+                priority++;
+            }
+            complete.add(new PriorityLane(DEFAULT_LANE, min, priority - 1, 1));
+        }
+        return complete;
+    }
+
+    @Override
+    public String toString() {
+        return "PriorityLane [name=" + name + ", priorities=" + minPriority + "-" + maxPriority + ", threads=" + threads + "]";
+    }
+}
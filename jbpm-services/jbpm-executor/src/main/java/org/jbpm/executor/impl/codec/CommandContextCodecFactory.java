@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.executor.impl.codec;
+
+import org.jbpm.executor.CommandContextCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provides <code>CommandContextCodec</code> configured with system property <code>org.kie.executor.codec</code>:
+ * <ul>
+ *  <li>java - default - <code>JavaSerializationCodec</code>, stored data stays readable by previous versions</li>
+ *  <li>compact - <code>CompactCommandContextCodec</code>, opt-in as data it stores cannot be read by previous
+ *  versions (e.g. during rolling upgrade) nor by other code reading the data with java serialization</li>
+ *  <li>fully qualified class name of custom codec implementation</li>
+ * </ul>
+ */
+public class CommandContextCodecFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommandContextCodecFactory.class);
+
+    static final CommandContextCodec COMPACT = new CompactCommandContextCodec();
+    static final CommandContextCodec JAVA = new JavaSerializationCodec();
+
+    private static final CommandContextCodec codec = create(System.getProperty("org.kie.executor.codec", "java"));
+
+    public static CommandContextCodec get() {
+        return codec;
+    }
+
+    public static CommandContextCodec create(String name) {
+        if (name == null || "java".equalsIgnoreCase(name)) {
+            return JAVA;
+        }
+        if ("compact".equalsIgnoreCase(name)) {
+            return COMPACT;
+        }
+        try {
+            return (CommandContextCodec) Class.forName(name, true, CommandContextCodecFactory.class.getClassLoader()).newInstance();
+        } catch (Exception e) {
+            logger.warn("Unable to create executor codec {} due to {}, using default one", name, e.getMessage());
+            return JAVA;
+        }
+    }
+}
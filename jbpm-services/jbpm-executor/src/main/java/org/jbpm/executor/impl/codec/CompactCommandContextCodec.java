@@ -0,0 +1,349 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.executor.impl.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jbpm.executor.CommandContextCodec;
+import org.kie.api.executor.CommandContext;
+import org.kie.api.executor.ExecutionResults;
+
+/**
+ * Compact binary codec for executor data. Data map of the context/results is written entry by entry
+ * with dedicated encoding of the most common types (strings, numbers, booleans, dates, byte arrays and
+ * array lists and hash maps of these) while all other values are written with java serialization.
+ * <br/>
+ * Format: <code>MAGIC VERSION KIND</code> followed by either the entries (<code>count (key value)*</code>)
+ * or java serialized object when given context/results is a subclass that might carry additional state.
+ * Data that does not start with the magic byte is considered java serialized and decoded as such.
+ */
+public class CompactCommandContextCodec implements CommandContextCodec {
+
+    static final byte MAGIC = (byte) 0xCC;
+    static final byte VERSION = 1;
+
+    private static final byte KIND_ENTRIES = 0;
+    private static final byte KIND_SERIALIZED = 1;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INTEGER = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_FLOAT = 5;
+    private static final byte TYPE_SHORT = 6;
+    private static final byte TYPE_BYTE = 7;
+    private static final byte TYPE_BOOLEAN = 8;
+    private static final byte TYPE_CHARACTER = 9;
+    private static final byte TYPE_DATE = 10;
+    private static final byte TYPE_BYTES = 11;
+    private static final byte TYPE_LIST = 12;
+    private static final byte TYPE_MAP = 13;
+    private static final byte TYPE_LINKED_MAP = 14;
+    private static final byte TYPE_BIG_DECIMAL = 15;
+    private static final byte TYPE_BIG_INTEGER = 16;
+    private static final byte TYPE_SERIALIZED = 17;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    public static boolean isCompact(byte[] data) {
+        return data != null && data.length > 1 && data[0] == MAGIC;
+    }
+
+    @Override
+    public byte[] encodeContext(CommandContext context) throws IOException {
+        if (context.getClass() != CommandContext.class) {
+            return encodeSerialized(context);
+        }
+        return encodeEntries(context.getData());
+    }
+
+    @Override
+    public CommandContext decodeContext(byte[] data, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+        if (!isCompact(data)) {
+            return (CommandContext) JavaSerializationCodec.deserialize(data, classLoader);
+        }
+        DataInputStream in = open(data);
+        if (in.readByte() == KIND_SERIALIZED) {
+            return (CommandContext) readSerialized(in, classLoader);
+        }
+        CommandContext context = new CommandContext();
+        int size = readVarInt(in);
+        for (int i = 0; i < size; i++) {
+            context.setData((String) readValue(in, classLoader), readValue(in, classLoader));
+        }
+        return context;
+    }
+
+    @Override
+    public byte[] encodeResults(ExecutionResults results) throws IOException {
+        if (results.getClass() != ExecutionResults.class) {
+            return encodeSerialized(results);
+        }
+        return encodeEntries(results.getData());
+    }
+
+    @Override
+    public ExecutionResults decodeResults(byte[] data, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+        if (!isCompact(data)) {
+            return (ExecutionResults) JavaSerializationCodec.deserialize(data, classLoader);
+        }
+        DataInputStream in = open(data);
+        if (in.readByte() == KIND_SERIALIZED) {
+            return (ExecutionResults) readSerialized(in, classLoader);
+        }
+        ExecutionResults results = new ExecutionResults();
+        int size = readVarInt(in);
+        for (int i = 0; i < size; i++) {
+            results.setData((String) readValue(in, classLoader), readValue(in, classLoader));
+        }
+        return results;
+    }
+
+    protected byte[] encodeEntries(Map<String, Object> data) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bout);
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(KIND_ENTRIES);
+        writeVarInt(out, data.size());
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            writeValue(out, entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+        out.flush();
+        return bout.toByteArray();
+    }
+
+    protected byte[] encodeSerialized(Object object) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bout);
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(KIND_SERIALIZED);
+        writeSerialized(out, object);
+        out.flush();
+        return bout.toByteArray();
+    }
+
+    protected DataInputStream open(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        in.readByte();
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported version " + version + " of executor data");
+        }
+        return in;
+    }
+
+    protected void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+            return;
+        }
+        Class<?> type = value.getClass();
+        if (type == String.class) {
+            out.writeByte(TYPE_STRING);
+            writeString(out, (String) value);
+        } else if (type == Integer.class) {
+            out.writeByte(TYPE_INTEGER);
+            writeVarLong(out, zigZag((Integer) value));
+        } else if (type == Long.class) {
+            out.writeByte(TYPE_LONG);
+            writeVarLong(out, zigZag((Long) value));
+        } else if (type == Boolean.class) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (type == Double.class) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (type == Float.class) {
+            out.writeByte(TYPE_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (type == Short.class) {
+            out.writeByte(TYPE_SHORT);
+            out.writeShort((Short) value);
+        } else if (type == Byte.class) {
+            out.writeByte(TYPE_BYTE);
+            out.writeByte((Byte) value);
+        } else if (type == Character.class) {
+            out.writeByte(TYPE_CHARACTER);
+            out.writeChar((Character) value);
+        } else if (type == Date.class) {
+            out.writeByte(TYPE_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (type == byte[].class) {
+            out.writeByte(TYPE_BYTES);
+            writeVarInt(out, ((byte[]) value).length);
+            out.write((byte[]) value);
+        } else if (type == BigDecimal.class) {
+            out.writeByte(TYPE_BIG_DECIMAL);
+            writeString(out, value.toString());
+        } else if (type == BigInteger.class) {
+            out.writeByte(TYPE_BIG_INTEGER);
+            writeString(out, value.toString());
+        } else if (type == ArrayList.class) {
+            List<?> list = (List<?>) value;
+            out.writeByte(TYPE_LIST);
+            writeVarInt(out, list.size());
+            for (Object element : list) {
+                writeValue(out, element);
+            }
+        } else if (type == HashMap.class || type == LinkedHashMap.class) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(type == HashMap.class ? TYPE_MAP : TYPE_LINKED_MAP);
+            writeVarInt(out, map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(out, entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        } else {
+            out.writeByte(TYPE_SERIALIZED);
+            writeSerialized(out, value);
+        }
+    }
+
+    protected Object readValue(DataInputStream in, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_STRING:
+                return readString(in);
+            case TYPE_INTEGER:
+                return (int) unZigZag(readVarLong(in));
+            case TYPE_LONG:
+                return unZigZag(readVarLong(in));
+            case TYPE_BOOLEAN:
+                return in.readBoolean();
+            case TYPE_DOUBLE:
+                return in.readDouble();
+            case TYPE_FLOAT:
+                return in.readFloat();
+            case TYPE_SHORT:
+                return in.readShort();
+            case TYPE_BYTE:
+                return in.readByte();
+            case TYPE_CHARACTER:
+                return in.readChar();
+            case TYPE_DATE:
+                return new Date(in.readLong());
+            case TYPE_BYTES:
+                byte[] bytes = new byte[readVarInt(in)];
+                in.readFully(bytes);
+                return bytes;
+            case TYPE_BIG_DECIMAL:
+                return new BigDecimal(readString(in));
+            case TYPE_BIG_INTEGER:
+                return new BigInteger(readString(in));
+            case TYPE_LIST:
+                int listSize = readVarInt(in);
+                List<Object> list = new ArrayList<Object>(listSize);
+                for (int i = 0; i < listSize; i++) {
+                    list.add(readValue(in, classLoader));
+                }
+                return list;
+            case TYPE_MAP:
+            case TYPE_LINKED_MAP:
+                int mapSize = readVarInt(in);
+                Map<Object, Object> map = type == TYPE_MAP ? new HashMap<Object, Object>(mapSize * 2) : new LinkedHashMap<Object, Object>(mapSize * 2);
+                for (int i = 0; i < mapSize; i++) {
+                    map.put(readValue(in, classLoader), readValue(in, classLoader));
+                }
+                return map;
+            case TYPE_SERIALIZED:
+                return readSerialized(in, classLoader);
+            default:
+                throw new IOException("Unknown type " + type + " found in executor data");
+        }
+    }
+
+    protected void writeSerialized(DataOutputStream out, Object value) throws IOException {
+        byte[] serialized = JavaSerializationCodec.serialize(value);
+        writeVarInt(out, serialized.length);
+        out.write(serialized);
+    }
+
+    protected Object readSerialized(DataInputStream in, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+        byte[] serialized = new byte[readVarInt(in)];
+        in.readFully(serialized);
+        return JavaSerializationCodec.deserialize(serialized, classLoader);
+    }
+
+    protected void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    protected String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    protected static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    protected static int readVarInt(DataInputStream in) throws IOException {
+        return (int) readVarLong(in);
+    }
+
+    protected static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    protected static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        while (shift < 64) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+        throw new IOException("Malformed variable length number in executor data");
+    }
+
+    protected static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    protected static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.executor.impl.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.apache.commons.io.input.ClassLoaderObjectInputStream;
+import org.jbpm.executor.CommandContextCodec;
+import org.kie.api.executor.CommandContext;
+import org.kie.api.executor.ExecutionResults;
+
+/**
+ * Codec that relies on plain java serialization - format used by executor before codecs were introduced.
+ */
+public class JavaSerializationCodec implements CommandContextCodec {
+
+    @Override
+    public byte[] encodeContext(CommandContext context) throws IOException {
+        return serialize(context);
+    }
+
+    @Override
+    public CommandContext decodeContext(byte[] data, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+        if (CompactCommandContextCodec.isCompact(data)) {
+            return CommandContextCodecFactory.COMPACT.decodeContext(data, classLoader);
+        }
+        return (CommandContext) deserialize(data, classLoader);
+    }
+
+    @Override
+    public byte[] encodeResults(ExecutionResults results) throws IOException {
+        return serialize(results);
+    }
+
+    @Override
+    public ExecutionResults decodeResults(byte[] data, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+        if (CompactCommandContextCodec.isCompact(data)) {
+            return CommandContextCodecFactory.COMPACT.decodeResults(data, classLoader);
+        }
+        return (ExecutionResults) deserialize(data, classLoader);
+    }
+
+    public static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bout);
+        try {
+            out.writeObject(object);
+        } finally {
+            out.close();
+        }
+        return bout.toByteArray();
+    }
+
+    public static Object deserialize(byte[] data, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+        ObjectInputStream in = new ClassLoaderObjectInputStream(classLoader, new ByteArrayInputStream(data));
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -17,6 +17,8 @@
 package org.jbpm.executor.impl.jpa;
 
 import org.drools.core.command.impl.ExecutableCommand;
+import org.jbpm.executor.BatchClaimAware;
+import org.jbpm.executor.PriorityLaneAware;
 import org.jbpm.shared.services.impl.JpaPersistenceContext;
 import org.jbpm.shared.services.impl.QueryManager;
 import org.kie.api.executor.ErrorInfo;
@@ -29,6 +31,7 @@ import org.kie.api.runtime.query.QueryContext;
 import org.kie.internal.executor.api.ExecutorQueryService;
 
 import javax.persistence.NoResultException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -41,7 +44,7 @@ import java.util.Map;
  * IMPORTANT: please keep all classes from package org.jbpm.shared.services.impl as FQCN
  * inside method body to avoid exception logged by CDI when used with in memory mode
  */
-public class ExecutorQueryServiceImpl implements ExecutorQueryService {
+public class ExecutorQueryServiceImpl implements ExecutorQueryService, BatchClaimAware, PriorityLaneAware {
 
     private CommandExecutor commandService;
    
@@ -212,6 +215,83 @@ public class ExecutorQueryServiceImpl implements ExecutorQueryService {
         return request;
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<RequestInfo> getRequestsForProcessing(int batchSize) {
+        
+        // claim all requests of the batch within single transaction to save round trips to data base
+        return commandService.execute(new LockAndUpdateRequestInfoBatchCommand(batchSize, null, null));
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<RequestInfo> getRequestsForProcessing(int batchSize, int minPriority, int maxPriority) {
+        
+        return commandService.execute(new LockAndUpdateRequestInfoBatchCommand(batchSize, minPriority, maxPriority));
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPendingRequestsCount(int minPriority, int maxPriority) {
+        return getPendingRequestsCount(minPriority, maxPriority, null);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPendingRequestsCount(int minPriority, int maxPriority, String deploymentId) {
+        Object[] statistics = getPendingRequestsStatistics(minPriority, maxPriority, deploymentId);
+        if (statistics == null || statistics[0] == null) {
+            return 0;
+        }
+        return ((Number) statistics[0]).longValue();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Date getOldestPendingRequestTime(int minPriority, int maxPriority) {
+        return getOldestPendingRequestTime(minPriority, maxPriority, null);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Date getOldestPendingRequestTime(int minPriority, int maxPriority, String deploymentId) {
+        Object[] statistics = getPendingRequestsStatistics(minPriority, maxPriority, deploymentId);
+        if (statistics == null) {
+            return null;
+        }
+        return (Date) statistics[1];
+    }
+    
+    protected Object[] getPendingRequestsStatistics(int minPriority, int maxPriority, String deploymentId) {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("now", new Date());
+        params.put("owner", ExecutorService.EXECUTOR_ID);
+        params.put("minPriority", minPriority);
+        params.put("maxPriority", maxPriority);
+        String queryName = "PendingRequestsStatisticsByPriority";
+        if (deploymentId != null) {
+            params.put("deploymentId", deploymentId);
+            queryName = "PendingRequestsStatisticsByPriorityAndDeployment";
+        }
+        List<Object[]> result = commandService.execute(new org.jbpm.shared.services.impl.commands.QueryNameCommand<List<Object[]>>(queryName, params));
+        if (result == null || result.isEmpty()) {
+            return null;
+        }
+        return result.get(0);
+    }
+    
     public RequestInfo getRequestForProcessing(Long requestId) {
         
         // need to do the lock here to avoid many executor services fetch the same element
@@ -250,6 +330,52 @@ public class ExecutorQueryServiceImpl implements ExecutorQueryService {
     	
     }
     
+    private class LockAndUpdateRequestInfoBatchCommand implements ExecutableCommand<List<RequestInfo>> {
+
+        private static final long serialVersionUID = -2424839765289640282L;
+        
+        private int batchSize;
+        private Integer minPriority;
+        private Integer maxPriority;
+        
+        LockAndUpdateRequestInfoBatchCommand(int batchSize, Integer minPriority, Integer maxPriority) {
+            this.batchSize = batchSize;
+            this.minPriority = minPriority;
+            this.maxPriority = maxPriority;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public List<RequestInfo> execute(Context context) {
+            Map<String, Object> params = new HashMap<String, Object>();
+            params.put("now", new Date());
+            params.put("firstResult", 0);
+            params.put("maxResults", batchSize);
+            params.put("owner", ExecutorService.EXECUTOR_ID);
+            String queryName = "PendingRequestsForProcessing";
+            if (minPriority != null && maxPriority != null) {
+                params.put("minPriority", minPriority);
+                params.put("maxPriority", maxPriority);
+                queryName = "PendingRequestsForProcessingByPriority";
+            }
+            List<RequestInfo> claimed = new ArrayList<RequestInfo>();
+            org.jbpm.shared.services.impl.JpaPersistenceContext ctx = (org.jbpm.shared.services.impl.JpaPersistenceContext) context;
+            List<RequestInfo> found = ctx.queryAndLockWithParametersInTransaction(queryName, params, false, List.class);
+            if (found != null) {
+                Date claimedAt = new Date();
+                for (RequestInfo request : found) {
+                    request.setStatus(STATUS.RUNNING);
+                    // update date on when it was claimed for execution
+                    ((org.jbpm.executor.entities.RequestInfo)request).setTime(claimedAt);
+                    claimed.add(ctx.merge(request));
+                }
+            }
+            
+            return claimed;
+        }
+        
+    }
+    
     private class LockAndUpdateRequestInfoByIdCommand implements ExecutableCommand<RequestInfo> {
 
         private static final long serialVersionUID = 8670412133363766161L;
@@ -17,8 +17,10 @@
 package org.jbpm.executor.impl.jpa;
 
 import org.drools.core.command.impl.ExecutableCommand;
+import org.jbpm.executor.AfterCommitAware;
 import org.jbpm.executor.ExecutorServiceFactory;
 import org.jbpm.executor.impl.event.ExecutorEventSupport;
+import org.jbpm.runtime.manager.impl.tx.TransactionManagerLookup;
 import org.kie.api.executor.ErrorInfo;
 import org.kie.api.executor.ExecutorStoreService;
 import org.kie.api.executor.RequestInfo;
@@ -36,12 +38,14 @@ import java.util.Map;
  * IMPORTANT: please keep all classes from package org.jbpm.shared.services.impl as FQCN
  * inside method body to avoid exception logged by CDI when used with in memory mode
  */
-public class JPAExecutorStoreService implements ExecutorStoreService{
+public class JPAExecutorStoreService implements ExecutorStoreService, AfterCommitAware {
 	
 	private EntityManagerFactory emf;
     private CommandExecutor commandService;
     
     private ExecutorEventSupport eventSupport = new ExecutorEventSupport();
+    
+    private final TransactionManagerLookup transactionManagerLookup = new TransactionManagerLookup();
 
 
     public JPAExecutorStoreService(boolean active) {
@@ -111,6 +115,34 @@ public class JPAExecutorStoreService implements ExecutorStoreService{
 		return ExecutorServiceFactory.buildRunable(emf, eventSupport);
 	}
 
+    @Override
+    public void afterCommit(String identifier, final Runnable action) {
+        org.drools.persistence.TransactionManager txm = getTransactionManager();
+        if (txm == null || txm.getStatus() != org.drools.persistence.TransactionManager.STATUS_ACTIVE) {
+            action.run();
+            return;
+        }
+        org.drools.persistence.TransactionManagerHelper.registerTransactionSyncInContainer(txm, 
+                new org.drools.persistence.OrderedTransactionSynchronization(10, "ExecutorAfterCommit-" + identifier) {
+
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == org.drools.persistence.TransactionManager.STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    protected org.drools.persistence.TransactionManager getTransactionManager() {
+        // without transaction manager actions do not wait for transaction completion
+        return transactionManagerLookup.getTransactionManager();
+    }
+
 
     private class LockAndCancelRequestInfoCommand implements ExecutableCommand<RequestInfo> {
 
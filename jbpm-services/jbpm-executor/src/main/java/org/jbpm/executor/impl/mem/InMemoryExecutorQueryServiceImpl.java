@@ -19,12 +19,15 @@ package org.jbpm.executor.impl.mem;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.Predicate;
+import org.jbpm.executor.BatchClaimAware;
+import org.jbpm.executor.PriorityLaneAware;
 import org.kie.api.executor.ErrorInfo;
 import org.kie.api.executor.RequestInfo;
 import org.kie.api.executor.STATUS;
@@ -33,7 +36,7 @@ import org.kie.internal.executor.api.ExecutorQueryService;
 
 
 @SuppressWarnings("unchecked")
-public class InMemoryExecutorQueryServiceImpl implements ExecutorQueryService {
+public class InMemoryExecutorQueryServiceImpl implements ExecutorQueryService, BatchClaimAware, PriorityLaneAware {
 
 	private InMemoryExecutorStoreService storeService;
 	
@@ -153,6 +156,58 @@ public class InMemoryExecutorQueryServiceImpl implements ExecutorQueryService {
 		return storeService.getAndLockFirst();
 	}
 	
+	@Override
+	public List<RequestInfo> getRequestsForProcessing(int batchSize) {
+		
+		return storeService.getAndLockFirst(batchSize);
+	}
+	
+	@Override
+	public List<RequestInfo> getRequestsForProcessing(int batchSize, int minPriority, int maxPriority) {
+		
+		return storeService.getAndLockFirst(batchSize, minPriority, maxPriority);
+	}
+	
+	@Override
+	public long getPendingRequestsCount(int minPriority, int maxPriority) {
+		
+		return getPendingRequests(minPriority, maxPriority, null).size();
+	}
+	
+	@Override
+	public long getPendingRequestsCount(int minPriority, int maxPriority, String deploymentId) {
+		
+		return getPendingRequests(minPriority, maxPriority, deploymentId).size();
+	}
+	
+	@Override
+	public Date getOldestPendingRequestTime(int minPriority, int maxPriority) {
+		
+		return getOldestPendingRequestTime(minPriority, maxPriority, null);
+	}
+	
+	@Override
+	public Date getOldestPendingRequestTime(int minPriority, int maxPriority, String deploymentId) {
+		Date oldest = null;
+		for (RequestInfo request : getPendingRequests(minPriority, maxPriority, deploymentId)) {
+			if (oldest == null || request.getTime().before(oldest)) {
+				oldest = request.getTime();
+			}
+		}
+		return oldest;
+	}
+	
+	protected List<RequestInfo> getPendingRequests(int minPriority, int maxPriority, String deploymentId) {
+		List<RequestInfo> pending = new ArrayList<RequestInfo>();
+		for (RequestInfo request : getPendingRequests()) {
+			if (InMemoryExecutorStoreService.isInPriorityRange(request, minPriority, maxPriority)
+					&& (deploymentId == null || deploymentId.equals(request.getDeploymentId()))) {
+				pending.add(request);
+			}
+		}
+		return pending;
+	}
+	
 	private class GetRequestsByStatus implements Predicate {
 		
 		private List<STATUS> statuses;
@@ -17,6 +17,8 @@
 package org.jbpm.executor.impl.mem;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
@@ -140,6 +142,38 @@ public class InMemoryExecutorStoreService implements ExecutorStoreService {
 		return requests.remove(toProceed);
 	}
 	
+	public synchronized List<RequestInfo> getAndLockFirst(int batchSize) {
+		List<RequestInfo> claimed = new ArrayList<RequestInfo>();
+		while (claimed.size() < batchSize && !requests.isEmpty()) {
+			claimed.add(requests.pollFirstEntry().getValue());
+		}
+		
+		return claimed;
+	}
+	
+	public synchronized List<RequestInfo> getAndLockFirst(int batchSize, int minPriority, int maxPriority) {
+		List<RequestInfo> claimed = new ArrayList<RequestInfo>();
+		for (RequestInfo request : requests.values()) {
+			if (claimed.size() >= batchSize) {
+				break;
+			}
+			if (isInPriorityRange(request, minPriority, maxPriority)) {
+				claimed.add(request);
+			}
+		}
+		for (RequestInfo request : claimed) {
+			requests.remove(request.getId());
+		}
+		
+		return claimed;
+	}
+	
+	public static boolean isInPriorityRange(RequestInfo request, int minPriority, int maxPriority) {
+		int priority = ((org.jbpm.executor.entities.RequestInfo) request).getPriority();
+		
+		return priority >= minPriority && priority <= maxPriority;
+	}
+	
 	public synchronized Map<Long, RequestInfo> getRequests() {
 		return requests;
 	}
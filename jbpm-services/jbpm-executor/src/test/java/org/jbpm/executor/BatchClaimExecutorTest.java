@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jbpm.executor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.jbpm.executor.impl.ExecutorServiceImpl;
+import org.jbpm.executor.test.CountDownAsyncJobListener;
+import org.jbpm.test.util.ExecutorTestUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.api.executor.CommandContext;
+import org.kie.api.executor.ExecutorService;
+import org.kie.api.executor.RequestInfo;
+import org.kie.api.runtime.query.QueryContext;
+
+import bitronix.tm.resource.jdbc.PoolingDataSource;
+
+
+public class BatchClaimExecutorTest {
+
+    protected ExecutorService executorService;
+
+    private PoolingDataSource pds;
+    private EntityManagerFactory emf = null;
+
+    @Before
+    public void setUp() {
+        System.setProperty("org.kie.executor.batch.size", "5");
+        pds = ExecutorTestUtil.setupPoolingDataSource();
+        emf = Persistence.createEntityManagerFactory("org.jbpm.executor");
+
+        executorService = ExecutorServiceFactory.newExecutorService(emf);
+        executorService.setThreadPoolSize(2);
+        executorService.setInterval(1000);
+        executorService.setTimeunit(TimeUnit.MILLISECONDS);
+
+        executorService.init();
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("org.kie.executor.batch.size");
+        executorService.clearAllRequests();
+        executorService.clearAllErrors();
+
+        executorService.destroy();
+        if (emf != null) {
+            emf.close();
+        }
+        pds.close();
+    }
+
+    protected CountDownAsyncJobListener configureListener(int threads) {
+        CountDownAsyncJobListener countDownListener = new CountDownAsyncJobListener(threads);
+        ((ExecutorServiceImpl) executorService).addAsyncJobListener(countDownListener);
+
+        return countDownListener;
+    }
+
+    @Test
+    public void batchExecutionTest() throws InterruptedException {
+        CountDownAsyncJobListener countDownListener = configureListener(12);
+
+        for (int i = 0; i < 12; i++) {
+            CommandContext ctxCMD = new CommandContext();
+            ctxCMD.setData("businessKey", UUID.randomUUID().toString());
+
+            executorService.scheduleRequest("org.jbpm.executor.commands.PrintOutCommand", ctxCMD);
+        }
+
+        countDownListener.waitTillCompleted();
+
+        List<RequestInfo> inErrorRequests = executorService.getInErrorRequests(new QueryContext());
+        assertEquals(0, inErrorRequests.size());
+        List<RequestInfo> queuedRequests = executorService.getQueuedRequests(new QueryContext());
+        assertEquals(0, queuedRequests.size());
+        List<RequestInfo> executedRequests = executorService.getCompletedRequests(new QueryContext());
+        assertEquals(12, executedRequests.size());
+    }
+}
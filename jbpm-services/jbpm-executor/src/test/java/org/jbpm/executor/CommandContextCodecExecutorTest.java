@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jbpm.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.jbpm.executor.impl.ExecutorServiceImpl;
+import org.jbpm.executor.impl.codec.CommandContextCodecFactory;
+import org.jbpm.executor.impl.codec.CompactCommandContextCodec;
+import org.jbpm.executor.test.CountDownAsyncJobListener;
+import org.jbpm.test.util.ExecutorTestUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.api.executor.CommandContext;
+import org.kie.api.executor.ExecutionResults;
+import org.kie.api.executor.ExecutorService;
+import org.kie.api.executor.RequestInfo;
+import org.kie.api.runtime.query.QueryContext;
+
+import bitronix.tm.resource.jdbc.PoolingDataSource;
+
+
+public class CommandContextCodecExecutorTest {
+
+    protected ExecutorService executorService;
+
+    private PoolingDataSource pds;
+    private EntityManagerFactory emf = null;
+
+    @Before
+    public void setUp() {
+        pds = ExecutorTestUtil.setupPoolingDataSource();
+        emf = Persistence.createEntityManagerFactory("org.jbpm.executor");
+
+        executorService = ExecutorServiceFactory.newExecutorService(emf);
+        executorService.setThreadPoolSize(1);
+        executorService.setInterval(1000);
+        executorService.setTimeunit(TimeUnit.MILLISECONDS);
+
+        executorService.init();
+    }
+
+    @After
+    public void tearDown() {
+        executorService.clearAllRequests();
+        executorService.clearAllErrors();
+
+        executorService.destroy();
+        if (emf != null) {
+            emf.close();
+        }
+        pds.close();
+    }
+
+    @Test
+    public void requestAndResponseDataEncodedWithCodecTest() throws Exception {
+        CountDownAsyncJobListener countDownListener = new CountDownAsyncJobListener(1);
+        ((ExecutorServiceImpl) executorService).addAsyncJobListener(countDownListener);
+        String businessKey = UUID.randomUUID().toString();
+        CommandContext ctxCMD = new CommandContext();
+        ctxCMD.setData("businessKey", businessKey);
+        ctxCMD.setData("retries", 0);
+
+        executorService.scheduleRequest("org.jbpm.executor.test.ReturnResultsCommand", ctxCMD);
+        countDownListener.waitTillCompleted();
+
+        List<RequestInfo> executedRequests = executorService.getCompletedRequests(new QueryContext());
+        assertEquals(1, executedRequests.size());
+
+        ClassLoader cl = getClass().getClassLoader();
+        RequestInfo request = executorService.getRequestById(executedRequests.get(0).getId());
+        // java serialization is the default so stored data stays readable by previous versions
+        assertFalse(CompactCommandContextCodec.isCompact(request.getRequestData()));
+        CommandContext storedContext = CommandContextCodecFactory.get().decodeContext(request.getRequestData(), cl);
+        assertEquals(businessKey, storedContext.getData("businessKey"));
+
+        assertFalse(CompactCommandContextCodec.isCompact(request.getResponseData()));
+        ExecutionResults results = CommandContextCodecFactory.get().decodeResults(request.getResponseData(), cl);
+        assertEquals("results of " + businessKey, results.getData("custom"));
+        assertEquals(42L, results.getData("count"));
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jbpm.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.jbpm.executor.impl.ExecutorServiceImpl;
+import org.jbpm.executor.impl.PriorityLane;
+import org.jbpm.executor.test.CountDownAsyncJobListener;
+import org.jbpm.test.util.ExecutorTestUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.api.executor.CommandContext;
+import org.kie.api.executor.ExecutorService;
+import org.kie.api.executor.RequestInfo;
+import org.kie.api.runtime.query.QueryContext;
+
+import bitronix.tm.resource.jdbc.PoolingDataSource;
+
+
+public class PriorityLaneExecutorTest {
+
+    protected ExecutorService executorService;
+
+    private PoolingDataSource pds;
+    private EntityManagerFactory emf = null;
+
+    @Before
+    public void setUp() {
+        System.setProperty("org.kie.executor.lanes", "high:5-9:1,low:0-4:1");
+        pds = ExecutorTestUtil.setupPoolingDataSource();
+        emf = Persistence.createEntityManagerFactory("org.jbpm.executor");
+
+        executorService = ExecutorServiceFactory.newExecutorService(emf);
+        executorService.setThreadPoolSize(2);
+        executorService.setInterval(1000);
+        executorService.setTimeunit(TimeUnit.MILLISECONDS);
+
+        executorService.init();
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("org.kie.executor.lanes");
+        executorService.clearAllRequests();
+        executorService.clearAllErrors();
+
+        executorService.destroy();
+        if (emf != null) {
+            emf.close();
+        }
+        pds.close();
+    }
+
+    protected CountDownAsyncJobListener configureListener(int threads) {
+        CountDownAsyncJobListener countDownListener = new CountDownAsyncJobListener(threads);
+        ((ExecutorServiceImpl) executorService).addAsyncJobListener(countDownListener);
+
+        return countDownListener;
+    }
+
+    @Test
+    public void priorityLanesExecutionTest() throws InterruptedException {
+        CountDownAsyncJobListener countDownListener = configureListener(6);
+
+        for (int i = 0; i < 6; i++) {
+            CommandContext ctxCMD = new CommandContext();
+            ctxCMD.setData("businessKey", UUID.randomUUID().toString());
+            ctxCMD.setData("priority", i % 2 == 0 ? 8 : 1);
+
+            executorService.scheduleRequest("org.jbpm.executor.commands.PrintOutCommand", ctxCMD);
+        }
+
+        countDownListener.waitTillCompleted();
+
+        List<RequestInfo> inErrorRequests = executorService.getInErrorRequests(new QueryContext());
+        assertEquals(0, inErrorRequests.size());
+        List<RequestInfo> executedRequests = executorService.getCompletedRequests(new QueryContext());
+        assertEquals(6, executedRequests.size());
+
+        List<PriorityLane> lanes = ((ExecutorServiceImpl) executorService).getPriorityLanes();
+        assertEquals(2, lanes.size());
+        for (PriorityLane lane : lanes) {
+            assertEquals(3, lane.getClaimedRequests());
+            assertEquals(0, ((ExecutorServiceImpl) executorService).getQueueDepth(lane));
+            assertEquals(0, ((ExecutorServiceImpl) executorService).getWaitTime(lane));
+        }
+    }
+
+    @Test
+    public void laneStatisticsByOwnerAndDeploymentTest() throws InterruptedException {
+        // executor threads start with initial delay so jobs are still pending when statistics are taken
+        scheduleRequest("deployment-a", null);
+        scheduleRequest("deployment-a", null);
+        scheduleRequest("deployment-b", null);
+        // owned by other executor so not to be processed by lanes of this one
+        scheduleRequest("deployment-a", "other-executor");
+        Thread.sleep(100);
+
+        ExecutorServiceImpl service = (ExecutorServiceImpl) executorService;
+        PriorityLane high = service.getPriorityLanes().get(0);
+        assertEquals(3, service.getQueueDepth(high));
+        assertEquals(2, service.getQueueDepth(high, "deployment-a"));
+        assertEquals(1, service.getQueueDepth(high, "deployment-b"));
+        assertEquals(0, service.getQueueDepth(high, "deployment-c"));
+        assertTrue(service.getWaitTime(high, "deployment-b") > 0);
+        assertEquals(0, service.getWaitTime(high, "deployment-c"));
+    }
+
+    private void scheduleRequest(String deploymentId, String owner) {
+        CommandContext ctxCMD = new CommandContext();
+        ctxCMD.setData("businessKey", UUID.randomUUID().toString());
+        ctxCMD.setData("priority", 8);
+        ctxCMD.setData("deploymentId", deploymentId);
+        if (owner != null) {
+            ctxCMD.setData("owner", owner);
+        }
+
+        executorService.scheduleRequest("org.jbpm.executor.commands.PrintOutCommand", ctxCMD);
+    }
+
+    @Test
+    public void parseLanesTest() {
+        List<PriorityLane> lanes = PriorityLane.parse("high:7-9:2, normal:3-6:2, low:0-2:1");
+        assertEquals(3, lanes.size());
+        assertEquals("high", lanes.get(0).getName());
+        assertEquals(7, lanes.get(0).getMinPriority());
+        assertEquals(9, lanes.get(0).getMaxPriority());
+        assertEquals(2, lanes.get(0).getThreads());
+        assertEquals(1, lanes.get(2).getThreads());
+
+        assertTrue(PriorityLane.parse(null).isEmpty());
+    }
+
+    @Test
+    public void parseLanesWithUncoveredPrioritiesTest() {
+        List<PriorityLane> lanes = PriorityLane.parse("normal:3-6:2");
+        assertEquals(3, lanes.size());
+        assertEquals(PriorityLane.DEFAULT_LANE, lanes.get(1).getName());
+        assertEquals(0, lanes.get(1).getMinPriority());
+        assertEquals(2, lanes.get(1).getMaxPriority());
+        assertEquals(1, lanes.get(1).getThreads());
+        assertEquals(PriorityLane.DEFAULT_LANE, lanes.get(2).getName());
+        assertEquals(7, lanes.get(2).getMinPriority());
+        assertEquals(9, lanes.get(2).getMaxPriority());
+    }
+
+    @Test
+    public void uncoveredPriorityExecutedTest() throws InterruptedException {
+        executorService.destroy();
+        System.setProperty("org.kie.executor.lanes", "high:7-9:1");
+        executorService = ExecutorServiceFactory.newExecutorService(emf);
+        executorService.setInterval(1000);
+        executorService.setTimeunit(TimeUnit.MILLISECONDS);
+        executorService.init();
+
+        CountDownAsyncJobListener countDownListener = configureListener(1);
+        CommandContext ctxCMD = new CommandContext();
+        ctxCMD.setData("businessKey", UUID.randomUUID().toString());
+        ctxCMD.setData("priority", 2);
+        executorService.scheduleRequest("org.jbpm.executor.commands.PrintOutCommand", ctxCMD);
+
+        // no lane was configured for the priority, without the default lane the job would never run
+        countDownListener.waitTillCompleted(10000);
+
+        assertEquals(1, executorService.getCompletedRequests(new QueryContext()).size());
+        List<PriorityLane> lanes = ((ExecutorServiceImpl) executorService).getPriorityLanes();
+        assertEquals(2, lanes.size());
+        assertEquals(1, lanes.get(1).getClaimedRequests());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseInvalidLaneTest() {
+        PriorityLane.parse("high:9-7:2");
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.executor.impl;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.jbpm.executor.commands.PrintOutCommand;
+import org.jbpm.executor.test.CustomCallback;
+import org.jbpm.runtime.manager.impl.CacheManagerImpl;
+import org.junit.After;
+import org.junit.Test;
+import org.kie.api.executor.Command;
+import org.kie.api.executor.CommandCallback;
+import org.kie.internal.runtime.manager.CacheManager;
+
+public class ClassCacheManagerTest {
+
+    private ClassCacheManager classCacheManager = new ClassCacheManager();
+    private ClassLoader cl = getClass().getClassLoader();
+    private ClassLoader deploymentCl = new URLClassLoader(new URL[0], cl);
+
+    @After
+    public void cleanup() {
+        classCacheManager.dispose();
+    }
+
+    @Test
+    public void testInstancesCachedPerClassLoader() {
+        Command command = classCacheManager.findCommand(PrintOutCommand.class.getName(), cl);
+        assertSame(command, classCacheManager.findCommand(PrintOutCommand.class.getName(), cl));
+
+        Command deploymentCommand = classCacheManager.findCommand(PrintOutCommand.class.getName(), deploymentCl);
+        assertNotSame(command, deploymentCommand);
+        assertSame(deploymentCommand, classCacheManager.findCommand(PrintOutCommand.class.getName(), deploymentCl));
+
+    }
+
+    @Test
+    public void testCallbacksNotCached() {
+        CommandCallback callback = classCacheManager.findCommandCallback(CustomCallback.class.getName(), cl);
+        assertNotSame(callback, classCacheManager.findCommandCallback(CustomCallback.class.getName(), cl));
+    }
+
+    @Test
+    public void testEvictClassLoader() {
+        Command command = classCacheManager.findCommand(PrintOutCommand.class.getName(), cl);
+        Command deploymentCommand = classCacheManager.findCommand(PrintOutCommand.class.getName(), deploymentCl);
+
+        classCacheManager.evict(deploymentCl);
+
+        assertSame(command, classCacheManager.findCommand(PrintOutCommand.class.getName(), cl));
+        assertNotSame(deploymentCommand, classCacheManager.findCommand(PrintOutCommand.class.getName(), deploymentCl));
+    }
+
+    @Test
+    public void testDeploymentCommandsCachedInDeploymentCache() {
+        CacheManager deploymentCache = new CacheManagerImpl();
+        Command command = classCacheManager.findCommand(PrintOutCommand.class.getName(), deploymentCache, deploymentCl);
+        assertSame(command, classCacheManager.findCommand(PrintOutCommand.class.getName(), deploymentCache, deploymentCl));
+        assertNotSame(command, classCacheManager.findCommand(PrintOutCommand.class.getName(), deploymentCl));
+
+        // runtime manager of the deployment is closed on undeploy
+        deploymentCache.dispose();
+        assertNotSame(command, classCacheManager.findCommand(PrintOutCommand.class.getName(), deploymentCache, deploymentCl));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownCommand() {
+        classCacheManager.findCommand("org.jbpm.executor.commands.NotExistingCommand", cl);
+    }
+}
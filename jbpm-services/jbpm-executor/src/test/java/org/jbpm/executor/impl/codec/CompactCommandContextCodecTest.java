@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.executor.impl.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.jbpm.executor.CommandContextCodec;
+import org.junit.Test;
+import org.kie.api.executor.CommandContext;
+import org.kie.api.executor.ExecutionResults;
+
+public class CompactCommandContextCodecTest {
+
+    private CommandContextCodec codec = new CompactCommandContextCodec();
+    private ClassLoader cl = getClass().getClassLoader();
+
+    @Test
+    public void testRoundTripOfCommonTypes() throws Exception {
+        CommandContext ctx = buildContext();
+
+        byte[] data = codec.encodeContext(ctx);
+        assertTrue(CompactCommandContextCodec.isCompact(data));
+
+        CommandContext decoded = codec.decodeContext(data, cl);
+        assertEquals(ctx.getData().size(), decoded.getData().size());
+        for (Map.Entry<String, Object> entry : ctx.getData().entrySet()) {
+            if (entry.getValue() instanceof byte[]) {
+                assertArrayEquals((byte[]) entry.getValue(), (byte[]) decoded.getData(entry.getKey()));
+            } else {
+                assertEquals(entry.getValue(), decoded.getData(entry.getKey()));
+            }
+        }
+        // not natively supported collection is java serialized and keeps its type
+        assertTrue(decoded.getData("linkedList") instanceof LinkedList);
+    }
+
+    @Test
+    public void testRoundTripOfResults() throws Exception {
+        ExecutionResults results = new ExecutionResults();
+        results.setData("custom", "custom callback invoked");
+        results.setData("count", -15L);
+        results.setData("empty", null);
+
+        ExecutionResults decoded = codec.decodeResults(codec.encodeResults(results), cl);
+        assertEquals("custom callback invoked", decoded.getData("custom"));
+        assertEquals(-15L, decoded.getData("count"));
+        assertNull(decoded.getData("empty"));
+    }
+
+    @Test
+    public void testReadJavaSerializedData() throws Exception {
+        CommandContext ctx = buildContext();
+
+        byte[] data = new JavaSerializationCodec().encodeContext(ctx);
+        assertFalse(CompactCommandContextCodec.isCompact(data));
+
+        CommandContext decoded = codec.decodeContext(data, cl);
+        assertEquals(ctx.getData("businessKey"), decoded.getData("businessKey"));
+        // and the other way around
+        decoded = new JavaSerializationCodec().decodeContext(codec.encodeContext(ctx), cl);
+        assertEquals(ctx.getData("businessKey"), decoded.getData("businessKey"));
+    }
+
+    @Test
+    public void testCompactIsSmallerThanJavaSerialization() throws Exception {
+        CommandContext ctx = buildContext();
+        ctx.getData().remove("linkedList");
+
+        assertTrue(codec.encodeContext(ctx).length < new JavaSerializationCodec().encodeContext(ctx).length);
+    }
+
+    protected static CommandContext buildContext() {
+        CommandContext ctx = new CommandContext();
+        ctx.setData("businessKey", UUID.randomUUID().toString());
+        ctx.setData("deploymentId", "org.jbpm:test:1.0");
+        ctx.setData("processInstanceId", 125L);
+        ctx.setData("retries", 5);
+        ctx.setData("priority", 9);
+        ctx.setData("negative", Integer.MIN_VALUE);
+        ctx.setData("large", Long.MAX_VALUE);
+        ctx.setData("flag", Boolean.TRUE);
+        ctx.setData("amount", 12.5d);
+        ctx.setData("rate", 0.25f);
+        ctx.setData("precise", new BigDecimal("12345.6789"));
+        ctx.setData("date", new Date());
+        ctx.setData("bytes", new byte[]{1, 2, 3});
+        ctx.setData("unicode", "žluťoučký kůň");
+
+        List<Long> retryDelay = new ArrayList<Long>();
+        retryDelay.add(1000L);
+        retryDelay.add(5000L);
+        ctx.setData("retryDelay", retryDelay);
+
+        Map<String, Object> nested = new HashMap<String, Object>();
+        nested.put("name", "john");
+        nested.put("age", 33);
+        ctx.setData("nested", nested);
+
+        ctx.setData("linkedList", new LinkedList<String>(Arrays.asList("a", "b")));
+        return ctx;
+    }
+}
@@ -257,6 +257,56 @@ public class CleanupLogCommandWithProcessTest extends AbstractExecutorBaseTest {
     }
     
     
+    @Test
+    public void testRunProcessWithAsyncHandlerChunked() throws Exception {
+        CountDownAsyncJobListener countDownListener = configureListener(1);
+        RuntimeEnvironment environment = RuntimeEnvironmentBuilder.Factory.get().newDefaultBuilder()
+                .userGroupCallback(userGroupCallback)
+                .entityManagerFactory(emf)
+                .addAsset(ResourceFactory.newClassPathResource("BPMN2-ScriptTask.bpmn2"), ResourceType.BPMN2)
+                .registerableItemsFactory(new DefaultRegisterableItemsFactory() {
+
+                    @Override
+                    public Map<String, WorkItemHandler> getWorkItemHandlers(RuntimeEngine runtime) {
+
+                        Map<String, WorkItemHandler> handlers = super.getWorkItemHandlers(runtime);
+                        handlers.put("async", new DoNothingWorkItemHandler());
+                        return handlers;
+                    }
+                    
+                })
+                .get();
+        
+        manager = RuntimeManagerFactory.Factory.get().newSingletonRuntimeManager(environment); 
+        assertNotNull(manager);
+        
+        RuntimeEngine runtime = manager.getRuntimeEngine(EmptyContext.get());
+        KieSession ksession = runtime.getKieSession();
+        assertNotNull(ksession);  
+        
+        for (int i = 0; i < 3; i++) {
+            ProcessInstance processInstance = ksession.startProcess("ScriptTask");
+            assertEquals(ProcessInstance.STATE_ACTIVE, processInstance.getState());
+            ksession.abortProcessInstance(processInstance.getId());
+        }
+        
+        assertEquals(3, getProcessLogSize("ScriptTask"));
+        assertEquals(18, getNodeInstanceLogSize("ScriptTask"));
+        
+        Thread.sleep(1000);
+        
+        CommandContext commandContext = buildLogCleanupContext(false, false, false, new Date(), "ScriptTask", "yyyy-MM-dd HH:mm:ss", manager.getIdentifier());
+        commandContext.setData("ChunkSize", "4");
+        commandContext.setData("ChunkPause", "10");
+        executorService.scheduleRequest("org.jbpm.executor.commands.LogCleanupCommand", commandContext);
+        countDownListener.waitTillCompleted();
+        
+        assertEquals(0, getProcessLogSize("ScriptTask"));
+        assertEquals(0, getNodeInstanceLogSize("ScriptTask"));
+        assertEquals(0, getTaskLogSize("ScriptTask"));
+        assertEquals(0, getVariableLogSize("ScriptTask"));
+    }
+    
     private ExecutorService buildExecutorService() {        
         emf = EntityManagerFactoryManager.get().getOrCreate("org.jbpm.persistence.complete");
 
@@ -270,6 +320,13 @@ public class CleanupLogCommandWithProcessTest extends AbstractExecutorBaseTest {
 	private void scheduleLogCleanup(boolean skipProcessLog,
 			boolean skipTaskLog, boolean skipExecutorLog, Date olderThan,
 			String forProcess, String dateFormat, String identifier) {
+		CommandContext commandContext = buildLogCleanupContext(skipProcessLog, skipTaskLog, skipExecutorLog, olderThan, forProcess, dateFormat, identifier);
+		executorService.scheduleRequest("org.jbpm.executor.commands.LogCleanupCommand", commandContext);
+	}
+	
+	private CommandContext buildLogCleanupContext(boolean skipProcessLog,
+			boolean skipTaskLog, boolean skipExecutorLog, Date olderThan,
+			String forProcess, String dateFormat, String identifier) {
 		CommandContext commandContext = new CommandContext();
 		commandContext.setData("EmfName", "org.jbpm.persistence.complete");
 		commandContext.setData("SkipProcessLog", String.valueOf(skipProcessLog));
@@ -281,7 +338,7 @@ public class CleanupLogCommandWithProcessTest extends AbstractExecutorBaseTest {
 		commandContext.setData("ForDeployment", identifier);
 		// commandContext.setData("OlderThanPeriod", olderThanPeriod);
 		commandContext.setData("ForProcess", forProcess);
-		executorService.scheduleRequest("org.jbpm.executor.commands.LogCleanupCommand", commandContext);
+		return commandContext;
 	}
 	
 	private int getProcessLogSize(String processId) {
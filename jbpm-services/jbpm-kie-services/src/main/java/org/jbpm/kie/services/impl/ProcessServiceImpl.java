@@ -359,8 +359,8 @@ public class ProcessServiceImpl implements ProcessService, VariablesAware {
         try {
             KieSession ksession = engine.getKieSession();
             WorkflowProcessInstanceImpl pi = (WorkflowProcessInstanceImpl) ksession.getProcessInstance(processInstanceId, true);
-
-        	return pi.getVariables();
+            // detached from the process instance that might be kept (and changed) by the session
+        	return new HashMap<String, Object>(pi.getVariables());
         } catch(SessionNotFoundException e) {
             throw new ProcessInstanceNotFoundException("Process instance with id " + processInstanceId + " was not found", e);
         } finally {
@@ -24,7 +24,7 @@ import javax.ejb.Singleton;
 import org.jbpm.executor.impl.ClassCacheManager;
 
 @Singleton
-@ConcurrencyManagement(ConcurrencyManagementType.CONTAINER)
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
 public class ClassCacheManagerEJBImpl extends ClassCacheManager {
 
 	@Override
@@ -19,10 +19,7 @@ package org.jbpm.executor.ejb.impl.test;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +34,7 @@ import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
 import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jbpm.executor.impl.codec.CommandContextCodecFactory;
 import org.jbpm.executor.impl.jpa.ExecutorJPAAuditService;
 import org.jbpm.services.ejb.api.ExecutorServiceEJB;
 import org.junit.After;
@@ -135,7 +133,7 @@ public class BasicExecutorIntegrationTest {
     }
     
     @Test
-    public void addAnotherCallbackTest() throws InterruptedException {
+    public void addAnotherCallbackTest() throws Exception {
 
         CommandContext commandContext = new CommandContext();
         commandContext.setData("businessKey", UUID.randomUUID().toString());
@@ -155,24 +153,9 @@ public class BasicExecutorIntegrationTest {
 
         assertEquals(2, ((AtomicLong) cachedEntities.get((String) commandContext.getData("businessKey"))).longValue());
 
-        ExecutionResults results = null;
         byte[] responseData = executedRequests.get(0).getResponseData();
-        ObjectInputStream in = null;
-        try {
-            in = new ObjectInputStream(new ByteArrayInputStream(responseData));
-            results = (ExecutionResults) in.readObject();
-        } catch (Exception e) {                        
-            logger.warn("Exception while serializing context data", e);
-            return;
-        } finally {
-            if (in != null) {
-                try {
-					in.close();
-				} catch (IOException e) {
-					e.printStackTrace();
-				}
-            }
-        }
+        // decode with the codec the executor stored the data with, any failure fails the test
+        ExecutionResults results = CommandContextCodecFactory.get().decodeResults(responseData, getClass().getClassLoader());
         
         String result = (String)results.getData("custom");
         assertNotNull(result);
@@ -180,7 +163,7 @@ public class BasicExecutorIntegrationTest {
     }
     
     @Test
-    public void multipleCallbackTest() throws InterruptedException {
+    public void multipleCallbackTest() throws Exception {
 
         CommandContext commandContext = new CommandContext();
         commandContext.setData("businessKey", UUID.randomUUID().toString());
@@ -200,24 +183,9 @@ public class BasicExecutorIntegrationTest {
 
         assertEquals(2, ((AtomicLong) cachedEntities.get((String) commandContext.getData("businessKey"))).longValue());
 
-        ExecutionResults results = null;
         byte[] responseData = executedRequests.get(0).getResponseData();
-        ObjectInputStream in = null;
-        try {
-            in = new ObjectInputStream(new ByteArrayInputStream(responseData));
-            results = (ExecutionResults) in.readObject();
-        } catch (Exception e) {                        
-            logger.warn("Exception while serializing context data", e);
-            return;
-        } finally {
-            if (in != null) {
-                try {
-					in.close();
-				} catch (IOException e) {
-					e.printStackTrace();
-				}
-            }
-        }
+        // decode with the codec the executor stored the data with, any failure fails the test
+        ExecutionResults results = CommandContextCodecFactory.get().decodeResults(responseData, getClass().getClassLoader());
         
         String result = (String)results.getData("custom");
         assertNotNull(result);
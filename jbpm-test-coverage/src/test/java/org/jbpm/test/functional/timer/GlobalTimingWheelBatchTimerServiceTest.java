@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.test.functional.timer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.Persistence;
+
+import org.jbpm.process.core.timer.impl.TimingWheelSchedulerService;
+import org.jbpm.test.listener.CountDownProcessEventListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.kie.api.event.process.DefaultProcessEventListener;
+import org.kie.api.event.process.ProcessEventListener;
+import org.kie.api.event.process.ProcessNodeLeftEvent;
+import org.kie.api.io.ResourceType;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.manager.RuntimeEngine;
+import org.kie.api.runtime.manager.RuntimeEnvironment;
+import org.kie.api.runtime.manager.RuntimeEnvironmentBuilder;
+import org.kie.api.runtime.manager.RuntimeManager;
+import org.kie.api.runtime.manager.RuntimeManagerFactory;
+import org.kie.api.runtime.process.ProcessInstance;
+import org.kie.internal.io.ResourceFactory;
+import org.kie.internal.runtime.manager.SessionNotFoundException;
+import org.kie.internal.runtime.manager.context.ProcessInstanceIdContext;
+
+/**
+ * Runs global timer service tests with timers of the same ksession fired in batches by <code>TimingWheelSchedulerService</code>.
+ */
+@RunWith(Parameterized.class)
+public class GlobalTimingWheelBatchTimerServiceTest extends GlobalTimerServiceBaseTest {
+
+    private int managerType;
+
+    @Parameters
+    public static Collection<Object[]> persistence() {
+        Object[][] data = new Object[][] { { 1 }, { 2 }, { 3 }  };
+        return Arrays.asList(data);
+    };
+
+    public GlobalTimingWheelBatchTimerServiceTest(int managerType) {
+        this.managerType = managerType;
+    }
+
+    @Before
+    public void setUp() {
+        cleanupSingletonSessionId();
+        emf = Persistence.createEntityManagerFactory("org.jbpm.test.persistence");
+        TimingWheelSchedulerService timingWheelScheduler = new TimingWheelSchedulerService(3);
+        timingWheelScheduler.setBatchSize(10);
+        globalScheduler = timingWheelScheduler;
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            globalScheduler.shutdown();
+        } catch (Exception e) {
+
+        }
+        cleanup();
+    }
+
+    @Override
+    protected RuntimeManager getManager(RuntimeEnvironment environment, boolean waitOnStart) {
+        if (managerType ==1) {
+            return RuntimeManagerFactory.Factory.get().newSingletonRuntimeManager(environment);
+        } else if (managerType == 2) {
+            return RuntimeManagerFactory.Factory.get().newPerRequestRuntimeManager(environment);
+        } else if (managerType == 3) {
+            return RuntimeManagerFactory.Factory.get().newPerProcessInstanceRuntimeManager(environment);
+        } else {
+            throw new IllegalArgumentException("Invalid runtime maanger type");
+        }
+    }
+
+    @Test(timeout=30000)
+    public void testTimersOfManyProcessInstancesFiredTogether() throws Exception {
+        int instances = 25;
+        CountDownProcessEventListener countDownListener = new CountDownProcessEventListener("timer", instances * 3);
+        final List<Long> timerExporations = new ArrayList<Long>();
+        ProcessEventListener listener = new DefaultProcessEventListener(){
+
+            @Override
+            public void afterNodeLeft(ProcessNodeLeftEvent event) {
+                if (event.getNodeInstance().getNodeName().equals("timer")) {
+                    synchronized (timerExporations) {
+                        timerExporations.add(event.getProcessInstance().getId());
+                    }
+                }
+            }
+
+        };
+
+        environment = RuntimeEnvironmentBuilder.Factory.get()
+                .newDefaultBuilder()
+                .entityManagerFactory(emf)
+                .addAsset(ResourceFactory.newClassPathResource("org/jbpm/test/functional/timer/IntermediateCatchEventTimerCycle3.bpmn2"), ResourceType.BPMN2)
+                .schedulerService(globalScheduler)
+                .registerableItemsFactory(new TestRegisterableItemsFactory(listener, countDownListener))
+                .get();
+
+        manager = getManager(environment, true);
+
+        List<Long> processInstanceIds = new ArrayList<Long>();
+        for (int i = 0; i < instances; i++) {
+            RuntimeEngine runtime = manager.getRuntimeEngine(ProcessInstanceIdContext.get());
+            KieSession ksession = runtime.getKieSession();
+
+            ProcessInstance processInstance = ksession.startProcess("IntermediateCatchEvent");
+            assertTrue(processInstance.getState() == ProcessInstance.STATE_ACTIVE);
+            processInstanceIds.add(processInstance.getId());
+            manager.disposeRuntimeEngine(runtime);
+        }
+
+        countDownListener.waitTillCompleted();
+        assertEquals(instances * 3, timerExporations.size());
+
+        for (Long processInstanceId : processInstanceIds) {
+            try {
+                RuntimeEngine runtime = manager.getRuntimeEngine(ProcessInstanceIdContext.get(processInstanceId));
+                KieSession ksession = runtime.getKieSession();
+
+                assertNull(ksession.getProcessInstance(processInstanceId));
+                manager.disposeRuntimeEngine(runtime);
+            } catch (SessionNotFoundException e) {
+                // expected for PerProcessInstanceManagers since process instance is completed
+            }
+        }
+    }
+
+}